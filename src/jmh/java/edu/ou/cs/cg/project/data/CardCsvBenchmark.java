@@ -0,0 +1,152 @@
+package edu.ou.cs.cg.project.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.geom.Point2D;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CardCsvBenchmark Class
+ * Times reading a generated card CSV file with CardCsvParser against the split-based reader it replaced
+ *
+ * Run with: gradle jmh --args='CardCsvBenchmark'
+ *
+ * @author Parker Brandt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CardCsvBenchmark {
+
+    //****************************************
+    // Parameters
+    //****************************************
+    @Param("1000000")
+    private int rows;
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private File file;
+    private CardCsvParser parser;
+    private CardData data;
+
+
+    //****************************************
+    // Setup
+    //****************************************
+
+    /**
+     * Writes rows cards with zero to three trees each, like the ones the app saves
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("cards", ".csv");
+        parser = new CardCsvParser();
+        data = new CardData();
+
+        Random random = new Random(1);
+
+        try(BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+            for(int i = 0; i < rows; i++) {
+                out.write(i + "," + random.nextInt(8) + ",Happy Birthday " + i + ",Love from card " + i);
+
+                int trees = random.nextInt(4);
+                for(int t = 0; t < trees; t++) {
+                    out.write(String.format(Locale.ROOT, ",%s,%f,%f", random.nextBoolean() ? "front" : "back",
+                            random.nextFloat() * 0.8f, 0.2f + random.nextFloat() * 0.25f));
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+
+    //****************************************
+    // Benchmarks
+    //****************************************
+
+    /**
+     * Reads every card with the parser, reusing one CardData
+     */
+    @Benchmark
+    public int parser(Blackhole hole) throws IOException {
+        int trees = 0;
+
+        try(InputStream in = new FileInputStream(file)) {
+            parser.reset(in, file.getPath());
+
+            while(parser.next(data)) {
+                trees += data.getTreeCount();
+                hole.consume(data.getFrontText());
+                hole.consume(data.getInsideText());
+            }
+        }
+        return trees;
+    }
+
+    /**
+     * Reads every card the way Model.load() used to, splitting each line into strings and boxing the trees
+     */
+    @Benchmark
+    public int split(Blackhole hole) throws IOException {
+        int trees = 0;
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+
+            while((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                ArrayList<Point2D.Float> locations = new ArrayList<>();
+                ArrayList<Boolean> sides = new ArrayList<>();
+
+                hole.consume(Integer.parseInt(fields[0]));
+                hole.consume(Integer.parseInt(fields[1]));
+                hole.consume(fields[2]);
+                hole.consume(fields[3]);
+
+                for(int i = 4; i < fields.length; i += 3) {
+                    sides.add(fields[i].equals("front"));
+                    locations.add(new Point2D.Float(Float.parseFloat(fields[i+1]), Float.parseFloat(fields[i+2])));
+                }
+
+                trees += locations.size();
+                hole.consume(sides);
+            }
+        }
+        return trees;
+    }
+}
@@ -0,0 +1,195 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import java.awt.Font;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.util.awt.TextRenderer;
+
+import edu.ou.cs.cg.project.NullGL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//******************************************************************************
+
+/**
+ * Times the CPU side of drawing the text of a scene full of cards, one frame
+ * per operation: adding every line of every card to a <CODE>TextBatch</CODE>,
+ * with the layouts kept from frame to frame as CardText does, or laid out
+ * again every frame.<P>
+ *
+ * The drawn benchmarks also flush the batch, or draw the same lines with
+ * JOGL's TextRenderer the way CardText did before the glyph atlas, into a
+ * NullGL. That counts GL calls instead of making them, so driver and GPU
+ * time aren't included, and the GL calls of one frame of each are printed
+ * after the run.<P>
+ *
+ * Run with: gradle jmh --args='TextBatchBenchmark'
+ *
+ * @author  Parker Brandt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true" })
+public class TextBatchBenchmark
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int	LINES = 3;			// Per side of a card
+	private static final float	SCALE = 0.01f;		// As in CardText
+
+	//**********************************************************************
+	// Parameters
+	//**********************************************************************
+
+	@Param("1000")
+	private int					cards;
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private GlyphAtlas			atlas;
+	private TextBatch			batch;
+	private String[][]			text;		// Lines of each card, both sides
+	private GlyphAtlas.Layout[][]	layouts;	// Of each line, kept
+	private float[][]			matrices;	// World matrix of each card
+
+	private NullGL				gl;
+	private TextRenderer		renderer;	// As the View made it for CardText
+
+	//**********************************************************************
+	// Setup
+	//**********************************************************************
+
+	@Setup
+	public void	setUp()
+	{
+		atlas = GlyphAtlas.get(new Font("Monospaced", Font.PLAIN, 14));
+		batch = new TextBatch();
+		text = new String[cards][2 * LINES];
+		layouts = new GlyphAtlas.Layout[cards][2 * LINES];
+		matrices = new float[cards][16];
+
+		gl = NullGL.create(1280, 720);
+		gl.makeCurrent();
+		renderer = new TextRenderer(new Font("Monospaced", Font.PLAIN, 14),
+									true, true);
+
+		Random	random = new Random(1);
+
+		for (int i=0; i<cards; i++)
+		{
+			for (int j=0; j<2 * LINES; j++)
+			{
+				text[i][j] = ((j < LINES) ? "Happy Birthday " : "Love from ") +
+					"card " + i + " line " + j;
+				layouts[i][j] = atlas.layoutUncached(text[i][j]);
+			}
+
+			FloatUtil.makeTranslation(matrices[i], true,
+									  random.nextFloat() * 10.0f,
+									  random.nextFloat() * 10.0f,
+									  random.nextFloat() * -10.0f);
+		}
+	}
+
+	@TearDown
+	public void	tearDown()
+	{
+		long	calls = gl.getCalls();
+
+		batchDrawn();
+		System.out.println("GL calls, batchDrawn: " + (gl.getCalls() - calls));
+
+		calls = gl.getCalls();
+		textRenderer();
+		System.out.println("GL calls, textRenderer: " + (gl.getCalls() - calls));
+	}
+
+	//**********************************************************************
+	// Benchmarks
+	//**********************************************************************
+
+	// Batch the layouts each card keeps, as in every frame the text doesn't
+	// change.
+	@Benchmark
+	public void	keptLayouts()
+	{
+		for (int i=0; i<cards; i++)
+			for (int j=0; j<2 * LINES; j++)
+				batch.add(layouts[i][j], matrices[i], 0.0f,
+						  0.8f - 0.1f * (j % LINES), SCALE, 0.0f, 0.0f, 0.0f);
+
+		batch.clear();
+	}
+
+	// Lay out every line again before batching it, as for text that changes
+	// every frame.
+	@Benchmark
+	public void	newLayouts()
+	{
+		for (int i=0; i<cards; i++)
+			for (int j=0; j<2 * LINES; j++)
+				batch.add(atlas.layoutUncached(text[i][j]), matrices[i], 0.0f,
+						  0.8f - 0.1f * (j % LINES), SCALE, 0.0f, 0.0f, 0.0f);
+
+		batch.clear();
+	}
+
+	// Batch the kept layouts and draw them, as RenderQueue does every frame.
+	@Benchmark
+	public void	batchDrawn()
+	{
+		for (int i=0; i<cards; i++)
+			for (int j=0; j<2 * LINES; j++)
+				batch.add(layouts[i][j], matrices[i], 0.0f,
+						  0.8f - 0.1f * (j % LINES), SCALE, 0.0f, 0.0f, 0.0f);
+
+		batch.flush(gl);
+	}
+
+	// Draw every line with TextRenderer, one begin and end per side of a
+	// card in its world matrix, as CardText did before.
+	@Benchmark
+	public void	textRenderer()
+	{
+		for (int i=0; i<cards; i++)
+		{
+			for (int side=0; side<2; side++)
+			{
+				gl.glPushMatrix();
+				gl.glMultMatrixf(matrices[i], 0);
+				renderer.begin3DRendering();
+
+				for (int j=side * LINES; j<(side + 1) * LINES; j++)
+					renderer.draw3D(text[i][j], 0.0f,
+									0.8f - 0.1f * (j % LINES), 0.0f, SCALE);
+
+				renderer.end3DRendering();
+				gl.glPopMatrix();
+			}
+		}
+	}
+}
+
+//******************************************************************************
@@ -1,8 +1,11 @@
 package edu.ou.cs.cg.project;
 
-import edu.ou.cs.cg.utilities.Utilities;
+import edu.ou.cs.cg.utilities.CommandQueue;
 
 import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 
@@ -14,12 +17,36 @@ import java.awt.event.KeyEvent;
  */
 public class KeyHandler extends KeyAdapter {
 
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int COMMAND_CAPACITY = 1024;      // Keys that can wait for the next frame
+
+    // How fast held keys move the selected tree, in card units per second
+    private static final float MOVE_SPEED = Float.parseFloat(System.getProperty("cardgraphics.move.speed", "0.25"));
+    private static final float MOVE_ACCELERATION =                  // Per second held
+            Float.parseFloat(System.getProperty("cardgraphics.move.acceleration", "1.0"));
+    private static final float MOVE_MAX_SPEED = Float.parseFloat(System.getProperty("cardgraphics.move.maxspeed", "1.0"));
+    private static final float MAX_STEP = 0.1f;                     // Longest frame to move for, in seconds
+
     //****************************************
     // Private Variables
     //****************************************
     private final View view;
     private final Model model;
 
+    private final CommandQueue<KeyCommand> commands;   // Keys waiting for the GL thread
+    private volatile boolean dropped;   // A key didn't fit in the queue, so which keys are held isn't known
+
+    private boolean skipTyped;      // Don't type the key that started typing
+
+    // Keys held down, applied once a frame by update() instead of once per key repeat
+    private boolean upHeld, downHeld, leftHeld, rightHeld;
+    private boolean colorHeld;      // Color already changed for this press of C
+    private boolean moving;         // Is the selected tree being moved?
+    private float moveTime;         // Seconds the tree has been moving
+    private long lastUpdate;        // When update() was last called, in nanoseconds
+
 
     //****************************************
     // Constructor
@@ -35,87 +62,240 @@ public class KeyHandler extends KeyAdapter {
         // Initialize variables
         this.view = view;
         this.model = model;
+        this.commands = new CommandQueue<>(COMMAND_CAPACITY);
 
-        // Add key listening capabilities to the canvas
+        // Add key listening capabilities to the canvas, if there is one
         Component component = view.getCanvas();
+        if(component == null) {
+            return;
+        }
         component.addKeyListener(this);
+
+        // Keys released while the window doesn't have the focus never reach it
+        component.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                offer(new KeyCommand());
+            }
+        });
     }
 
 
     //****************************************
     // KeyListener Override Methods
     //****************************************
+
+    // Keys are only queued here, on the AWT event thread, to be handled on the GL thread by processCommands()
     @Override
     public void keyPressed(KeyEvent e) {
-        boolean b = Utilities.isShiftDown(e);
+        offer(new KeyCommand(KeyCommand.PRESSED, e));
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        offer(new KeyCommand(KeyCommand.RELEASED, e));
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        offer(new KeyCommand(KeyCommand.TYPED, e));
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
 
-        switch(e.getKeyCode()) {
+    /**
+     * Handles every key queued since the last call, in the order they happened
+     * Call on the GL thread, so the model and scene are only ever changed from there
+     * @return how many were handled
+     */
+    public int processCommands() {
+        int handled = commands.drain(this::handle);
+
+        // A dropped release would leave its key held for good, so let go of them all as losing the focus does
+        if(dropped) {
+            dropped = false;
+            releaseAll();
+        }
+
+        return handled;
+    }
+
+    /**
+     * Moves the selected tree for the keys held down, once a frame however often the keys repeat
+     * The tree speeds up the longer the keys are held, and the whole move is one edit to undo
+     * Call on the GL thread after processCommands()
+     * @param now the time of the frame, in nanoseconds
+     */
+    public void update(long now) {
+        float dt = (lastUpdate == 0) ? 0.0f : Math.min((now - lastUpdate) / 1.0e9f, MAX_STEP);
+        lastUpdate = now;
+
+        // A moves the tree towards +x on the card, D towards -x
+        int dx = (leftHeld ? 1 : 0) - (rightHeld ? 1 : 0);
+        int dy = (upHeld ? 1 : 0) - (downHeld ? 1 : 0);
+
+        if((dx == 0 && dy == 0) || !model.isEditMode() || model.isTextEditing()) {
+            if(moving) {
+                moving = false;
+                model.endTreeMove();
+            }
+            return;
+        }
+
+        if(!moving) {
+            moving = true;
+            moveTime = 0.0f;
+        }
+        moveTime += dt;
+
+        float step = Math.min(MOVE_SPEED + MOVE_ACCELERATION * moveTime, MOVE_MAX_SPEED) * dt;
+        if(dx != 0 && dy != 0) {
+            step *= (float)Math.sqrt(0.5);
+        }
+
+        model.moveTree(dx * step, dy * step);
+    }
+
+
+    //****************************************
+    // Getters
+    //****************************************
+
+    // Keys queued and not handled yet
+    int getQueued() {
+        return commands.size();
+    }
+
+    // Keys that didn't fit in the queue
+    long getDropped() {
+        return commands.getDropped();
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Queues a key for the GL thread, noting if the queue was too full to take it
+     * @param command
+     */
+    private void offer(KeyCommand command) {
+        if(!commands.offer(command)) {
+            dropped = true;
+        }
+    }
+
+    private void handle(KeyCommand e) {
+        switch(e.kind) {
+            case KeyCommand.PRESSED:
+                pressed(e);
+                break;
+
+            case KeyCommand.RELEASED:
+                released(e.keyCode);
+                break;
+
+            case KeyCommand.TYPED:
+                typed(e);
+                break;
+
+            case KeyCommand.FOCUS_LOST:
+                releaseAll();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Handles a key being pressed
+     * @param e
+     */
+    private void pressed(KeyCommand e) {
+        boolean b = e.isShiftDown();
+
+        // While typing on the card, keys edit the text instead
+        if(model.isTextEditing()) {
+            editText(e);
+            return;
+        }
+
+        switch(e.keyCode) {
 
             // Open the card at the number location on the shelves (1-9) if in edit mode
             case KeyEvent.VK_1:
                 if(model.getDisplayCards().size() >= 1 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(0));
+                    model.copyDisplayCard(0);
                 }
                 break;
 
             case KeyEvent.VK_2:
                 if(model.getDisplayCards().size() >= 2 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(1));
+                    model.copyDisplayCard(1);
                 }
                 break;
 
             case KeyEvent.VK_3:
                 if(model.getDisplayCards().size() >= 3 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(2));
+                    model.copyDisplayCard(2);
                 }
                 break;
 
             case KeyEvent.VK_4:
                 if(model.getDisplayCards().size() >= 4 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(3));
+                    model.copyDisplayCard(3);
                 }
                 break;
 
             case KeyEvent.VK_5:
                 if(model.getDisplayCards().size() >= 5 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(4));
+                    model.copyDisplayCard(4);
                 }
                 break;
 
             case KeyEvent.VK_6:
                 if(model.getDisplayCards().size() >= 6 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(5));
+                    model.copyDisplayCard(5);
                 }
                 break;
 
             case KeyEvent.VK_7:
                 if(model.getDisplayCards().size() >= 7 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(6));
+                    model.copyDisplayCard(6);
                 }
                 break;
 
             case KeyEvent.VK_8:
                 if(model.getDisplayCards().size() >= 8 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(7));
+                    model.copyDisplayCard(7);
                 }
                 break;
 
             case KeyEvent.VK_9:
                 if(model.getDisplayCards().size() >= 9 && model.isEditMode()) {
-                    view.getMainCard().copyCard(model.getDisplayCards().get(8));
+                    model.copyDisplayCard(8);
                 }
                 break;
 
-            // Move the selected tree to the left
+            // Move the selected tree to the left while held
             case KeyEvent.VK_A:
                 if(model.isEditMode()) {
-                    model.moveTreeRight(0.1f);
+                    leftHeld = true;
                 }
                 break;
 
             // If in edit mode, shift through some predetermined colors for outside of the card
+            // Once per press, however long it's held
             case KeyEvent.VK_C:
-                model.switchColor();
+                if(!colorHeld) {
+                    colorHeld = true;
+                    model.switchColor();
+                }
                 break;
 
             // Delete the current card and set to be default
@@ -126,7 +306,7 @@ public class KeyHandler extends KeyAdapter {
                     if(b)
                         model.resetCard(true);
                     else
-                        model.moveTreeRight(-0.1f);
+                        rightHeld = true;
                 }
                 break;
 
@@ -145,23 +325,37 @@ public class KeyHandler extends KeyAdapter {
             // If edit mode is enabled, move the tree
             case KeyEvent.VK_S:
                 if(model.isEditMode()) {
-                    model.moveTreeUp(-0.1f);
+                    downHeld = true;
                 } else {
                     model.save();
                 }
                 break;
 
-            // Edit text if in edit mode
+            // Undo the last edit to the card with Ctrl + Z, and redo it with Ctrl + Y
+            case KeyEvent.VK_Z:
+                if(e.isControlDown()) {
+                    model.undo();
+                }
+                break;
+
+            case KeyEvent.VK_Y:
+                if(e.isControlDown()) {
+                    model.redo();
+                }
+                break;
+
+            // Type on the card if in edit mode
             case KeyEvent.VK_T:
                 if(model.isEditMode()) {
-                    model.changeText();
+                    model.beginTextEdit();
+                    skipTyped = true;
                 }
                 break;
 
-            // Move the selected tree up
+            // Move the selected tree up while held
             case KeyEvent.VK_W:
                 if(model.isEditMode()) {
-                    model.moveTreeUp(0.1f);
+                    upHeld = true;
                 }
                 break;
 
@@ -175,6 +369,15 @@ public class KeyHandler extends KeyAdapter {
                 model.setShowInstructions(!model.showInstructions());
                 break;
 
+            // Show the next or previous page of cards on the shelves
+            case KeyEvent.VK_PAGE_DOWN:
+                model.pageDown();
+                break;
+
+            case KeyEvent.VK_PAGE_UP:
+                model.pageUp();
+                break;
+
             // Loop through each tree on the card and allow the user to move the
             case KeyEvent.VK_RIGHT:
                 model.switchSelectedTree();
@@ -185,4 +388,154 @@ public class KeyHandler extends KeyAdapter {
         }
     }
 
+    /**
+     * Handles a key being let go
+     * @param keyCode
+     */
+    private void released(int keyCode) {
+        switch(keyCode) {
+            case KeyEvent.VK_W:
+                upHeld = false;
+                break;
+
+            case KeyEvent.VK_S:
+                downHeld = false;
+                break;
+
+            case KeyEvent.VK_A:
+                leftHeld = false;
+                break;
+
+            case KeyEvent.VK_D:
+                rightHeld = false;
+                break;
+
+            case KeyEvent.VK_C:
+                colorHeld = false;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Lets go of every key, for when their releases may never arrive
+     */
+    private void releaseAll() {
+        upHeld = downHeld = leftHeld = rightHeld = colorHeld = false;
+    }
+
+    /**
+     * Handles a character being typed
+     * @param e
+     */
+    private void typed(KeyCommand e) {
+        if(skipTyped) {
+            skipTyped = false;
+            return;
+        }
+
+        // Only characters the card's font has
+        char c = e.keyChar;
+        if(model.isTextEditing() && c >= ' ' && c <= '~' && !e.isControlDown()) {
+            model.typeText(c);
+        }
+    }
+
+    /**
+     * Handles the keys that aren't characters while typing on the card
+     * @param e
+     */
+    private void editText(KeyCommand e) {
+        switch(e.keyCode) {
+
+            // Stop typing
+            case KeyEvent.VK_ESCAPE:
+                model.endTextEdit();
+                break;
+
+            case KeyEvent.VK_ENTER:
+                model.typeNewLine();
+                break;
+
+            case KeyEvent.VK_BACK_SPACE:
+                model.typeBackspace();
+                break;
+
+            case KeyEvent.VK_DELETE:
+                model.typeDelete();
+                break;
+
+            // Move the caret
+            case KeyEvent.VK_LEFT:
+                model.moveCaret(0, -1);
+                break;
+
+            case KeyEvent.VK_RIGHT:
+                model.moveCaret(0, 1);
+                break;
+
+            case KeyEvent.VK_UP:
+                model.moveCaret(-1, 0);
+                break;
+
+            case KeyEvent.VK_DOWN:
+                model.moveCaret(1, 0);
+                break;
+
+            case KeyEvent.VK_HOME:
+                model.moveCaretToEnd(false);
+                break;
+
+            case KeyEvent.VK_END:
+                model.moveCaretToEnd(true);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+
+    //****************************************
+    // Inner Classes
+    //****************************************
+
+    /**
+     * A key event, copied so it can't change on its way to the GL thread
+     */
+    private static final class KeyCommand {
+        private static final int PRESSED = 0;
+        private static final int RELEASED = 1;
+        private static final int TYPED = 2;
+        private static final int FOCUS_LOST = 3;   // Every key counts as released
+
+        private final int kind;
+        private final int keyCode;
+        private final char keyChar;
+        private final int modifiers;        // Extended modifiers, as in InputEvent.getModifiersEx()
+
+        private KeyCommand(int kind, KeyEvent e) {
+            this.kind = kind;
+            this.keyCode = e.getKeyCode();
+            this.keyChar = e.getKeyChar();
+            this.modifiers = e.getModifiersEx();
+        }
+
+        private KeyCommand() {
+            this.kind = FOCUS_LOST;
+            this.keyCode = KeyEvent.VK_UNDEFINED;
+            this.keyChar = KeyEvent.CHAR_UNDEFINED;
+            this.modifiers = 0;
+        }
+
+        private boolean isShiftDown() {
+            return (modifiers & InputEvent.SHIFT_DOWN_MASK) != 0;
+        }
+
+        private boolean isControlDown() {
+            return (modifiers & InputEvent.CTRL_DOWN_MASK) != 0;
+        }
+    }
 }
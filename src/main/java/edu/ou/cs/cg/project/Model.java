@@ -4,6 +4,11 @@ import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GLRunnable;
 import com.jogamp.opengl.util.texture.Texture;
+import edu.ou.cs.cg.project.data.CardData;
+import edu.ou.cs.cg.project.data.CardQuery;
+import edu.ou.cs.cg.project.data.CardRepository;
+import edu.ou.cs.cg.project.data.CardWriter;
+import edu.ou.cs.cg.project.data.EditJournal;
 import edu.ou.cs.cg.project.scene.Card;
 import edu.ou.cs.cg.utilities.Transform;
 import edu.ou.cs.cg.utilities.Utilities;
@@ -13,7 +18,7 @@ import java.awt.geom.Point2D;
 import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
 
 /**
  * The Model Class
@@ -23,6 +28,22 @@ import java.util.Scanner;
  */
 public class Model {
 
+    //****************************************
+    // Constants
+    //****************************************
+    private static final String LIBRARY = System.getProperty("cardgraphics.library", "build/cards/cards.lib");
+    private static final int PAGE_SIZE = 9;                     // Cards on the shelves at once
+    private static final int SCENE_CARDS =                      // Cards to shelve instead of a page, for measuring
+            Integer.getInteger("cardgraphics.scene.cards", 0);
+    private static final String DATA =                          // Where saved cards are written
+            System.getProperty("cardgraphics.data", System.getProperty("user.home") + "/.cardgraphics/cards");
+    private static final boolean DATA_SYNC = Boolean.getBoolean("cardgraphics.data.sync");  // Force saves to the disk
+    private static final float TREE_MIN_X = 0.0f, TREE_MAX_X = 0.8f;     // Where trees can be moved on the card
+    private static final float TREE_MIN_Y = 0.2f, TREE_MAX_Y = 0.45f;
+    private static final String JOURNAL =                       // Where edits to the held card are kept
+            System.getProperty("cardgraphics.journal", System.getProperty("user.home") + "/.cardgraphics/journal.bin");
+
+
     //****************************************
     // Private Variables
     //****************************************
@@ -39,19 +60,37 @@ public class Model {
     private double cardX, cardY;
 
     // TODO: Move cards here
-    private ArrayList<Card> displayCards;
+    private ArrayList<Card> displayCards;   // The page of cards on the shelves
+
+    private CardRepository library;         // The cards packed by the build, or null if there are none
+    private CardRepository repository;      // Those and the cards saved in DATA, or null if there are none
+    private int repositorySaved;            // Cards the writer had saved when the repository was opened
+    private final CardQuery query;          // Which saved cards to page through
+    private ArrayList<CardData> pageData;   // The saved design of each display card
+    private int pageFirst, pageLast;        // Ids of the first and last display cards
+
+    private final CardWriter writer;        // Saves cards in the background
+    private final CardData saveData;        // The held card, copied to be saved
+
+    private final EditJournal journal;      // Every edit to the held card, kept for undo and restarts
+    private final CardData heldData;        // The held card, copied from the journal
 
     private Texture[] textures;
 
     private int selectedTree;
     private boolean isFrontTree;
+    private boolean isMovingTree;           // Is the selected tree being moved by held keys?
+    private float moveStartX, moveStartY;   // Where it was before it started moving
 
     private String[] frontText;
     private String[] insideText;
 
     private boolean showFront;
 
-    private Scanner in;
+    private boolean isTextEditing;          // Are keys being typed on the card?
+    private boolean editingFront;           // Typing on the front, or the inside
+    private String[] editStart;             // The text before typing started
+    private int caretLine, caretColumn;     // Where the next character goes
 
 
     //****************************************
@@ -81,8 +120,13 @@ public class Model {
         cardX = 0.0;
         cardY = 0.0;
 
-        // Load first 9 display cards from the cards resource folder
+        // Display cards are loaded a page at a time from the saved cards
         displayCards = new ArrayList<>();
+        pageData = new ArrayList<>();
+        query = new CardQuery();
+
+        writer = new CardWriter(new File(DATA), DATA_SYNC);
+        saveData = new CardData();
 
         selectedTree = 0;
         isFrontTree = true;
@@ -92,7 +136,18 @@ public class Model {
 
         showFront = false;
 
-        in = new Scanner(System.in);
+        isTextEditing = false;
+
+        // Pick up the held card where it was left, or start from the default card
+        CardData defaults = new CardData();
+        defaults.setFrontText(String.join("\n", frontText));
+        defaults.setInsideText(String.join("\n", insideText));
+        defaults.addTree(true, 0.5f, 0.2f);
+        defaults.addTree(true, 0.1f, 0.35f);
+        defaults.addTree(false, 0.5f, 0.3f);
+
+        journal = new EditJournal(new File(JOURNAL), defaults);
+        heldData = new CardData();
     }
 
 
@@ -102,104 +157,237 @@ public class Model {
 
     // File save/load methods
     /**
-     * Save the held card data to a file in the /cards/ directory
-     * Save in the format "id,color,
+     * Queue the held card to be saved as card<id>.csv in the data directory
+     * Saved in the format "id,color,front text,inside text,trees", written on the writer's thread
+     * The held card is the journal's, which has every edit made to it
      */
     public void save() {
+        endTreeMove();
 
-        try {
-            URL url = Model.class.getResource("/cards/");
-            if(url != null) {
-                BufferedWriter writer = new BufferedWriter(new FileWriter(url.getPath() + "card" + view.getMainCard().getId() + ".csv"));
+        journal.get(saveData);
+        writer.save(saveData);
+    }
 
-                String output = view.getMainCard().getId() + "," + currentColor + "," + frontText[0] + "," + insideText[0];
-                writer.write(output);
+    /**
+     * Create a card to show on a shelf from its saved design
+     * @param data
+     * @param index the shelf slot plus one, since 0 is the held card
+     */
+    private Card build(CardData data, int index) {
 
-                writer.close();
-            }
+        // Create the card
+        Card add = new Card(view.getTextures(), view, this, index);
+        add.setId(data.getId());
+        add.setColor(cardColors[data.getColor()]);
+        add.addText(data.getFrontText(), true);
+        add.addText(data.getInsideText(), false);
 
-        } catch(IOException e) {
-            e.printStackTrace();
+        // Add trees to the card
+        for(int i = 0; i < data.getTreeCount(); i++) {
+            add.addTree(data.getTreeX(i), data.getTreeY(i), 0.25f, data.isTreeFront(i));
         }
+
+        return add;
     }
 
     /**
-     * Read the card data from the specified filename
-     * CSV Format: ID,Color,FrontText,InnerText,TreeLocations
-     * @param filename
-     * @throws IOException
+     * Shows the journal's held card in the user's hand, on the GL thread
      */
-    private Card load(String filename, Texture[] textures, int index) throws IOException {
+    private void showHeldCard() {
+        CardData data = new CardData();
+        journal.get(data);
 
-        // Card Variables
-        Card add;
-        int id;
-        int colorIdx = 0;
-        String frontText = "", inText = "";
-        ArrayList<Point2D.Float> trees = new ArrayList<>();
-        ArrayList<Boolean> treeSide = new ArrayList<>();
+        view.getCanvas().invoke(false, new BasicUpdater() {
+            @Override
+            public void update(GL2 gl) {
+                setHeldCard(data);
+            }
+        });
+    }
 
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-        String line = "";
-        while((line = reader.readLine()) != null) {
-            String[] data = line.split(",");
+    /**
+     * Changes the card in the user's hand to match a saved design
+     * @param data
+     */
+    private void setHeldCard(CardData data) {
+        Card card = view.getMainCard();
+
+        card.setId(data.getId());
+        currentColor = data.getColor();
+        frontText = CardData.lines(data.getFrontText());
+        insideText = CardData.lines(data.getInsideText());
+
+        card.getFront().removeTrees();
+        card.getBack().removeTrees();
+        for(int i = 0; i < data.getTreeCount(); i++) {
+            card.addTree(data.getTreeX(i), data.getTreeY(i), 0.25f, data.isTreeFront(i));
+        }
+    }
 
-            id = Integer.parseInt(data[0]);
-            colorIdx = Integer.parseInt(data[1]);
-            frontText = data[2];
-            inText = data[3];
+    /**
+     * Replaces the display cards with a page of cards from the repository
+     * Only the cards on the page are ever created, however many there are in the repository
+     * @param from the first id of the page, or the last if going backward
+     * @param forward
+     * @return false if there were no cards, leaving the display cards alone
+     */
+    private boolean loadPage(int from, boolean forward) {
 
-            // Read in the available tree data
-            if(data.length > 4) {
-                for(int i = 4; i < data.length; i += 3) {
-                    // Check if this belongs on the front or back of the card
-                    treeSide.add(data[i].equals("front"));
+        // Cards saved since the repository was opened show up from the next page on
+        if(writer.getSaved() != repositorySaved) {
+            openRepository();
+        }
 
-                    // Get the dimensions
-                    float dx = Float.parseFloat(data[i+1]);
-                    float dy = Float.parseFloat(data[i+2]);
-                    trees.add(new Point2D.Float(dx, dy));
-                }
-            }
+        if(repository == null) {
+            return false;
+        }
 
+        // Going backward, find the first card of the page that ends at from
+        int[] start = {from};
+        if(!forward && repository.scan(query, from, false, PAGE_SIZE, data -> start[0] = data.getId()) == 0) {
+            return false;
         }
-        reader.close();
 
-        // Create the card
-        add = new Card(view.getTextures(), view, this, index);
-        add.setColor(cardColors[colorIdx]);
-        add.addText(frontText, true);
-        add.addText(inText, false);
+        ArrayList<Card> page = new ArrayList<>(PAGE_SIZE);
+        ArrayList<CardData> designs = new ArrayList<>(PAGE_SIZE);
+        repository.scan(query, start[0], true, PAGE_SIZE, data -> {
+            CardData design = new CardData();
+            design.set(data);
+            designs.add(design);
+            page.add(build(data, page.size() + 1));
+        });
 
-        // Add trees to the card
-        for(int i = 0; i < trees.size(); i++) {
-            add.addTree(trees.get(i).x, trees.get(i).y, 0.25f, treeSide.get(i));
+        if(page.isEmpty()) {
+            return false;
         }
 
-        return add;
+        pageFirst = page.get(0).getId();
+        pageLast = page.get(page.size() - 1).getId();
+        displayCards = page;
+        pageData = designs;
+
+        return true;
     }
 
 
     // Card Modification Methods
 
     /**
-     * Loads the cards from the /cards/ directory and displays the first 9 on the shelves
+     * Opens the card library, or the /cards/ directory when there's no library, along with the cards saved
+     * in the data directory, and puts the first page of cards on the shelves
      */
     public void loadDisplayCards() {
 
-        for(int i = 0; i < 9; i++) {
-            // Get the URL of the file
-            URL url = Model.class.getResource("/cards/card0" + i + ".csv");
+        File file = new File(LIBRARY);
 
-            // If not null, load the file
-            if(url != null) {
-                try {
-                    displayCards.add(load(url.getPath(), textures, i));
-                } catch(IOException e) {
-                    e.printStackTrace();
-                }
+        if(!file.isFile()) {
+            URL url = Model.class.getResource("/cards/");
+            file = (url != null && "file".equals(url.getProtocol())) ? new File(url.getPath()) : null;
+        }
+
+        if(file != null) {
+            try {
+                library = CardRepository.open(file);
+            } catch(IOException e) {
+                System.err.println("Couldn't open cards in " + file + ": " + e);
             }
         }
+
+        openRepository();
+        if(SCENE_CARDS > 0) {
+            loadScene(SCENE_CARDS);
+        } else if(repository != null) {
+            loadPage(repository.getFirstId(), true);
+        }
+    }
+
+    /**
+     * Fills the shelves with count cards, repeating the repository's designs, or the held card's if there are none
+     * Paging is turned off, so the scene stays the same while frames are measured
+     * @param count
+     */
+    private void loadScene(int count) {
+
+        ArrayList<CardData> designs = new ArrayList<>();
+        if(repository != null) {
+            repository.scan(query, repository.getFirstId(), true, count, data -> {
+                CardData design = new CardData();
+                design.set(data);
+                designs.add(design);
+            });
+        }
+
+        if(designs.isEmpty()) {
+            CardData design = new CardData();
+            journal.get(design);
+            designs.add(design);
+        }
+
+        ArrayList<Card> scene = new ArrayList<>(count);
+        ArrayList<CardData> sceneData = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            CardData design = designs.get(i % designs.size());
+            scene.add(build(design, i + 1));
+            sceneData.add(design);
+        }
+
+        pageFirst = Integer.MIN_VALUE;
+        pageLast = Integer.MAX_VALUE;
+        displayCards = scene;
+        pageData = sceneData;
+    }
+
+    /**
+     * Lists the library's cards together with the cards saved in the data directory,
+     * with a saved card in place of the library's card with the same id
+     */
+    private void openRepository() {
+        repositorySaved = writer.getSaved();
+        repository = library;
+
+        File dir = new File(DATA);
+        if(!dir.isDirectory()) {
+            return;
+        }
+
+        try {
+            CardRepository saved = CardRepository.open(dir);
+            repository = (library == null) ? saved : CardRepository.merge(library, saved);
+        } catch(IOException e) {
+            System.err.println("Couldn't open saved cards in " + dir + ": " + e);
+        }
+    }
+
+    /**
+     * Put the next page of cards on the shelves, if there is one
+     */
+    public void pageDown() {
+        view.getCanvas().invoke(false, new BasicUpdater() {
+            @Override
+            public void update(GL2 gl) {
+                ArrayList<Card> old = displayCards;
+
+                if(pageLast < Integer.MAX_VALUE && loadPage(pageLast + 1, true)) {
+                    view.showDisplayCards(gl, old);
+                }
+            }
+        });
+    }
+
+    /**
+     * Put the previous page of cards on the shelves, if there is one
+     */
+    public void pageUp() {
+        view.getCanvas().invoke(false, new BasicUpdater() {
+            @Override
+            public void update(GL2 gl) {
+                ArrayList<Card> old = displayCards;
+
+                if(pageFirst > Integer.MIN_VALUE && loadPage(pageFirst - 1, false)) {
+                    view.showDisplayCards(gl, old);
+                }
+            }
+        });
     }
 
     /**
@@ -209,6 +397,7 @@ public class Model {
     public void switchColor() {
         if(isEditMode) {
             currentColor = currentColor == cardColors.length - 1 ? 0 : currentColor + 1;
+            journal.setColor(currentColor);
         }
     }
 
@@ -217,49 +406,61 @@ public class Model {
      * If out of bounds of tree array, will be modified in Card class
      */
     public void switchSelectedTree() {
+        endTreeMove();
         if(isEditMode) {
             selectedTree += 1;
         }
     }
 
     public void switchTreeSide() {
+        endTreeMove();
         isFrontTree = !isFrontTree;
         selectedTree = 0;
     }
 
     /**
-     * Move the selected tree up
-     * @param amt
+     * Move the selected tree, keeping it on the card
+     * Held keys call this every frame, and the whole move is kept as one edit by endTreeMove()
+     * @param dx
+     * @param dy
      */
-    public void moveTreeUp(float amt) {
+    public void moveTree(float dx, float dy) {
+        if(!isEditMode) {
+            return;
+        }
 
-        ArrayList<Point2D.Float> tr;
-        if(isFrontTree) {
-            tr = view.getMainCard().getFront().getTreeLoc();
-            if(tr.get(selectedTree).y + amt > 0.2 && tr.get(selectedTree).y + amt < 0.45)
-                view.getMainCard().getFront().setTreeLoc(tr.get(selectedTree).x, tr.get(selectedTree).y + amt, selectedTree);
-        } else {
-            tr = view.getMainCard().getBack().getTreeLoc();
-            if(tr.get(selectedTree).y + amt > 0.2 && tr.get(selectedTree).y + amt < 0.45)
-                view.getMainCard().getBack().setTreeLoc(tr.get(selectedTree).x, tr.get(selectedTree).y + amt, selectedTree);
+        Card.CardSide side = isFrontTree ? view.getMainCard().getFront() : view.getMainCard().getBack();
+        ArrayList<Point2D.Float> tr = side.getTreeLoc();
+        if(selectedTree >= tr.size()) {
+            return;
+        }
+
+        Point2D.Float loc = tr.get(selectedTree);
+        if(!isMovingTree) {
+            isMovingTree = true;
+            moveStartX = loc.x;
+            moveStartY = loc.y;
         }
+
+        float x = Math.max(TREE_MIN_X, Math.min(loc.x + dx, TREE_MAX_X));
+        float y = Math.max(TREE_MIN_Y, Math.min(loc.y + dy, TREE_MAX_Y));
+        side.setTreeLoc(x, y, selectedTree);
     }
 
     /**
-     * Move the selected tree to the right
-     * @param amt
+     * Keeps the move of the selected tree since the first moveTree() as one edit to undo
      */
-    public void moveTreeRight(float amt) {
+    public void endTreeMove() {
+        if(!isMovingTree) {
+            return;
+        }
 
-        ArrayList<Point2D.Float> tr;
-        if(isFrontTree) {
-            tr = view.getMainCard().getFront().getTreeLoc();
-            if(tr.get(selectedTree).x + amt > 0 && tr.get(selectedTree).x + amt < 0.8)
-                view.getMainCard().getFront().setTreeLoc(tr.get(selectedTree).x + amt, tr.get(selectedTree).y, selectedTree);
-        } else {
-            tr = view.getMainCard().getBack().getTreeLoc();
-            if(tr.get(selectedTree).x + amt > 0 && tr.get(selectedTree).x + amt < 0.8)
-                view.getMainCard().getBack().setTreeLoc(tr.get(selectedTree).x + amt, tr.get(selectedTree).y, selectedTree);
+        isMovingTree = false;
+
+        Card.CardSide side = isFrontTree ? view.getMainCard().getFront() : view.getMainCard().getBack();
+        Point2D.Float loc = side.getTreeLoc().get(selectedTree);
+        if(loc.x != moveStartX || loc.y != moveStartY) {
+            journal.moveTree(isFrontTree, selectedTree, loc.x - moveStartX, loc.y - moveStartY);
         }
     }
 
@@ -267,27 +468,225 @@ public class Model {
      * Will modify a boolean to tell the card if it should reset or not
      */
     public void resetCard(boolean shouldReset) {
+        endTreeMove();
         reset = shouldReset;
+
+        if(shouldReset) {
+            journal.reset();
+        }
     }
 
     /**
-     * Allows the user to change the text on the card
+     * Takes back the last edit to the held card
      */
-    public void changeText() {
+    public void undo() {
+        endTreeMove();
+        if(journal.undo()) {
+            showHeldCard();
+        }
+    }
 
-        view.getCanvas().invoke(false, new BasicUpdater() {
-            @Override
-            public void update(GL2 gl) {
+    /**
+     * Makes the last edit taken back again
+     */
+    public void redo() {
+        endTreeMove();
+        if(journal.redo()) {
+            showHeldCard();
+        }
+    }
+
+    /**
+     * Puts the held card from before the program was last closed back in the user's hand
+     * Call on the GL thread once the main card exists
+     */
+    public void recoverHeldCard() {
+        if(journal.isRecovered()) {
+            journal.get(heldData);
+            setHeldCard(heldData);
+        }
+    }
+
+    /**
+     * Copies a card from the shelves into the user's hand, starting its edits over
+     * @param index the shelf slot
+     */
+    public void copyDisplayCard(int index) {
+        endTreeMove();
+
+        // The held card gets its own trees, so edits to it never touch the shelf card
+        journal.begin(pageData.get(index));
+        setHeldCard(pageData.get(index));
+    }
+
+    /**
+     * Starts typing on the side of the card facing the user, with the caret at the end of the text
+     * Keys go to the text until endTextEdit()
+     */
+    public void beginTextEdit() {
+        if(isTextEditing) {
+            return;
+        }
+
+        editingFront = !isCardOpen;
+        editStart = getEditText();
+        caretLine = editStart.length - 1;
+        caretColumn = editStart[caretLine].length();
+        isTextEditing = true;
+    }
+
+    /**
+     * Stops typing, keeping the text as one edit to undo
+     */
+    public void endTextEdit() {
+        if(!isTextEditing) {
+            return;
+        }
+
+        isTextEditing = false;
+
+        String[] text = getEditText();
+        if(!Arrays.equals(text, editStart)) {
+            journal.setText(editingFront, String.join("\n", text));
+        }
+    }
+
+    /**
+     * Types a character at the caret
+     * @param c
+     */
+    public void typeText(char c) {
+        String[] text = getEditText();
+        String line = text[caretLine];
+
+        setEditLine(caretLine, line.substring(0, caretColumn) + c + line.substring(caretColumn));
+        caretColumn++;
+    }
+
+    /**
+     * Starts a new line at the caret
+     */
+    public void typeNewLine() {
+        String[] text = getEditText();
+        String line = text[caretLine];
+        String[] lines = new String[text.length + 1];
+
+        System.arraycopy(text, 0, lines, 0, caretLine);
+        lines[caretLine] = line.substring(0, caretColumn);
+        lines[caretLine + 1] = line.substring(caretColumn);
+        System.arraycopy(text, caretLine + 1, lines, caretLine + 2, text.length - caretLine - 1);
+
+        setEditText(lines);
+        caretLine++;
+        caretColumn = 0;
+    }
+
+    /**
+     * Deletes the character before the caret, joining the line to the one above at its start
+     */
+    public void typeBackspace() {
+        if(caretColumn > 0) {
+            String line = getEditText()[caretLine];
+
+            setEditLine(caretLine, line.substring(0, caretColumn - 1) + line.substring(caretColumn));
+            caretColumn--;
+        } else if(caretLine > 0) {
+            caretColumn = getEditText()[caretLine - 1].length();
+            joinLine(caretLine - 1);
+            caretLine--;
+        }
+    }
+
+    /**
+     * Deletes the character after the caret, joining the line below at the line's end
+     */
+    public void typeDelete() {
+        String[] text = getEditText();
+        String line = text[caretLine];
+
+        if(caretColumn < line.length()) {
+            setEditLine(caretLine, line.substring(0, caretColumn) + line.substring(caretColumn + 1));
+        } else if(caretLine < text.length - 1) {
+            joinLine(caretLine);
+        }
+    }
+
+    /**
+     * Moves the caret, going on to the next or previous line past the ends of a line
+     * @param lines up (negative) or down
+     * @param columns left (negative) or right
+     */
+    public void moveCaret(int lines, int columns) {
+        String[] text = getEditText();
 
-            if(isCardOpen) {
-                System.out.println("Write new text for inside here: ");
-                insideText = in.nextLine().split(",");
+        caretLine = Math.max(0, Math.min(caretLine + lines, text.length - 1));
+        caretColumn = Math.min(caretColumn, text[caretLine].length()) + columns;
+
+        if(caretColumn < 0) {
+            if(caretLine > 0) {
+                caretLine--;
+                caretColumn = text[caretLine].length();
             } else {
-                System.out.println("Write new text for front here: ");
-                frontText = in.nextLine().split(",");
+                caretColumn = 0;
             }
+        } else if(caretColumn > text[caretLine].length()) {
+            if(caretLine < text.length - 1) {
+                caretLine++;
+                caretColumn = 0;
+            } else {
+                caretColumn = text[caretLine].length();
             }
-        });
+        }
+    }
+
+    /**
+     * Moves the caret to the start or end of its line
+     * @param end
+     */
+    public void moveCaretToEnd(boolean end) {
+        caretColumn = end ? getEditText()[caretLine].length() : 0;
+    }
+
+    /**
+     * Gets the lines of the side being typed on
+     */
+    private String[] getEditText() {
+        return editingFront ? frontText : insideText;
+    }
+
+    /**
+     * Replaces the lines of the side being typed on
+     * Each change makes a new array, so the GL thread never sees one half changed
+     */
+    private void setEditText(String[] text) {
+        if(editingFront) {
+            frontText = text;
+        } else {
+            insideText = text;
+        }
+    }
+
+    /**
+     * Replaces one line, keeping the others, so only that line is laid out again
+     */
+    private void setEditLine(int index, String line) {
+        String[] text = getEditText().clone();
+        text[index] = line;
+        setEditText(text);
+    }
+
+    /**
+     * Joins a line and the one after it
+     */
+    private void joinLine(int index) {
+        String[] text = getEditText();
+        String[] lines = new String[text.length - 1];
+
+        System.arraycopy(text, 0, lines, 0, index);
+        lines[index] = text[index] + text[index + 1];
+        System.arraycopy(text, index + 2, lines, index + 1, text.length - index - 2);
+
+        setEditText(lines);
     }
 
 
@@ -317,6 +716,10 @@ public class Model {
         return reset;
     }
 
+    public CardWriter getWriter() {
+        return writer;
+    }
+
     public ArrayList<Card> getDisplayCards() {
         return displayCards;
     }
@@ -341,6 +744,22 @@ public class Model {
         return showFront;
     }
 
+    public boolean isTextEditing() {
+        return isTextEditing;
+    }
+
+    public boolean isEditingFront() {
+        return editingFront;
+    }
+
+    public int getCaretLine() {
+        return caretLine;
+    }
+
+    public int getCaretColumn() {
+        return caretColumn;
+    }
+
 
     // Setters
     public void setCardOpen(boolean isCardOpen) {
@@ -352,10 +771,23 @@ public class Model {
     }
 
     public void setEditMode(boolean isEditMode) {
+        endTreeMove();
         this.isEditMode = isEditMode;
     }
 
     public void setSelectedTree(int index) {
+        endTreeMove();
+        selectedTree = index;
+    }
+
+    /**
+     * Selects a tree on either side of the card
+     * @param front whether it's on the front or the inside
+     * @param index which tree on that side
+     */
+    public void setSelectedTree(boolean front, int index) {
+        endTreeMove();
+        isFrontTree = front;
         selectedTree = index;
     }
 
@@ -408,7 +840,7 @@ public class Model {
         public final void	update(GL2 gl)
         {
             int		    h = view.getHeight();
-            double[]	p = Utilities.mapViewToScene(gl, q.x, h - q.y, 0.0);
+            double[]	p = Utilities.mapViewToScene(view.getCamera(), q.x, h - q.y, 0.0);
 
             update(p);
         }
@@ -1,6 +1,10 @@
 package edu.ou.cs.cg.project;
 
 
+import edu.ou.cs.cg.project.scene.Card;
+import edu.ou.cs.cg.utilities.CommandQueue;
+import edu.ou.cs.cg.utilities.Node;
+
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -10,16 +14,30 @@ import java.awt.event.MouseWheelEvent;
  * The MouseHandler Class
  * Handles user interaction with the mouse
  *
+ * Like keys, mouse events are only queued on the AWT event thread and handled on the GL thread.
+ * Whatever is under the mouse is picked once a frame at most, however often it moves.
+ *
  * @author Parker Brandt
  */
 public class MouseHandler extends MouseAdapter {
 
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int COMMAND_CAPACITY = 1024;      // Mouse events that can wait for the next frame
+
     //****************************************
     // Private Variables
     //****************************************
     private final View view;
     private final Model model;
 
+    private final CommandQueue<MouseCommand> commands;     // Mouse events waiting for the GL thread
+
+    private boolean moved;          // Has the mouse moved since the last frame?
+    private float moveX, moveY;     // Where it moved to, as a fraction of the canvas
+    private String hovered;         // What's under the mouse, for the HUD
+
 
     //****************************************
     // Constructors
@@ -29,9 +47,14 @@ public class MouseHandler extends MouseAdapter {
         // Initialize variables
         this.view = view;
         this.model = model;
+        this.commands = new CommandQueue<>(COMMAND_CAPACITY);
+        this.hovered = "nothing";
 
-        // Get window information
+        // Get window information, if there is a window
         Component component = view.getCanvas();
+        if(component == null) {
+            return;
+        }
 
         component.addMouseListener(this);
         component.addMouseMotionListener(this);
@@ -44,6 +67,7 @@ public class MouseHandler extends MouseAdapter {
     //****************************************
     public void		mouseClicked(MouseEvent e)
     {
+        commands.offer(new MouseCommand(MouseCommand.CLICKED, e));
     }
 
     public void		mouseEntered(MouseEvent e)
@@ -52,6 +76,7 @@ public class MouseHandler extends MouseAdapter {
 
     public void		mouseExited(MouseEvent e)
     {
+        commands.offer(new MouseCommand(MouseCommand.EXITED, e));
     }
 
     public void		mousePressed(MouseEvent e)
@@ -68,10 +93,12 @@ public class MouseHandler extends MouseAdapter {
     //****************************************
     public void		mouseDragged(MouseEvent e)
     {
+        commands.offer(new MouseCommand(MouseCommand.MOVED, e));
     }
 
     public void		mouseMoved(MouseEvent e)
     {
+        commands.offer(new MouseCommand(MouseCommand.MOVED, e));
     }
 
 
@@ -82,4 +109,146 @@ public class MouseHandler extends MouseAdapter {
     {
     }
 
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Handles every mouse event queued since the last call, then picks what's under the mouse if it moved
+     * Call on the GL thread
+     * @return how many events were handled
+     */
+    public int processCommands() {
+        moved = false;
+
+        int n = commands.drain(this::handle);
+
+        if(moved) {
+            hovered = describe(view.pick(moveX, moveY));
+        }
+
+        return n;
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private void handle(MouseCommand e) {
+        switch(e.kind) {
+
+            // Only the last move of the frame is picked
+            case MouseCommand.MOVED:
+                moved = true;
+                moveX = e.x;
+                moveY = e.y;
+                break;
+
+            case MouseCommand.CLICKED:
+                if(e.button == MouseEvent.BUTTON1) {
+                    click(view.pick(e.x, e.y));
+                }
+                break;
+
+            case MouseCommand.EXITED:
+                moved = false;
+                hovered = "nothing";
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * In edit mode, clicking a card on the shelves picks it up, and clicking a tree on the held card selects it
+     * @param node what was clicked, or null
+     */
+    private void click(Node node) {
+        if(node == null || !model.isEditMode() || model.isTextEditing()) {
+            return;
+        }
+
+        int shelf = model.getDisplayCards().indexOf(node);
+        if(shelf >= 0) {
+            model.copyDisplayCard(shelf);
+            return;
+        }
+
+        Card card = view.getMainCard();
+        int tree = card.getFront().getTrees().indexOf(node);
+        if(tree >= 0) {
+            model.setSelectedTree(true, tree);
+            return;
+        }
+
+        tree = card.getBack().getTrees().indexOf(node);
+        if(tree >= 0) {
+            model.setSelectedTree(false, tree);
+        }
+    }
+
+    /**
+     * Names a picked node for the HUD
+     * @param node
+     */
+    private String describe(Node node) {
+        if(node == null) {
+            return "nothing";
+        }
+
+        int shelf = model.getDisplayCards().indexOf(node);
+        if(shelf >= 0) {
+            return "shelf card " + (shelf + 1);
+        }
+
+        Card card = view.getMainCard();
+        int tree = card.getFront().getTrees().indexOf(node);
+        if(tree >= 0) {
+            return "front tree " + (tree + 1);
+        }
+
+        return "inside tree " + (card.getBack().getTrees().indexOf(node) + 1);
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    /**
+     * Gets what was under the mouse the last time it moved
+     */
+    public String getHovered() {
+        return hovered;
+    }
+
+
+    //****************************************
+    // Inner Classes
+    //****************************************
+
+    /**
+     * A mouse event, copied so it can't change on its way to the GL thread
+     */
+    private static final class MouseCommand {
+        private static final int MOVED = 0;
+        private static final int CLICKED = 1;
+        private static final int EXITED = 2;
+
+        private final int kind;
+        private final float x, y;           // Where, as a fraction of the canvas from the top left
+        private final int button;
+
+        private MouseCommand(int kind, MouseEvent e) {
+            Component c = e.getComponent();
+
+            this.kind = kind;
+            this.x = (float)e.getX() / Math.max(c.getWidth(), 1);
+            this.y = (float)e.getY() / Math.max(c.getHeight(), 1);
+            this.button = e.getButton();
+        }
+    }
 }
@@ -6,15 +6,24 @@ import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GLEventListener;
 import com.jogamp.opengl.awt.GLJPanel;
-import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.util.FPSAnimator;
-import com.jogamp.opengl.util.awt.TextRenderer;
 import com.jogamp.opengl.util.gl2.GLUT;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureIO;
 import edu.ou.cs.cg.project.scene.Card;
 import edu.ou.cs.cg.project.scene.Room;
+import edu.ou.cs.cg.utilities.BoundsTree;
+import edu.ou.cs.cg.utilities.Camera;
+import edu.ou.cs.cg.utilities.Frustum;
+import edu.ou.cs.cg.utilities.GlyphAtlas;
+import edu.ou.cs.cg.utilities.MeshCache;
+import edu.ou.cs.cg.utilities.MipCache;
 import edu.ou.cs.cg.utilities.Node;
+import edu.ou.cs.cg.utilities.Overlay;
+import edu.ou.cs.cg.utilities.RenderQueue;
+import edu.ou.cs.cg.utilities.SpriteAtlas;
+import edu.ou.cs.cg.utilities.TextureLoader;
+import edu.ou.cs.cg.utilities.TextureManager;
+import edu.ou.cs.cg.utilities.ThumbnailCache;
 import edu.ou.cs.cg.utilities.Transform;
 
 import java.awt.*;
@@ -22,6 +31,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Random;
 
 
@@ -57,6 +68,41 @@ public class View implements GLEventListener {
                     "front.png",            // The image that can be put on the front side of the card, use 'F' to toggle
                     "bg.png",               // The background image that can be used in the card
             };
+    private static final int[] TRANSPARENT =                        // Indices of FILENAMES that need blending
+            { 3, 4, 5, 6, 7, 8, 10, 12 };
+
+    // Display card thumbnails: how many to keep, and their height in pixels (width follows the card's 5:8 shape)
+    private static final int THUMBNAIL_COUNT = Integer.getInteger("cardgraphics.thumbnail.count", 16);
+    private static final int THUMBNAIL_SIZE = Integer.getInteger("cardgraphics.thumbnail.size", 512);
+    // Textures are decoded on worker threads, then uploaded a few at a time: at most about this many bytes per frame
+    private static final long TEXTURE_UPLOAD_BUDGET = Long.getLong("cardgraphics.texture.budget", 8L << 20);
+    // Textures are loaded when first drawn, and ones not drawn for a while are unloaded to stay in this many bytes
+    private static final long TEXTURE_MEMORY = Long.getLong("cardgraphics.texture.memory", 256L << 20);
+    private static final int TEXTURE_IDLE_FRAMES = Integer.getInteger("cardgraphics.texture.idle", 300);
+    // Premultiplied, mipmapped textures baked from RSRC by the build, used instead of decoding the PNGs if present
+    private static final String TEXTURE_CACHE = System.getProperty("cardgraphics.texture.cache", "build/textures/images.mip");
+    // Card decorations packed into one texture by the build, used instead of their own textures if present
+    private static final String SPRITE_ATLAS = System.getProperty("cardgraphics.atlas", "build/textures/atlas/decorations.atlas");
+    // Frames to time once fully textured, then print a summary of, or 0 not to
+    private static final int MEASURE_FRAMES = Integer.getInteger("cardgraphics.frames", 0);
+    private static final long HUD_INTERVAL = 250;                   // Milliseconds between updates of the HUD statistics
+    private static final String[] INSTRUCTIONS = {                 // Shown on the left side when escape is pressed
+        "Instructions: ",
+        "E to toggle edit mode",
+        "S to save the card",
+        "Space to open the card",
+        "Num Keys to Change Card",
+        "Page Up/Down to Change Shelves",
+        "--------Edit Mode-------",
+        "C to change color",
+        "Shift + D to reset the card",
+        "F to toggle the front image",
+        "T to type on the card, Esc when done",
+        "Right Arrow to Loop Through Trees",
+        "Click a Tree or Shelf Card to Pick It",
+        "WASD to Move Tree",
+        "Ctrl + Z/Y to Undo/Redo"
+    };
 
 
 
@@ -75,10 +121,14 @@ public class View implements GLEventListener {
     private int            width;
     private int            height;
 
-    private TextRenderer        renderer;
+    private final Overlay       hud;            // Instructions and statistics, drawn from a cached texture
+    private final ArrayList<Overlay.Field> hudInstructions; // Fields of the HUD shown with the instructions
+    private Overlay.Field       hudEditing;     // Field of the HUD shown in edit mode
+    private GlyphAtlas          atlas;          // Glyphs for the text on cards
 
-    private final FPSAnimator   animator;
+    private final FPSAnimator   animator;       // Or null without a canvas
     private int                 counter;        // Animation counter
+    private long                frameTime;      // Time spent in the last display(), in nanoseconds
 
     private final Model         model;
 
@@ -86,7 +136,27 @@ public class View implements GLEventListener {
     private final MouseHandler  mouseHandler;
 
     private Texture[]           textures;       // Textures loaded from FILENAMES
+    private final TextureLoader textureLoader;  // Decodes FILENAMES in the background
+    private final TextureManager textureManager; // Loads and unloads FILENAMES as they're drawn
+    private SpriteAtlas         sprites;        // Where each card decoration is in the atlas, or null if no atlas
+    private final HashMap<String, SpriteAtlas.Region> spriteRegions; // Card decorations by name
+    private long                initTime;       // When init() started, in nanoseconds
+    private boolean             drawnFirst;     // Whether the first frame since init() has been reported
+    private boolean             drawnTextured;  // Whether the first fully textured frame has been reported
+    private final long[]        measured;       // Times of the frames measured so far, or null if not measuring
+    private int                 measuredCount;
     private Node                root;           // Root node of scene graph
+    private final RenderQueue   queue;          // Sorts what the scene graph draws each frame
+    private final RenderQueue   thumbnailQueue; // Sorts what goes into a thumbnail while queue is collecting
+    private final Camera        camera;         // Projection and view, kept in Java instead of read back from GL
+    private final Frustum       frustum;        // View volume the scene graph culls against
+    private int                 frustumVersion; // Camera version the frustum was set from
+    private final ThumbnailCache thumbnails;    // Pictures of the display cards, drawn in their place
+
+    private final BoundsTree    shelfPicks;     // The display cards, for picking with the mouse
+    private final BoundsTree    treePicks;      // The trees on the held card, ditto
+    private final float[]       pickRay;        // Window points of the mouse on the near and far planes, then world points
+    private long                pickTime;       // Time spent in the last pick(), in nanoseconds
 
     private Room                stage;          // The cubic room scene takes place in
     private Card                main;           // The main/default card the user is holding
@@ -101,7 +171,7 @@ public class View implements GLEventListener {
 
     /**
      * Initializes an instance of the View class
-     * @param canvas the canvas we are drawing too
+     * @param canvas the canvas we are drawing too, or null to drive init() and display() without a window
      */
     public View(GLJPanel canvas) {
 
@@ -109,7 +179,30 @@ public class View implements GLEventListener {
         this.canvas = canvas;
 
         counter = 0;
-        canvas.addGLEventListener(this);
+        if(canvas != null) {
+            canvas.addGLEventListener(this);
+        }
+
+        queue = new RenderQueue();
+        thumbnailQueue = new RenderQueue();
+        camera = new Camera(45.0f, 0.1f, 50.0f);    // 45 degree FOV
+        camera.lookAt(0.0f, 1.0f, 3.0f,             // Camera coordinates
+                      0.0f, 1.0f, 0.0f,             // Focal point coordinates
+                      0.0f, 1.0f, 0.0f);            // "up" vector
+        frustum = new Frustum();
+        frustumVersion = -1;
+        thumbnails = new ThumbnailCache(THUMBNAIL_COUNT, THUMBNAIL_SIZE * 5 / 8, THUMBNAIL_SIZE);
+        measured = (MEASURE_FRAMES > 0) ? new long[MEASURE_FRAMES] : null;
+        shelfPicks = new BoundsTree();
+        treePicks = new BoundsTree();
+        pickRay = new float[6];
+        textureLoader = new TextureLoader(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1),
+                                          TEXTURE_UPLOAD_BUDGET);
+        textureManager = new TextureManager(textureLoader, TEXTURE_MEMORY, TEXTURE_IDLE_FRAMES);
+        spriteRegions = new HashMap<>();
+        hud = new Overlay(new Font("Monospaced", Font.PLAIN, 14), Color.BLACK);
+        hudInstructions = new ArrayList<>();
+        initHud();
 
         model = new Model(this);
 
@@ -117,8 +210,10 @@ public class View implements GLEventListener {
         mouseHandler =  new MouseHandler(this, model);
 
         // Start animating
-        animator = new FPSAnimator(canvas, DEFAULT_FRAMES_PER_SECOND);
-        animator.start();
+        animator = (canvas != null) ? new FPSAnimator(canvas, DEFAULT_FRAMES_PER_SECOND) : null;
+        if(animator != null) {
+            animator.start();
+        }
     }
 
 
@@ -129,13 +224,27 @@ public class View implements GLEventListener {
     @Override
     public void init(GLAutoDrawable drawable) {
 
+        initTime = System.nanoTime();
+        drawnFirst = false;
+        drawnTextured = false;
+
         // Get dimensions of the canvas
         width = drawable.getSurfaceWidth();
         height = drawable.getSurfaceHeight();
+        camera.setViewport(width, height);
+
+        // Card text is drawn from distance fields of the same font
+        atlas = GlyphAtlas.get(new Font("Monospaced", Font.PLAIN, 14));
 
-        // Initialize the renderer
-        renderer = new TextRenderer(new Font("Monospaced", Font.PLAIN, 14),
-                                    true, true);
+        // Any mesh buffers uploaded into a previous context are gone
+        MeshCache.release();
+        GlyphAtlas.releaseAll();
+        queue.release();
+        thumbnailQueue.release();
+        thumbnails.release();
+        hud.release();
+        textureManager.release();
+        TextureManager.setCurrent(textureManager);
 
         initPipeline(drawable);
         initTextures(drawable);
@@ -147,25 +256,62 @@ public class View implements GLEventListener {
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
-        renderer = null;
+        hud.dispose(drawable.getGL().getGL2());
+        textureManager.dispose(drawable.getGL().getGL2());
+
+        MeshCache.dispose(drawable.getGL().getGL2());
+        queue.dispose(drawable.getGL().getGL2());
+        thumbnailQueue.dispose(drawable.getGL().getGL2());
+        root.dispose(drawable.getGL().getGL2());
+        thumbnails.dispose(drawable.getGL().getGL2());
+        GlyphAtlas.disposeAll(drawable.getGL().getGL2());
     }
 
     @Override
     public void display(GLAutoDrawable drawable) {
 
+        long start = System.nanoTime();
+
+        GL2 gl = drawable.getGL().getGL2();
+
+        // Apply the keys pressed and mouse moves since the last frame, so input only changes the model and scene on this thread
+        keyHandler.processCommands();
+        keyHandler.update(start);
+        mouseHandler.processCommands();
+
+        // Upload whatever textures have finished decoding
+        if(textureManager.update(gl)) {
+            // Display card thumbnails were drawn with the placeholders
+            for(Card card : model.getDisplayCards()) {
+                card.invalidateContent();
+            }
+        }
+
         updatePipeline(drawable);
 
         update(drawable);
         render(drawable);
 
-        GL2 gl = drawable.getGL().getGL2();
-
-        // Finish and display
+        // Finish and display, waiting for the GPU too if measuring
         gl.glFlush();
+        if(measured != null && measuredCount < measured.length) {
+            gl.glFinish();
+        }
+
+        frameTime = System.nanoTime() - start;
+
+        reportLoadTimes();
+        reportFrameTimes();
     }
 
     @Override
-    public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) { }
+    public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+
+        // The viewport itself is set by the drawable, only the projection needs the new aspect ratio
+        this.width = width;
+        this.height = height;
+        camera.setViewport(width, height);
+    }
 
 
     //****************************************
@@ -190,7 +336,8 @@ public class View implements GLEventListener {
         gl.glShadeModel(GL2.GL_SMOOTH);     // Smooth (Gouraud) shading
 
         gl.glEnable(GL2.GL_COLOR_MATERIAL); // Allow coloring
-        gl.glEnable(GL2.GL_BLEND);
+
+        // Blending is only turned on by the render queue for transparent items
         gl.glBlendFunc(GL.GL_ONE, GL.GL_ONE_MINUS_SRC_ALPHA);
     }
 
@@ -200,28 +347,13 @@ public class View implements GLEventListener {
      */
     private void updatePipeline(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
-        GLU glu = GLU.createGLU();
 
         // Clear color to black
         gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
         gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
 
-        // Initialize the default camera
-        float aspect = (float)width / (float)height;     // Aspect ratio
-
-        // Set up a perspective projection with 45 degree FOV
-        gl.glMatrixMode(GL2.GL_PROJECTION);
-        gl.glLoadIdentity();
-        glu.gluPerspective(45.0f, aspect, 0.1f, 50.0f);
-
-        // Initialize the actual camera with a position and where to look at
-        gl.glMatrixMode(GL2.GL_MODELVIEW);
-        gl.glLoadIdentity();
-
-        glu.gluLookAt(0.0, 1.0, 3.0,            // Camera coordinates
-                    0.0, 1.0, 0.0,        // Focal point coordinates
-                    0.0, 1.0, 0.0);              // "up" vector
-
+        // Load the camera's projection and view, which are only recomputed when they change
+        camera.load(gl);
     }
 
     /**
@@ -234,32 +366,104 @@ public class View implements GLEventListener {
 
         textures = new Texture[FILENAMES.length];
 
-        // Iterate through each file and initialize the texture
+        // Use the baked texture cache for whatever it has, otherwise decode the files
+        MipCache cache = MipCache.open(new File(TEXTURE_CACHE));
+        textureManager.setCache(cache);
+
+        // Each texture is a placeholder until it's first drawn and loaded
         for(int i = 0; i < FILENAMES.length; i++) {
+            URL url = View.class.getResource(RSRC + FILENAMES[i]);
+
+            if((cache != null && cache.contains(FILENAMES[i])) || url != null) {
+                textures[i] = textureManager.add(gl, FILENAMES[i], url, isTransparent(i));
+            }
+        }
+
+        // Let the render queue know which textures need blending
+        for(int i : TRANSPARENT) {
+            RenderQueue.setTransparent(textures[i], true);
+        }
+
+        // Draw the card decorations from the atlas, if it's been built
+        File table = new File(SPRITE_ATLAS);
+        sprites = SpriteAtlas.read(table);
+        spriteRegions.clear();
+
+        if(sprites != null) {
             try {
-                URL url = View.class.getResource(RSRC + FILENAMES[i]);
-
-                if(url != null) {
-                    // Create the texture from a JPG file
-                    textures[i] = TextureIO.newTexture(url, false, TextureIO.PNG);
-
-                    textures[i].setTexParameteri(gl, GL2.GL_TEXTURE_MIN_FILTER,
-                            GL2.GL_LINEAR);
-                    textures[i].setTexParameteri(gl, GL2.GL_TEXTURE_MAG_FILTER,
-                            GL2.GL_LINEAR);
-                    textures[i].setTexParameteri(gl, GL2.GL_TEXTURE_WRAP_S,
-                            GL2.GL_CLAMP_TO_EDGE);
-                    textures[i].setTexParameteri(gl, GL2.GL_TEXTURE_WRAP_T,
-                            GL2.GL_CLAMP_TO_EDGE);
-                }
+                URL url = new File(table.getParentFile(), sprites.getImageName()).toURI().toURL();
+                Texture texture = textureManager.add(gl, sprites.getImageName(), url, true);
 
-            } catch(Exception e) {
+                sprites.setTexture(texture);
+                RenderQueue.setTransparent(texture, true);
+            } catch(IOException e) {
                 e.printStackTrace();
+                sprites = null;
             }
         }
     }
 
 
+    /**
+     * Prints how long after init() the first frame, and the first frame with every texture, were drawn
+     */
+    private void reportLoadTimes() {
+        if(!drawnFirst) {
+            drawnFirst = true;
+            System.out.println(String.format("First frame after %.1f ms", (System.nanoTime() - initTime) / 1.0e6));
+        }
+
+        // Everything drawn in the first frame has been asked for by now
+        if(!drawnTextured && textureManager.getPending() == 0) {
+            drawnTextured = true;
+            System.out.println(String.format("Fully textured after %.1f ms", (System.nanoTime() - initTime) / 1.0e6));
+        }
+    }
+
+
+    /**
+     * Records frame times once every texture is in, and prints their spread after MEASURE_FRAMES of them
+     */
+    private void reportFrameTimes() {
+        if(measured == null || measuredCount == measured.length || !drawnTextured) {
+            return;
+        }
+
+        measured[measuredCount++] = frameTime;
+        if(measuredCount < measured.length) {
+            return;
+        }
+
+        long[] sorted = measured.clone();
+        Arrays.sort(sorted);
+
+        long total = 0;
+        for(long t : sorted) {
+            total += t;
+        }
+
+        System.out.println(String.format("%d frames of %d cards: mean %.2f ms, median %.2f ms, 95th percentile %.2f ms, worst %.2f ms",
+                sorted.length, model.getDisplayCards().size() + 1, total / 1.0e6 / sorted.length,
+                sorted[sorted.length / 2] / 1.0e6, sorted[(int)(sorted.length * 0.95)] / 1.0e6,
+                sorted[sorted.length - 1] / 1.0e6));
+    }
+
+
+    /**
+     * Whether the texture for FILENAMES[index] needs blending
+     * @param index
+     */
+    private static boolean isTransparent(int index) {
+        for(int i : TRANSPARENT) {
+            if(i == index) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
     // Rendering Methods
     private void update(GLAutoDrawable drawable) {
 
@@ -268,6 +472,10 @@ public class View implements GLEventListener {
 
         GL2 gl = drawable.getGL().getGL2();
 
+        // Start counting matrix cache hits and culled nodes for this frame
+        Node.resetStats();
+        thumbnails.resetStats();
+
         // Update the root
         root.update(gl);
     }
@@ -279,50 +487,102 @@ public class View implements GLEventListener {
         // Enable lighting
         root.enable(gl);
 
-        // Render the scene graph
+        // Skip anything outside the camera's view volume, which only needs finding again when the camera changes
+        if(camera.getVersion() != frustumVersion) {
+            frustum.set(camera.getProjectionMatrix(), camera.getViewMatrix());
+            frustumVersion = camera.getVersion();
+        }
+        Node.setFrustum(frustum);
+
+        // Render the scene graph into the queue, then draw it sorted by state
+        queue.begin(camera.getViewMatrix());
         root.render(gl);
+        queue.flush(gl);
 
         // Disable lighting
         root.disable(gl);
 
+        // Bring the pick trees up to date with where everything was just drawn
+        updateTreePicks();
+        shelfPicks.refit();
+        treePicks.refit();
+
         // Draw any text
         drawMode(drawable);
     }
 
     private void drawMode(GLAutoDrawable drawable) {
 
-        renderer.beginRendering(width, height);
+        GL2 gl = drawable.getGL().getGL2();
 
-        // Draw text in white
-        renderer.setColor(0.0f, 0.0f, 0.0f, 1.0f);
+        // Only show the fields for the current mode, the texture is redrawn if that changes
+        for(Overlay.Field field : hudInstructions) {
+            field.setVisible(model.showInstructions());
+        }
+
+        hudEditing.setVisible(model.isEditMode());
+
+        hud.draw(gl, width, height);
+    }
+
+    /**
+     * Lays out the HUD. The statistics are only updated every HUD_INTERVAL milliseconds
+     * so that the HUD texture isn't redrawn every frame.
+     */
+    private void initHud() {
 
         // Draw instructions on the left side if escape key is clicked
-        String[] instruct = {   "Instructions: ",
-                                "E to toggle edit mode",
-                                "S to save the card",
-                                "Space to open the card",
-                                "Num Keys to Change Card",
-                                "--------Edit Mode-------",
-                                "C to change color",
-                                "Shift + D to reset the card",
-                                "F to toggle the front image",
-                                "T to edit the text",
-                                "Right Arrow to Loop Through Trees",
-                                "WASD to Move Tree"
-                                };
-
-        if(model.showInstructions()) {
-            for(int i = 0; i < instruct.length; i++) {
-                renderer.draw(instruct[i], 2, height - 12 * (i + 1));
-            }
+        for(int i = 0; i < INSTRUCTIONS.length; i++) {
+            Overlay.Field field = hud.add(2, 12 * (i + 1));
+            field.set(INSTRUCTIONS[i]);
+            hudInstructions.add(field);
         }
 
-        // Draw in the bottom right to let the user know they are editing
-        if(model.isEditMode()) {
-            renderer.draw("EDITING", 2, height - 708);
-        }
+        int line = INSTRUCTIONS.length + 2;
+
+        // Show the frame time and how well the scene graph's matrix cache is doing
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> String.format("Frame: %.2f ms", frameTime / 1.0e6)));
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> "Matrices: " + Node.getMatricesRecomputed() + " recomputed, " +
+                      Node.getMatricesReused() + " reused, Culled: " + Node.getNodesCulled() + " subtrees"));
+
+        // Show what sorting the render queue saved, as submitted -> as drawn
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> "Binds: " + queue.getBindsUnsorted() + " -> " + queue.getBinds() +
+                      ", State: " + queue.getStateChangesUnsorted() + " -> " + queue.getStateChanges() +
+                      ", Draws: " + queue.getDrawCallsUnsorted() + " -> " + queue.getDrawCalls() +
+                      ", Sprites: " + queue.getSprites() + ", Text: " + queue.getStrings() + " strings"));
+
+        // Show how many display card thumbnails had to be redrawn
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> "Thumbnails: " + thumbnails.getDraws() + " drawn, " + thumbnails.getHits() + " reused, " +
+                      "HUD: " + hud.getRedraws() + " redraws"));
+
+        // Show how much texture memory is in use, and how often textures had to be loaded
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> String.format("Textures: %.1f of %.1f MB, %d hits, %d misses, %d evicted",
+                                    textureManager.getResidentBytes() / 1048576.0, textureManager.getBudget() / 1048576.0,
+                                    textureManager.getHits(), textureManager.getMisses(), textureManager.getEvictions())));
+
+        // Show what's under the mouse, and how much of the pick trees one pick had to look at
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> String.format("Pick: %s, %.2f us, %d boxes, %d refit, %d rebuilds",
+                                    mouseHandler.getHovered(), pickTime / 1.0e3,
+                                    shelfPicks.getVisited() + treePicks.getVisited(),
+                                    shelfPicks.getRefitted() + treePicks.getRefitted(),
+                                    shelfPicks.getRebuilds() + treePicks.getRebuilds())));
+
+        // Show how far behind saving is, and how long saves take to reach the disk
+        hudInstructions.add(hud.add(2, 12 * line++, HUD_INTERVAL,
+                () -> String.format("Saves: %d written, %d queued, %d coalesced, %.1f ms last, %.1f ms max",
+                                    model.getWriter().getSaved(), model.getWriter().getQueueDepth(),
+                                    model.getWriter().getCoalesced(), model.getWriter().getLastLatency() / 1e6,
+                                    model.getWriter().getMaxLatency() / 1e6)));
 
-        renderer.endRendering();
+        // Draw in the bottom right to let the user know they are editing
+        hudEditing = hud.add(2, 708);
+        hudEditing.set("EDITING");
     }
 
 
@@ -342,30 +602,119 @@ public class View implements GLEventListener {
         main.pushTransform(new Transform.Translate(0.0f, 1.0f, 1.0f));          // Move the default card in front of the user
         root.add(main);
 
-        // Display the first 9 display cards from model
+        // Pick up where the user left off editing
+        model.recoverHeldCard();
+
+        // Display the first page of display cards from model
         model.loadDisplayCards();
+        showDisplayCards(drawable.getGL().getGL2(), new ArrayList<>());
+    }
+
+    /**
+     * Replaces the cards on the shelves with the model's display cards
+     * @param gl
+     * @param old the cards on the shelves now, which are thrown away
+     */
+    public void showDisplayCards(GL2 gl, ArrayList<Card> old) {
+
+        for(Card card : old) {
+            root.remove(card);
+            thumbnails.remove(gl, card);
+            card.dispose(gl);
+        }
+
         ArrayList<Card> displayCards = model.getDisplayCards();
 
-        if(displayCards.size() > 0) {
-            int limit = Math.min(displayCards.size(), 9);
+        for(int i = 0; i < displayCards.size(); i++) {
+
+            Card displayCard = displayCards.get(i);
+
+            // Adjust the card location
+            if(i < 3) {
+                displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * i), 4.5f, 4.8f));
+            } else if (i < 6) {
+                displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * (i - 3)), 3.5f, 4.8f));
+            } else if (i < 9) {
+                displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * (i - 6)), 3.5f, 4.8f));
+            } else {
+                // Cards past the shelves, as in a measuring scene, fill rows across the wall and then rows behind them
+                int slot = i - 9;
+                displayCard.pushTransform(new Transform.Translate(-5.0f + (0.4f * (slot % 25)),
+                                                                  1.2f + (0.75f * ((slot / 25) % 8)),
+                                                                  4.8f - (2.0f * (slot / 200))));
+            }
 
-            for (int i = 0; i < limit; i++) {
+            // Adjust the card size
+            displayCard.pushTransform(new Transform.Scale(0.25f, 0.25f, 0.25f));
 
-                Card displayCard = displayCards.get(i);
+            // Draw the card from a picture of it until it changes, for as many cards as the cache holds
+            displayCard.setThumbnail(i < THUMBNAIL_COUNT);
+            root.add(displayCard);
+        }
 
-                // Adjust the card location
-                if(i < 3) {
-                    displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * i), 4.5f, 4.8f));
-                } else if (i < 6) {
-                    displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * (i - 3)), 3.5f, 4.8f));
-                } else {
-                    displayCard.pushTransform(new Transform.Translate(-1.0f + (0.8f * (i - 6)), 3.5f, 4.8f));
-                }
+        // The pick tree is built over the new page the next time the mouse moves
+        shelfPicks.clear();
+        for(Card displayCard : displayCards) {
+            shelfPicks.add(displayCard);
+        }
+    }
 
-                // Adjust the card size
-                displayCard.pushTransform(new Transform.Scale(0.25f, 0.25f, 0.25f));
-                root.add(displayCard);
-            }
+    /**
+     * Finds the display card or held card tree under a point on the canvas, as of the last frame drawn
+     * Call on the GL thread
+     * @param x from 0 at the left of the canvas to 1 at the right
+     * @param y from 0 at the top of the canvas to 1 at the bottom
+     * @return the card or tree nearest the camera there, or null if there isn't one
+     */
+    public Node pick(float x, float y) {
+        long start = System.nanoTime();
+
+        // Turn the point into a ray from the near plane to the far plane, in world coordinates
+        pickRay[0] = pickRay[3] = x * camera.getWidth();
+        pickRay[1] = pickRay[4] = (1.0f - y) * camera.getHeight();
+        pickRay[2] = 0.0f;
+        pickRay[5] = 1.0f;
+
+        if(camera.unproject(pickRay, 0, pickRay, 0, 2) < 2) {
+            return null;
+        }
+
+        float dx = pickRay[3] - pickRay[0];
+        float dy = pickRay[4] - pickRay[1];
+        float dz = pickRay[5] - pickRay[2];
+
+        // Both trees get the same ray, so their distances can be compared
+        Node hit = shelfPicks.pick(pickRay[0], pickRay[1], pickRay[2], dx, dy, dz);
+        Node tree = treePicks.pick(pickRay[0], pickRay[1], pickRay[2], dx, dy, dz);
+
+        if(tree != null && treePicks.getDistance() <= shelfPicks.getDistance()) {
+            hit = tree;
+        }
+
+        pickTime = System.nanoTime() - start;
+        return hit;
+    }
+
+    /**
+     * Keeps the trees on the held card in their pick tree, rebuilding it when trees are added or replaced
+     */
+    private void updateTreePicks() {
+        ArrayList<Card.CardImage> front = main.getFront().getTrees();
+        ArrayList<Card.CardImage> back = main.getBack().getTrees();
+        boolean same = (treePicks.size() == front.size() + back.size());
+
+        for(int i = 0; same && i < front.size(); i++) {
+            same = (treePicks.get(i) == front.get(i));
+        }
+
+        for(int i = 0; same && i < back.size(); i++) {
+            same = (treePicks.get(front.size() + i) == back.get(i));
+        }
+
+        if(!same) {
+            treePicks.clear();
+            front.forEach(treePicks::add);
+            back.forEach(treePicks::add);
         }
     }
 
@@ -386,6 +735,10 @@ public class View implements GLEventListener {
         return canvas;
     }
 
+    public Camera getCamera() {
+        return camera;
+    }
+
     public int getWidth() {
         return width;
     }
@@ -394,14 +747,39 @@ public class View implements GLEventListener {
         return height;
     }
 
-    public TextRenderer getRenderer() {
-        return renderer;
+    public GlyphAtlas getAtlas() {
+        return atlas;
     }
 
     public Texture[] getTextures() {
         return textures;
     }
 
+    /**
+     * Gets a card decoration by name ("tree", "trunk", "apple", "sun", "cloud", "front"), from the atlas if
+     * there is one, otherwise all of the decoration's own texture
+     * @param name
+     */
+    public SpriteAtlas.Region getSprite(String name) {
+        SpriteAtlas.Region region = spriteRegions.get(name);
+
+        if(region == null) {
+            region = (sprites != null) ? sprites.get(name) : null;
+
+            if(region == null) {
+                for(int i = 0; i < FILENAMES.length; i++) {
+                    if(FILENAMES[i].startsWith(name + ".")) {
+                        region = new SpriteAtlas.Region(textures[i]);
+                    }
+                }
+            }
+
+            spriteRegions.put(name, region);
+        }
+
+        return region;
+    }
+
     public int getCounter() {
         return counter;
     }
@@ -409,4 +787,20 @@ public class View implements GLEventListener {
     public Card getMainCard() {
         return main;
     }
+
+    Model getModel() {
+        return model;
+    }
+
+    KeyHandler getKeyHandler() {
+        return keyHandler;
+    }
+
+    public ThumbnailCache getThumbnails() {
+        return thumbnails;
+    }
+
+    public RenderQueue getThumbnailQueue() {
+        return thumbnailQueue;
+    }
 }
@@ -0,0 +1,78 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The CardConverter Class
+ * Packs the CSV files cards are saved as into a CardLibrary at build time
+ * A file can hold any number of cards, one per line; malformed lines are reported and left out
+ *
+ * @author Parker Brandt
+ */
+public class CardConverter {
+
+    //****************************************
+    // Main
+    //****************************************
+
+    /**
+     * Packs every .csv file in the input directories (or the input files themselves) into a library
+     * Usage: CardConverter <library> <directory or file>...
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length < 2) {
+            System.err.println("Usage: CardConverter <library> <directory or file>...");
+            System.exit(1);
+        }
+
+        ArrayList<File> files = new ArrayList<>();
+        for(int i = 1; i < args.length; i++) {
+            File f = new File(args[i]);
+            File[] csvs = f.listFiles((dir, name) -> name.endsWith(".csv"));
+
+            if(csvs != null) {
+                Arrays.sort(csvs);
+                files.addAll(Arrays.asList(csvs));
+            } else {
+                files.add(f);
+            }
+        }
+
+        CardCsvParser parser = new CardCsvParser();
+        parser.setErrorListener((name, line, message) -> System.err.println(name + ":" + line + ": " + message));
+
+        ArrayList<CardData> cards = new ArrayList<>();
+        CardData data = new CardData();
+        int errors = 0;
+
+        for(File f : files) {
+            try(InputStream in = new FileInputStream(f)) {
+                parser.reset(in, f.getPath());
+
+                while(parser.next(data)) {
+                    data.setModified(f.lastModified());
+
+                    CardData card = new CardData();
+                    card.set(data);
+                    cards.add(card);
+                }
+
+                errors += parser.getErrors();
+            }
+        }
+
+        File library = new File(args[0]);
+        CardLibrary.write(library, cards);
+
+        System.out.println("Packed " + cards.size() + " cards into " + library +
+                           (errors > 0 ? ", skipped " + errors + " malformed lines" : ""));
+    }
+}
@@ -0,0 +1,477 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The CardCsvParser Class
+ * Reads cards from CSV, one card per line, straight out of a reused byte buffer
+ *
+ * CSV Format: ID,Color,FrontText,InnerText,TreeLocations
+ * where each tree location is its side ("front" or anything else for the inside), x, and y
+ * Line breaks in the text are written as \n and backslashes as \\
+ *
+ * Numbers are parsed in place from the bytes of the line, and trees go straight into the
+ * CardData's arrays, so the only objects made per card are the two text strings.
+ * A malformed line is reported with its line number and skipped, or stops the parse with an
+ * IOException if there's no error listener.
+ *
+ * @author Parker Brandt
+ */
+public class CardCsvParser {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] FRONT = {'f', 'r', 'o', 'n', 't'};
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private InputStream in;
+    private String name;                    // What's being parsed, for error messages
+    private ErrorListener listener;         // Or null to throw on malformed lines
+
+    private byte[] buffer;                  // Grows to fit the longest line
+    private int start, end;                 // Unparsed bytes in the buffer
+    private boolean eof;
+    private int line;                       // Number of the last line read
+    private int errors;                     // Malformed lines skipped
+
+    private int[] fields;                   // Start and end of each field in the line, in pairs, grown as needed
+    private int fieldCount;
+    private String error;                   // What was wrong with the last number parsed, or null
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    public CardCsvParser() {
+        buffer = new byte[BUFFER_SIZE];
+        fields = new int[2 * 16];
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Starts parsing another stream, keeping the buffers
+     * The stream isn't closed by the parser
+     * @param in
+     * @param name the file name or anything else to put in error messages
+     */
+    public void reset(InputStream in, String name) {
+        this.in = in;
+        this.name = name;
+        start = 0;
+        end = 0;
+        eof = false;
+        line = 0;
+        errors = 0;
+    }
+
+    /**
+     * Reads a file saved with one card, keeping the last card if there's more than one
+     * Malformed lines always throw here, since there's no other card to fall back on
+     * @param file
+     * @param data filled with the card, stamped with the file's modification time
+     * @return false if there's no card in it
+     * @throws IOException if it can't be read or a line is malformed
+     */
+    public boolean read(File file, CardData data) throws IOException {
+        ErrorListener saved = listener;
+        boolean found = false;
+
+        try(InputStream stream = new FileInputStream(file)) {
+            listener = null;
+            reset(stream, file.getPath());
+
+            while(next(data)) {
+                found = true;
+            }
+        } finally {
+            listener = saved;
+            reset(null, null);
+        }
+
+        data.setModified(file.lastModified());
+        return found;
+    }
+
+    /**
+     * Reads the next card, skipping blank and malformed lines
+     * @param data cleared and filled with the card
+     * @return false at the end of the stream
+     * @throws IOException if the stream can't be read, or a line is malformed and there's no error listener
+     */
+    public boolean next(CardData data) throws IOException {
+
+        while(nextLine()) {
+            String message = parseLine(data);
+
+            if(message == null) {
+                return true;
+            }
+
+            if(message.isEmpty()) {
+                continue;   // Blank line
+            }
+
+            errors++;
+            if(listener == null) {
+                throw new IOException(name + ":" + line + ": " + message);
+            }
+            listener.malformed(name, line, message);
+        }
+
+        return false;
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Finds the fields of the next line, reading more of the stream if it isn't all in the buffer
+     * @return false if there are no more lines
+     */
+    private boolean nextLine() throws IOException {
+        int scan = start;
+
+        while(true) {
+            for(; scan < end; scan++) {
+                if(buffer[scan] == '\n') {
+                    split(start, scan);
+                    start = scan + 1;
+                    line++;
+                    return true;
+                }
+            }
+
+            if(eof) {
+                if(start == end) {
+                    return false;
+                }
+
+                // Last line without a line break
+                split(start, end);
+                start = end;
+                line++;
+                return true;
+            }
+
+            // Keep the partial line and read more after it
+            int length = end - start;
+            if(start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, length);
+            } else if(length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            start = 0;
+            end = length;
+            scan = length;
+
+            int n = in.read(buffer, end, buffer.length - end);
+            if(n < 0) {
+                eof = true;
+            } else {
+                end += n;
+            }
+        }
+    }
+
+    /**
+     * Finds the fields of the line from from to to
+     * @param from
+     * @param to just past the last byte, at the line break
+     */
+    private void split(int from, int to) {
+        if(to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+
+        fieldCount = 0;
+        int s = from;
+
+        for(int i = from; i <= to; i++) {
+            if(i == to || buffer[i] == ',') {
+                if(fieldCount * 2 == fields.length) {
+                    fields = Arrays.copyOf(fields, fields.length * 2);
+                }
+                fields[fieldCount * 2] = s;
+                fields[fieldCount * 2 + 1] = i;
+                fieldCount++;
+                s = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Fills data from the fields of the line
+     * @param data
+     * @return null if it's a card, empty if the line is blank, otherwise what's wrong with it
+     */
+    private String parseLine(CardData data) {
+
+        if(fieldCount == 1 && isBlank(fields[0], fields[1])) {
+            return "";
+        }
+
+        if(fieldCount < 4 || (fieldCount - 4) % 3 != 0) {
+            return "expected 4 fields and 3 per tree, found " + fieldCount;
+        }
+
+        data.clear();
+
+        int id = parseInt(fields[0], fields[1]);
+        if(error != null) {
+            return "id " + error;
+        }
+
+        int color = parseInt(fields[2], fields[3]);
+        if(error != null) {
+            return "color " + error;
+        }
+
+        data.setId(id);
+        data.setColor(color);
+        data.setFrontText(parseText(fields[4], fields[5]));
+        data.setInsideText(parseText(fields[6], fields[7]));
+
+        // Read in the available tree data
+        for(int f = 4; f < fieldCount; f += 3) {
+            boolean front = equals(fields[2*f], fields[2*f + 1], FRONT);
+
+            float x = parseFloat(fields[2*f + 2], fields[2*f + 3]);
+            if(error != null) {
+                return "tree x " + error;
+            }
+
+            float y = parseFloat(fields[2*f + 4], fields[2*f + 5]);
+            if(error != null) {
+                return "tree y " + error;
+            }
+
+            data.addTree(front, x, y);
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses a decimal integer from the bytes from s to e, ignoring spaces around it
+     * Sets error if it isn't one
+     */
+    private int parseInt(int s, int e) {
+        error = null;
+
+        while(s < e && buffer[s] == ' ') s++;
+        while(e > s && buffer[e - 1] == ' ') e--;
+
+        boolean negative = s < e && buffer[s] == '-';
+        if(s < e && (buffer[s] == '-' || buffer[s] == '+')) {
+            s++;
+        }
+
+        if(s == e) {
+            error = "is missing";
+            return 0;
+        }
+
+        long value = 0;
+        for(int i = s; i < e; i++) {
+            int digit = buffer[i] - '0';
+
+            if(digit < 0 || digit > 9) {
+                error = "isn't a whole number";
+                return 0;
+            }
+
+            value = value * 10 + digit;
+            if(value > (long)Integer.MAX_VALUE + 1) {
+                error = "is too large";
+                return 0;
+            }
+        }
+
+        value = negative ? -value : value;
+        if(value > Integer.MAX_VALUE) {
+            error = "is too large";
+            return 0;
+        }
+
+        return (int)value;
+    }
+
+    /**
+     * Parses a decimal number, with an optional exponent, from the bytes from s to e, ignoring spaces around it
+     * Sets error if it isn't one
+     */
+    private float parseFloat(int s, int e) {
+        error = null;
+
+        while(s < e && buffer[s] == ' ') s++;
+        while(e > s && buffer[e - 1] == ' ') e--;
+
+        boolean negative = s < e && buffer[s] == '-';
+        if(s < e && (buffer[s] == '-' || buffer[s] == '+')) {
+            s++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;           // Power of ten to scale the mantissa by
+        int digits = 0;
+        boolean point = false;
+        int i = s;
+
+        for(; i < e; i++) {
+            byte b = buffer[i];
+
+            if(b == '.' && !point) {
+                point = true;
+            } else if(b >= '0' && b <= '9') {
+                digits++;
+
+                // Past 18 digits only the magnitude matters
+                if(mantissa < 100000000000000000L) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(point) exponent--;
+                } else if(!point) {
+                    exponent++;
+                }
+            } else {
+                break;
+            }
+        }
+
+        if(digits == 0) {
+            error = (s == e) ? "is missing" : "isn't a number";
+            return Float.NaN;
+        }
+
+        if(i < e && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            int power = parseInt(i + 1, e);
+            if(error != null) {
+                error = "has a bad exponent";
+                return Float.NaN;
+            }
+            exponent += Math.max(Math.min(power, 1000), -1000);
+        } else if(i < e) {
+            error = "isn't a number";
+            return Float.NaN;
+        }
+
+        double value = mantissa;
+        if(exponent < 0 && exponent >= -22) {
+            value /= POW10[-exponent];
+        } else if(exponent > 0 && exponent <= 22) {
+            value *= POW10[exponent];
+        } else if(exponent != 0) {
+            value *= Math.pow(10.0, exponent);
+        }
+
+        return (float)(negative ? -value : value);
+    }
+
+    /**
+     * Decodes the text from the bytes from s to e, turning \n back into line breaks and \\ into backslashes
+     * Any other backslash is kept as it is
+     */
+    private String parseText(int s, int e) {
+        String text = new String(buffer, s, e - s, StandardCharsets.UTF_8);
+        if(text.indexOf('\\') < 0) {
+            return text;
+        }
+
+        StringBuilder out = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char next = (i + 1 < text.length()) ? text.charAt(i + 1) : 0;
+
+            if(c == '\\' && next == 'n') {
+                out.append('\n');
+                i++;
+            } else if(c == '\\' && next == '\\') {
+                out.append('\\');
+                i++;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private boolean isBlank(int s, int e) {
+        for(int i = s; i < e; i++) {
+            if(buffer[i] != ' ' && buffer[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int s, int e, byte[] text) {
+        if(e - s != text.length) {
+            return false;
+        }
+
+        for(int i = 0; i < text.length; i++) {
+            if(buffer[s + i] != text[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    /**
+     * Gets the number of the last line read, counting from 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the number of malformed lines skipped since the last reset
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Reports malformed lines to the listener and skips them, instead of throwing
+     * @param listener or null to throw
+     */
+    public void setErrorListener(ErrorListener listener) {
+        this.listener = listener;
+    }
+
+
+    //****************************************
+    // Inner Classes
+    //****************************************
+
+    /**
+     * Told about each malformed line that's skipped
+     */
+    public interface ErrorListener {
+        void malformed(String name, int line, String message);
+    }
+}
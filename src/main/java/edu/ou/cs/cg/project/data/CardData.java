@@ -0,0 +1,190 @@
+package edu.ou.cs.cg.project.data;
+
+import java.util.Arrays;
+
+/**
+ * The CardData Class
+ * The saved design of a card, without any of the scene graph nodes used to draw it
+ * Tree placements are kept in primitive arrays so one CardData can be reused to read many cards
+ *
+ * @author Parker Brandt
+ */
+public class CardData {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private int id;                 // Card id, the number in its file name
+    private int color;              // Index into the model's card colors
+    private String frontText;       // Text on the front of the card
+    private String insideText;      // Text on the inside of the card
+    private long modified;          // When the card was last saved, in milliseconds since the epoch
+
+    private int treeCount;          // Number of trees placed on the card
+    private float[] treeX;          // Where each tree is on its side of the card
+    private float[] treeY;
+    private boolean[] treeFront;    // Whether each tree is on the front or the inside
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    public CardData() {
+        treeX = new float[4];
+        treeY = new float[4];
+        treeFront = new boolean[4];
+
+        clear();
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Empties the card so it can be reused, keeping the tree arrays
+     */
+    public void clear() {
+        id = 0;
+        color = 0;
+        frontText = "";
+        insideText = "";
+        modified = 0L;
+        treeCount = 0;
+    }
+
+    /**
+     * Places another tree on the card
+     * @param front on the front or the inside
+     * @param x
+     * @param y
+     */
+    public void addTree(boolean front, float x, float y) {
+        if(treeCount == treeX.length) {
+            int size = treeCount * 2;
+            treeX = Arrays.copyOf(treeX, size);
+            treeY = Arrays.copyOf(treeY, size);
+            treeFront = Arrays.copyOf(treeFront, size);
+        }
+
+        treeX[treeCount] = x;
+        treeY[treeCount] = y;
+        treeFront[treeCount] = front;
+        treeCount++;
+    }
+
+    /**
+     * Moves a tree already on the card
+     * @param index
+     * @param x
+     * @param y
+     */
+    public void setTree(int index, float x, float y) {
+        treeX[index] = x;
+        treeY[index] = y;
+    }
+
+    /**
+     * Finds a tree by where it is among the trees on its side of the card
+     * @param front on the front or the inside
+     * @param n counting from 0 in the order they were placed
+     * @return the tree's index, or -1 if there aren't that many on the side
+     */
+    public int getTreeIndex(boolean front, int n) {
+        for(int i = 0; i < treeCount; i++) {
+            if(treeFront[i] == front && n-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies another card into this one
+     * @param other
+     */
+    public void set(CardData other) {
+        id = other.id;
+        color = other.color;
+        frontText = other.frontText;
+        insideText = other.insideText;
+        modified = other.modified;
+
+        treeCount = 0;
+        for(int i = 0; i < other.treeCount; i++) {
+            addTree(other.treeFront[i], other.treeX[i], other.treeY[i]);
+        }
+    }
+
+
+    /**
+     * Splits text into its lines, keeping empty lines at the end
+     * Joining them with "\n" gives the text back, and there's always at least one
+     * @param text
+     */
+    public static String[] lines(String text) {
+        return text.split("\n", -1);
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    public int getId() {
+        return id;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public String getFrontText() {
+        return frontText;
+    }
+
+    public String getInsideText() {
+        return insideText;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public int getTreeCount() {
+        return treeCount;
+    }
+
+    public float getTreeX(int index) {
+        return treeX[index];
+    }
+
+    public float getTreeY(int index) {
+        return treeY[index];
+    }
+
+    public boolean isTreeFront(int index) {
+        return treeFront[index];
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public void setFrontText(String frontText) {
+        this.frontText = frontText;
+    }
+
+    public void setInsideText(String insideText) {
+        this.insideText = insideText;
+    }
+
+    public void setModified(long modified) {
+        this.modified = modified;
+    }
+}
@@ -0,0 +1,383 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The CardLibrary Class
+ * A packed file of many card designs, memory-mapped and read one card at a time by id
+ *
+ * File layout (big-endian):
+ *   Header  - magic "CLIB", format, card count, unused (6 ints)
+ *   Index   - one 32 byte slot per card, sorted by id: id (int), color (int), record offset (long),
+ *             modified time (long), record length (int), unused (int)
+ *   Records - id (int), color (int), front text and inside text (each a short length then UTF-8),
+ *             tree count (short), then for each tree: side (byte, 1 for the front), x (float), y (float)
+ *
+ * Looking up a card is a binary search of the index and one record read, so any card is found in
+ * O(log n) without touching the rest of the file, and the index is only as big as the number of
+ * cards, however far apart their ids are. Colors and modification times are kept in the index
+ * too, so they can be scanned without reading any records.
+ * The mapping limits a library to 2 GB. Not safe to read from more than one thread at once.
+ *
+ * @author Parker Brandt
+ */
+public class CardLibrary {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int MAGIC = 0x434C4942;    // "CLIB"
+    private static final int FORMAT = 2;
+    private static final int HEADER = 24;           // Bytes before the index
+    private static final int SLOT = 32;             // Bytes per index slot
+    private static final int MAX_TEXT = 0xFFFF;     // Most bytes of text on a side
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final File file;
+    private final MappedByteBuffer map;
+    private final int count;                        // Cards in the library, one per index slot
+
+    private byte[] scratch;                         // Reused to decode text
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    private CardLibrary(File file, MappedByteBuffer map) throws IOException {
+        this.file = file;
+        this.map = map;
+
+        if(map.getInt(0) != MAGIC || map.getInt(4) != FORMAT) {
+            throw new IOException("Not a card library: " + file);
+        }
+
+        count = map.getInt(8);
+
+        if(count < 0 || HEADER + (long)count * SLOT > map.capacity()) {
+            throw new IOException("Card library index is truncated: " + file);
+        }
+
+        scratch = new byte[256];
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Maps a library file
+     * @param file
+     * @throws IOException if it can't be read or isn't a library
+     */
+    public static CardLibrary open(File file) throws IOException {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel()) {
+
+            // The mapping stays valid after the channel is closed
+            return new CardLibrary(file, channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        }
+    }
+
+    /**
+     * Whether there's a card with the id
+     * @param id
+     */
+    public boolean contains(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Finds the card with the id in the index, which is sorted by id
+     * @param id
+     * @return its index, or (-(insertion point) - 1) if there's no such card, as Arrays.binarySearch() does
+     */
+    public int indexOf(int id) {
+        int lo = 0, hi = count - 1;
+
+        while(lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = getId(mid);
+
+            if(midId < id) {
+                lo = mid + 1;
+            } else if(midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -(lo + 1);
+    }
+
+    /**
+     * Reads a card into data, which is cleared first
+     * @param id
+     * @param data
+     * @return false if there's no card with the id
+     */
+    public boolean read(int id, CardData data) {
+        int index = indexOf(id);
+
+        if(index < 0) {
+            return false;
+        }
+
+        readAt(index, data);
+        return true;
+    }
+
+    /**
+     * Reads the card in an index slot into data, which is cleared first
+     * @param index from 0 to size() - 1, in id order
+     * @param data
+     */
+    public void readAt(int index, CardData data) {
+        int slot = slot(index);
+        int p = (int)map.getLong(slot + 8);
+
+        data.clear();
+        data.setId(map.getInt(p));
+        data.setColor(map.getInt(p + 4));
+        data.setModified(map.getLong(slot + 16));
+        p += 8;
+
+        data.setFrontText(readText(p));
+        p += 2 + (map.getShort(p) & 0xFFFF);
+
+        data.setInsideText(readText(p));
+        p += 2 + (map.getShort(p) & 0xFFFF);
+
+        int trees = map.getShort(p) & 0xFFFF;
+        p += 2;
+
+        for(int i = 0; i < trees; i++) {
+            data.addTree(map.get(p) != 0, map.getFloat(p + 1), map.getFloat(p + 5));
+            p += 9;
+        }
+    }
+
+    /**
+     * Writes cards to a library file, replacing it all at once so readers never see half a file
+     * If two cards have the same id, the last one is kept
+     * @param file
+     * @param cards
+     * @throws IOException
+     */
+    public static void write(File file, List<CardData> cards) throws IOException {
+
+        // Sort by id, keeping the order of cards with the same id so the last one can win
+        CardData[] sorted = cards.toArray(new CardData[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(CardData::getId));
+
+        int count = 0;
+        for(int i = 0; i < sorted.length; i++) {
+            if(i + 1 == sorted.length || sorted[i + 1].getId() != sorted[i].getId()) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        // Encode the records first so the index can point at them
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(bytes);
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        long base = HEADER + (long)count * SLOT;
+
+        for(int i = 0; i < count; i++) {
+            offsets[i] = base + records.size();
+            writeRecord(records, sorted[i]);
+            lengths[i] = (int)(base + records.size() - offsets[i]);
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File tmp = File.createTempFile("cards", ".tmp", dir);
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(count);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            for(int i = 0; i < count; i++) {
+                out.writeInt(sorted[i].getId());
+                out.writeInt(sorted[i].getColor());
+                out.writeLong(offsets[i]);
+                out.writeLong(sorted[i].getModified());
+                out.writeInt(lengths[i]);
+                out.writeInt(0);
+            }
+
+            bytes.writeTo(out);
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Gets the byte offset of an index slot
+     * @param index
+     */
+    private int slot(int index) {
+        return HEADER + index * SLOT;
+    }
+
+    /**
+     * Decodes a short length and UTF-8 text at p
+     * @param p
+     */
+    private String readText(int p) {
+        int length = map.getShort(p) & 0xFFFF;
+
+        if(scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        for(int i = 0; i < length; i++) {
+            scratch[i] = map.get(p + 2 + i);
+        }
+
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeRecord(DataOutputStream out, CardData card) throws IOException {
+        out.writeInt(card.getId());
+        out.writeInt(card.getColor());
+        writeText(out, card.getFrontText());
+        writeText(out, card.getInsideText());
+
+        out.writeShort(card.getTreeCount());
+        for(int i = 0; i < card.getTreeCount(); i++) {
+            out.writeByte(card.isTreeFront(i) ? 1 : 0);
+            out.writeFloat(card.getTreeX(i));
+            out.writeFloat(card.getTreeY(i));
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        int length = fitText(b, MAX_TEXT);
+
+        out.writeShort(length);
+        out.write(b, 0, length);
+    }
+
+    /**
+     * Gets how much of some UTF-8 text fits in at most max bytes, without cutting a character in two
+     * @param utf8
+     * @param max
+     * @return the length of the longest whole-character prefix that fits
+     */
+    static int fitText(byte[] utf8, int max) {
+        if(utf8.length <= max) {
+            return utf8.length;
+        }
+
+        // Back up past the continuation bytes (10xxxxxx) of a character that doesn't fit
+        int length = max;
+        while(length > 0 && (utf8[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the lowest id of a card, or 0 if there are none
+     */
+    public int getFirstId() {
+        return count == 0 ? 0 : getId(0);
+    }
+
+    /**
+     * Gets the highest id of a card, or -1 if there are none
+     */
+    public int getLastId() {
+        return count == 0 ? -1 : getId(count - 1);
+    }
+
+    /**
+     * Gets the id of the card in an index slot
+     * @param index from 0 to size() - 1, in id order
+     */
+    public int getId(int index) {
+        return map.getInt(slot(index));
+    }
+
+    /**
+     * Gets the number of cards in the library
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets when the card was last saved, without reading its record
+     * @param id
+     * @return 0 if there's no card with the id
+     */
+    public long getModified(int id) {
+        int index = indexOf(id);
+        return (index < 0) ? 0L : getModifiedAt(index);
+    }
+
+    /**
+     * Gets when the card in an index slot was last saved
+     * @param index from 0 to size() - 1, in id order
+     */
+    public long getModifiedAt(int index) {
+        return map.getLong(slot(index) + 16);
+    }
+
+    /**
+     * Gets the card's color index, without reading its record
+     * @param id
+     * @return -1 if there's no card with the id
+     */
+    public int getColor(int id) {
+        int index = indexOf(id);
+        return (index < 0) ? -1 : getColorAt(index);
+    }
+
+    /**
+     * Gets the color index of the card in an index slot
+     * @param index from 0 to size() - 1, in id order
+     */
+    public int getColorAt(int index) {
+        return map.getInt(slot(index) + 4);
+    }
+}
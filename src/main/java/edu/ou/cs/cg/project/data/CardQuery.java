@@ -0,0 +1,117 @@
+package edu.ou.cs.cg.project.data;
+
+/**
+ * The CardQuery Class
+ * Which cards to list from a CardRepository: a range of ids, a color, and a range of modification times
+ * Every part matches all cards until it's set
+ *
+ * @author Parker Brandt
+ */
+public class CardQuery {
+
+    //****************************************
+    // Constants
+    //****************************************
+    public static final int ANY_COLOR = -1;
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private int minId, maxId;               // Inclusive
+    private int color;                      // Or ANY_COLOR
+    private long modifiedAfter;             // Inclusive, in milliseconds since the epoch
+    private long modifiedBefore;            // Exclusive
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    public CardQuery() {
+        minId = Integer.MIN_VALUE;
+        maxId = Integer.MAX_VALUE;
+        color = ANY_COLOR;
+        modifiedAfter = Long.MIN_VALUE;
+        modifiedBefore = Long.MAX_VALUE;
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Whether a card with these values matches the query
+     * @param id
+     * @param color
+     * @param modified
+     */
+    public boolean matches(int id, int color, long modified) {
+        return id >= minId && id <= maxId &&
+               (this.color == ANY_COLOR || this.color == color) &&
+               modified >= modifiedAfter && modified < modifiedBefore;
+    }
+
+    /**
+     * Whether matching needs the card's color, which some repositories have to read the card for
+     */
+    public boolean needsColor() {
+        return color != ANY_COLOR;
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    public int getMinId() {
+        return minId;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public long getModifiedAfter() {
+        return modifiedAfter;
+    }
+
+    public long getModifiedBefore() {
+        return modifiedBefore;
+    }
+
+    /**
+     * Only match ids from min to max, inclusive
+     * @param min
+     * @param max
+     */
+    public CardQuery setIdRange(int min, int max) {
+        minId = min;
+        maxId = max;
+        return this;
+    }
+
+    /**
+     * Only match one color
+     * @param color index into the model's card colors, or ANY_COLOR
+     */
+    public CardQuery setColor(int color) {
+        this.color = color;
+        return this;
+    }
+
+    /**
+     * Only match cards last saved at or after after, and before before
+     * @param after milliseconds since the epoch
+     * @param before
+     */
+    public CardQuery setModifiedRange(long after, long before) {
+        modifiedAfter = after;
+        modifiedBefore = before;
+        return this;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * The CardRepository Interface
+ * A collection of saved cards that can be listed a page at a time, however many there are
+ *
+ * Cards are visited one at a time in id order through a single reused CardData, so listing a page
+ * only ever holds the cards the caller keeps. Copy a visited card with CardData.set() to keep it.
+ *
+ * @author Parker Brandt
+ */
+public interface CardRepository {
+
+    /**
+     * Opens the cards in a library file, or the CSV files in a directory
+     * @param file
+     * @throws IOException
+     */
+    static CardRepository open(File file) throws IOException {
+        if(file.isDirectory()) {
+            return new DirectoryRepository(file);
+        }
+
+        return new LibraryRepository(CardLibrary.open(file));
+    }
+
+    /**
+     * Lists the cards of two repositories as one
+     * @param base
+     * @param overrides whose cards are listed instead of any of base's with the same ids
+     */
+    static CardRepository merge(CardRepository base, CardRepository overrides) {
+        return new MergedRepository(base, overrides);
+    }
+
+    /**
+     * Visits the cards matching the query in id order, starting at from
+     * @param query
+     * @param from the first id to look at, which needn't be a card
+     * @param forward toward higher ids, or toward lower ones
+     * @param limit most cards to visit
+     * @param visitor given each card, in a CardData that's reused for the next one
+     * @return how many cards were visited
+     */
+    int scan(CardQuery query, int from, boolean forward, int limit, Consumer<CardData> visitor);
+
+    /**
+     * Reads one card into data
+     * @param id
+     * @param data
+     * @return false if there's no card with the id
+     */
+    boolean read(int id, CardData data);
+
+    /**
+     * Whether there's a card with the id, without reading it
+     * @param id
+     */
+    boolean contains(int id);
+
+    /**
+     * Gets the lowest id a card could have
+     */
+    int getFirstId();
+
+    /**
+     * Gets the highest id a card could have
+     */
+    int getLastId();
+
+    /**
+     * Gets the number of cards
+     */
+    int size();
+}
@@ -0,0 +1,385 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The CardWriter Class
+ * Saves cards as card<id>.csv files in a directory on a background thread
+ *
+ * save() only copies the card and queues it, so it never waits on the disk. Saving a card again
+ * before it's written replaces the queued copy, so only the latest is written. Each file is written
+ * to a temp file and renamed over the old one, so a crash never leaves half a card behind.
+ * With sync on, each batch of files is forced to the disk before being renamed, then the directory
+ * is forced once for the whole batch.
+ * Cards that couldn't be written are queued again, unless saved again in the meantime, and retried
+ * after a pause, a few times at most.
+ * Whatever is still queued is written before the JVM exits.
+ *
+ * @author Parker Brandt
+ */
+public class CardWriter {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int MAX_ATTEMPTS = 5;          // Tries to write a card before giving up on it
+    private static final long RETRY_DELAY = 1000;       // Milliseconds to wait after a batch fails
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final File dir;
+    private final boolean sync;                         // Force files to the disk before renaming them?
+    private final Thread thread;
+
+    private final LinkedHashMap<Integer, Pending> queue;   // Cards waiting to be written, by id
+    private ArrayList<Pending> spare;                   // Copies to reuse for later saves
+    private int writing;                                // Cards in the batch being written
+    private boolean stopped;
+
+    // Statistics, since creation
+    private int saved;                                  // Files written
+    private int coalesced;                              // Saves replaced by later ones before being written
+    private int failures;                               // Failed attempts to write a card
+    private int dropped;                                // Cards given up on
+    private long lastLatency;                           // Nanoseconds from save() to the file being in place
+    private long maxLatency;
+    private long totalLatency;
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+
+    /**
+     * Starts a writer for the directory, which is created if needed
+     * @param dir
+     * @param sync whether to force the files to the disk
+     */
+    public CardWriter(File dir, boolean sync) {
+        this.dir = dir;
+        this.sync = sync;
+
+        queue = new LinkedHashMap<>();
+        spare = new ArrayList<>();
+
+        thread = new Thread(this::run, "card-writer");
+        thread.setDaemon(true);
+        thread.start();
+
+        // Don't lose saves when the window is closed right after pressing S
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "card-writer-shutdown"));
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Queues the card to be written, replacing any queued copy of it
+     * @param data copied, so it can be changed as soon as this returns
+     */
+    public synchronized void save(CardData data) {
+        Pending p = queue.get(data.getId());
+
+        if(p != null) {
+            coalesced++;
+            p.attempts = 0;
+        } else {
+            p = spare.isEmpty() ? new Pending() : spare.remove(spare.size() - 1);
+            p.queued = System.nanoTime();
+            p.attempts = 0;
+            queue.put(data.getId(), p);
+        }
+
+        p.data.set(data);
+        notifyAll();
+    }
+
+    /**
+     * Waits until everything queued so far is written
+     * @throws InterruptedException
+     */
+    public synchronized void flush() throws InterruptedException {
+        while((!queue.isEmpty() || writing > 0) && thread.isAlive()) {
+            wait();
+        }
+    }
+
+    /**
+     * Writes whatever is queued, then stops the thread
+     */
+    public void shutdown() {
+        try {
+            flush();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(this) {
+            stopped = true;
+            notifyAll();
+        }
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Writes batches of queued cards until stopped
+     */
+    private void run() {
+        ArrayList<Pending> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+
+        while(true) {
+            synchronized(this) {
+                while(queue.isEmpty() && !stopped) {
+                    try {
+                        wait();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if(queue.isEmpty()) {
+                    return;
+                }
+
+                batch.addAll(queue.values());
+                queue.clear();
+                writing = batch.size();
+            }
+
+            File[] temps = new File[batch.size()];
+            int moved = 0;                              // Files in place so far
+
+            try {
+                Files.createDirectories(dir.toPath());
+
+                for(int i = 0; i < batch.size(); i++) {
+                    temps[i] = writeTemp(batch.get(i).data, text);
+                }
+
+                for(int i = 0; i < batch.size(); i++) {
+                    File file = new File(dir, "card" + batch.get(i).data.getId() + ".csv");
+                    Files.move(temps[i].toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                               StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                }
+
+                if(sync) {
+                    syncDirectory();
+                }
+            } catch(IOException e) {
+                System.err.println("Couldn't save cards to " + dir + ": " + e);
+
+                for(int i = moved; i < temps.length; i++) {
+                    if(temps[i] != null) {
+                        temps[i].delete();
+                    }
+                }
+            }
+
+            long now = System.nanoTime();
+            boolean retry = false;
+
+            synchronized(this) {
+                for(int i = 0; i < batch.size(); i++) {
+                    Pending p = batch.get(i);
+                    int id = p.data.getId();
+
+                    if(i < moved) {
+                        saved++;
+                        lastLatency = now - p.queued;
+                        maxLatency = Math.max(maxLatency, lastLatency);
+                        totalLatency += lastLatency;
+                    } else {
+                        failures++;
+
+                        // Try again, unless the card has been saved again since, which replaces this copy
+                        if(!queue.containsKey(id) && ++p.attempts < MAX_ATTEMPTS) {
+                            queue.put(id, p);
+                            retry = true;
+                            continue;
+                        }
+
+                        if(!queue.containsKey(id)) {
+                            dropped++;
+                            System.err.println("Gave up saving card " + id + " after " + MAX_ATTEMPTS + " tries");
+                        }
+                    }
+
+                    spare.add(p);
+                }
+
+                batch.clear();
+                writing = 0;
+                notifyAll();
+            }
+
+            // Give whatever went wrong a chance to clear up
+            if(retry) {
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch(InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a card to a temp file next to where it goes
+     * @param data
+     * @param text reused to format the card
+     * @return the temp file
+     */
+    private File writeTemp(CardData data, StringBuilder text) throws IOException {
+        File temp = File.createTempFile("card" + data.getId(), ".tmp", dir);
+
+        text.setLength(0);
+        format(data, text);
+
+        try(FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+
+            if(sync) {
+                channel.force(true);
+            }
+        } catch(IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        return temp;
+    }
+
+    /**
+     * Forces the renames in the directory to the disk, where the platform allows it
+     */
+    private void syncDirectory() {
+        try(FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch(IOException e) {
+            // Some platforms can't open directories, and renames there are durable anyway
+        }
+    }
+
+    /**
+     * Formats a card as a line of CSV, which CardCsvParser reads back
+     * Line breaks in the text are written as \n and backslashes as \\, so the lines come back apart
+     * Commas are turned into spaces, since the format can't hold them
+     * @param data
+     * @param out
+     */
+    static void format(CardData data, StringBuilder out) {
+        out.append(data.getId()).append(',').append(data.getColor()).append(',');
+        appendText(data.getFrontText(), out);
+        out.append(',');
+        appendText(data.getInsideText(), out);
+
+        for(int i = 0; i < data.getTreeCount(); i++) {
+            out.append(',').append(data.isTreeFront(i) ? "front" : "back");
+            out.append(',').append(data.getTreeX(i));
+            out.append(',').append(data.getTreeY(i));
+        }
+
+        out.append('\n');
+    }
+
+    private static void appendText(String text, StringBuilder out) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if(c == '\n') {
+                out.append("\\n");
+            } else if(c == '\\') {
+                out.append("\\\\");
+            } else if(c != '\r') {
+                out.append(c == ',' ? ' ' : c);
+            }
+        }
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Gets the number of cards waiting to be written, including the batch being written
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size() + writing;
+    }
+
+    public synchronized int getSaved() {
+        return saved;
+    }
+
+    public synchronized int getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the number of cards that still couldn't be written after MAX_ATTEMPTS tries
+     */
+    public synchronized int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the time from the last card written being saved to it being in place, in nanoseconds
+     */
+    public synchronized long getLastLatency() {
+        return lastLatency;
+    }
+
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public synchronized long getAverageLatency() {
+        return saved == 0 ? 0L : totalLatency / saved;
+    }
+
+
+    //****************************************
+    // Inner Classes
+    //****************************************
+
+    /**
+     * A copy of a card waiting to be written
+     */
+    private static class Pending {
+        private final CardData data = new CardData();
+        private long queued;                            // When it was first saved, in nanoseconds
+        private int attempts;                           // Failed tries to write it so far
+    }
+}
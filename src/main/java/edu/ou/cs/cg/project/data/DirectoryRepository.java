@@ -0,0 +1,156 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The DirectoryRepository Class
+ * Lists the cards saved as card<id>.csv files in a directory
+ *
+ * Only the ids and file names are kept, taken from the file names, so files are only read
+ * when a card is visited, or when a query needs its color. The id in the file name is the card's id.
+ *
+ * @author Parker Brandt
+ */
+class DirectoryRepository implements CardRepository {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final File dir;
+    private final int[] ids;                // Sorted
+    private final String[] names;           // File name of each id
+    private final CardData data;            // Reused for every card visited
+    private final CardCsvParser parser;     // Reused for every file read
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    DirectoryRepository(File dir) throws IOException {
+        this.dir = dir;
+
+        String[] files = dir.list((d, name) -> name.matches("card\\d{1,9}\\.csv"));
+        if(files == null) {
+            throw new IOException("Couldn't list cards in " + dir);
+        }
+
+        // Sort by id, whatever padding the names have
+        long[] keys = new long[files.length];
+        for(int i = 0; i < files.length; i++) {
+            keys[i] = ((long)getId(files[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        ids = new int[files.length];
+        names = new String[files.length];
+        for(int i = 0; i < keys.length; i++) {
+            ids[i] = (int)(keys[i] >>> 32);
+            names[i] = files[(int)keys[i]];
+        }
+
+        data = new CardData();
+        parser = new CardCsvParser();
+    }
+
+
+    //****************************************
+    // Override Methods
+    //****************************************
+    @Override
+    public int scan(CardQuery query, int from, boolean forward, int limit, Consumer<CardData> visitor) {
+        int i = Arrays.binarySearch(ids, from);
+        int visited = 0;
+
+        // Start at the nearest id in the direction of the scan
+        if(i < 0) {
+            i = forward ? -i - 1 : -i - 2;
+        }
+
+        for(; i >= 0 && i < ids.length && visited < limit; i += forward ? 1 : -1) {
+            if(forward ? ids[i] > query.getMaxId() : ids[i] < query.getMinId()) {
+                break;
+            }
+
+            // Check everything but the color before reading the file
+            File file = new File(dir, names[i]);
+
+            if(!query.matches(ids[i], query.getColor(), file.lastModified())) {
+                continue;
+            }
+
+            try {
+                if(!parser.read(file, data)) {
+                    continue;
+                }
+                data.setId(ids[i]);
+            } catch(IOException e) {
+                System.err.println("Skipping card: " + e.getMessage());
+                continue;
+            }
+
+            if(query.needsColor() && !query.matches(ids[i], data.getColor(), data.getModified())) {
+                continue;
+            }
+
+            visitor.accept(data);
+            visited++;
+        }
+
+        return visited;
+    }
+
+    @Override
+    public boolean read(int id, CardData data) {
+        int i = Arrays.binarySearch(ids, id);
+        if(i < 0) {
+            return false;
+        }
+
+        try {
+            if(parser.read(new File(dir, names[i]), data)) {
+                data.setId(id);
+                return true;
+            }
+            return false;
+        } catch(IOException e) {
+            System.err.println("Couldn't read card: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    @Override
+    public int getFirstId() {
+        return ids.length == 0 ? 0 : ids[0];
+    }
+
+    @Override
+    public int getLastId() {
+        return ids.length == 0 ? -1 : ids[ids.length - 1];
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Gets the id in a card<id>.csv file name
+     * @param name
+     */
+    private static int getId(String name) {
+        return Integer.parseInt(name.substring(4, name.length() - 4));
+    }
+}
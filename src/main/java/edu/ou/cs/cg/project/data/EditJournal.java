@@ -0,0 +1,611 @@
+package edu.ou.cs.cg.project.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The EditJournal Class
+ * Keeps the design of the card being edited as a snapshot plus a log of the edits made since,
+ * appending each edit to a file as it's made so the card survives a restart
+ *
+ * File layout (big-endian): magic "CJNL", format, then records. Each record is its length (short,
+ * not counting itself), an op (byte), and the op's values:
+ *   SNAPSHOT - the whole card: id, color, both texts, and trees, as in a CardLibrary record
+ *   COLOR    - color (int)                                                     7 bytes
+ *   MOVE     - side (byte), tree on that side (short), dx (float), dy (float)  14 bytes
+ *   TEXT     - side (byte), text (short length then UTF-8)
+ *   RESET    - back to the defaults                                            3 bytes
+ *   UNDO, REDO                                                                 3 bytes
+ *
+ * Undo replays the edits up to the one before from the snapshot, and redo applies the next one again.
+ * Once the log holds twice HISTORY edits, the file is compacted: everything but the last HISTORY edits
+ * is folded into a new snapshot and the file is replaced. A record torn by a crash is dropped when
+ * the journal is opened again.
+ *
+ * Writes aren't forced to the disk, so an edit is safe from the program crashing as soon as it's
+ * made, and from the system crashing once the OS has written it back.
+ *
+ * @author Parker Brandt
+ */
+public class EditJournal {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int MAGIC = 0x434A4E4C;    // "CJNL"
+    private static final int FORMAT = 1;
+    private static final int HEADER = 8;
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte COLOR = 2;
+    private static final byte MOVE = 3;
+    private static final byte TEXT = 4;
+    private static final byte RESET = 5;
+    private static final byte UNDO = 6;
+    private static final byte REDO = 7;
+
+    public static final int HISTORY = 256;          // Edits that can always be undone
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final File file;
+    private FileChannel channel;                    // Appends to the file, or null if it can't be written
+    private final CardData defaults;                // What a reset goes back to
+
+    private final CardData base;                    // The card before the first edit in the log
+    private final CardData card;                    // The card after the applied edits
+
+    private byte[] log;                             // Edit records, as written to the file
+    private int logSize;
+    private int[] starts;                           // Where each edit starts in the log
+    private int count;                              // Edits in the log
+    private int applied;                            // Edits applied to the card; the rest can be redone
+
+    private ByteBuffer record;                      // Reused to encode a record
+    private boolean recovered;                      // Did opening find a card from before?
+
+    // Statistics, since creation
+    private long bytesWritten;
+    private int compactions;
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+
+    /**
+     * Opens the journal in the file, recovering the card it holds, or starts a new one with the defaults
+     * @param file
+     * @param defaults the card a reset goes back to, copied
+     */
+    public EditJournal(File file, CardData defaults) {
+        this.file = file;
+        this.defaults = new CardData();
+        this.defaults.set(defaults);
+
+        base = new CardData();
+        card = new CardData();
+        log = new byte[4096];
+        starts = new int[64];
+        record = ByteBuffer.allocate(256);
+
+        try {
+            recovered = recover();
+        } catch(IOException e) {
+            System.err.println("Couldn't recover edits from " + file + ": " + e);
+        }
+
+        if(!recovered) {
+            begin(defaults);
+        }
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Copies the card as it is after the applied edits
+     * @param into
+     */
+    public synchronized void get(CardData into) {
+        into.set(card);
+    }
+
+    /**
+     * Starts over with a new card, forgetting the edits to the old one
+     * @param start copied
+     */
+    public synchronized void begin(CardData start) {
+        base.set(start);
+        card.set(start);
+        logSize = 0;
+        count = 0;
+        applied = 0;
+
+        rewrite();
+    }
+
+    /**
+     * Changes the card's color
+     * @param color
+     */
+    public synchronized void setColor(int color) {
+        start(COLOR);
+        record.putInt(color);
+        commit();
+    }
+
+    /**
+     * Moves a tree
+     * @param front the tree is on the front or the inside
+     * @param tree which tree on that side, counting from 0
+     * @param dx
+     * @param dy
+     */
+    public synchronized void moveTree(boolean front, int tree, float dx, float dy) {
+        start(MOVE);
+        record.put((byte)(front ? 1 : 0));
+        record.putShort((short)tree);
+        record.putFloat(dx);
+        record.putFloat(dy);
+        commit();
+    }
+
+    /**
+     * Changes the text on one side of the card
+     * @param front
+     * @param text
+     */
+    public synchronized void setText(boolean front, String text) {
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        int length = CardLibrary.fitText(b, 0x7FFF - 8);
+
+        start(TEXT);
+        ensure(3 + length);
+        record.put((byte)(front ? 1 : 0));
+        record.putShort((short)length);
+        record.put(b, 0, length);
+        commit();
+    }
+
+    /**
+     * Puts the defaults back, keeping the card's id
+     */
+    public synchronized void reset() {
+        start(RESET);
+        commit();
+    }
+
+    /**
+     * Takes back the last applied edit
+     * @return false if there's nothing to undo
+     */
+    public synchronized boolean undo() {
+        if(applied == 0) {
+            return false;
+        }
+
+        applied--;
+        replay();
+
+        start(UNDO);
+        append();
+        return true;
+    }
+
+    /**
+     * Applies the last edit taken back again
+     * @return false if there's nothing to redo
+     */
+    public synchronized boolean redo() {
+        if(applied == count) {
+            return false;
+        }
+
+        apply(log, starts[applied], card);
+        applied++;
+
+        start(REDO);
+        append();
+        return true;
+    }
+
+    /**
+     * Closes the file, leaving it to be recovered next time
+     */
+    public synchronized void close() {
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                // Nothing more to write anyway
+            }
+            channel = null;
+        }
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Starts encoding a record with the op
+     */
+    private void start(byte op) {
+        record.clear();
+        record.putShort((short)0);
+        record.put(op);
+    }
+
+    /**
+     * Makes room in the record for more values
+     */
+    private void ensure(int more) {
+        if(record.remaining() < more) {
+            ByteBuffer bigger = ByteBuffer.allocate(record.position() + more);
+            record.flip();
+            bigger.put(record);
+            record = bigger;
+        }
+    }
+
+    /**
+     * Adds the encoded edit to the log, dropping any edits that could have been redone,
+     * applies it to the card, and appends it to the file
+     */
+    private void commit() {
+        count = applied;
+        logSize = (count == 0) ? 0 : starts[count];
+
+        int length = record.position();
+        record.putShort(0, (short)(length - 2));
+
+        if(logSize + length > log.length) {
+            log = Arrays.copyOf(log, Math.max(log.length * 2, logSize + length));
+        }
+        if(count + 1 >= starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+
+        System.arraycopy(record.array(), 0, log, logSize, length);
+        starts[count] = logSize;
+        logSize += length;
+        count++;
+        starts[count] = logSize;
+
+        apply(log, starts[applied], card);
+        applied++;
+
+        append();
+
+        if(count >= 2 * HISTORY) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the encoded record to the end of the file
+     */
+    private void append() {
+        if(channel == null) {
+            return;
+        }
+
+        int length = record.position();
+        record.putShort(0, (short)(length - 2));
+        record.flip();
+
+        try {
+            while(record.hasRemaining()) {
+                bytesWritten += channel.write(record);
+            }
+        } catch(IOException e) {
+            System.err.println("Couldn't write edits to " + file + ", no longer saving them: " + e);
+            close();
+        }
+    }
+
+    /**
+     * Rebuilds the card from the snapshot and the applied edits
+     */
+    private void replay() {
+        card.set(base);
+        for(int i = 0; i < applied; i++) {
+            apply(log, starts[i], card);
+        }
+    }
+
+    /**
+     * Folds all but the last HISTORY edits into the snapshot and rewrites the file
+     */
+    private void compact() {
+        int cut = Math.min(count - HISTORY, applied);
+        if(cut <= 0) {
+            return;
+        }
+
+        for(int i = 0; i < cut; i++) {
+            apply(log, starts[i], base);
+        }
+
+        int shift = starts[cut];
+        System.arraycopy(log, shift, log, 0, logSize - shift);
+        logSize -= shift;
+        for(int i = cut; i <= count; i++) {
+            starts[i - cut] = starts[i] - shift;
+        }
+        count -= cut;
+        applied -= cut;
+
+        compactions++;
+        rewrite();
+    }
+
+    /**
+     * Replaces the file with the snapshot, the log, and an undo for each edit that isn't applied
+     */
+    private void rewrite() {
+        close();
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = null;
+
+        try {
+            Files.createDirectories(dir.toPath());
+            tmp = File.createTempFile("journal", ".tmp", dir);
+
+            ByteBuffer out = ByteBuffer.allocate(HEADER + snapshotSize(base) + logSize + 3 * (count - applied));
+            out.putInt(MAGIC);
+            out.putInt(FORMAT);
+            putSnapshot(out, base);
+            out.put(log, 0, logSize);
+            for(int i = applied; i < count; i++) {
+                out.putShort((short)1);
+                out.put(UNDO);
+            }
+            out.flip();
+
+            try(FileChannel c = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                while(out.hasRemaining()) {
+                    bytesWritten += c.write(out);
+                }
+                c.force(true);
+            }
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch(IOException e) {
+            System.err.println("Couldn't write edits to " + file + ", no longer saving them: " + e);
+            if(tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the file back into the snapshot and log, dropping a torn last record
+     * @return false if there's no journal to recover
+     */
+    private boolean recover() throws IOException {
+        if(!file.isFile()) {
+            return false;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if(in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != FORMAT) {
+            return false;
+        }
+
+        boolean snapshot = false;
+        int good = HEADER;
+
+        while(in.remaining() >= 3) {
+            int p = in.position();
+            int length = in.getShort(p) & 0xFFFF;
+
+            if(length < 1 || in.remaining() < 2 + length) {
+                break;
+            }
+
+            byte op = in.get(p + 2);
+
+            if(op == SNAPSHOT) {
+                getSnapshot(in.array(), p + 3, base);
+                logSize = 0;
+                count = 0;
+                applied = 0;
+                snapshot = true;
+            } else if(op == UNDO) {
+                applied = Math.max(applied - 1, 0);
+            } else if(op == REDO) {
+                applied = Math.min(applied + 1, count);
+            } else {
+                count = applied;
+                logSize = (count == 0) ? 0 : starts[count];
+
+                if(logSize + 2 + length > log.length) {
+                    log = Arrays.copyOf(log, Math.max(log.length * 2, logSize + 2 + length));
+                }
+                if(count + 1 >= starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+
+                System.arraycopy(in.array(), p, log, logSize, 2 + length);
+                starts[count] = logSize;
+                logSize += 2 + length;
+                count++;
+                starts[count] = logSize;
+                applied = count;
+            }
+
+            in.position(p + 2 + length);
+            good = in.position();
+        }
+
+        if(!snapshot) {
+            return false;
+        }
+
+        replay();
+
+        // Carry on appending after the last whole record
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        channel.truncate(good);
+        channel.position(good);
+
+        if(count >= 2 * HISTORY) {
+            compact();
+        }
+
+        return true;
+    }
+
+    /**
+     * Applies the edit at p in the log to the card
+     */
+    private void apply(byte[] log, int p, CardData data) {
+        ByteBuffer b = ByteBuffer.wrap(log);
+        byte op = b.get(p + 2);
+        p += 3;
+
+        switch(op) {
+            case COLOR:
+                data.setColor(b.getInt(p));
+                break;
+
+            case MOVE: {
+                int i = data.getTreeIndex(b.get(p) != 0, b.getShort(p + 1));
+                if(i >= 0) {
+                    data.setTree(i, data.getTreeX(i) + b.getFloat(p + 3), data.getTreeY(i) + b.getFloat(p + 7));
+                }
+                break;
+            }
+
+            case TEXT: {
+                int length = b.getShort(p + 1) & 0xFFFF;
+                String text = new String(log, p + 3, length, StandardCharsets.UTF_8);
+
+                if(b.get(p) != 0) {
+                    data.setFrontText(text);
+                } else {
+                    data.setInsideText(text);
+                }
+                break;
+            }
+
+            case RESET: {
+                int id = data.getId();
+                data.set(defaults);
+                data.setId(id);
+                break;
+            }
+
+            default:
+                break;
+        }
+    }
+
+    private static int snapshotSize(CardData data) {
+        return 3 + 8 + 4 + data.getFrontText().getBytes(StandardCharsets.UTF_8).length +
+               data.getInsideText().getBytes(StandardCharsets.UTF_8).length + 2 + 9 * data.getTreeCount();
+    }
+
+    private static void putSnapshot(ByteBuffer out, CardData data) {
+        int start = out.position();
+
+        out.putShort((short)0);
+        out.put(SNAPSHOT);
+        out.putInt(data.getId());
+        out.putInt(data.getColor());
+        putText(out, data.getFrontText());
+        putText(out, data.getInsideText());
+
+        out.putShort((short)data.getTreeCount());
+        for(int i = 0; i < data.getTreeCount(); i++) {
+            out.put((byte)(data.isTreeFront(i) ? 1 : 0));
+            out.putFloat(data.getTreeX(i));
+            out.putFloat(data.getTreeY(i));
+        }
+
+        out.putShort(start, (short)(out.position() - start - 2));
+    }
+
+    private static void putText(ByteBuffer out, String text) {
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short)b.length);
+        out.put(b);
+    }
+
+    private static void getSnapshot(byte[] bytes, int p, CardData data) {
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+
+        data.clear();
+        data.setId(b.getInt(p));
+        data.setColor(b.getInt(p + 4));
+        p += 8;
+
+        int length = b.getShort(p) & 0xFFFF;
+        data.setFrontText(new String(bytes, p + 2, length, StandardCharsets.UTF_8));
+        p += 2 + length;
+
+        length = b.getShort(p) & 0xFFFF;
+        data.setInsideText(new String(bytes, p + 2, length, StandardCharsets.UTF_8));
+        p += 2 + length;
+
+        int trees = b.getShort(p) & 0xFFFF;
+        p += 2;
+        for(int i = 0; i < trees; i++) {
+            data.addTree(b.get(p) != 0, b.getFloat(p + 1), b.getFloat(p + 5));
+            p += 9;
+        }
+    }
+
+
+    //****************************************
+    // Getters and Setters
+    //****************************************
+
+    /**
+     * Whether opening the journal found a card left from before
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    public synchronized boolean canUndo() {
+        return applied > 0;
+    }
+
+    public synchronized boolean canRedo() {
+        return applied < count;
+    }
+
+    /**
+     * Gets the number of edits in the log, including those that can be redone
+     */
+    public synchronized int getEdits() {
+        return count;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized int getCompactions() {
+        return compactions;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.ou.cs.cg.project.data;
+
+import java.util.function.Consumer;
+
+/**
+ * The LibraryRepository Class
+ * Lists the cards in a CardLibrary
+ *
+ * Colors and modification times are in the library's index, so cards that don't match
+ * a query are skipped without reading their records. Only ids of cards are visited, found by
+ * binary search, however sparse they are.
+ *
+ * @author Parker Brandt
+ */
+class LibraryRepository implements CardRepository {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final CardLibrary library;
+    private final CardData data;            // Reused for every card visited
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    LibraryRepository(CardLibrary library) {
+        this.library = library;
+        data = new CardData();
+    }
+
+
+    //****************************************
+    // Override Methods
+    //****************************************
+    @Override
+    public int scan(CardQuery query, int from, boolean forward, int limit, Consumer<CardData> visitor) {
+        int i = library.indexOf(from);
+        int visited = 0;
+
+        // Start at the nearest id in the direction of the scan
+        if(i < 0) {
+            i = forward ? -i - 1 : -i - 2;
+        }
+
+        for(; i >= 0 && i < library.size() && visited < limit; i += forward ? 1 : -1) {
+            int id = library.getId(i);
+
+            if(forward ? id > query.getMaxId() : id < query.getMinId()) {
+                break;
+            }
+
+            if(query.matches(id, library.getColorAt(i), library.getModifiedAt(i))) {
+                library.readAt(i, data);
+                visitor.accept(data);
+                visited++;
+            }
+        }
+
+        return visited;
+    }
+
+    @Override
+    public boolean read(int id, CardData data) {
+        return library.read(id, data);
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return library.contains(id);
+    }
+
+    @Override
+    public int getFirstId() {
+        return library.getFirstId();
+    }
+
+    @Override
+    public int getLastId() {
+        return library.getLastId();
+    }
+
+    @Override
+    public int size() {
+        return library.size();
+    }
+}
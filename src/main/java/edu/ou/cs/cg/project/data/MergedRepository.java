@@ -0,0 +1,165 @@
+package edu.ou.cs.cg.project.data;
+
+import java.util.function.Consumer;
+
+/**
+ * The MergedRepository Class
+ * Lists the cards of two repositories as one, with the cards of one replacing any of the other's with the same id
+ *
+ * Used to show the cards saved by the user along with the ones packed into the library, with saved
+ * cards in place of the library's copies. Each repository is scanned one card ahead of the other, and
+ * the card with the nearer id is visited next, so no more than two cards are held at once.
+ *
+ * @author Parker Brandt
+ */
+class MergedRepository implements CardRepository {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final CardRepository base;
+    private final CardRepository overrides;     // Replace base's cards with the same ids
+    private final Cursor baseNext;              // Next card of each in a scan
+    private final Cursor overrideNext;
+    private int size;                           // Or -1 until counted
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    MergedRepository(CardRepository base, CardRepository overrides) {
+        this.base = base;
+        this.overrides = overrides;
+        baseNext = new Cursor();
+        overrideNext = new Cursor();
+        size = -1;
+    }
+
+
+    //****************************************
+    // Override Methods
+    //****************************************
+    @Override
+    public int scan(CardQuery query, int from, boolean forward, int limit, Consumer<CardData> visitor) {
+        int visited = 0;
+
+        overrideNext.fetch(overrides, query, from, forward, null);
+        baseNext.fetch(base, query, from, forward, overrides);
+
+        while(visited < limit && (baseNext.found || overrideNext.found)) {
+            Cursor next;
+
+            if(!baseNext.found) {
+                next = overrideNext;
+            } else if(!overrideNext.found) {
+                next = baseNext;
+            } else {
+                int b = baseNext.data.getId();
+                int o = overrideNext.data.getId();
+                next = (forward ? o <= b : o >= b) ? overrideNext : baseNext;
+            }
+
+            visitor.accept(next.data);
+            visited++;
+
+            next.advance(next == baseNext ? base : overrides, query, forward, next == baseNext ? overrides : null);
+        }
+
+        return visited;
+    }
+
+    @Override
+    public boolean read(int id, CardData data) {
+        return overrides.read(id, data) || base.read(id, data);
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return overrides.contains(id) || base.contains(id);
+    }
+
+    @Override
+    public int getFirstId() {
+        if(overrides.size() == 0) return base.getFirstId();
+        if(base.size() == 0) return overrides.getFirstId();
+        return Math.min(base.getFirstId(), overrides.getFirstId());
+    }
+
+    @Override
+    public int getLastId() {
+        if(overrides.size() == 0) return base.getLastId();
+        if(base.size() == 0) return overrides.getLastId();
+        return Math.max(base.getLastId(), overrides.getLastId());
+    }
+
+    /**
+     * Gets the number of different ids in both
+     * The first call reads every card of the overrides to find the ones the base also has
+     */
+    @Override
+    public int size() {
+        if(size < 0) {
+            int[] shared = new int[1];
+            overrides.scan(new CardQuery(), overrides.getFirstId(), true, Integer.MAX_VALUE, data -> {
+                if(base.contains(data.getId())) {
+                    shared[0]++;
+                }
+            });
+            size = base.size() + overrides.size() - shared[0];
+        }
+        return size;
+    }
+
+
+    //****************************************
+    // Inner Classes
+    //****************************************
+
+    /**
+     * The next card of one of the repositories in a scan
+     */
+    private static class Cursor {
+        private final CardData data = new CardData();
+        private boolean found;
+
+        /**
+         * Finds the first card at or past from that matches the query
+         * @param repository
+         * @param query
+         * @param from
+         * @param forward
+         * @param skip cards with ids in this repository are passed over, or null
+         */
+        private void fetch(CardRepository repository, CardQuery query, int from, boolean forward, CardRepository skip) {
+            found = false;
+
+            while(repository.scan(query, from, forward, 1, data::set) > 0) {
+                int id = data.getId();
+
+                if(skip == null || !skip.contains(id)) {
+                    found = true;
+                    return;
+                }
+
+                // Replaced, so look past it, unless it's the last id there could be
+                if(id == (forward ? Integer.MAX_VALUE : Integer.MIN_VALUE)) {
+                    return;
+                }
+                from = forward ? id + 1 : id - 1;
+            }
+        }
+
+        /**
+         * Finds the card after this one
+         */
+        private void advance(CardRepository repository, CardQuery query, boolean forward, CardRepository skip) {
+            int id = data.getId();
+
+            if(id == (forward ? Integer.MAX_VALUE : Integer.MIN_VALUE)) {
+                found = false;
+                return;
+            }
+            fetch(repository, query, forward ? id + 1 : id - 1, forward, skip);
+        }
+    }
+}
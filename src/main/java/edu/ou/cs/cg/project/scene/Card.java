@@ -1,18 +1,27 @@
 package edu.ou.cs.cg.project.scene;
 
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.util.awt.TextRenderer;
 import com.jogamp.opengl.util.texture.Texture;
 import edu.ou.cs.cg.project.Model;
 import edu.ou.cs.cg.project.View;
+import edu.ou.cs.cg.project.data.CardData;
+import com.jogamp.opengl.math.FloatUtil;
+import edu.ou.cs.cg.utilities.Bounds;
 import edu.ou.cs.cg.utilities.Cube;
+import edu.ou.cs.cg.utilities.Frustum;
+import edu.ou.cs.cg.utilities.GlyphAtlas;
+import edu.ou.cs.cg.utilities.Mesh;
 import edu.ou.cs.cg.utilities.Node;
+import edu.ou.cs.cg.utilities.RenderQueue;
+import edu.ou.cs.cg.utilities.SpriteAtlas;
+import edu.ou.cs.cg.utilities.ThumbnailCache;
 import edu.ou.cs.cg.utilities.Transform;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -29,11 +38,11 @@ public class Card extends Node {
     //****************************************
     private final View          view;               // The corresponding view class
     private final Model         model;              // The corresponding model class
-    private final TextRenderer  renderer;           // The text renderer
+    private final GlyphAtlas    atlas;              // The glyphs to draw text with
 
     private int     id;                 // The unique ID of the card
 
-    protected int   cardIndex;          // The index of the card - used to determine if this is the "main" card
+    protected int   cardIndex;          // The index of the card - 0 for the "main" card, shelf slot + 1 for the others
 
     private CardSide front;
     private CardSide back;
@@ -42,6 +51,12 @@ public class Card extends Node {
 
     private int rotateAngle;            // The amount the front face of card is opened
 
+    private boolean thumbnail;          // Draw the card from a picture of it in the view's thumbnail cache?
+    private Texture thumbTexture;       // The picture being drawn this frame
+    private final float[] thumbView = new float[16];                            // World to card coordinates
+    private final ThumbnailCache.Painter paintThumbnail = this::paintThumbnail;  // Draws the picture
+    private final RenderQueue.Command drawThumbnail = this::drawThumbnail;       // Draws the card from it
+
 
     //****************************************
     // Constructor
@@ -57,7 +72,7 @@ public class Card extends Node {
         // Initialize variables
         this.view = view;
         this.model = model;
-        this.renderer = view.getRenderer();
+        this.atlas = view.getAtlas();
 
         this.id = 0;
         cardIndex = 0;
@@ -70,7 +85,9 @@ public class Card extends Node {
         // The "front" of the card
         front = new CardSide(textures, view, model);
         front.pushTransform(new Transform.Scale(0.5f, 0.8f, 0.01f));
+        front.addHinge();
         front.setFront(true);
+        front.setAnimated(true);
         this.add(front);
 
         // The "back" of the card - should always be slightly "behind" the front
@@ -79,17 +96,18 @@ public class Card extends Node {
         back.pushTransform(new Transform.Scale(0.5f, 0.8f, 0.01f));
         back.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 180));
         back.pushTransform(new Transform.Translate(0.5f, 0.0f, -0.02f));
+        back.setAnimated(true);
         this.add(back);
 
         // Add the front image
-        frontImg = new CardImage(12, textures, model);
+        frontImg = new CardImage(view.getSprite("front"), textures, model);
         frontImg.pushTransform(new Transform.Scale(0.25f, 0.25f, 1.0f));
-        frontImg.pushTransform(new Transform.Translate(0.35f, 0.3f, 0.08f));
+        frontImg.moveTo(0.35f, 0.3f, 0.08f);
 
         // Add a sun at the top
-        CardImage sun = new CardImage(6, textures, model);
+        CardImage sun = new CardImage(view.getSprite("sun"), textures, model);
         sun.pushTransform(new Transform.Scale(0.25f, 0.25f, 1.0f));
-        sun.pushTransform(new Transform.Translate(0.7f, 0.7f, -0.08f));
+        sun.moveTo(0.7f, 0.7f, -0.08f);
         front.addImage(sun);
 
         // Add three default trees to the inside of the card
@@ -108,14 +126,14 @@ public class Card extends Node {
 
         // Add some text to the front
         String[] frontText = model.getFrontText();
-        CardText frt = new CardText(renderer, frontText);
+        CardText frt = new CardText(atlas, frontText);
         frt.pushTransform(new Transform.Translate(0.2f, 0.3f, 1.2f));
         frt.pushTransform(new Transform.Scale(0.8f, 0.8f, 1.0f));
         front.setText(frt);
 
         // Add some text to the inside on the right
         String[] insideText = model.getInsideText();
-        CardText in = new CardText(renderer, insideText);
+        CardText in = new CardText(atlas, insideText);
         in.pushTransform(new Transform.Scale(0.5f, 0.5f, 1.0f));
         in.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 180));
         in.pushTransform(new Transform.Translate(0.7f, 0.4f, -1.5f));
@@ -133,7 +151,7 @@ public class Card extends Node {
         // Initialize variables
         this.view = view;
         this.model = model;
-        this.renderer = view.getRenderer();
+        this.atlas = view.getAtlas();
 
         cardIndex = index;
 
@@ -141,6 +159,7 @@ public class Card extends Node {
         // The "front" of the card
         front = new CardSide(textures, view, model);
         front.pushTransform(new Transform.Scale(0.5f, 0.8f, 0.01f));
+        front.addHinge();
         front.setFront(true);
         this.add(front);
 
@@ -153,14 +172,14 @@ public class Card extends Node {
         this.add(back);
 
         // Add the front image
-        frontImg = new CardImage(12, textures, model);
+        frontImg = new CardImage(view.getSprite("front"), textures, model);
         frontImg.pushTransform(new Transform.Scale(0.25f, 0.25f, 1.0f));
-        frontImg.pushTransform(new Transform.Translate(0.35f, 0.3f, 0.08f));
+        frontImg.moveTo(0.35f, 0.3f, 0.08f);
 
         // Add a sun at the top
-        CardImage sun = new CardImage(6, textures, model);
+        CardImage sun = new CardImage(view.getSprite("sun"), textures, model);
         sun.pushTransform(new Transform.Scale(0.25f, 0.25f, 1.0f));
-        sun.pushTransform(new Transform.Translate(0.7f, 0.7f, -0.08f));
+        sun.moveTo(0.7f, 0.7f, -0.08f);
         front.addImage(sun);
 
         // Add a few "random" clouds
@@ -175,14 +194,14 @@ public class Card extends Node {
         // Add the default text to keep the correct transformations
         // Add some text to the front
         String[] frontText = model.getFrontText();
-        CardText frt = new CardText(renderer, frontText);
+        CardText frt = new CardText(atlas, frontText);
         frt.pushTransform(new Transform.Translate(0.2f, 0.3f, 1.2f));
         frt.pushTransform(new Transform.Scale(0.8f, 0.8f, 1.0f));
         front.setText(frt);
 
         // Add some text to the inside on the right
         String[] insideText = model.getInsideText();
-        CardText in = new CardText(renderer, insideText);
+        CardText in = new CardText(atlas, insideText);
         in.pushTransform(new Transform.Scale(0.5f, 0.5f, 1.0f));
         in.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 180));
         in.pushTransform(new Transform.Translate(0.7f, 0.4f, -1.5f));
@@ -226,8 +245,8 @@ public class Card extends Node {
                 switchClouds.add(i);
         }
 
-        // Add any clouds to the back
-        for(int j = 0; j < switchClouds.size(); j++) {
+        // Add any clouds to the back, last first so the indices of the rest stay put
+        for(int j = switchClouds.size() - 1; j >= 0; j--) {
             addCloud(0.7f, front.getCloudLoc().get(switchClouds.get(j)).y, 0.25f, false);
             front.removeCloud(switchClouds.get(j));
         }
@@ -240,8 +259,8 @@ public class Card extends Node {
                 switchClouds.add(i);
         }
 
-        // Add any clouds to the front
-        for(int j = 0; j < switchClouds.size(); j++) {
+        // Add any clouds to the front, last first so the indices of the rest stay put
+        for(int j = switchClouds.size() - 1; j >= 0; j--) {
             addCloud(0.7f, back.getCloudLoc().get(switchClouds.get(j)).y, 0.25f, true);
             back.removeCloud(switchClouds.get(j));
         }
@@ -252,6 +271,11 @@ public class Card extends Node {
         if(cardIndex == 0) {
             front.changeText(model.getFrontText());
             back.changeText(model.getInsideText());
+
+            // Show where the user is typing, if they are
+            boolean typing = model.isTextEditing();
+            front.setCaret(typing && model.isEditingFront() ? model.getCaretLine() : -1, model.getCaretColumn());
+            back.setCaret(typing && !model.isEditingFront() ? model.getCaretLine() : -1, model.getCaretColumn());
         }
     }
 
@@ -260,17 +284,16 @@ public class Card extends Node {
 
         // Rotate the front face of the card
         if(model.isCardOpen() && cardIndex == 0) {
-            if(rotateAngle <= 180) {
+            if(rotateAngle <= 180)
                 rotateAngle += 2;
-                front.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, -2));
-            }
         } else {
-            if(rotateAngle >= 0) {
+            if(rotateAngle >= 0)
                 rotateAngle -= 2;
-                front.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 2));
-            }
         }
 
+        // Swing the front face on its hinge rather than stacking up rotations
+        front.getHinge().setAngle(-rotateAngle);
+
         // Check if the color needs to be changed if this is the "main" card
         if(cardIndex == 0)
             setColor(model.getCardColor());
@@ -281,30 +304,106 @@ public class Card extends Node {
         else
             front.remove(frontImg);
 
+        // Draw a picture of the card instead, redrawing the picture only if the card has changed
+        if(isThumbnailShown()) {
+            thumbTexture = view.getThumbnails().get(gl, this, getContentVersion(), paintThumbnail);
+            RenderQueue.draw(gl, drawThumbnail, false);
+            return;
+        }
+
         // Render each side of the card
         front.render(gl);
         back.render(gl);
     }
 
+    @Override
+    protected boolean renderChildren() {
+        return !isThumbnailShown();
+    }
+
 
     //****************************************
-    // Public Methods
+    // Thumbnail Methods
     //****************************************
 
+    // Only use thumbnails when there's a queue to draw them in, so there is something to nest the picture's queue in
+    private boolean isThumbnailShown() {
+        return thumbnail && RenderQueue.getActive() != null;
+    }
+
+    /**
+     * Draws the card into the bound thumbnail framebuffer, looking straight at the front
+     * The picture covers the card's bounds, in the card's own coordinates
+     * @param gl
+     */
+    private void paintThumbnail(GL2 gl) {
+
+        Bounds b = getSubtreeBounds();
+
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPushMatrix();
+        gl.glLoadIdentity();
+        gl.glOrtho(b.getMin(0), b.getMax(0), b.getMin(1), b.getMax(1), -b.getMax(2) - 1.0f, -b.getMin(2) + 1.0f);
+
+        // Undo where the card is in the room
+        FloatUtil.invertMatrix(getWorldMatrix(), thumbView);
+
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        gl.glPushMatrix();
+        gl.glLoadMatrixf(thumbView, 0);
+
+        // Draw the whole card, even though the card itself might be mostly out of view
+        Frustum frustum = Node.getFrustum();
+        Node.setFrustum(null);
+
+        RenderQueue queue = view.getThumbnailQueue();
+        queue.begin(thumbView);
+        front.render(gl);
+        back.render(gl);
+        queue.flush(gl);
+
+        Node.setFrustum(frustum);
+
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPopMatrix();
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        gl.glPopMatrix();
+    }
+
     /**
-     * Copies the colors and designs of the card
-     * @param toCopy
+     * Draws the thumbnail on a quad covering the front of the card
+     * The lighting is already in the picture, so it's drawn unlit
+     * @param gl
      */
-    public void copyCard(Card toCopy) {
+    private void drawThumbnail(GL2 gl) {
+
+        Bounds b = getSubtreeBounds();
+        boolean lit = gl.glIsEnabled(GL2.GL_LIGHTING);
+
+        if(lit)
+            gl.glDisable(GL2.GL_LIGHTING);
+
+        gl.glColor3f(1.0f, 1.0f, 1.0f);
+        Mesh.bindTexture(gl, thumbTexture);
 
-        // Adjust the variables of this card to match that of the copy card
-        this.id = toCopy.getId();
+        // Stretch the front face of a unit cube over the bounds
+        gl.glPushMatrix();
+        gl.glTranslatef(b.getMin(0), b.getMin(1), b.getMax(2) - 1.0f);
+        gl.glScalef(b.getMax(0) - b.getMin(0), b.getMax(1) - b.getMin(1), 1.0f);
+        Cube.getMesh().drawGroup(gl, 0);
+        gl.glPopMatrix();
 
-        this.front = toCopy.getFront();
-        this.back = toCopy.getBack();
+        Mesh.unbindTexture(gl, thumbTexture);
+
+        if(lit)
+            gl.glEnable(GL2.GL_LIGHTING);
     }
 
 
+    //****************************************
+    // Public Methods
+    //****************************************
+
     /**
      * Adds a tree to a side of the card, offset by a certain amount on the cards
      *
@@ -316,14 +415,14 @@ public class Card extends Node {
     public void addTree(float dx, float dy, float scale, boolean isFront) {
 
         // Create the new tree
-        CardImage newTree = new CardImage(3, textures, model);
+        CardImage newTree = new CardImage(view.getSprite("tree"), textures, model);
         newTree.pushTransform(new Transform.Scale(scale, scale, 1.0f));
-        newTree.pushTransform(new Transform.Translate(dx, dy, -0.08f));
+        newTree.moveTo(dx, dy, -0.08f);
 
         // Add the trunk underneath
-        CardImage trunk = new CardImage(4, textures, model);
+        CardImage trunk = new CardImage(view.getSprite("trunk"), textures, model);
         trunk.pushTransform(new Transform.Scale(scale, scale, 1.0f));
-        trunk.pushTransform(new Transform.Translate(dx, dy - 0.2f, -0.08f));
+        trunk.moveTo(dx, dy - 0.2f, -0.08f);
 
         // Add the tree to the intended side
         if(isFront) {
@@ -343,9 +442,9 @@ public class Card extends Node {
     public void addCloud(float dx, float dy, float scale, boolean isFront) {
 
         // Create the cloud
-        CardImage newCloud = new CardImage(7, textures, model);
+        CardImage newCloud = new CardImage(view.getSprite("cloud"), textures, model);
         newCloud.pushTransform(new Transform.Scale(scale, scale, 1.0f));
-        newCloud.pushTransform(new Transform.Translate(dx, dy, -0.08f));
+        newCloud.moveTo(dx, dy, -0.08f);
 
         // Add the cloud to the intended side
         if(isFront)
@@ -356,15 +455,15 @@ public class Card extends Node {
 
     /**
      * Adds some text to either the front or inside of the card
-     * @param text
+     * @param text split into lines at line breaks
      * @param isFront
      */
     public void addText(String text, boolean isFront) {
 
         if(isFront) {
-            front.changeText(new String[] {text});
+            front.changeText(CardData.lines(text));
         } else {
-            back.changeText(new String[] {text});
+            back.changeText(CardData.lines(text));
         }
     }
 
@@ -388,6 +487,10 @@ public class Card extends Node {
 
 
     // Setters
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public void setColor(Color color) {
         // Set the color of the front and back of the card
         front.setColor(color);
@@ -398,6 +501,10 @@ public class Card extends Node {
         cardIndex = index;
     }
 
+    public void setThumbnail(boolean thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
 
     /**
      * Inner Class to represent each side of a card
@@ -423,8 +530,14 @@ public class Card extends Node {
 
         private CardText text;                                // All text on this side
 
+        private Transform.Rotate hinge;                       // Rotation used to open the front of the card
+
         private boolean isFront;
 
+        private int highlight;                                // The tree with a box around it, or -1
+
+        private boolean animated;                             // Run the day/night cycle and cloud drift? Only the held card's sides do
+
 
         //****************************************
         // Constructors
@@ -447,8 +560,12 @@ public class Card extends Node {
             cloudLoc = new ArrayList<>();
 
             isFront = false;
+            highlight = -1;
 
-            text = new CardText(view.getRenderer(), new String[] {""});
+            text = new CardText(view.getAtlas(), new String[] {""});
+
+            // Each side is a unit cube, so it can be culled along with its images and text
+            setBounds(Cube.BOUNDS);
         }
 
 
@@ -456,6 +573,11 @@ public class Card extends Node {
         // Public Methods
         //****************************************
 
+        // Add the hinge this side swings open on - push after any scaling
+        public void addHinge() {
+            hinge = pushSlot(new Transform.Rotate(0.0f, 1.0f, 0.0f, 0.0f));
+        }
+
         // Add images to this side - specified by type of image
         public void addTree(CardImage image, CardImage trunk, float dx, float dy) {
             trees.add(image);
@@ -463,6 +585,8 @@ public class Card extends Node {
 
             // Add the trunk
             trunks.add(trunk);
+
+            invalidateContent();
         }
 
         // Remove all trees from this side
@@ -470,19 +594,32 @@ public class Card extends Node {
             trees = new ArrayList<>();
             treeLoc = new ArrayList<>();
             trunks = new ArrayList<>();
+
+            invalidateContent();
         }
 
         public void addCloud(CardImage image, float dx, float dy) {
             clouds.add(image);
             cloudLoc.add(new Point2D.Float(dx, dy));
+
+            invalidateContent();
         }
 
         public void addImage(CardImage image) {
             images.add(image);
+
+            invalidateContent();
         }
 
         public void changeText(String[] string) {
-            text.changeText(string);
+            // Called every frame for the main card, so only count real changes
+            if(text.changeText(string))
+                invalidateContent();
+        }
+
+        public void setCaret(int line, int column) {
+            if(text.setCaret(line, column))
+                invalidateContent();
         }
 
 
@@ -493,32 +630,39 @@ public class Card extends Node {
         protected void change(GL2 gl) {
 
             // Adjust the shading on the inside of the card for a day/night cycle when the card is open
-            if(model.isCardOpen() && view.getCounter() % 3 == 0) {
+            // Only on the held card, so the shelf cards' thumbnails aren't redrawn for it
+            if(animated && model.isCardOpen() && view.getCounter() % 3 == 0) {
                 int col = inColor.getRed() - 1;
                 if (col < 25)
                     col = 255;
                 inColor = new Color(col, col, col);
+                invalidateContent();
+            }
+
+            // Redraw if the box around the selected tree moves to or from this side
+            int selected = (model.isEditMode() && model.isFrontTree() == isFront) ? model.getSelectedTree() : -1;
+            if(selected != highlight) {
+                highlight = selected;
+                invalidateContent();
             }
 
             // Adjust tree locations
             for(int i = 0; i < trees.size(); i++) {
-                trees.get(i).popTransform();
-                trees.get(i).pushTransform(new Transform.Translate(treeLoc.get(i).x, treeLoc.get(i).y, -0.08f));
-
-                trunks.get(i).popTransform();
-                trunks.get(i).pushTransform(new Transform.Translate(treeLoc.get(i).x, treeLoc.get(i).y - 0.2f, -0.08f));
+                trees.get(i).moveTo(treeLoc.get(i).x, treeLoc.get(i).y, -0.08f);
+                trunks.get(i).moveTo(treeLoc.get(i).x, treeLoc.get(i).y - 0.2f, -0.08f);
             }
 
             // Adjust movement of the clouds
             for(int i = 0; i < clouds.size(); i++) {
 
                 // Move the clouds slightly when open
-                if(model.isCardOpen()) {
+                if(animated && model.isCardOpen()) {
 
                     // check the bounds, reset if necessary
                     if(cloudLoc.get(i).x > 0) {
-                        cloudLoc.set(i, new Point2D.Float(cloudLoc.get(i).x - 0.001f, cloudLoc.get(i).y));
-                        clouds.get(i).pushTransform(new Transform.Translate(-0.001f, 0.0f, 0.0f));
+                        cloudLoc.get(i).x -= 0.001f;
+                        clouds.get(i).moveTo(cloudLoc.get(i).x, cloudLoc.get(i).y, -0.08f);
+                        invalidateContent();
                     }
                 }
             }
@@ -529,12 +673,12 @@ public class Card extends Node {
 
             // Depict as transformed cube with paper texture
 
-            gl.glColor3f((float)color.getRed()/255.0f, (float)color.getGreen()/255.0f, (float)color.getBlue()/255.0f);
+            RenderQueue.color(gl, (float)color.getRed()/255.0f, (float)color.getGreen()/255.0f, (float)color.getBlue()/255.0f);
 
             Cube.fillFace(gl, 0, getTexture(2));
 
             // Color the inside of the card white
-            gl.glColor3f((float)inColor.getRed()/255.0f, (float)inColor.getGreen()/255.0f, (float)inColor.getBlue()/255.0f);
+            RenderQueue.color(gl, (float)inColor.getRed()/255.0f, (float)inColor.getGreen()/255.0f, (float)inColor.getBlue()/255.0f);
 
             Cube.fillFace(gl, 1, getTexture(2));
             Cube.fillFace(gl, 2, getTexture(2));
@@ -554,16 +698,21 @@ public class Card extends Node {
                 // Check if we should draw a box around the tree
                 if(model.isEditMode() && i == model.getSelectedTree() && model.isFrontTree() == isFront) {
 
-                    gl.glColor3f(1.0f, 215.0f/255.0f, 0.0f);
+                    final float x = treeLoc.get(i).x;
+                    final float y = treeLoc.get(i).y;
 
-                    gl.glBegin(GL2.GL_LINE_LOOP);
+                    RenderQueue.draw(gl, (GL2 g) -> {
+                        g.glColor3f(1.0f, 215.0f/255.0f, 0.0f);
 
-                    gl.glVertex3f(treeLoc.get(i).x, treeLoc.get(i).y, -0.08f);
-                    gl.glVertex3f(treeLoc.get(i).x, treeLoc.get(i).y + 0.25f, -0.08f);
-                    gl.glVertex3f(treeLoc.get(i).x + 0.25f, treeLoc.get(i).y + 0.25f, -0.08f);
-                    gl.glVertex3f(treeLoc.get(i).x + 0.25f, treeLoc.get(i).y, -0.08f);
+                        g.glBegin(GL2.GL_LINE_LOOP);
 
-                    gl.glEnd();
+                        g.glVertex3f(x, y, -0.08f);
+                        g.glVertex3f(x, y + 0.25f, -0.08f);
+                        g.glVertex3f(x + 0.25f, y + 0.25f, -0.08f);
+                        g.glVertex3f(x + 0.25f, y, -0.08f);
+
+                        g.glEnd();
+                    }, false);
                 }
 
                 trees.get(i).render(gl);
@@ -607,27 +756,41 @@ public class Card extends Node {
             return cloudLoc;
         }
 
+        public Transform.Rotate getHinge() {
+            return hinge;
+        }
+
         // Setters
         public void setColor(Color color) {
+            if(!color.equals(this.color))
+                invalidateContent();
+
             this.color = color;
         }
 
         public void setTree(CardImage image, int index) {
             trees.set(index, image);
+            invalidateContent();
         }
 
         public void setTreeLoc(float dx, float dy, int index) {
-            treeLoc.set(index, new Point2D.Float(dx, dy));
+            treeLoc.get(index).setLocation(dx, dy);
+            invalidateContent();
         }
 
         public void setText(CardText newText) {
             text = newText;
+            invalidateContent();
         }
 
         public void setFront(boolean isFront) {
             this.isFront = isFront;
         }
 
+        public void setAnimated(boolean animated) {
+            this.animated = animated;
+        }
+
 
         //****************************************
         // Modification Methods
@@ -635,6 +798,7 @@ public class Card extends Node {
         public void removeCloud(int index) {
             clouds.remove(index);
             cloudLoc.remove(index);
+            invalidateContent();
         }
     }
 
@@ -648,21 +812,44 @@ public class Card extends Node {
         //****************************************
         // Private Variables
         //****************************************
-        private int index;          // The index to keep track of the type of image being used
+        private SpriteAtlas.Region sprite;  // The image used, usually part of the decoration atlas
         public double x, y;        // The coordinates of the image
 
+        private Transform.Translate location;   // Where the image sits on the card
+
         //****************************************
         // Constructors
         //****************************************
 
-        public CardImage(int index, Texture[] textures, Model model) {
+        public CardImage(SpriteAtlas.Region sprite, Texture[] textures, Model model) {
             super(textures);
 
             // Initialize variables
-            this.index = index;
+            this.sprite = sprite;
 
             x = 0;
             y = 0;
+
+            setBounds(Cube.BOUNDS);
+        }
+
+
+        //****************************************
+        // Public Methods
+        //****************************************
+
+        /**
+         * Moves the image to a location on the card
+         * The first call adds the location after any scaling, later calls update it in place
+         * @param dx
+         * @param dy
+         * @param dz
+         */
+        public void moveTo(float dx, float dy, float dz) {
+            if(location == null)
+                location = pushSlot(new Transform.Translate(dx, dy, dz));
+            else
+                location.set(dx, dy, dz);
         }
 
 
@@ -676,9 +863,17 @@ public class Card extends Node {
         @Override
         protected void depict(GL2 gl) {
 
+            RenderQueue queue = RenderQueue.getActive();
+
+            // Batch the image with every other image in the same atlas
+            if(queue != null) {
+                queue.submitSprite(sprite);
+                return;
+            }
+
             // Draw the image on a Cube
-            Cube.fillFace(gl, 0, getTexture(index));
-            Cube.fillFace(gl, 1, getTexture(index));
+            Cube.fillFace(gl, 0, sprite);
+            Cube.fillFace(gl, 1, sprite);
         }
 
     }
@@ -690,21 +885,33 @@ public class Card extends Node {
      */
     public static class CardText extends Node {
 
+        //****************************************
+        // Constants
+        //****************************************
+        private static final float LINE_HEIGHT = 0.1f;
+        private static final float SCALE = 0.01f;
+        private static final long BLINK = 500;                  // Milliseconds the caret is shown, then hidden
+
+
         //****************************************
         // Private Variables
         //****************************************
-        private TextRenderer renderer;
+        private GlyphAtlas atlas;
         private String[] text;
+        private GlyphAtlas.Layout[] layouts;                    // Of each line, laid out again only when it changes
+        private int caretLine, caretColumn;                     // Where text is being typed, line -1 if it isn't
 
 
         //****************************************
         // Constructors
         //****************************************
 
-        public CardText(TextRenderer renderer, String[] text) {
+        public CardText(GlyphAtlas atlas, String[] text) {
             // Initialize variables
-            this.renderer = renderer;
+            this.atlas = atlas;
             this.text = text;
+            this.layouts = new GlyphAtlas.Layout[text.length];
+            this.caretLine = -1;
         }
 
 
@@ -714,10 +921,43 @@ public class Card extends Node {
 
         /**
          * Change the text of this
+         * Only the lines that are different are laid out again
          * @param newText
+         * @return whether the text is different than before
          */
-        public void changeText(String[] newText) {
+        public boolean changeText(String[] newText) {
+            if(newText == text || Arrays.equals(text, newText))
+                return false;
+
+            GlyphAtlas.Layout[] newLayouts = new GlyphAtlas.Layout[newText.length];
+
+            for(int i = 0; i < newText.length; i++) {
+                if(i < text.length && newText[i].equals(text[i])) {
+                    newLayouts[i] = layouts[i];
+                }
+            }
+
             this.text = newText;
+            this.layouts = newLayouts;
+            return true;
+        }
+
+        /**
+         * Show a caret where text is being typed
+         * @param line -1 to hide it
+         * @param column
+         * @return whether it moved
+         */
+        public boolean setCaret(int line, int column) {
+            if(line < 0)
+                column = 0;
+
+            if(line == caretLine && column == caretColumn)
+                return false;
+
+            caretLine = line;
+            caretColumn = column;
+            return true;
         }
 
 
@@ -728,14 +968,34 @@ public class Card extends Node {
         @Override
         protected void depict(GL2 gl) {
 
-            // Draw the text using 3D rendering
-            renderer.begin3DRendering();
+            RenderQueue queue = RenderQueue.getActive();
 
+            // Draw the text in black, one line below the other, batched with all other text if possible
             for(int i = 0; i < text.length; i++) {
-                renderer.draw3D(text[i], 0.0f, 0.8f - (0.1f * i), 0.0f, 0.01f);
+                if(layouts[i] == null) {
+                    // Lines being typed change with every key, so keep them out of the atlas's cache
+                    layouts[i] = (caretLine >= 0) ? atlas.layoutUncached(text[i]) : atlas.layout(text[i]);
+                }
+
+                draw(gl, queue, layouts[i], 0.0f, 0.8f - (LINE_HEIGHT * i));
+            }
+
+            // Draw a blinking bar where the next character will go
+            if(caretLine >= 0 && caretLine < text.length && (System.currentTimeMillis() / BLINK) % 2 == 0) {
+                GlyphAtlas.Layout bar = atlas.layout("|");
+                float x = atlas.getAdvance(text[caretLine], Math.min(caretColumn, text[caretLine].length()));
+
+                draw(gl, queue, bar, SCALE * (x - 0.5f * bar.getAdvance()), 0.8f - (LINE_HEIGHT * caretLine));
             }
+        }
 
-            renderer.end3DRendering();
+        private void draw(GL2 gl, RenderQueue queue, GlyphAtlas.Layout layout, float x, float y) {
+            if(queue != null) {
+                queue.submitText(layout, x, y, SCALE, 0.0f, 0.0f, 0.0f);
+            } else {
+                gl.glColor3f(0.0f, 0.0f, 0.0f);
+                atlas.draw(gl, layout, x, y, SCALE);
+            }
         }
     }
 }
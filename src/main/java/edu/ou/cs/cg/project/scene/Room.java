@@ -35,6 +35,9 @@ public class Room extends Node {
     public Room(Texture[] textures) {
         super(textures);
 
+        // The walls and floor are faces of a unit cube
+        setBounds(Cube.BOUNDS);
+
         // Create the lamp for the room that emits a yellow-whitish color
         //new float[]{1.0f, 1.6f, 204.0f/255.0f, 0.0f}
         lamp = new Lamp(textures, new float[]{160.0f/255.0f, 160.0f/255.0f, 160.0f/255.0f, 1.0f});
@@ -69,6 +72,9 @@ public class Room extends Node {
         pushTransform(new Transform.Scale(1.5f, 1.0f, 2.0f));
         pushTransform(new Transform.Translate(-0.7f, 0.5f, 1.0f));
 
+        // Nothing in the room moves, so draw it all from one bake
+        setStatic(true);
+
     }
 
 
@@ -108,6 +114,8 @@ public class Room extends Node {
         public Window(Texture[] textures) {
             super(textures);
 
+            setBounds(Cube.BOUNDS);
+
             pushTransform(new Transform.Scale(0.01f, 0.5f, 0.4f));
             pushTransform(new Transform.Translate(0.95f, 0.25f, 0.1f));
         }
@@ -142,6 +150,8 @@ public class Room extends Node {
         public Door(Texture[] textures) {
             super(textures);
 
+            setBounds(Cube.BOUNDS);
+
             // Scale and move the door
             pushTransform(new Transform.Scale(0.05f, 0.7f, 0.2f));
             pushTransform(new Transform.Translate(-0.02f, -0.01f, 0.1f));
@@ -171,6 +181,7 @@ public class Room extends Node {
         // Private Variables
         //****************************************
         private final float[] emit;
+        private final RenderQueue.Command setMaterial = this::setMaterial;     // Kept in the room's bake
 
 
         //****************************************
@@ -196,6 +207,15 @@ public class Room extends Node {
 
         @Override
         protected void depict(GL2 gl) {
+            // Submitted as a command so the room's bake keeps it, and the room is drawn without walking it
+            RenderQueue.draw(gl, setMaterial, false);
+        }
+
+
+        //****************************************
+        // Private Methods
+        //****************************************
+        private void setMaterial(GL2 gl) {
             Lighting.setMaterial(gl, null, null, null, null, emit);
         }
     }
@@ -210,6 +230,8 @@ public class Room extends Node {
         //****************************************
         public Shelf(Texture[] textures) {
             super(textures);
+
+            setBounds(Cube.BOUNDS);
         }
 
 
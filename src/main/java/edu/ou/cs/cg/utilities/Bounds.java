@@ -0,0 +1,183 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+//******************************************************************************
+
+/**
+ * The <CODE>Bounds</CODE> class is an axis-aligned bounding box. A box that
+ * hasn't had anything included in it yet is empty.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class Bounds
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final float[]	min;
+	private final float[]	max;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public Bounds(float minx, float miny, float minz,
+				  float maxx, float maxy, float maxz)
+	{
+		min = new float[] { minx, miny, minz };
+		max = new float[] { maxx, maxy, maxz };
+	}
+
+	public Bounds()
+	{
+		min = new float[3];
+		max = new float[3];
+
+		reset();
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public boolean	isEmpty()
+	{
+		return (min[0] > max[0]);
+	}
+
+	public float	getMin(int axis)
+	{
+		return min[axis];
+	}
+
+	public float	getMax(int axis)
+	{
+		return max[axis];
+	}
+
+	// Same box as b, corner for corner?
+	public boolean	matches(Bounds b)
+	{
+		return ((min[0] == b.min[0]) && (min[1] == b.min[1]) &&
+				(min[2] == b.min[2]) && (max[0] == b.max[0]) &&
+				(max[1] == b.max[1]) && (max[2] == b.max[2]));
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Make the box empty.
+	public void	reset()
+	{
+		for (int i=0; i<3; i++)
+		{
+			min[i] = Float.POSITIVE_INFINITY;
+			max[i] = Float.NEGATIVE_INFINITY;
+		}
+	}
+
+	public void	set(Bounds b)
+	{
+		System.arraycopy(b.min, 0, min, 0, 3);
+		System.arraycopy(b.max, 0, max, 0, 3);
+	}
+
+	// Grow the box to hold another box.
+	public void	include(Bounds b)
+	{
+		if (b.isEmpty())
+			return;
+
+		for (int i=0; i<3; i++)
+		{
+			min[i] = Math.min(min[i], b.min[i]);
+			max[i] = Math.max(max[i], b.max[i]);
+		}
+	}
+
+	public void	include(float x, float y, float z)
+	{
+		min[0] = Math.min(min[0], x);
+		min[1] = Math.min(min[1], y);
+		min[2] = Math.min(min[2], z);
+		max[0] = Math.max(max[0], x);
+		max[1] = Math.max(max[1], y);
+		max[2] = Math.max(max[2], z);
+	}
+
+	// Grow the box to hold another box transformed by the (column-major)
+	// matrix m, or untransformed if m is null.
+	public void	include(Bounds b, float[] m)
+	{
+		if (b.isEmpty())
+			return;
+
+		if (m == null)
+		{
+			include(b.min[0], b.min[1], b.min[2]);
+			include(b.max[0], b.max[1], b.max[2]);
+			return;
+		}
+
+		// Sum the smaller and larger contribution of each axis (Arvo's
+		// method) instead of transforming all eight corners.
+		for (int i=0; i<3; i++)
+		{
+			float	lo = m[12 + i];
+			float	hi = m[12 + i];
+
+			for (int j=0; j<3; j++)
+			{
+				float	a = m[j * 4 + i] * b.min[j];
+				float	c = m[j * 4 + i] * b.max[j];
+
+				lo += Math.min(a, c);
+				hi += Math.max(a, c);
+			}
+
+			min[i] = Math.min(min[i], lo);
+			max[i] = Math.max(max[i], hi);
+		}
+	}
+
+	// Distance along the ray from origin o to where it enters the box, or
+	// infinity if it misses or the box is farther than limit. The direction
+	// is passed as its reciprocal (1/dx, 1/dy, 1/dz), which a caller testing
+	// many boxes against one ray only has to work out once. A ray starting
+	// inside the box enters it at 0.
+	public float	intersectRay(float ox, float oy, float oz,
+								 float ix, float iy, float iz, float limit)
+	{
+		if (isEmpty())
+			return Float.POSITIVE_INFINITY;
+
+		// Slab method: clip the ray to each pair of parallel faces in turn
+		float	t0 = 0.0f;
+		float	t1 = limit;
+
+		float	a = (min[0] - ox) * ix;
+		float	b = (max[0] - ox) * ix;
+
+		t0 = Math.max(t0, Math.min(a, b));
+		t1 = Math.min(t1, Math.max(a, b));
+
+		a = (min[1] - oy) * iy;
+		b = (max[1] - oy) * iy;
+
+		t0 = Math.max(t0, Math.min(a, b));
+		t1 = Math.min(t1, Math.max(a, b));
+
+		a = (min[2] - oz) * iz;
+		b = (max[2] - oz) * iz;
+
+		t0 = Math.max(t0, Math.min(a, b));
+		t1 = Math.min(t1, Math.max(a, b));
+
+		return ((t0 <= t1) ? t0 : Float.POSITIVE_INFINITY);
+	}
+}
+
+//******************************************************************************
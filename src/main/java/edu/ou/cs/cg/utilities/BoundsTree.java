@@ -0,0 +1,507 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+//******************************************************************************
+
+/**
+ * The <CODE>BoundsTree</CODE> class is a bounding volume hierarchy over the
+ * world bounds of a set of scene graph nodes, for finding the node a ray hits
+ * first (e.g. the one under the mouse) in Java instead of asking the GPU.<P>
+ *
+ * The tree is built the first time it's used after nodes are added or
+ * removed. Picking doesn't look at the nodes themselves, so call refit()
+ * once a frame after rendering, which costs a version check per node, and
+ * then each pick only visits the boxes along the ray. Each leaf holds a few
+ * nodes, and each branch is split at the median center along the axis the
+ * centers are most spread out on. After that, nodes that move only regrow
+ * the boxes on the path from their leaf to the root. That keeps picking
+ * cheap as long as they don't move far from where they were built, so the
+ * tree is rebuilt once refitting has made its boxes much bigger than they
+ * were. Boxes are only as current as the nodes' world matrices, i.e. as of
+ * the last render.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class BoundsTree
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int	LEAF_SIZE = 4;		// Most nodes in a leaf
+
+	// Rebuild when refitting has grown the boxes this much, since the odds
+	// of a ray going into a box (so the cost of a pick) go with its area
+	private static final float	REBUILD_GROWTH = 2.0f;
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	// Nodes in the tree, and what was last seen of each
+	private final ArrayList<Node>	nodes;
+	private Bounds[]				itemBounds;		// World bounds, as of refit
+	private long[]				itemVersions;	// World bounds version, ditto
+	private int[]					itemLeaf;		// Box of the leaf holding it
+
+	// Hierarchy, flattened with every branch before its children
+	private Bounds[]				boxes;
+	private int[]					first;		// Leaf: start in order, else left
+	private int[]					count;		// Leaf: nodes in it, else 0
+	private int[]					parents;	// -1 for the root
+	private boolean[]				dirty;		// Box needs regrowing?
+	private int					size;		// Boxes in use
+	private int[]					order;		// Nodes, grouped by leaf
+	private boolean				built;
+	private float					area;		// Of all the boxes
+	private float					builtArea;	// Just after rebuilding
+
+	// Picking
+	private int[]					stack;		// Boxes left to visit
+	private float[]				stackEntry;	// Where the ray enters each
+	private float					distance;	// To the last hit
+
+	// Statistics, since creation except for visited
+	private int					rebuilds;
+	private int					refitted;	// Boxes regrown
+	private int					visited;	// Boxes tested by the last pick
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public BoundsTree()
+	{
+		nodes = new ArrayList<Node>();
+
+		itemBounds = new Bounds[0];
+		itemVersions = new long[0];
+		itemLeaf = new int[0];
+		order = new int[0];
+
+		boxes = new Bounds[0];
+		first = new int[0];
+		count = new int[0];
+		parents = new int[0];
+		dirty = new boolean[0];
+
+		stack = new int[2];
+		stackEntry = new float[2];
+		distance = Float.POSITIVE_INFINITY;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public int	size()
+	{
+		return nodes.size();
+	}
+
+	public Node	get(int index)
+	{
+		return nodes.get(index);
+	}
+
+	// Distance to the last hit, in lengths of the direction given to pick().
+	public float	getDistance()
+	{
+		return distance;
+	}
+
+	public int	getRebuilds()
+	{
+		return rebuilds;
+	}
+
+	public int	getRefitted()
+	{
+		return refitted;
+	}
+
+	public int	getVisited()
+	{
+		return visited;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	public void	add(Node node)
+	{
+		nodes.add(node);
+		built = false;
+	}
+
+	public void	clear()
+	{
+		nodes.clear();
+		built = false;
+	}
+
+	// Build the hierarchy over again for where the nodes are now.
+	public void	rebuild()
+	{
+		int	n = nodes.size();
+
+		ensureCapacity(n);
+
+		for (int i=0; i<n; i++)
+		{
+			Node	node = nodes.get(i);
+
+			itemBounds[i].set(node.getWorldBounds());
+			itemVersions[i] = node.getWorldBoundsVersion();
+			order[i] = i;
+		}
+
+		size = 0;
+		area = 0.0f;
+
+		if (n > 0)
+		{
+			int	depth = split(newBox(-1), 0, n);
+
+			if (stack.length < 2 * depth + 2)
+			{
+				stack = new int[2 * depth + 2];
+				stackEntry = new float[2 * depth + 2];
+			}
+		}
+
+		builtArea = area;
+		built = true;
+		rebuilds++;
+	}
+
+	// Regrow the boxes of any nodes that have moved or changed size since
+	// the last refit, and of the branches above them. Builds the hierarchy
+	// if nodes have been added or removed.
+	public void	refit()
+	{
+		if (!built)
+		{
+			rebuild();
+			return;
+		}
+
+		boolean	changed = false;
+
+		for (int i=0; i<nodes.size(); i++)
+		{
+			Node	node = nodes.get(i);
+			long	v = node.getWorldBoundsVersion();
+
+			if (v == itemVersions[i])
+				continue;
+
+			itemVersions[i] = v;
+
+			Bounds	b = node.getWorldBounds();
+
+			if (itemBounds[i].matches(b))
+				continue;
+
+			itemBounds[i].set(b);
+			changed = true;
+
+			// Stop at a box that's already marked, since its branches are too
+			for (int k=itemLeaf[i]; (k >= 0) && !dirty[k]; k=parents[k])
+				dirty[k] = true;
+		}
+
+		if (!changed)
+			return;
+
+		// Children come after their branch, so they're regrown first
+		for (int k=size-1; k>=0; k--)
+		{
+			if (!dirty[k])
+				continue;
+
+			Bounds	box = boxes[k];
+
+			area -= area(box);
+			box.reset();
+
+			if (count[k] > 0)
+			{
+				for (int j=first[k]; j<first[k] + count[k]; j++)
+					box.include(itemBounds[order[j]]);
+			}
+			else
+			{
+				box.include(boxes[first[k]]);
+				box.include(boxes[first[k] + 1]);
+			}
+
+			area += area(box);
+			dirty[k] = false;
+			refitted++;
+		}
+
+		if (area > REBUILD_GROWTH * builtArea)
+			rebuild();
+	}
+
+	// Find the node whose world bounds the ray from o in direction d enters
+	// first, or null if it misses them all, as of the last refit. The
+	// distance to the hit is left in getDistance().
+	public Node	pick(float ox, float oy, float oz,
+					 float dx, float dy, float dz)
+	{
+		if (!built)
+			rebuild();
+
+		distance = Float.POSITIVE_INFINITY;
+		visited = 0;
+
+		if (size == 0)
+			return null;
+
+		float	ix = 1.0f / dx;
+		float	iy = 1.0f / dy;
+		float	iz = 1.0f / dz;
+
+		int		hit = -1;
+		int		top = 0;
+
+		visited++;
+		stackEntry[top] = boxes[0].intersectRay(ox, oy, oz, ix, iy, iz,
+												Float.POSITIVE_INFINITY);
+		stack[top++] = 0;
+
+		while (top > 0)
+		{
+			top--;
+
+			// Skip boxes the ray only enters past the nearest hit so far
+			if (stackEntry[top] >= distance)
+				continue;
+
+			int		k = stack[top];
+
+			if (count[k] > 0)
+			{
+				for (int j=first[k]; j<first[k] + count[k]; j++)
+				{
+					float	t = itemBounds[order[j]].intersectRay(ox, oy, oz,
+															   ix, iy, iz,
+															   distance);
+
+					if (t < distance)
+					{
+						distance = t;
+						hit = order[j];
+					}
+				}
+
+				continue;
+			}
+
+			int		near = first[k];
+			int		far = near + 1;
+			float	tn = boxes[near].intersectRay(ox, oy, oz, ix, iy, iz,
+												  distance);
+			float	tf = boxes[far].intersectRay(ox, oy, oz, ix, iy, iz,
+												 distance);
+
+			visited += 2;
+
+			if (tf < tn)
+			{
+				int		k2 = near;	near = far;	far = k2;
+				float	t2 = tn;	tn = tf;	tf = t2;
+			}
+
+			// Push the farther child first, so the nearer is visited first
+			if (tf < distance)
+			{
+				stack[top] = far;
+				stackEntry[top++] = tf;
+			}
+
+			if (tn < distance)
+			{
+				stack[top] = near;
+				stackEntry[top++] = tn;
+			}
+		}
+
+		return ((hit < 0) ? null : nodes.get(hit));
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Fill in box k for the nodes from lo to hi in order, splitting it if
+	// there are too many for a leaf. Returns the depth of its subtree.
+	private int	split(int k, int lo, int hi)
+	{
+		Bounds	box = boxes[k];
+
+		box.reset();
+
+		for (int j=lo; j<hi; j++)
+			box.include(itemBounds[order[j]]);
+
+		area += area(box);
+
+		if (hi - lo <= LEAF_SIZE)
+		{
+			first[k] = lo;
+			count[k] = hi - lo;
+
+			for (int j=lo; j<hi; j++)
+				itemLeaf[order[j]] = k;
+
+			return 1;
+		}
+
+		// Split along the axis the centers are most spread out on
+		int		axis = 0;
+		float	spread = -1.0f;
+
+		for (int a=0; a<3; a++)
+		{
+			float	min = Float.POSITIVE_INFINITY;
+			float	max = Float.NEGATIVE_INFINITY;
+
+			for (int j=lo; j<hi; j++)
+			{
+				float	c = center(order[j], a);
+
+				min = Math.min(min, c);
+				max = Math.max(max, c);
+			}
+
+			if (max - min > spread)
+			{
+				axis = a;
+				spread = max - min;
+			}
+		}
+
+		int		mid = (lo + hi) >>> 1;
+
+		select(lo, hi - 1, mid, axis);
+
+		int		left = newBox(k);
+		int		right = newBox(k);
+
+		first[k] = left;
+		count[k] = 0;
+
+		return 1 + Math.max(split(left, lo, mid), split(right, mid, hi));
+	}
+
+	// Partially sort order from lo to hi (inclusive) so that the node at mid
+	// has the median center along the axis, with nodes centered before it
+	// on one side and after it on the other.
+	private void	select(int lo, int hi, int mid, int axis)
+	{
+		while (lo < hi)
+		{
+			float	pivot = center(order[(lo + hi) >>> 1], axis);
+			int		i = lo;
+			int		j = hi;
+
+			while (i <= j)
+			{
+				while (center(order[i], axis) < pivot)
+					i++;
+
+				while (center(order[j], axis) > pivot)
+					j--;
+
+				if (i <= j)
+				{
+					int	t = order[i];
+
+					order[i++] = order[j];
+					order[j--] = t;
+				}
+			}
+
+			if (mid <= j)
+				hi = j;
+			else if (mid >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	// Surface area of a box, or 0 if it's empty.
+	private static float	area(Bounds b)
+	{
+		if (b.isEmpty())
+			return 0.0f;
+
+		float	x = b.getMax(0) - b.getMin(0);
+		float	y = b.getMax(1) - b.getMin(1);
+		float	z = b.getMax(2) - b.getMin(2);
+
+		return 2.0f * (x * y + y * z + z * x);
+	}
+
+	// Center of a node's box along an axis, or 0 if it's empty.
+	private float	center(int item, int axis)
+	{
+		Bounds	b = itemBounds[item];
+
+		return (b.isEmpty() ? 0.0f : 0.5f * (b.getMin(axis) + b.getMax(axis)));
+	}
+
+	private int	newBox(int parent)
+	{
+		int	k = size++;
+
+		parents[k] = parent;
+		dirty[k] = false;
+
+		return k;
+	}
+
+	// Make room for n nodes, and the at most 2n - 1 boxes over them.
+	private void	ensureCapacity(int n)
+	{
+		if (itemBounds.length < n)
+		{
+			int	old = itemBounds.length;
+			int	m = Math.max(n, 2 * old);
+
+			itemBounds = Arrays.copyOf(itemBounds, m);
+			itemVersions = new long[m];
+			itemLeaf = new int[m];
+			order = new int[m];
+
+			for (int i=old; i<m; i++)
+				itemBounds[i] = new Bounds();
+		}
+
+		if (boxes.length < 2 * n)
+		{
+			int	old = boxes.length;
+			int	m = Math.max(2 * n, 2 * old);
+
+			boxes = Arrays.copyOf(boxes, m);
+			first = new int[m];
+			count = new int[m];
+			parents = new int[m];
+			dirty = new boolean[m];
+
+			for (int i=old; i<m; i++)
+				boxes[i] = new Bounds();
+		}
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,318 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.math.FloatUtil;
+
+//******************************************************************************
+
+/**
+ * The <CODE>Camera</CODE> class is a perspective camera that keeps its own
+ * projection and view matrices, instead of building them in GL with GLU and
+ * reading them back. Each matrix is only recomputed after something it
+ * depends on has changed, and load() hands both to GL with glLoadMatrixf().<P>
+ *
+ * Since the matrices live in Java, points can be projected and unprojected
+ * without a GL context, in batches and without allocating. Those methods
+ * (and the setters) lock the camera, so they can be used from any thread;
+ * the arrays returned by the matrix getters are only safe to read on the
+ * thread that changes the camera.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class Camera
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	// Projection parameters
+	private float				fovy;		// Vertical field of view, degrees
+	private float				near;
+	private float				far;
+	private int				width;		// Viewport, in pixels
+	private int				height;
+
+	// View parameters
+	private final float[]		eye;
+	private final float[]		center;
+	private final float[]		up;
+
+	// Cached matrices (column-major, as glLoadMatrixf expects)
+	private final float[]		projection;
+	private final float[]		view;
+	private final float[]		inverse;	// Of projection times view
+	private final float[]		pv;		// Projection times view
+	private boolean			projectionDirty;
+	private boolean			viewDirty;
+	private boolean			inverseDirty;
+	private boolean			singular;	// No inverse?
+	private int				version;	// Bumped when either changes
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public Camera(float fovy, float near, float far)
+	{
+		this.fovy = fovy;
+		this.near = near;
+		this.far = far;
+		this.width = 1;
+		this.height = 1;
+
+		eye = new float[] { 0.0f, 0.0f, 1.0f };
+		center = new float[3];
+		up = new float[] { 0.0f, 1.0f, 0.0f };
+
+		projection = new float[16];
+		view = new float[16];
+		inverse = new float[16];
+		pv = new float[16];
+
+		projectionDirty = true;
+		viewDirty = true;
+		inverseDirty = true;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public synchronized int	getWidth()
+	{
+		return width;
+	}
+
+	public synchronized int	getHeight()
+	{
+		return height;
+	}
+
+	// Changes whenever either matrix does, so anything derived from them
+	// (e.g. a Frustum) knows when it's out of date.
+	public synchronized int	getVersion()
+	{
+		validate();
+
+		return version;
+	}
+
+	// The projection matrix. Don't modify it!
+	public synchronized float[]	getProjectionMatrix()
+	{
+		validate();
+
+		return projection;
+	}
+
+	// The view matrix. Don't modify it!
+	public synchronized float[]	getViewMatrix()
+	{
+		validate();
+
+		return view;
+	}
+
+	// Copy the matrices, for use on another thread.
+	public synchronized void	getMatrices(float[] projection, float[] view)
+	{
+		validate();
+
+		System.arraycopy(this.projection, 0, projection, 0, 16);
+		System.arraycopy(this.view, 0, view, 0, 16);
+	}
+
+	public synchronized void	setPerspective(float fovy, float near,
+											   float far)
+	{
+		if ((fovy == this.fovy) && (near == this.near) && (far == this.far))
+			return;
+
+		this.fovy = fovy;
+		this.near = near;
+		this.far = far;
+
+		projectionDirty = true;
+	}
+
+	// Call when the drawable is resized. Sizes under a pixel count as one.
+	public synchronized void	setViewport(int width, int height)
+	{
+		width = Math.max(width, 1);
+		height = Math.max(height, 1);
+
+		if ((width == this.width) && (height == this.height))
+			return;
+
+		this.width = width;
+		this.height = height;
+
+		projectionDirty = true;
+	}
+
+	// Put the camera at the eye, looking at the center, with up as up.
+	public synchronized void	lookAt(float ex, float ey, float ez,
+									   float cx, float cy, float cz,
+									   float ux, float uy, float uz)
+	{
+		if ((eye[0] == ex) && (eye[1] == ey) && (eye[2] == ez) &&
+			(center[0] == cx) && (center[1] == cy) && (center[2] == cz) &&
+			(up[0] == ux) && (up[1] == uy) && (up[2] == uz))
+			return;
+
+		eye[0] = ex;	eye[1] = ey;	eye[2] = ez;
+		center[0] = cx;	center[1] = cy;	center[2] = cz;
+		up[0] = ux;		up[1] = uy;		up[2] = uz;
+
+		viewDirty = true;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Replace the GL projection and modelview matrices with the camera's,
+	// leaving the matrix mode at modelview.
+	public synchronized void	load(GL2 gl)
+	{
+		validate();
+
+		gl.glMatrixMode(GL2.GL_PROJECTION);
+		gl.glLoadMatrixf(projection, 0);
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+		gl.glLoadMatrixf(view, 0);
+	}
+
+	// Map count points from world to window coordinates, as gluProject()
+	// does: x and y in pixels from the lower left, z from 0 at the near
+	// plane to 1 at the far plane. Points are packed x, y, z from the
+	// offsets, and in and out may be the same array. A point that can't be
+	// projected (it's in the plane of the eye) comes out as NaN. Returns the
+	// number of points that could be.
+	public synchronized int	project(float[] in, int inOffset,
+									float[] out, int outOffset, int count)
+	{
+		validate();
+
+		float[]	m = pv;
+		int		mapped = 0;
+
+		for (int i=0; i<count; i++)
+		{
+			float	x = in[inOffset + 3 * i];
+			float	y = in[inOffset + 3 * i + 1];
+			float	z = in[inOffset + 3 * i + 2];
+
+			float	cx = m[0] * x + m[4] * y + m[8] * z + m[12];
+			float	cy = m[1] * x + m[5] * y + m[9] * z + m[13];
+			float	cz = m[2] * x + m[6] * y + m[10] * z + m[14];
+			float	cw = m[3] * x + m[7] * y + m[11] * z + m[15];
+
+			mapped += store(out, outOffset + 3 * i,
+							(cx / cw * 0.5f + 0.5f) * width,
+							(cy / cw * 0.5f + 0.5f) * height,
+							cz / cw * 0.5f + 0.5f, cw);
+		}
+
+		return mapped;
+	}
+
+	// Map count points from window coordinates (as project() makes them) back
+	// to world coordinates, as gluUnProject() does. Unprojecting the same x
+	// and y at z 0 and 1 gives the ray through that pixel. Returns the number
+	// of points that could be mapped; the rest come out as NaN.
+	public synchronized int	unproject(float[] in, int inOffset,
+									  float[] out, int outOffset, int count)
+	{
+		validate();
+		validateInverse();
+
+		float[]	m = inverse;
+		int		mapped = 0;
+
+		for (int i=0; i<count; i++)
+		{
+			float	x = in[inOffset + 3 * i] / width * 2.0f - 1.0f;
+			float	y = in[inOffset + 3 * i + 1] / height * 2.0f - 1.0f;
+			float	z = in[inOffset + 3 * i + 2] * 2.0f - 1.0f;
+
+			float	wx = m[0] * x + m[4] * y + m[8] * z + m[12];
+			float	wy = m[1] * x + m[5] * y + m[9] * z + m[13];
+			float	wz = m[2] * x + m[6] * y + m[10] * z + m[14];
+			float	ww = m[3] * x + m[7] * y + m[11] * z + m[15];
+
+			if (singular)
+				ww = 0.0f;
+
+			mapped += store(out, outOffset + 3 * i,
+							wx / ww, wy / ww, wz / ww, ww);
+		}
+
+		return mapped;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Recompute whichever matrices are out of date, then their product.
+	private void	validate()
+	{
+		if (!projectionDirty && !viewDirty)
+			return;
+
+		if (projectionDirty)
+		{
+			FloatUtil.makePerspective(projection, 0, true,
+									  fovy * FloatUtil.PI / 180.0f,
+									  (float)width / (float)height,
+									  near, far);
+			projectionDirty = false;
+		}
+
+		if (viewDirty)
+		{
+			FloatUtil.makeLookAt(view, 0, eye, 0, center, 0, up, 0, pv);	// As scratch
+			viewDirty = false;
+		}
+
+		FloatUtil.multMatrix(projection, view, pv);
+
+		inverseDirty = true;
+		version++;
+	}
+
+	// Invert projection times view, only when unprojecting needs it.
+	private void	validateInverse()
+	{
+		if (!inverseDirty)
+			return;
+
+		singular = (FloatUtil.invertMatrix(pv, inverse) == null);
+		inverseDirty = false;
+	}
+
+	// Store a mapped point, or NaN if w says it couldn't be mapped.
+	private static int	store(float[] out, int i, float x, float y, float z,
+								  float w)
+	{
+		if (w == 0.0f)
+		{
+			out[i] = Float.NaN;
+			out[i + 1] = Float.NaN;
+			out[i + 2] = Float.NaN;
+
+			return 0;
+		}
+
+		out[i] = x;
+		out[i + 1] = y;
+		out[i + 2] = z;
+
+		return 1;
+	}
+}
+
+//******************************************************************************
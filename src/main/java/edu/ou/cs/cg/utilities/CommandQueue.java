@@ -0,0 +1,150 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//******************************************************************************
+
+/**
+ * The <CODE>CommandQueue</CODE> class hands objects from one thread to
+ * another without locks, such as input events from the AWT event thread to
+ * the GL thread.<P>
+ *
+ * It's a fixed size ring. Only one thread may call offer() and only one
+ * (other) thread may call poll() or drain(). The producer publishes an item
+ * by advancing the tail after storing it, and the consumer frees a slot by
+ * advancing the head after clearing it, so each side only ever waits on the
+ * other's counter, never on a lock. Items should be immutable, since the
+ * consumer sees them exactly as they were when offered.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class CommandQueue<T>
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final Object[]		items;		// Ring, power of two length
+	private final int			mask;
+	private final AtomicLong	head;		// Next to take, by the consumer
+	private final AtomicLong	tail;		// Next to fill, by the producer
+
+	// Producer's copy of head, reread only when the ring looks full
+	private long				cachedHead;
+
+	// Statistics, since creation
+	private volatile long		dropped;	// Offers refused because full
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	// Hold at least capacity items, rounded up to a power of two.
+	public CommandQueue(int capacity)
+	{
+		int	n = 1;
+
+		while (n < capacity)
+			n *= 2;
+
+		this.items = new Object[n];
+		this.mask = n - 1;
+		this.head = new AtomicLong();
+		this.tail = new AtomicLong();
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public int	getCapacity()
+	{
+		return items.length;
+	}
+
+	// Items waiting, as seen from either thread.
+	public int	size()
+	{
+		return (int)(tail.get() - head.get());
+	}
+
+	public long	getDropped()
+	{
+		return dropped;
+	}
+
+	//**********************************************************************
+	// Public Methods (Producer)
+	//**********************************************************************
+
+	// Add an item, or return false if the queue is full.
+	public boolean	offer(T item)
+	{
+		long	t = tail.get();
+
+		if (t - cachedHead >= items.length)
+		{
+			cachedHead = head.get();
+
+			if (t - cachedHead >= items.length)
+			{
+				dropped++;
+				return false;
+			}
+		}
+
+		items[(int)t & mask] = item;
+		tail.lazySet(t + 1);		// Ordered after the store above
+
+		return true;
+	}
+
+	//**********************************************************************
+	// Public Methods (Consumer)
+	//**********************************************************************
+
+	// Take the oldest item, or return null if the queue is empty.
+	@SuppressWarnings("unchecked")
+	public T	poll()
+	{
+		long	h = head.get();
+
+		if (h == tail.get())
+			return null;
+
+		int	i = (int)h & mask;
+		T		item = (T)items[i];
+
+		items[i] = null;
+		head.lazySet(h + 1);
+
+		return item;
+	}
+
+	// Hand every item offered so far to the consumer, oldest first. Items
+	// offered while draining wait for the next drain, so a fast producer
+	// can't keep the consumer here forever. Returns the number handed over.
+	@SuppressWarnings("unchecked")
+	public int	drain(Consumer<T> consumer)
+	{
+		long	h = head.get();
+		long	t = tail.get();
+
+		for (long k=h; k<t; k++)
+		{
+			int	i = (int)k & mask;
+			T		item = (T)items[i];
+
+			items[i] = null;
+			head.lazySet(k + 1);
+			consumer.accept(item);
+		}
+
+		return (int)(t - h);
+	}
+}
+
+//******************************************************************************
@@ -17,9 +17,7 @@ package edu.ou.cs.cg.utilities;
 //import java.lang.*;
 
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.math.Quaternion;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureCoords;
 
 //******************************************************************************
 
@@ -27,11 +25,8 @@ import com.jogamp.opengl.util.texture.TextureCoords;
  * The <CODE>Cube/CODE> class provides a mesh of a cube. No parameters are
  * required for a unit cube, so this class follows the singleton pattern.<P>
  *
- * Quaternions represent point and vectors in homogeneous coordinates.
- * (The "w" coordinate is 1 for points and 0 for vectors.)<P>
- *
- * The mesh is defined as an array of vertices as point Quaternions and an
- * array of face normals as vector Quaternions. The face polygons are
+ * The mesh is defined as a packed array of vertex points (x, y, z for each
+ * vertex in turn) and a packed array of face normals. The face polygons are
  * represented as a two-dimensional array of integer indicies into the vertex
  * array; faces[i][j] is the jth vertex (ordered CCW) of the ith face polygon.
  * The edge segments are also represented as a two-dimensional array of integer
@@ -43,6 +38,10 @@ import com.jogamp.opengl.util.texture.TextureCoords;
  * be better to start from a duplicate of Cylinder to implement your new
  * mesh.<P>
  *
+ * For drawing, the mesh is expanded once into a shared interleaved Mesh with
+ * four vertices per face (each with its face's normal) and two triangles per
+ * face, plus the edges as lines.<P>
+ *
  * @author  Chris Weaver
  * @version %I%, %G%
  */
@@ -52,17 +51,17 @@ public final class Cube
 	// Public Class Members
 	//**********************************************************************
 
-	public static final Quaternion[]	VERTICES = new Quaternion[]
+	public static final float[]		VERTICES = new float[]
 	{
-		new Quaternion(0.0f, 0.0f, 1.0f,  1.0f),
-		new Quaternion(1.0f, 0.0f, 1.0f,  1.0f),
-		new Quaternion(1.0f, 1.0f, 1.0f,  1.0f),
-		new Quaternion(0.0f, 1.0f, 1.0f,  1.0f),
-
-		new Quaternion(0.0f, 0.0f, 0.0f,  1.0f),
-		new Quaternion(1.0f, 0.0f, 0.0f,  1.0f),
-		new Quaternion(1.0f, 1.0f, 0.0f,  1.0f),
-		new Quaternion(0.0f, 1.0f, 0.0f,  1.0f),
+		0.0f, 0.0f, 1.0f,
+		1.0f, 0.0f, 1.0f,
+		1.0f, 1.0f, 1.0f,
+		0.0f, 1.0f, 1.0f,
+
+		0.0f, 0.0f, 0.0f,
+		1.0f, 0.0f, 0.0f,
+		1.0f, 1.0f, 0.0f,
+		0.0f, 1.0f, 0.0f,
 	};
 
 	public static final int[][]		FACES = new int[][]
@@ -75,14 +74,14 @@ public final class Cube
 		{ 5, 1, 0, 4 },		// bottom
 	};
 
-	public static final Quaternion[]	NORMALS = new Quaternion[]
+	public static final float[]		NORMALS = new float[]
 	{
-		new Quaternion( 0.0f,  0.0f,  1.0f,  0.0f),
-		new Quaternion( 0.0f,  0.0f, -1.0f,  0.0f),
-		new Quaternion( 1.0f,  0.0f,  0.0f,  0.0f),
-		new Quaternion(-1.0f,  0.0f,  0.0f,  0.0f),
-		new Quaternion( 0.0f,  1.0f,  0.0f,  0.0f),
-		new Quaternion( 0.0f, -1.0f,  0.0f,  0.0f),
+		 0.0f,  0.0f,  1.0f,
+		 0.0f,  0.0f, -1.0f,
+		 1.0f,  0.0f,  0.0f,
+		-1.0f,  0.0f,  0.0f,
+		 0.0f,  1.0f,  0.0f,
+		 0.0f, -1.0f,  0.0f,
 	};
 
 	public static final int[][]		EDGES = new int[][]
@@ -92,85 +91,182 @@ public final class Cube
 		{ 1, 5 }, { 6, 2 }, { 3, 7 }, { 4, 0 },
 	};
 
+	// Bounding box of the cube, for nodes that draw it. Don't modify it!
+	public static final Bounds		BOUNDS = new Bounds(0.0f, 0.0f, 0.0f,
+														1.0f, 1.0f, 1.0f);
+
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	// Unit texture coordinates of each face's vertices, in FACES order
+	private static final float[][]	FACE_TEXCOORDS = new float[][]
+	{
+		{ 0.0f, 1.0f },		// top left
+		{ 0.0f, 0.0f },		// bottom left
+		{ 1.0f, 0.0f },		// bottom right
+		{ 1.0f, 1.0f },		// top right
+	};
+
+	// Mesh groups beyond the six faces
+	private static final int		ALL_FACES = 6;
+	private static final int		ALL_EDGES = 7;
+
+	// The shared mesh, held here to skip the cache lookup on every draw
+	private static Mesh				mesh;
+
 	//**********************************************************************
 	// Public Class Methods
 	//**********************************************************************
 
 	public static void	fill(GL2 gl)
 	{
-		for (int i=0; i<FACES.length; i++)
-		{
-			Quaternion	n = NORMALS[i];
+		RenderQueue	queue = RenderQueue.getActive();
 
-			gl.glBegin(GL2.GL_POLYGON);
+		if (queue != null)
+			queue.submit(getMesh(), ALL_FACES, null);
+		else
+			getMesh().drawGroup(gl, ALL_FACES);
+	}
 
-			for (int j=0; j<FACES[i].length; j++)
-			{
-				Quaternion	v = VERTICES[FACES[i][j]];
+	public static void	edge(GL2 gl)
+	{
+		getMesh().drawGroup(gl, ALL_EDGES);
+	}
 
-				gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-				gl.glVertex3f(v.getX(), v.getY(), v.getZ());
-			}
+	// Submits the face to the active render queue, if there is one.
+	public static void	fillFace(GL2 gl, int face, Texture texture)
+	{
+		RenderQueue	queue = RenderQueue.getActive();
 
-			gl.glEnd();
+		if (queue != null)
+		{
+			queue.submit(getMesh(), face, texture);
+			return;
 		}
+
+		Mesh.bindTexture(gl, texture);
+		getMesh().drawGroup(gl, face);
+		Mesh.unbindTexture(gl, texture);
 	}
 
-	public static void	edge(GL2 gl)
+	// Draws the face with part of an atlas, stretching the region over the
+	// face's unit texture coordinates with the texture matrix. Drawn right
+	// away, since a render queue sorts faces by texture alone.
+	public static void	fillFace(GL2 gl, int face, SpriteAtlas.Region region)
 	{
-		gl.glBegin(GL2.GL_LINES);
+		Texture	texture = region.getTexture();
 
-		for (int i=0; i<EDGES.length; i++)
-		{
-			Quaternion	v1 = VERTICES[EDGES[i][0]];
-			Quaternion	v2 = VERTICES[EDGES[i][1]];
+		Mesh.bindTexture(gl, texture);
 
-			gl.glVertex3f(v1.getX(), v1.getY(), v1.getZ());
-			gl.glVertex3f(v2.getX(), v2.getY(), v2.getZ());
-		}
+		gl.glMatrixMode(GL2.GL_TEXTURE);
+		gl.glPushMatrix();
+		gl.glTranslatef(region.getS0(), region.getT0(), 0.0f);
+		gl.glScalef(region.getS1() - region.getS0(),
+					region.getT1() - region.getT0(), 1.0f);
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+
+		getMesh().drawGroup(gl, face);
 
-		gl.glEnd();
+		gl.glMatrixMode(GL2.GL_TEXTURE);
+		gl.glPopMatrix();
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+
+		Mesh.unbindTexture(gl, texture);
 	}
 
-	public static void	fillFace(GL2 gl, int face, Texture texture)
+	// The shared mesh, with one group per face, one for the whole cube, and
+	// one for the edges.
+	public static Mesh	getMesh()
+	{
+		if (mesh == null)
+			mesh = MeshCache.get(Cube.class, Cube::build);
+
+		return mesh;
+	}
+
+	// Drop the held mesh so the next getMesh() asks the cache again. Called
+	// by MeshCache.release().
+	static void	forgetMesh()
+	{
+		mesh = null;
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	private static Mesh	build()
 	{
-		texture.enable(gl);
-		texture.bind(gl);
+		int		n = FACES.length;
+		float[]	data = new float[n * 4 * Mesh.STRIDE];
+		int[]		indices = new int[n * 6 * 2 + EDGES.length * 2];
+		int[]		corners = new int[VERTICES.length / 3];
+		int		k = 0;
+
+		for (int i=0; i<n; i++)
+		{
+			for (int j=0; j<4; j++)
+			{
+				int	c = FACES[i][j];
+
+				data[k++] = FACE_TEXCOORDS[j][0];
+				data[k++] = FACE_TEXCOORDS[j][1];
+				data[k++] = NORMALS[i * 3 + 0];
+				data[k++] = NORMALS[i * 3 + 1];
+				data[k++] = NORMALS[i * 3 + 2];
+				data[k++] = VERTICES[c * 3 + 0];
+				data[k++] = VERTICES[c * 3 + 1];
+				data[k++] = VERTICES[c * 3 + 2];
 
-		TextureCoords	coords = texture.getImageTexCoords();
-		float			cl = coords.left();
-		float			cr = coords.right();
-		float			ct = coords.top();
-		float			cb = coords.bottom();
+				corners[c] = i * 4 + j;		// Any copy will do for edges
+			}
+		}
 
-		gl.glBegin(GL2.GL_QUADS);
+		// Each face as two triangles, then all faces again as one group
+		int	m = 0;
+
+		for (int pass=0; pass<2; pass++)
+		{
+			for (int i=0; i<n; i++)
+			{
+				int	v = i * 4;
 
-		Quaternion	v;
-		Quaternion	n = NORMALS[face];
+				indices[m++] = v + 0;
+				indices[m++] = v + 1;
+				indices[m++] = v + 2;
+				indices[m++] = v + 0;
+				indices[m++] = v + 2;
+				indices[m++] = v + 3;
+			}
+		}
 
-		v = VERTICES[FACES[face][0]];
-		gl.glTexCoord2f(cl, ct);			// top left
-		gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-		gl.glVertex3f(v.getX(), v.getY(), v.getZ());
+		for (int i=0; i<EDGES.length; i++)
+		{
+			indices[m++] = corners[EDGES[i][0]];
+			indices[m++] = corners[EDGES[i][1]];
+		}
 
-		v = VERTICES[FACES[face][1]];
-		gl.glTexCoord2f(cl, cb);			// bottom left
-		gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-		gl.glVertex3f(v.getX(), v.getY(), v.getZ());
+		int[]	modes = new int[n + 2];
+		int[]	firsts = new int[n + 2];
+		int[]	counts = new int[n + 2];
 
-		v = VERTICES[FACES[face][2]];
-		gl.glTexCoord2f(cr, cb);			// bottom right
-		gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-		gl.glVertex3f(v.getX(), v.getY(), v.getZ());
+		for (int i=0; i<n; i++)
+		{
+			modes[i] = GL2.GL_TRIANGLES;
+			firsts[i] = i * 6;
+			counts[i] = 6;
+		}
 
-		v = VERTICES[FACES[face][3]];
-		gl.glTexCoord2f(cr, ct);			// top right
-		gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-		gl.glVertex3f(v.getX(), v.getY(), v.getZ());
+		modes[ALL_FACES] = GL2.GL_TRIANGLES;
+		firsts[ALL_FACES] = n * 6;
+		counts[ALL_FACES] = n * 6;
 
-		gl.glEnd();
+		modes[ALL_EDGES] = GL2.GL_LINES;
+		firsts[ALL_EDGES] = n * 6 * 2;
+		counts[ALL_EDGES] = EDGES.length * 2;
 
-		texture.disable(gl);
+		return new Mesh(data, indices, modes, firsts, counts);
 	}
 }
 
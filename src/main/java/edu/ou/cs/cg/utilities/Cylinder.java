@@ -18,9 +18,7 @@ package edu.ou.cs.cg.utilities;
 //import java.lang.*;
 
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.math.Quaternion;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureCoords;
 
 //******************************************************************************
 
@@ -29,25 +27,31 @@ import com.jogamp.opengl.util.texture.TextureCoords;
  * parameters to set the number of sides (slices) and the coordinates of
  * the ends along the long (y) axis.<P>
  *
- * Quaternions represent point and vectors in homogeneous coordinates.
- * (The "w" coordinate is 1 for points and 0 for vectors.)<P>
+ * The mesh is stored as a packed, interleaved Mesh: four vertices for each
+ * side face (each with its face normal), then the ring of vertices at each
+ * end, plus an index array that draws the sides and ends as triangles and
+ * the edges as lines. The mesh is generated once per combination of slices,
+ * ymin, and ymax and shared by all cylinders with those parameters.<P>
  *
- * The mesh is defined as an array of vertices as point Quaternions and an
- * array of face normals as vector Quaternions. The face polygons are
- * represented as a two-dimensional array of integer indicies into the vertex
- * array; faces[i][j] is the jth vertex (ordered CCW) of the ith face polygon.
- * The edge segments are also represented as a two-dimensional array of integer
- * indicies into the vertex array, but edges[i][j] is the jth endpoint (so j=0
- * or 1) of the ith edge segment.<P>
- *
- * Note: HW06 doesn't require edge drawing. If you choose Option A, you don't
- * need to populate the edge array in your mesh class.<P>
+ * Side faces are ordered counterclockwise looking from inside, starting with
+ * their top left corner for alignment with texture coordinates. Normals point
+ * inward.<P>
  *
  * @author  Chris Weaver
  * @version %I%, %G%
  */
 public final class Cylinder
 {
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	// Groups of the mesh
+	public static final int		SIDES = 0;
+	public static final int		FOOT = 1;
+	public static final int		HEAD = 2;
+	public static final int		EDGES = 3;
+
 	//**********************************************************************
 	// Private Members
 	//**********************************************************************
@@ -57,10 +61,7 @@ public final class Cylinder
 	private final float			ymin;		// Axial coordinate of bottom
 	private final float			ymax;		// Axial coordinate of top
 
-	private final Quaternion[]		vertices;	// Vertex points
-	private final int[][]			faces;		// Face[polygon#][vertex#]
-	private final Quaternion[]		normals;	// Face normal vectors
-	private final int[][]			edges;		// Edge[segment#][start|end]
+	private final Mesh				mesh;		// Shared packed mesh
 
 	//**********************************************************************
 	// Constructors and Finalizer
@@ -72,12 +73,7 @@ public final class Cylinder
 		this.ymin = ymin;
 		this.ymax = ymax;
 
-		vertices = new Quaternion[slices * 2];
-		faces = new int[slices][4];
-		normals = new Quaternion[slices];
-		edges = new int[slices * 3][2];
-
-		calc();
+		mesh = MeshCache.get(new Key(slices, ymin, ymax), this::build);
 	}
 
 	public Cylinder()
@@ -86,185 +82,210 @@ public final class Cylinder
 	}
 
 	//**********************************************************************
-	// Private Methods
+	// Public Methods
 	//**********************************************************************
 
-	private void	calc()
+	public void	fill(GL2 gl, Texture texture)
 	{
-		double		inv = 2.0 * Math.PI / slices;
-
-		// Calculate vertices as a circle extruded down and up along the yaxis
-		for (int i=0; i<slices; i++)
-		{
-			double	theta = i * inv;
-			float	x = (float)Math.cos(theta);
-			float	z = (float)Math.sin(theta);
+		fillGroup(gl, SIDES, texture);
+	}
 
-			// Circle vertices in xz plane extruded down to ymin
-			vertices[(i * 2) + 0] = new Quaternion(x, ymin, -z, 1.0f);
-			//System.out.println(vertices[(i * 2) + 0]);
+	public void	edge(GL2 gl)
+	{
+		mesh.drawGroup(gl, EDGES);
+	}
 
-			// Circle vertices in xz plane extruded up to ymax
-			vertices[(i * 2) + 1] = new Quaternion(x, ymax, -z, 1.0f);
-			//System.out.println(vertices[(i * 2) + 1]);
-		}
+	public void	fillFoot(GL2 gl, Texture texture)
+	{
+		fillGroup(gl, FOOT, texture);
+	}
 
-		int		k = slices * 2;
+	public void	fillHead(GL2 gl, Texture texture)
+	{
+		fillGroup(gl, HEAD, texture);
+	}
 
-		// Face vertices in counterclockwise order, facing inward, starting
-		// with top left corner for alignment with texture coordinates.
-		for (int i=0; i<slices; i++)
-		{
-			int	v0 = ((i * 2) + 0) % k;
-			int	v1 = ((i * 2) + 1) % k;
-			int	v2 = ((i * 2) + 2) % k;
-			int	v3 = ((i * 2) + 3) % k;
-
-			//System.out.println(v0 + " " + v1 + " " + v2 + " " + v3);
-
-			faces[i][0] = v3;
-			faces[i][1] = v2;
-			faces[i][2] = v0;
-			faces[i][3] = v1;
-
-			// Calculate normals for the side faces. The normals have no Y
-			// component, so simply use base circle going counterclockwise.
-			float	dx = vertices[v2].getX() - vertices[v0].getX();
-			float	dz = vertices[v2].getZ() - vertices[v0].getZ();
-
-			// To point inward, use counterclockwise perp vector in xz plane
-			normals[i] = new Quaternion(-dz, 0.0f, dx, 0.0f);		// Inward
-			//normals[i] = new Quaternion(dz, 0.0f, -dx, 0.0f);		// Outward
-
-			// Left edge of quad (ordered CCW looking from inside)
-			edges[i + 0 * slices][0] = v0;
-			edges[i + 0 * slices][1] = v1;
-
-			// Bottom edge of quad (ordered CCW looking from inside)
-			edges[i + 1 * slices][0] = v2;
-			edges[i + 1 * slices][1] = v0;
-
-			// Top edge of quad (ordered CCW looking from inside)
-			edges[i + 2 * slices][0] = v1;
-			edges[i + 2 * slices][1] = v3;
-		}
+	// The mesh shared by all cylinders with the same slices and y range,
+	// with groups SIDES, FOOT, HEAD, and EDGES.
+	public Mesh	getMesh()
+	{
+		return mesh;
 	}
 
 	//**********************************************************************
-	// Public Methods
+	// Private Methods
 	//**********************************************************************
 
-	public void	fill(GL2 gl, Texture texture)
+	// Submits the group to the active render queue, if there is one.
+	private void	fillGroup(GL2 gl, int group, Texture texture)
 	{
-		texture.enable(gl);
-		texture.bind(gl);
+		RenderQueue	queue = RenderQueue.getActive();
 
-		TextureCoords	coords = texture.getImageTexCoords();
-		float			cl = coords.left();
-		float			cr = coords.right();
-		float			cb = coords.bottom();
-		float			ct = coords.top();
-		float			step = (cr - cl) / slices;
+		if (queue != null)
+		{
+			queue.submit(mesh, group, texture);
+			return;
+		}
 
-		gl.glBegin(GL2.GL_QUADS);
+		Mesh.bindTexture(gl, texture);
+		mesh.drawGroup(gl, group);
+		Mesh.unbindTexture(gl, texture);
+	}
+
+	private Mesh	build()
+	{
+		// Circle in the xz plane, going counterclockwise from above
+		float[]	cx = new float[slices];
+		float[]	cz = new float[slices];
+		double		inv = 2.0 * Math.PI / slices;
+
+		for (int i=0; i<slices; i++)
+		{
+			double	theta = i * inv;
+
+			cx[i] = (float)Math.cos(theta);
+			cz[i] = -(float)Math.sin(theta);
+		}
+
+		float[]	data = new float[slices * 6 * Mesh.STRIDE];
+		float		step = 1.0f / slices;
+		int		k = 0;
 
 		for (int i=0; i<slices; i++)
 		{
-			Quaternion	v;
-			Quaternion	n = normals[i];
+			int	j = (i + 1) % slices;
+
+			// Normals have no Y component. To point inward, use the
+			// counterclockwise perp vector of the bottom edge in xz plane.
+			float	dx = cx[j] - cx[i];
+			float	dz = cz[j] - cz[i];
+			float	nx = -dz;
+			float	nz = dx;
 
 			// Faces go counterclockwise, so progress right to left in image
-			float		fcl = cr - (i + 1) * step;
-			float		fcr = cr - (i + 0) * step;
-
-			v = vertices[faces[i][0]];
-			gl.glTexCoord2f(fcl, ct);			// top left
-			gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-			gl.glVertex3f(v.getX(), v.getY(), v.getZ());
-
-			v = vertices[faces[i][1]];
-			gl.glTexCoord2f(fcl, cb);			// bottom left
-			gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-			gl.glVertex3f(v.getX(), v.getY(), v.getZ());
-
-			v = vertices[faces[i][2]];
-			gl.glTexCoord2f(fcr, cb);			// bottom right
-			gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-			gl.glVertex3f(v.getX(), v.getY(), v.getZ());
-
-			v = vertices[faces[i][3]];
-			gl.glTexCoord2f(fcr, ct);			// top right
-			gl.glNormal3f(n.getX(), n.getY(), n.getZ());
-			gl.glVertex3f(v.getX(), v.getY(), v.getZ());
+			float	fcl = 1.0f - (i + 1) * step;
+			float	fcr = 1.0f - (i + 0) * step;
+
+			k = put(data, k, fcl, 1.0f, nx, 0.0f, nz, cx[j], ymax, cz[j]);
+			k = put(data, k, fcl, 0.0f, nx, 0.0f, nz, cx[j], ymin, cz[j]);
+			k = put(data, k, fcr, 0.0f, nx, 0.0f, nz, cx[i], ymin, cz[i]);
+			k = put(data, k, fcr, 1.0f, nx, 0.0f, nz, cx[i], ymax, cz[i]);
 		}
 
-		gl.glEnd();
+		// Texture coordinates of the ends are the xz circle scaled to [0, 1]
+		for (int i=0; i<slices; i++)
+			k = put(data, k, 0.5f * (cx[i] + 1.0f), 0.5f * (cz[i] + 1.0f),
+					0.0f, 1.0f, 0.0f, cx[i], ymin, cz[i]);
 
-		texture.disable(gl);
-	}
+		for (int i=0; i<slices; i++)
+			k = put(data, k, 0.5f * (cx[i] + 1.0f), 0.5f * (cz[i] + 1.0f),
+					0.0f, -1.0f, 0.0f, cx[i], ymax, cz[i]);
 
-	public void	edge(GL2 gl)
-	{
-		gl.glBegin(GL2.GL_LINES);
+		int		ends = Math.max(slices - 2, 0) * 3;
+		int[]		indices = new int[slices * 6 + ends * 2 + slices * 6];
+		int		m = 0;
 
-		for (int i=0; i<edges.length; i++)
+		for (int i=0; i<slices; i++)
 		{
-			Quaternion	v1 = vertices[edges[i][0]];
-			Quaternion	v2 = vertices[edges[i][1]];
+			int	v = i * 4;
+
+			indices[m++] = v + 0;
+			indices[m++] = v + 1;
+			indices[m++] = v + 2;
+			indices[m++] = v + 0;
+			indices[m++] = v + 2;
+			indices[m++] = v + 3;
+		}
 
-			gl.glVertex3f(v1.getX(), v1.getY(), v1.getZ());
-			gl.glVertex3f(v2.getX(), v2.getY(), v2.getZ());
+		// Each end as a fan of triangles around its first vertex
+		for (int e=0; e<2; e++)
+		{
+			int	v = slices * 4 + e * slices;
+
+			for (int i=1; i<slices-1; i++)
+			{
+				indices[m++] = v;
+				indices[m++] = v + i;
+				indices[m++] = v + i + 1;
+			}
 		}
 
-		gl.glEnd();
-	}
+		// Left, bottom, and top edges of each side face
+		for (int i=0; i<slices; i++)
+		{
+			int	v = i * 4;
+
+			indices[m++] = v + 2;
+			indices[m++] = v + 3;
+			indices[m++] = v + 1;
+			indices[m++] = v + 2;
+			indices[m++] = v + 3;
+			indices[m++] = v + 0;
+		}
 
-	public void	fillFoot(GL2 gl, Texture texture)
-	{
-		fillEnd(gl, texture, 0, 1.0f);
+		return new Mesh(data, indices,
+						new int[] { GL2.GL_TRIANGLES, GL2.GL_TRIANGLES,
+									GL2.GL_TRIANGLES, GL2.GL_LINES },
+						new int[] { 0, slices * 6, slices * 6 + ends,
+									slices * 6 + ends * 2 },
+						new int[] { slices * 6, ends, ends, slices * 6 });
 	}
 
-	public void	fillHead(GL2 gl, Texture texture)
+	private static int	put(float[] data, int k, float s, float t,
+							float nx, float ny, float nz,
+							float x, float y, float z)
 	{
-		fillEnd(gl, texture, 1, -1.0f);
+		data[k++] = s;
+		data[k++] = t;
+		data[k++] = nx;
+		data[k++] = ny;
+		data[k++] = nz;
+		data[k++] = x;
+		data[k++] = y;
+		data[k++] = z;
+
+		return k;
 	}
 
 	//**********************************************************************
-	// Private Methods
+	// Inner Classes
 	//**********************************************************************
 
-	private void	fillEnd(GL2 gl, Texture texture, int parity, float ynormal)
+	// The mesh cache key for one combination of slices and y range.
+	private static final class Key
 	{
-		texture.enable(gl);
-		texture.bind(gl);
+		private final int		slices;
+		private final float	ymin;
+		private final float	ymax;
 
-		TextureCoords	coords = texture.getImageTexCoords();
-		float			cl = coords.left();
-		float			cr = coords.right();
-		float			cb = coords.bottom();
-		float			ct = coords.top();
+		public Key(int slices, float ymin, float ymax)
+		{
+			this.slices = slices;
+			this.ymin = ymin;
+			this.ymax = ymax;
+		}
 
-		//System.out.println(cl + " " + cr + " " + cb + " " + ct);
+		public boolean	equals(Object o)
+		{
+			if (!(o instanceof Key))
+				return false;
 
-		float			winv = cr - cl;
-		float			hinv = ct - cb;
+			Key	k = (Key)o;
 
-		gl.glBegin(GL2.GL_POLYGON);
+			return ((slices == k.slices) &&
+					(Float.compare(ymin, k.ymin) == 0) &&
+					(Float.compare(ymax, k.ymax) == 0));
+		}
 
-		for (int i=0; i<slices; i++)
+		public int	hashCode()
 		{
-			Quaternion	v = vertices[(i * 2) + parity];
-			float		cx = cl + 0.5f * (v.getX() + 1.0f) * winv;
-			float		cz = cb + 0.5f * (v.getZ() + 1.0f) * hinv;
-
-			gl.glTexCoord2f(cx, cz);
-			gl.glNormal3f(0.0f, ynormal, 0.0f);
-			gl.glVertex3f(v.getX(), v.getY(), v.getZ());
-		}
+			int	h = slices;
 
-		gl.glEnd();
+			h = 31 * h + Float.floatToIntBits(ymin);
+			h = 31 * h + Float.floatToIntBits(ymax);
 
-		texture.disable(gl);
+			return h;
+		}
 	}
 }
 
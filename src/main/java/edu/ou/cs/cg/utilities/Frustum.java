@@ -0,0 +1,81 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.math.FloatUtil;
+
+//******************************************************************************
+
+/**
+ * The <CODE>Frustum</CODE> class holds the six clipping planes of a camera's
+ * view volume in world coordinates, for quickly rejecting bounding boxes that
+ * can't possibly be seen.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class Frustum
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final float[]	planes;		// a, b, c, d for each of 6 planes
+	private final float[]	pv;			// Projection times view
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public Frustum()
+	{
+		planes = new float[24];
+		pv = new float[16];
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Extract the planes from (column-major) projection and view matrices.
+	public void	set(float[] projection, float[] view)
+	{
+		FloatUtil.multMatrix(projection, view, pv);
+
+		// Left, right, bottom, top, near, far: row 3 plus or minus rows 0-2
+		for (int i=0; i<6; i++)
+		{
+			int		row = i / 2;
+			float	sign = ((i % 2) == 0) ? 1.0f : -1.0f;
+
+			for (int j=0; j<4; j++)
+				planes[i * 4 + j] = pv[j * 4 + 3] + sign * pv[j * 4 + row];
+		}
+	}
+
+	// Could any part of the box (in world coordinates) be inside?
+	public boolean	intersects(Bounds b)
+	{
+		if (b.isEmpty())
+			return false;
+
+		for (int i=0; i<6; i++)
+		{
+			float	a = planes[i * 4 + 0];
+			float	c = planes[i * 4 + 1];
+			float	e = planes[i * 4 + 2];
+			float	d = planes[i * 4 + 3];
+
+			// Test the corner farthest along the plane's normal
+			float	x = ((a >= 0.0f) ? b.getMax(0) : b.getMin(0));
+			float	y = ((c >= 0.0f) ? b.getMax(1) : b.getMin(1));
+			float	z = ((e >= 0.0f) ? b.getMax(2) : b.getMin(2));
+
+			if (a * x + c * y + e * z + d < 0.0f)
+				return false;
+		}
+
+		return true;
+	}
+}
+
+//******************************************************************************
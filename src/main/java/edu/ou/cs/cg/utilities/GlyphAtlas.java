@@ -0,0 +1,657 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>GlyphAtlas</CODE> class holds the printable ASCII glyphs of a
+ * font as signed distance fields, packed into one alpha texture, along with
+ * the metrics needed to lay out strings with them.<P>
+ *
+ * Each texel stores the distance to the nearest glyph edge, mapped so that
+ * 0.5 is on the edge and larger is inside. Drawn with linear filtering and an
+ * alpha test at 0.5, the edges stay sharp however much the text is
+ * magnified, with no shaders needed.<P>
+ *
+ * Building an atlas rasterizes every glyph at a high resolution and runs a
+ * distance transform on it, so atlases are cached on disk under
+ * ~/.cardgraphics/cache and only built when there isn't one for the font.
+ * Layouts (glyph quads) of strings are cached too, so drawing the same text
+ * every frame does no layout work.<P>
+ *
+ * Layout units are pixels of the font at its own size, with the baseline at
+ * y = 0 and y increasing upward, the same as JOGL's TextRenderer.draw3D().<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class GlyphAtlas
+{
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	public static final char	FIRST = ' ';		// First glyph in the atlas
+	public static final char	LAST = '~';			// Last glyph in the atlas
+	public static final float	EDGE = 0.5f;		// Alpha at glyph edges
+
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int	FORMAT = 1;			// Cache file version
+	private static final int	MAGIC = 0x53444641;	// "SDFA"
+
+	private static final int	EM = 32;			// Atlas pixels per em
+	private static final int	SPREAD = 4;			// Atlas pixels of distance
+	private static final int	UPSAMPLE = 4;		// Raster pixels per atlas
+	private static final int	COLUMNS = 16;		// Glyph cells per row
+
+	private static final int	LAYOUTS = 1024;		// Most cached layouts
+
+	// Corner of a glyph quad for each vertex of its two triangles, as bits:
+	// 1 for x1 (else x0), 2 for y1 (else y0)
+	static final int[]			CORNERS = new int[] { 0, 1, 3, 0, 3, 2 };
+
+	private static final Map<String, GlyphAtlas>	ATLASES =
+		new HashMap<String, GlyphAtlas>();
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final float		size;		// Nominal font size, in pixels
+	private final int			width;		// Atlas size, in texels
+	private final int			height;
+	private final byte[]		alpha;		// Distance field, bottom row first
+
+	// For each glyph: advance, then quad x0, y0, x1, y1 in layout units,
+	// then texture coordinates s0, t0, s1, t1
+	private final float[]		metrics;
+
+	private final LinkedHashMap<String, Layout>	layouts;
+
+	private int				texture;	// Texture object, or 0 if none yet
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	private GlyphAtlas(float size, int width, int height, byte[] alpha,
+					   float[] metrics)
+	{
+		this.size = size;
+		this.width = width;
+		this.height = height;
+		this.alpha = alpha;
+		this.metrics = metrics;
+
+		this.layouts = new LinkedHashMap<String, Layout>(16, 0.75f, true)
+		{
+			protected boolean	removeEldestEntry(Map.Entry<String, Layout> e)
+			{
+				return (size() > LAYOUTS);
+			}
+		};
+
+		this.texture = 0;
+	}
+
+	//**********************************************************************
+	// Public Class Methods
+	//**********************************************************************
+
+	// Get the atlas for a font, loading it from the disk cache or building
+	// (and caching) it the first time it's asked for.
+	public static GlyphAtlas	get(Font font)
+	{
+		String		key = font.getFamily() + "-" + font.getStyle() + "-" +
+						  font.getSize();
+		GlyphAtlas	atlas = ATLASES.get(key);
+
+		if (atlas != null)
+			return atlas;
+
+		File	file = new File(getCacheDirectory(), "sdf-" +
+								key.replaceAll("[^A-Za-z0-9-]", "_") +
+								"-v" + FORMAT + ".bin");
+
+		atlas = read(file);
+
+		if (atlas == null)
+		{
+			atlas = build(font);
+			write(atlas, file);
+		}
+
+		ATLASES.put(key, atlas);
+
+		return atlas;
+	}
+
+	// Where built atlases are kept between runs.
+	public static File	getCacheDirectory()
+	{
+		return new File(System.getProperty("user.home"),
+						".cardgraphics" + File.separator + "cache");
+	}
+
+	// Delete the textures of every atlas.
+	public static void	disposeAll(GL2 gl)
+	{
+		for (GlyphAtlas atlas : ATLASES.values())
+			atlas.dispose(gl);
+	}
+
+	// Forget the textures of every atlas without deleting them, for when
+	// the GL context they lived in is already gone.
+	public static void	releaseAll()
+	{
+		for (GlyphAtlas atlas : ATLASES.values())
+			atlas.texture = 0;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public float	getSize()
+	{
+		return size;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// The glyph quads of a string, from the cache if it was laid out before.
+	public Layout	layout(String s)
+	{
+		Layout	layout = layouts.get(s);
+
+		if (layout == null)
+		{
+			layout = new Layout(s);
+			layouts.put(s, layout);
+		}
+
+		return layout;
+	}
+
+	// The glyph quads of a string, without caching them. For text that keeps
+	// changing, like text being typed, which would only push out layouts that
+	// will be used again.
+	public Layout	layoutUncached(String s)
+	{
+		return new Layout(s);
+	}
+
+	// Width of the first n characters of a string, in layout units, as in a
+	// layout of the whole string.
+	public float	getAdvance(String s, int n)
+	{
+		float	x = 0.0f;
+
+		for (int i=0; i<n; i++)
+			x += metrics[glyph(s.charAt(i)) * 9];
+
+		return x;
+	}
+
+	// Bind the atlas texture, uploading it first if needed, and set up
+	// texturing and the alpha test for drawing glyphs.
+	public void	begin(GL2 gl)
+	{
+		if (texture == 0)
+			upload(gl);
+
+		gl.glEnable(GL.GL_TEXTURE_2D);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		gl.glEnable(GL2.GL_ALPHA_TEST);
+		gl.glAlphaFunc(GL.GL_GEQUAL, EDGE);
+	}
+
+	// Undo begin().
+	public void	end(GL2 gl)
+	{
+		gl.glDisable(GL2.GL_ALPHA_TEST);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+		gl.glDisable(GL.GL_TEXTURE_2D);
+	}
+
+	// Draw a layout right away in immediate mode, at (x, y) and scaled, in
+	// the current modelview matrix and color.
+	public void	draw(GL2 gl, Layout layout, float x, float y, float scale)
+	{
+		float[]	q = layout.quads;
+
+		begin(gl);
+		gl.glBegin(GL.GL_TRIANGLES);
+
+		for (int i=0; i<layout.count; i++)
+		{
+			for (int j=0; j<6; j++)
+			{
+				int	c = CORNERS[j];
+				int	k = i * 8;
+
+				gl.glTexCoord2f(q[k + 4 + (c & 1) * 2], q[k + 5 + (c >> 1) * 2]);
+				gl.glVertex3f(x + scale * q[k + (c & 1) * 2],
+							  y + scale * q[k + 1 + (c >> 1) * 2], 0.0f);
+			}
+		}
+
+		gl.glEnd();
+		end(gl);
+	}
+
+	// Delete the texture. It will be uploaded again if drawn again.
+	public void	dispose(GL2 gl)
+	{
+		if (texture != 0)
+			gl.glDeleteTextures(1, new int[] { texture }, 0);
+
+		texture = 0;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	private void	upload(GL2 gl)
+	{
+		int[]	ids = new int[1];
+
+		gl.glGenTextures(1, ids, 0);
+		texture = ids[0];
+
+		gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER,
+						   GL.GL_LINEAR);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER,
+						   GL.GL_LINEAR);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S,
+						   GL.GL_CLAMP_TO_EDGE);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T,
+						   GL.GL_CLAMP_TO_EDGE);
+
+		gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 1);
+		gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_ALPHA8, width, height, 0,
+						GL.GL_ALPHA, GL.GL_UNSIGNED_BYTE,
+						Buffers.newDirectByteBuffer(alpha));
+		gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 4);
+
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+	}
+
+	// Index of a character's glyph, using '?' for anything not in the atlas.
+	private static int	glyph(char c)
+	{
+		if (c == '\t')
+			c = ' ';
+
+		if ((c < FIRST) || (c > LAST))
+			c = '?';
+
+		return c - FIRST;
+	}
+
+	//**********************************************************************
+	// Private Class Methods (Building)
+	//**********************************************************************
+
+	private static GlyphAtlas	build(Font font)
+	{
+		int				n = LAST - FIRST + 1;
+		int				spread = SPREAD * UPSAMPLE;	// In raster pixels
+		Font				big = font.deriveFont((float)(EM * UPSAMPLE));
+		FontRenderContext	frc = new FontRenderContext(null, true, true);
+		GlyphVector[]		gvs = new GlyphVector[n];
+		Rectangle[]		boxes = new Rectangle[n];
+		int				cw = 1;
+		int				ch = 1;
+
+		// Size the cells to hold the biggest glyph plus the spread
+		for (int i=0; i<n; i++)
+		{
+			gvs[i] = big.createGlyphVector(frc, String.valueOf((char)(FIRST + i)));
+			boxes[i] = gvs[i].getPixelBounds(frc, 0.0f, 0.0f);
+
+			cw = Math.max(cw, cells(boxes[i].width + 2 * spread));
+			ch = Math.max(ch, cells(boxes[i].height + 2 * spread));
+		}
+
+		int		rows = (n + COLUMNS - 1) / COLUMNS;
+		int		width = COLUMNS * cw;
+		int		height = rows * ch;
+		byte[]		alpha = new byte[width * height];
+		float[]	metrics = new float[n * 9];
+		float		f = (float)font.getSize() / EM;		// Layout per atlas px
+
+		for (int i=0; i<n; i++)
+		{
+			Rectangle	box = boxes[i];
+			int		ow = cells(box.width + 2 * spread);	// Atlas pixels
+			int		oh = cells(box.height + 2 * spread);
+			int		cx = (i % COLUMNS) * cw;
+			int		cy = (i / COLUMNS) * ch;
+
+			float[]	sdf = distanceField(gvs[i], box, ow * UPSAMPLE,
+											oh * UPSAMPLE, spread);
+
+			// Sample the raster at the center of each atlas texel, flipping
+			// so that the bottom row comes first
+			for (int y=0; y<oh; y++)
+			{
+				for (int x=0; x<ow; x++)
+				{
+					int	rx = x * UPSAMPLE + UPSAMPLE / 2;
+					int	ry = y * UPSAMPLE + UPSAMPLE / 2;
+					float	d = sdf[ry * ow * UPSAMPLE + rx];
+					float	a = EDGE + 0.5f * d / spread;
+					int	v = Math.round(255.0f * Math.max(0.0f, Math.min(1.0f, a)));
+
+					alpha[(cy + oh - 1 - y) * width + cx + x] = (byte)v;
+				}
+			}
+
+			float	left = (float)(box.x - spread) / UPSAMPLE;
+			float	top = (float)(-box.y + spread) / UPSAMPLE;
+			int	k = i * 9;
+
+			metrics[k + 0] = gvs[i].getGlyphMetrics(0).getAdvanceX() / UPSAMPLE * f;
+			metrics[k + 1] = left * f;
+			metrics[k + 2] = (top - oh) * f;
+			metrics[k + 3] = (left + ow) * f;
+			metrics[k + 4] = top * f;
+			metrics[k + 5] = (float)cx / width;
+			metrics[k + 6] = (float)cy / height;
+			metrics[k + 7] = (float)(cx + ow) / width;
+			metrics[k + 8] = (float)(cy + oh) / height;
+		}
+
+		return new GlyphAtlas(font.getSize(), width, height, alpha, metrics);
+	}
+
+	// Atlas pixels needed to hold a span of raster pixels.
+	private static int	cells(int raster)
+	{
+		return (raster + UPSAMPLE - 1) / UPSAMPLE;
+	}
+
+	// Rasterize a glyph and return the signed distance (positive inside) of
+	// every raster pixel to the glyph's edge, in raster pixels.
+	private static float[]	distanceField(GlyphVector gv, Rectangle box,
+											  int w, int h, int spread)
+	{
+		BufferedImage	image = new BufferedImage(w, h,
+												  BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D		g = image.createGraphics();
+
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+						   RenderingHints.VALUE_ANTIALIAS_ON);
+		g.drawGlyphVector(gv, -box.x + spread, -box.y + spread);
+		g.dispose();
+
+		byte[]		raster = new byte[w * h];
+
+		image.getRaster().getDataElements(0, 0, w, h, raster);
+
+		boolean[]	inside = new boolean[w * h];
+
+		for (int i=0; i<w*h; i++)
+			inside[i] = ((raster[i] & 0xFF) >= 128);
+
+		float[]	toInside = edt(inside, true, w, h);
+		float[]	toOutside = edt(inside, false, w, h);
+		float[]	sdf = new float[w * h];
+
+		for (int i=0; i<w*h; i++)
+			sdf[i] = toOutside[i] - toInside[i];
+
+		return sdf;
+	}
+
+	// Distance from each pixel to the nearest pixel whose inside flag is
+	// target, by 8-point sequential Euclidean distance transform (8SSEDT).
+	private static float[]	edt(boolean[] inside, boolean target, int w, int h)
+	{
+		int	far = w + h;
+		int[]	dx = new int[w * h];
+		int[]	dy = new int[w * h];
+
+		for (int i=0; i<w*h; i++)
+		{
+			dx[i] = ((inside[i] == target) ? 0 : far);
+			dy[i] = ((inside[i] == target) ? 0 : far);
+		}
+
+		// Forward pass, then backward pass
+		for (int y=0; y<h; y++)
+		{
+			for (int x=0; x<w; x++)
+			{
+				closer(dx, dy, w, h, x, y, -1, 0);
+				closer(dx, dy, w, h, x, y, 0, -1);
+				closer(dx, dy, w, h, x, y, -1, -1);
+				closer(dx, dy, w, h, x, y, 1, -1);
+			}
+
+			for (int x=w-1; x>=0; x--)
+				closer(dx, dy, w, h, x, y, 1, 0);
+		}
+
+		for (int y=h-1; y>=0; y--)
+		{
+			for (int x=w-1; x>=0; x--)
+			{
+				closer(dx, dy, w, h, x, y, 1, 0);
+				closer(dx, dy, w, h, x, y, 0, 1);
+				closer(dx, dy, w, h, x, y, -1, 1);
+				closer(dx, dy, w, h, x, y, 1, 1);
+			}
+
+			for (int x=0; x<w; x++)
+				closer(dx, dy, w, h, x, y, -1, 0);
+		}
+
+		float[]	d = new float[w * h];
+
+		for (int i=0; i<w*h; i++)
+			d[i] = (float)Math.sqrt((double)dx[i] * dx[i] + (double)dy[i] * dy[i]);
+
+		return d;
+	}
+
+	// Take the neighbor's nearest point if it's closer to (x, y).
+	private static void	closer(int[] dx, int[] dy, int w, int h,
+								   int x, int y, int ox, int oy)
+	{
+		int	nx = x + ox;
+		int	ny = y + oy;
+
+		if ((nx < 0) || (nx >= w) || (ny < 0) || (ny >= h))
+			return;
+
+		int	i = y * w + x;
+		int	j = ny * w + nx;
+		int	cx = dx[j] + ox;
+		int	cy = dy[j] + oy;
+
+		if ((long)cx * cx + (long)cy * cy <
+			(long)dx[i] * dx[i] + (long)dy[i] * dy[i])
+		{
+			dx[i] = cx;
+			dy[i] = cy;
+		}
+	}
+
+	//**********************************************************************
+	// Private Class Methods (Disk Cache)
+	//**********************************************************************
+
+	private static GlyphAtlas	read(File file)
+	{
+		if (!file.isFile())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+								  new FileInputStream(file))))
+		{
+			if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT))
+				return null;
+
+			float		size = in.readFloat();
+			int		width = in.readInt();
+			int		height = in.readInt();
+			float[]	metrics = new float[in.readInt()];
+
+			for (int i=0; i<metrics.length; i++)
+				metrics[i] = in.readFloat();
+
+			byte[]		alpha = new byte[width * height];
+
+			in.readFully(alpha);
+
+			return new GlyphAtlas(size, width, height, alpha, metrics);
+		}
+		catch (IOException ex)
+		{
+			System.err.println("Couldn't read glyph atlas " + file + ": " + ex);
+			return null;
+		}
+	}
+
+	// Write to a temporary file and move it into place, so that a partly
+	// written atlas is never read.
+	private static void	write(GlyphAtlas atlas, File file)
+	{
+		File	dir = file.getParentFile();
+
+		try
+		{
+			Files.createDirectories(dir.toPath());
+
+			File	tmp = File.createTempFile("sdf", ".tmp", dir);
+
+			try (DataOutputStream out = new DataOutputStream(
+									   new BufferedOutputStream(
+									   new FileOutputStream(tmp))))
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT);
+				out.writeFloat(atlas.size);
+				out.writeInt(atlas.width);
+				out.writeInt(atlas.height);
+				out.writeInt(atlas.metrics.length);
+
+				for (float m : atlas.metrics)
+					out.writeFloat(m);
+
+				out.write(atlas.alpha);
+			}
+
+			Files.move(tmp.toPath(), file.toPath(),
+					   StandardCopyOption.REPLACE_EXISTING,
+					   StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException ex)
+		{
+			System.err.println("Couldn't cache glyph atlas " + file + ": " + ex);
+		}
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	/**
+	 * The glyph quads of one string. For each glyph: x0, y0, x1, y1 in layout
+	 * units, then s0, t0, s1, t1. Spaces get no quad.
+	 */
+	public final class Layout
+	{
+		private final float[]	quads;
+		private final int		count;		// Glyphs with quads
+		private final float	advance;	// Width of the whole string
+
+		private Layout(String s)
+		{
+			float[]	q = new float[s.length() * 8];
+			float		x = 0.0f;
+			int		n = 0;
+
+			for (int i=0; i<s.length(); i++)
+			{
+				int	k = glyph(s.charAt(i)) * 9;
+
+				if (s.charAt(i) > ' ')
+				{
+					q[n * 8 + 0] = x + metrics[k + 1];
+					q[n * 8 + 1] = metrics[k + 2];
+					q[n * 8 + 2] = x + metrics[k + 3];
+					q[n * 8 + 3] = metrics[k + 4];
+					q[n * 8 + 4] = metrics[k + 5];
+					q[n * 8 + 5] = metrics[k + 6];
+					q[n * 8 + 6] = metrics[k + 7];
+					q[n * 8 + 7] = metrics[k + 8];
+					n++;
+				}
+
+				x += metrics[k + 0];
+			}
+
+			this.quads = q;
+			this.count = n;
+			this.advance = x;
+		}
+
+		public GlyphAtlas	getAtlas()
+		{
+			return GlyphAtlas.this;
+		}
+
+		public int	getGlyphCount()
+		{
+			return count;
+		}
+
+		public float	getAdvance()
+		{
+			return advance;
+		}
+
+		// The glyph quads. Don't modify it!
+		public float[]	getQuads()
+		{
+			return quads;
+		}
+	}
+}
+
+//******************************************************************************
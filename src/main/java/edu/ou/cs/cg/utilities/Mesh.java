@@ -0,0 +1,276 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.fixedfunc.GLPointerFunc;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureCoords;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+//******************************************************************************
+
+/**
+ * The <CODE>Mesh</CODE> class holds a mesh as one packed, interleaved array
+ * of vertex data plus an array of indices into it, and the buffer objects
+ * they get uploaded into the first time the mesh is drawn.<P>
+ *
+ * Each vertex is STRIDE floats laid out as GL_T2F_N3F_V3F: a unit texture
+ * coordinate (s, t in [0, 1], t increasing upward), a normal, and a point.
+ * Unit texture coordinates are mapped onto the image part of a texture with
+ * the texture matrix (see bindTexture()), so the same mesh works for every
+ * texture.<P>
+ *
+ * The indices are divided into groups, e.g. the faces of a cube, each drawn
+ * as GL_TRIANGLES or GL_LINES with one glDrawElements() call instead of
+ * sending every vertex attribute through immediate mode. Both arrays are
+ * copied into direct buffers once, so uploading them never repacks.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class Mesh
+{
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	public static final int	STRIDE = 8;		// Floats per vertex
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final float[]		data;		// Interleaved vertex data
+	private final int[]		indices;	// Vertex indices of all groups
+	private final int[]		modes;		// Primitive type of each group
+	private final int[]		firsts;		// First index of each group
+	private final int[]		counts;		// Index count of each group
+
+	private final float[][]	centers;	// Center of each group, if known
+
+	private final FloatBuffer	dataBuffer;		// Direct copy of data
+	private final IntBuffer	indexBuffer;	// Direct copy of indices
+
+	private int				vbo;		// Vertex buffer, or 0 if none yet
+	private int				ibo;		// Index buffer, or 0 if none yet
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public Mesh(float[] data, int[] indices,
+				int[] modes, int[] firsts, int[] counts)
+	{
+		this.data = data;
+		this.indices = indices;
+		this.modes = modes;
+		this.firsts = firsts;
+		this.counts = counts;
+
+		this.centers = new float[modes.length][];
+
+		this.dataBuffer = Buffers.newDirectFloatBuffer(data);
+		this.indexBuffer = Buffers.newDirectIntBuffer(indices);
+
+		this.vbo = 0;
+		this.ibo = 0;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public int	getGroupCount()
+	{
+		return modes.length;
+	}
+
+	public int	getVertexCount()
+	{
+		return data.length / STRIDE;
+	}
+
+	// The interleaved vertex data. Don't modify it!
+	public float[]	getData()
+	{
+		return data;
+	}
+
+	// The vertex indices of all groups. Don't modify it!
+	public int[]	getIndices()
+	{
+		return indices;
+	}
+
+	public int	getMode(int group)
+	{
+		return modes[group];
+	}
+
+	public int	getFirst(int group)
+	{
+		return firsts[group];
+	}
+
+	public int	getCount(int group)
+	{
+		return counts[group];
+	}
+
+	// The average of the points used by a group. Don't modify it!
+	public float[]	getCenter(int group)
+	{
+		if (centers[group] == null)
+		{
+			float[]	c = new float[3];
+
+			for (int i=firsts[group]; i<firsts[group]+counts[group]; i++)
+				for (int j=0; j<3; j++)
+					c[j] += data[indices[i] * STRIDE + 5 + j];
+
+			for (int j=0; j<3; j++)
+				c[j] /= Math.max(counts[group], 1);
+
+			centers[group] = c;
+		}
+
+		return centers[group];
+	}
+
+	//**********************************************************************
+	// Public Methods (Drawing)
+	//**********************************************************************
+
+	// Draw one group on its own. To draw several groups of the same mesh in a
+	// row, call begin() once, draw() for each, then end().
+	public void	drawGroup(GL2 gl, int group)
+	{
+		begin(gl);
+		draw(gl, group);
+		end(gl);
+	}
+
+	// Bind the buffer objects (uploading them if needed) and set pointers.
+	public void	begin(GL2 gl)
+	{
+		if (vbo == 0)
+			upload(gl);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, ibo);
+		gl.glInterleavedArrays(GL2.GL_T2F_N3F_V3F, 0, 0L);
+	}
+
+	public void	draw(GL2 gl, int group)
+	{
+		gl.glDrawElements(modes[group], counts[group], GL.GL_UNSIGNED_INT,
+						  (long)firsts[group] * Buffers.SIZEOF_INT);
+	}
+
+	// Undo begin(). Leaving the arrays enabled would confuse other code that
+	// draws with vertex arrays, such as JOGL's TextRenderer.
+	public void	end(GL2 gl)
+	{
+		gl.glDisableClientState(GLPointerFunc.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	//**********************************************************************
+	// Public Methods (Buffer Management)
+	//**********************************************************************
+
+	// Delete the buffer objects. They will be uploaded again if drawn again.
+	public void	dispose(GL2 gl)
+	{
+		if (vbo != 0)
+			gl.glDeleteBuffers(2, new int[] { vbo, ibo }, 0);
+
+		release();
+	}
+
+	// Forget the buffer objects without deleting them, for when the GL
+	// context they lived in is already gone.
+	public void	release()
+	{
+		vbo = 0;
+		ibo = 0;
+	}
+
+	//**********************************************************************
+	// Public Class Methods (Texturing)
+	//**********************************************************************
+
+	// Enable and bind the texture, and point the texture matrix at the image
+	// part of it so that unit texture coordinates line up with the image.
+	public static void	bindTexture(GL2 gl, Texture texture)
+	{
+		TextureManager.touch(texture);
+
+		texture.enable(gl);
+		texture.bind(gl);
+
+		TextureCoords	coords = texture.getImageTexCoords();
+		float			cl = coords.left();
+		float			cr = coords.right();
+		float			cb = coords.bottom();
+		float			ct = coords.top();
+
+		if ((cl == 0.0f) && (cr == 1.0f) && (cb == 0.0f) && (ct == 1.0f))
+			return;
+
+		gl.glMatrixMode(GL.GL_TEXTURE);
+		gl.glLoadIdentity();
+		gl.glTranslatef(cl, cb, 0.0f);
+		gl.glScalef(cr - cl, ct - cb, 1.0f);
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+	}
+
+	// Undo bindTexture().
+	public static void	unbindTexture(GL2 gl, Texture texture)
+	{
+		TextureCoords	coords = texture.getImageTexCoords();
+
+		if ((coords.left() != 0.0f) || (coords.right() != 1.0f) ||
+			(coords.bottom() != 0.0f) || (coords.top() != 1.0f))
+		{
+			gl.glMatrixMode(GL.GL_TEXTURE);
+			gl.glLoadIdentity();
+			gl.glMatrixMode(GL2.GL_MODELVIEW);
+		}
+
+		texture.disable(gl);
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	private void	upload(GL2 gl)
+	{
+		int[]	ids = new int[2];
+
+		gl.glGenBuffers(2, ids, 0);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, ids[0]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER,
+						(long)data.length * Buffers.SIZEOF_FLOAT,
+						dataBuffer, GL.GL_STATIC_DRAW);
+
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, ids[1]);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER,
+						(long)indices.length * Buffers.SIZEOF_INT,
+						indexBuffer, GL.GL_STATIC_DRAW);
+
+		vbo = ids[0];
+		ibo = ids[1];
+	}
+}
+
+//******************************************************************************
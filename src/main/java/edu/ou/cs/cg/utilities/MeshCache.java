@@ -0,0 +1,70 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//******************************************************************************
+
+/**
+ * The <CODE>MeshCache</CODE> class keeps one shared Mesh per unique set of
+ * mesh parameters, e.g. one for the unit cube and one for each combination
+ * of cylinder slices and y range, so that each is only built and uploaded
+ * once no matter how many nodes draw it.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class MeshCache
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final Map<Object, Mesh>	MESHES = new HashMap<Object, Mesh>();
+
+	//**********************************************************************
+	// Public Class Methods
+	//**********************************************************************
+
+	// Get the mesh for the key, building it the first time it's asked for.
+	// Keys can be any value with equals() and hashCode().
+	public static Mesh	get(Object key, Supplier<Mesh> builder)
+	{
+		Mesh	mesh = MESHES.get(key);
+
+		if (mesh == null)
+		{
+			mesh = builder.get();
+			MESHES.put(key, mesh);
+		}
+
+		return mesh;
+	}
+
+	// Delete the buffer objects of every cached mesh. Call when disposing the
+	// GL context that they were uploaded into.
+	public static void	dispose(GL2 gl)
+	{
+		for (Mesh mesh : MESHES.values())
+			mesh.dispose(gl);
+	}
+
+	// Forget the buffer objects of every cached mesh without deleting them.
+	// Call when (re)initializing a GL context, since any old buffer objects
+	// went away with the old context.
+	public static void	release()
+	{
+		for (Mesh mesh : MESHES.values())
+			mesh.release();
+
+		Cube.forgetMesh();
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,448 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureData;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+//******************************************************************************
+
+/**
+ * The <CODE>MipCache</CODE> class reads a file of images that have already
+ * been decoded, premultiplied by alpha, and reduced into full mipmap chains,
+ * so that textures can be made from them with no image decoding at all.<P>
+ *
+ * The file is memory-mapped, and each texture's levels are uploaded straight
+ * from slices of the mapping. Textures are filtered with
+ * GL_LINEAR_MIPMAP_LINEAR and clamped to their edges. Since the colors are
+ * premultiplied, they blend correctly with glBlendFunc(GL_ONE,
+ * GL_ONE_MINUS_SRC_ALPHA), and reducing them doesn't bleed the color of
+ * clear texels into their neighbors.<P>
+ *
+ * The file is written at build time by main(), with the directories of images
+ * and the file to write as arguments. It starts with a header giving the
+ * name, size, number of levels, and offset of every image; the levels follow,
+ * each as RGBA bytes with the bottom row first, the order GL wants them.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class MipCache
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int	FORMAT = 1;			// Cache file version
+	private static final int	MAGIC = 0x4D495043;	// "MIPC"
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final MappedByteBuffer		map;
+	private final Map<String, Entry>	entries;	// By image file name
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	private MipCache(MappedByteBuffer map, Map<String, Entry> entries)
+	{
+		this.map = map;
+		this.entries = entries;
+	}
+
+	//**********************************************************************
+	// Public Class Methods
+	//**********************************************************************
+
+	// Map a cache file, or return null if there isn't one or it can't be
+	// read.
+	public static MipCache	open(File file)
+	{
+		if (!file.isFile())
+			return null;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+			 FileChannel channel = raf.getChannel())
+		{
+			// The mapping stays valid after the channel is closed
+			MappedByteBuffer	map = channel.map(FileChannel.MapMode.READ_ONLY,
+												  0L, channel.size());
+
+			if ((map.getInt() != MAGIC) || (map.getInt() != FORMAT))
+				return null;
+
+			int					count = map.getInt();
+			Map<String, Entry>	entries = new HashMap<String, Entry>();
+
+			for (int i=0; i<count; i++)
+			{
+				byte[]	name = new byte[map.getShort() & 0xFFFF];
+
+				map.get(name);
+
+				Entry	e = new Entry();
+
+				e.width = map.getInt();
+				e.height = map.getInt();
+				e.levels = map.getInt();
+				e.offset = map.getLong();
+
+				for (int l=0; l<e.levels; l++)
+					e.bytes += levelWidth(e.width, l) *
+							   levelWidth(e.height, l) * 4L;
+
+				entries.put(new String(name, StandardCharsets.UTF_8), e);
+			}
+
+			return new MipCache(map, entries);
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			System.err.println("Couldn't read texture cache " + file + ": " +
+							   ex);
+			return null;
+		}
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	public boolean	contains(String name)
+	{
+		return entries.containsKey(name);
+	}
+
+	public int	getCount()
+	{
+		return entries.size();
+	}
+
+	// Make a texture from the named image's levels, or return null if the
+	// image isn't in the cache.
+	public Texture	newTexture(GL2 gl, String name)
+	{
+		Entry	e = entries.get(name);
+
+		if (e == null)
+			return null;
+
+		Texture	texture = new Texture(gl, getData(gl, e));
+
+		setParameters(gl, texture);
+
+		return texture;
+	}
+
+	// Replace an existing texture's image with the named image's levels.
+	// Returns the bytes uploaded, or -1 if the image isn't in the cache.
+	public long	update(GL2 gl, String name, Texture texture)
+	{
+		Entry	e = entries.get(name);
+
+		if (e == null)
+			return -1L;
+
+		texture.updateImage(gl, getData(gl, e));
+		setParameters(gl, texture);
+
+		return e.bytes;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Slice each level of the entry out of the mapping.
+	private TextureData	getData(GL2 gl, Entry e)
+	{
+		Buffer[]	levels = new Buffer[e.levels];
+		long		offset = e.offset;
+
+		for (int i=0; i<e.levels; i++)
+		{
+			int	bytes = levelWidth(e.width, i) * levelWidth(e.height, i) * 4;
+
+			ByteBuffer	level = map.duplicate();
+
+			level.position((int)offset);
+			level.limit((int)offset + bytes);
+			levels[i] = level.slice();
+
+			offset += bytes;
+		}
+
+		return new TextureData(gl.getGLProfile(), GL.GL_RGBA, e.width,
+							   e.height, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE,
+							   false, false, levels, null);
+	}
+
+	//**********************************************************************
+	// Main
+	//**********************************************************************
+
+	// Bake every image in some directories into a cache file.
+	// Usage: MipCache <image directory>... <cache file>
+	public static void	main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: MipCache <image directory>... " +
+							   "<cache file>");
+			System.exit(1);
+		}
+
+		File				file = new File(args[args.length - 1]);
+		ArrayList<File>	list = new ArrayList<File>();
+
+		for (int i=0; i<args.length-1; i++)
+		{
+			File[]	found = new File(args[i]).listFiles();
+
+			if (found == null)
+				throw new IOException("Not a directory: " + args[i]);
+
+			Arrays.sort(found);
+			list.addAll(Arrays.asList(found));
+		}
+
+		ArrayList<String>	names = new ArrayList<String>();
+		ArrayList<int[][]>	chains = new ArrayList<int[][]>();
+		ArrayList<int[]>	sizes = new ArrayList<int[]>();
+
+		for (File f : list)
+		{
+			String	suffix = f.getName().toLowerCase(Locale.ROOT);
+
+			if (!suffix.endsWith(".png") && !suffix.endsWith(".jpg"))
+				continue;
+
+			BufferedImage	image = ImageIO.read(f);
+
+			if (image == null)
+				throw new IOException("Couldn't decode " + f);
+
+			names.add(f.getName());
+			sizes.add(new int[] { image.getWidth(), image.getHeight() });
+			chains.add(reduce(premultiply(image), image.getWidth(),
+							  image.getHeight()));
+		}
+
+		write(file, names, sizes, chains);
+
+		System.out.println("Baked " + names.size() + " textures into " +
+						   file + " (" + file.length() + " bytes)");
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	private static int	levelWidth(int size, int level)
+	{
+		return Math.max(size >> level, 1);
+	}
+
+	private static int	countLevels(int width, int height)
+	{
+		int	levels = 1;
+
+		while ((width > 1) || (height > 1))
+		{
+			width = Math.max(width >> 1, 1);
+			height = Math.max(height >> 1, 1);
+			levels++;
+		}
+
+		return levels;
+	}
+
+	private static void	setParameters(GL2 gl, Texture texture)
+	{
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_MIN_FILTER,
+								 GL.GL_LINEAR_MIPMAP_LINEAR);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_WRAP_S,
+								 GL.GL_CLAMP_TO_EDGE);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_WRAP_T,
+								 GL.GL_CLAMP_TO_EDGE);
+	}
+
+	// Premultiplied ARGB pixels, bottom row first.
+	private static int[]	premultiply(BufferedImage image)
+	{
+		int	w = image.getWidth();
+		int	h = image.getHeight();
+		int[]	argb = image.getRGB(0, 0, w, h, null, 0, w);
+		int[]	p = new int[w * h];
+
+		for (int y=0; y<h; y++)
+		{
+			for (int x=0; x<w; x++)
+			{
+				int	c = argb[y * w + x];
+				int	a = c >>> 24;
+				int	r = ((c >> 16 & 0xFF) * a + 127) / 255;
+				int	g = ((c >> 8 & 0xFF) * a + 127) / 255;
+				int	b = ((c & 0xFF) * a + 127) / 255;
+
+				p[(h - 1 - y) * w + x] = (a << 24) | (r << 16) | (g << 8) | b;
+			}
+		}
+
+		return p;
+	}
+
+	// The full chain of levels, each a 2x2 box filter of the one before.
+	private static int[][]	reduce(int[] base, int width, int height)
+	{
+		int[][]	chain = new int[countLevels(width, height)][];
+
+		chain[0] = base;
+
+		for (int l=1; l<chain.length; l++)
+		{
+			int	sw = levelWidth(width, l - 1);
+			int	sh = levelWidth(height, l - 1);
+			int	dw = levelWidth(width, l);
+			int	dh = levelWidth(height, l);
+			int[]	src = chain[l - 1];
+			int[]	dst = new int[dw * dh];
+
+			for (int y=0; y<dh; y++)
+			{
+				int	y0 = Math.min(y * 2, sh - 1);
+				int	y1 = Math.min(y * 2 + 1, sh - 1);
+
+				for (int x=0; x<dw; x++)
+				{
+					int	x0 = Math.min(x * 2, sw - 1);
+					int	x1 = Math.min(x * 2 + 1, sw - 1);
+
+					dst[y * dw + x] = average(src[y0 * sw + x0],
+											  src[y0 * sw + x1],
+											  src[y1 * sw + x0],
+											  src[y1 * sw + x1]);
+				}
+			}
+
+			chain[l] = dst;
+		}
+
+		return chain;
+	}
+
+	private static int	average(int c0, int c1, int c2, int c3)
+	{
+		int	c = 0;
+
+		for (int shift=0; shift<32; shift+=8)
+		{
+			int	sum = (c0 >>> shift & 0xFF) + (c1 >>> shift & 0xFF) +
+					  (c2 >>> shift & 0xFF) + (c3 >>> shift & 0xFF);
+
+			c |= ((sum + 2) >> 2) << shift;
+		}
+
+		return c;
+	}
+
+	private static void	write(File file, ArrayList<String> names,
+								ArrayList<int[]> sizes,
+								ArrayList<int[][]> chains) throws IOException
+	{
+		File	dir = file.getAbsoluteFile().getParentFile();
+
+		Files.createDirectories(dir.toPath());
+
+		// The levels start after the header, at a multiple of 4 bytes
+		long	header = 12;
+
+		for (String name : names)
+			header += 2 + name.getBytes(StandardCharsets.UTF_8).length + 20;
+
+		long	offset = (header + 3) & ~3L;
+		File	tmp = File.createTempFile("mip", ".tmp", dir);
+
+		try (DataOutputStream out = new DataOutputStream(
+								   new BufferedOutputStream(
+								   new FileOutputStream(tmp))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeInt(names.size());
+
+			for (int i=0; i<names.size(); i++)
+			{
+				byte[]	name = names.get(i).getBytes(StandardCharsets.UTF_8);
+
+				out.writeShort(name.length);
+				out.write(name);
+				out.writeInt(sizes.get(i)[0]);
+				out.writeInt(sizes.get(i)[1]);
+				out.writeInt(chains.get(i).length);
+				out.writeLong(offset);
+
+				for (int[] level : chains.get(i))
+					offset += level.length * 4L;
+			}
+
+			for (long pad=header; pad<((header + 3) & ~3L); pad++)
+				out.writeByte(0);
+
+			for (int[][] chain : chains)
+				for (int[] level : chain)
+					for (int c : level)
+					{
+						out.writeByte(c >>> 16);
+						out.writeByte(c >>> 8);
+						out.writeByte(c);
+						out.writeByte(c >>> 24);
+					}
+		}
+
+		Files.move(tmp.toPath(), file.toPath(),
+				   StandardCopyOption.REPLACE_EXISTING,
+				   StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	private static final class Entry
+	{
+		private int		width;
+		private int		height;
+		private int		levels;
+		private long	offset;		// Of the first level, from file start
+		private long	bytes;		// Of all levels
+	}
+}
+
+//******************************************************************************
@@ -23,6 +23,7 @@ package edu.ou.cs.cg.utilities;
 //import java.lang.*;
 
 import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.math.FloatUtil;
 import com.jogamp.opengl.util.texture.Texture;
 import edu.ou.cs.cg.utilities.Lighting;
 
@@ -45,16 +46,68 @@ import java.util.List;
  */
 public class Node
 {
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	// Node whose render() is currently running, i.e. the parent of any node
+	// rendered next. Rendering only ever happens on the GL thread.
+	private static Node			current;
+
+	// World matrix of nodes drawn outside of any render()
+	private static final float[]	IDENTITY =
+		FloatUtil.makeIdentity(new float[16]);
+
+	// Camera view volume to cull against, or null to draw everything
+	private static Frustum			frustum;
+
+	// Static subtree baking state, while rendering
+	private static RenderQueue		capture;	// Collects items to bake
+	private static boolean			baking;		// Capturing a subtree?
+	private static boolean			skipDepict;	// In a baked subtree?
+	private static boolean			leftOut;	// Met a dynamic node?
+
+	// Matrix cache and culling statistics for the current frame
+	private static int				recomputed;
+	private static int				reused;
+	private static int				culled;
+
 	//**********************************************************************
 	// Private Members
 	//**********************************************************************
 
 	// Scene graph structure
 	private final List<Node>		nodes;	// Children in scene graph
+	private Node					parent;	// Node this was added to
 
 	// Transformation parameters
 	private final Deque<Transform>	xforms;	// Transform sequence
 
+	// Cached matrices (column-major, as glMultMatrixf expects)
+	private final float[]			local;	// Composed transform sequence
+	private final float[]			world;	// Parent's world times local
+	private boolean				dirty;	// Local needs recomposing?
+	private int					version;	// Bumped when world changes
+	private Node					worldParent;	// Parent world was from
+	private int					worldParentVersion;
+
+	// Bounding volumes
+	private Bounds					bounds;	// Own geometry, before local
+	private final Bounds			subtree;	// Own and children's, ditto
+	private boolean				boundsDirty;	// Subtree needs updating?
+	private int					subtreeVersion;	// Bumped when it is
+	private final Bounds			worldBounds;	// Subtree in world coords
+	private int					worldBoundsVersion;	// version it's for
+	private int					worldBoundsSubtree;	// subtreeVersion, ditto
+
+	// Static geometry baking
+	private boolean				isStatic;	// Bake this subtree?
+	private boolean				dynamic;	// Leave out of any bake?
+	private boolean				bakeDirty;	// Subtree changed since baked?
+	private int					contentVersion;	// Bumped when it changes
+	private StaticBatch			bake;		// Baked subtree, if static
+	private boolean				bakeDynamic;	// Bake left out any nodes?
+
 	// Textures (reference copied from View)
 	protected Texture[]				textures;
 
@@ -72,6 +125,28 @@ public class Node
 
 		this.nodes = new ArrayList<Node>();
 		this.xforms = new ArrayDeque<Transform>();
+
+		this.local = FloatUtil.makeIdentity(new float[16]);
+		this.world = FloatUtil.makeIdentity(new float[16]);
+		this.dirty = false;
+		this.version = 0;
+		this.worldParent = null;
+		this.worldParentVersion = -1;
+
+		this.bounds = null;
+		this.subtree = new Bounds();
+		this.boundsDirty = false;
+		this.subtreeVersion = 0;
+		this.worldBounds = new Bounds();
+		this.worldBoundsVersion = -1;
+		this.worldBoundsSubtree = -1;
+
+		this.isStatic = false;
+		this.dynamic = false;
+		this.bakeDirty = false;
+		this.contentVersion = 0;
+		this.bake = null;
+		this.bakeDynamic = false;
 	}
 
 	public Node(Texture[] textures)
@@ -93,16 +168,142 @@ public class Node
 	// Getters and Setters
 	//**********************************************************************
 
-	// Add a transform to the end of the transform list.
+	// Add a transform to the end of the transform list. If it can be folded
+	// into the transform currently at the end (e.g. two translations), the
+	// two are replaced by one, so repeatedly pushing small increments keeps
+	// the list from growing. Slots are never folded.
 	public void		pushTransform(Transform t)
 	{
+		Transform	last = xforms.peek();
+
+		if ((last != null) && !last.isSlot() && !t.isSlot())
+		{
+			Transform	folded = last.fold(t);
+
+			if (folded != null)
+			{
+				xforms.pop();
+				t = folded;
+			}
+		}
+
+		xforms.push(t);
+		invalidate();
+	}
+
+	// Add a transform as an animatable slot and return it. Update the slot
+	// in place (e.g. with Transform.Translate.set()) rather than pushing a
+	// new transform every frame. A slot belongs to exactly one node.
+	public <T extends Transform> T	pushSlot(T t)
+	{
+		if ((t.owner != null) && (t.owner != this))
+			throw new IllegalArgumentException("Slot already in use");
+
+		t.owner = this;
 		xforms.push(t);
+		invalidate();
+
+		return t;
 	}
 
 	// Remove and return the transform from the end of the transform list.
 	public Transform	popTransform()
 	{
-		return xforms.pop();
+		Transform	t = xforms.pop();
+
+		if (t.owner == this)
+			t.owner = null;
+
+		invalidate();
+
+		return t;
+	}
+
+	// Number of transforms in the transform list.
+	public final int	getTransformCount()
+	{
+		return xforms.size();
+	}
+
+	// The transform sequence composed into one matrix. Don't modify it!
+	public final float[]	getLocalMatrix()
+	{
+		validateLocal();
+
+		return local;
+	}
+
+	// The local matrices of this node and the nodes it was last rendered
+	// under, composed into one matrix. Only valid after rendering.
+	public final float[]	getWorldMatrix()
+	{
+		return world;
+	}
+
+	// Set the bounding box of what depict() draws, in the node's coordinates
+	// before its own transforms. Nodes without bounds are never culled on
+	// their own, only along with a parent that has bounds.
+	public final void	setBounds(Bounds bounds)
+	{
+		this.bounds = bounds;
+
+		markBoundsDirty();
+	}
+
+	public final Bounds	getBounds()
+	{
+		return bounds;
+	}
+
+	// Bounds of this node and all of its children, in the node's coordinates
+	// before its own transforms. Updated only when something has changed.
+	public final Bounds	getSubtreeBounds()
+	{
+		if (boundsDirty)
+		{
+			subtree.reset();
+
+			if (bounds != null)
+				subtree.include(bounds, null);
+
+			for (Node node : nodes)
+				subtree.include(node.getSubtreeBounds(),
+								node.getLocalMatrix());
+
+			boundsDirty = false;
+			subtreeVersion++;
+		}
+
+		return subtree;
+	}
+
+	// Subtree bounds in world coordinates, as of the last time the node was
+	// rendered.
+	public final Bounds	getWorldBounds()
+	{
+		Bounds	b = getSubtreeBounds();
+
+		if ((worldBoundsVersion != version) ||
+			(worldBoundsSubtree != subtreeVersion))
+		{
+			worldBounds.reset();
+			worldBounds.include(b, world);
+
+			worldBoundsVersion = version;
+			worldBoundsSubtree = subtreeVersion;
+		}
+
+		return worldBounds;
+	}
+
+	// Changes whenever getWorldBounds() might have, i.e. when the node was
+	// rendered somewhere new or anything in its subtree moved, so that a
+	// structure holding on to world bounds can tell which are out of date.
+	public final long	getWorldBoundsVersion()
+	{
+		getSubtreeBounds();
+
+		return (((long)version << 32) | (subtreeVersion & 0xFFFFFFFFL));
 	}
 
 	//**********************************************************************
@@ -111,8 +312,12 @@ public class Node
 
 	// These are here to provide textures to Nodes that need them to draw.
 
+	// Textures managed by the current TextureManager start loading the first
+	// time they're asked for.
 	public final Texture	getTexture(int index)
 	{
+		TextureManager.touch(textures[index]);
+
 		return textures[index];
 	}
 
@@ -126,6 +331,68 @@ public class Node
 	//	this.textures = textures;
 	//}
 
+	// Mark the subtree as static. The first time it's rendered into a render
+	// queue, everything it draws is baked into a StaticBatch in world
+	// coordinates, and after that the batch is drawn instead of calling
+	// depict() on the nodes in the subtree. Unless it has dynamic nodes, the
+	// subtree isn't walked at all. The bake is redone whenever a node in the
+	// subtree moves or is added or removed.
+	public final void	setStatic(boolean isStatic)
+	{
+		this.isStatic = isStatic;
+
+		invalidateContent();
+	}
+
+	public final boolean	isStatic()
+	{
+		return isStatic;
+	}
+
+	// Keep the node and its children out of any bake, for parts of a static
+	// subtree that change every frame or do more than submit geometry (e.g.
+	// set lighting). They are rendered normally.
+	public final void	setDynamic(boolean dynamic)
+	{
+		this.dynamic = dynamic;
+
+		invalidateContent();
+	}
+
+	public final boolean	isDynamic()
+	{
+		return dynamic;
+	}
+
+	// Call when depict() would draw something different than before, e.g. in
+	// another color or texture, so that any bake or other cached picture of
+	// a subtree it's in is redone. Moving, adding, and removing nodes call it
+	// automatically.
+	public final void	invalidateContent()
+	{
+		for (Node n=this; n != null; n=n.parent)
+		{
+			n.bakeDirty = true;
+			n.contentVersion++;
+		}
+	}
+
+	// Changes whenever anything in the subtree might look different.
+	public final int	getContentVersion()
+	{
+		return contentVersion;
+	}
+
+	// Delete the buffer objects of any bakes in the subtree.
+	public final void	dispose(GL2 gl)
+	{
+		if (bake != null)
+			bake.dispose(gl);
+
+		for (Node node : nodes)
+			node.dispose(gl);
+	}
+
 	//**********************************************************************
 	// Public Methods (Scene Graph)
 	//**********************************************************************
@@ -133,12 +400,26 @@ public class Node
 	public final void	add(Node node)
 	{
 		if (!nodes.contains(node))
+		{
 			nodes.add(node);
+			node.parent = this;
+			markBoundsDirty();
+			invalidateContent();
+		}
 	}
 
 	public final boolean	remove(Node node)
 	{
-		return nodes.remove(node);
+		if (!nodes.remove(node))
+			return false;
+
+		if (node.parent == this)
+			node.parent = null;
+
+		markBoundsDirty();
+		invalidateContent();
+
+		return true;
 	}
 
 	public final Node	get(int index)
@@ -169,15 +450,60 @@ public class Node
 
 	public final void	render(GL2 gl)
 	{
+		Node	parent = current;
+
+		validateWorld(parent);
+
+		// Bakes include everything, in view or not, except dynamic nodes
+		if (baking)
+		{
+			if (dynamic)
+			{
+				leftOut = true;
+				return;
+			}
+		}
+		else if ((frustum != null) && !frustum.intersects(getWorldBounds()) &&
+				 !getSubtreeBounds().isEmpty())
+		{
+			culled++;
+			return;
+		}
+
+		boolean		skipping = skipDepict;
+		RenderQueue	queue = RenderQueue.getActive();
+
+		if (dynamic)
+		{
+			skipDepict = false;
+		}
+		else if (isStatic && !skipDepict && !baking && (queue != null))
+		{
+			validateBake(gl);
+			bake.submit(queue);
+
+			// Nothing left to draw in the subtree, so don't walk it
+			if (!bakeDynamic)
+				return;
+
+			skipDepict = true;
+		}
+
 		gl.glPushMatrix();
+		gl.glMultMatrixf(local, 0);
 
-		for (Transform t : xforms)
-			t.applyForward(gl);
+		current = this;
 
-		depict(gl);
+		// Still visit a baked subtree, for any dynamic nodes in it
+		if (!skipDepict)
+			depict(gl);
 
-		for (Node node : nodes)
-			node.render(gl);
+		if (renderChildren())
+			for (Node node : nodes)
+				node.render(gl);
+
+		current = parent;
+		skipDepict = skipping;
 
 		gl.glPopMatrix();
 	}
@@ -187,6 +513,169 @@ public class Node
 	{
 	}
 
+	// Override this method in subclasses that sometimes draw their children
+	// some other way in depict(), e.g. from a cached picture of them.
+	protected boolean	renderChildren()
+	{
+		return true;
+	}
+
+	//**********************************************************************
+	// Public Class Methods (Matrix Cache)
+	//**********************************************************************
+
+	// The world matrix of the node currently being rendered, for use while
+	// it depicts itself. Don't modify it!
+	public static float[]	getCurrentWorldMatrix()
+	{
+		return ((current == null) ? IDENTITY : current.world);
+	}
+
+	// Set the view volume to cull against in render(), or null for none.
+	public static void	setFrustum(Frustum f)
+	{
+		frustum = f;
+	}
+
+	public static Frustum	getFrustum()
+	{
+		return frustum;
+	}
+
+	//**********************************************************************
+	// Public Class Methods (Statistics)
+	//**********************************************************************
+
+	// Call once at the start of each frame to reset the counts.
+	public static void	resetStats()
+	{
+		recomputed = 0;
+		reused = 0;
+		culled = 0;
+	}
+
+	// Number of world matrices recomputed so far this frame.
+	public static int	getMatricesRecomputed()
+	{
+		return recomputed;
+	}
+
+	// Number of world matrices reused from the cache so far this frame.
+	public static int	getMatricesReused()
+	{
+		return reused;
+	}
+
+	// Number of subtrees skipped for being outside the frustum this frame.
+	public static int	getNodesCulled()
+	{
+		return culled;
+	}
+
+	//**********************************************************************
+	// Package Methods (Matrix Cache)
+	//**********************************************************************
+
+	// Called when the transform sequence or a slot in it changes. Moving the
+	// node changes the bounds of its parent's subtree, but not its own.
+	void	invalidate()
+	{
+		dirty = true;
+
+		if (parent != null)
+			parent.markBoundsDirty();
+
+		invalidateContent();
+	}
+
+	//**********************************************************************
+	// Private Methods (Baking)
+	//**********************************************************************
+
+	// Rebake the subtree if anything in it changed or if it moved. Call from
+	// render(), after validating the world matrix.
+	private void	validateBake(GL2 gl)
+	{
+		if ((bake != null) && !bakeDirty && (bake.getVersion() == version))
+			return;
+
+		if (capture == null)
+			capture = new RenderQueue();
+
+		if (bake == null)
+			bake = new StaticBatch();
+
+		capture.beginCapture();
+		baking = true;
+		leftOut = false;
+
+		render(gl);
+
+		baking = false;
+		capture.endCapture();
+
+		bake.bake(gl, capture, version);
+		bakeDirty = false;
+		bakeDynamic = leftOut;
+	}
+
+	//**********************************************************************
+	// Private Methods (Bounds)
+	//**********************************************************************
+
+	// Mark subtree bounds out of date here and up the graph. Stops early at
+	// a node that's already marked, since its ancestors must be too.
+	private void	markBoundsDirty()
+	{
+		for (Node n=this; (n != null) && !n.boundsDirty; n=n.parent)
+			n.boundsDirty = true;
+	}
+
+	//**********************************************************************
+	// Private Methods (Matrix Cache)
+	//**********************************************************************
+
+	// Recompose the local matrix if the transform sequence has changed. The
+	// sequence is replayed in the same order render() used to apply it.
+	private boolean	validateLocal()
+	{
+		if (!dirty)
+			return false;
+
+		FloatUtil.makeIdentity(local);
+
+		for (Transform t : xforms)
+			t.multForward(local);
+
+		dirty = false;
+
+		return true;
+	}
+
+	// Recompute the world matrix if the local matrix changed, if the node is
+	// being rendered under a different parent, or if the parent's changed.
+	private void	validateWorld(Node parent)
+	{
+		boolean	changed = validateLocal();
+		int		pv = ((parent == null) ? 0 : parent.version);
+
+		if (!changed && (parent == worldParent) && (pv == worldParentVersion))
+		{
+			reused++;
+			return;
+		}
+
+		if (parent == null)
+			System.arraycopy(local, 0, world, 0, 16);
+		else
+			FloatUtil.multMatrix(parent.world, local, world);
+
+		worldParent = parent;
+		worldParentVersion = pv;
+		version++;
+		recomputed++;
+	}
+
 	//**********************************************************************
 	// Public Methods (Lighting)
 	//**********************************************************************
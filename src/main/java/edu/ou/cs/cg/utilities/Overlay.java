@@ -0,0 +1,334 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.fixedfunc.GLLightingFunc;
+import com.jogamp.opengl.fixedfunc.GLMatrixFunc;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+//******************************************************************************
+
+/**
+ * The <CODE>Overlay</CODE> class draws lines of screen space text, such as
+ * instructions and statistics, from a cached texture.<P>
+ *
+ * Text is placed in fields. Whenever a field's text or visibility changes,
+ * all visible fields are drawn with Java2D into an image the size of the
+ * window, which is copied into the texture. Every frame, the texture is drawn
+ * over the scene with one quad. Fields whose text comes from a supplier, such
+ * as frame times and counters, are only asked for it every so often, so they
+ * don't cause a redraw every frame.<P>
+ *
+ * The image is premultiplied, to go with glBlendFunc(GL_ONE,
+ * GL_ONE_MINUS_SRC_ALPHA).<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class Overlay
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final Font				font;
+	private final Color				color;
+	private final ArrayList<Field>	fields;
+
+	private BufferedImage			image;		// Window size, ARGB_PRE
+	private int					texture;	// Or 0 if none yet
+	private int					width;		// Of the texture
+	private int					height;
+	private boolean				dirty;		// Image out of date
+
+	// Statistics, since creation
+	private int					redraws;	// Times the image was redrawn
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public Overlay(Font font, Color color)
+	{
+		this.font = font;
+		this.color = color;
+		this.fields = new ArrayList<Field>();
+
+		this.texture = 0;
+		this.dirty = true;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// Times the text has been drawn into the texture.
+	public int	getRedraws()
+	{
+		return redraws;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Add an empty field with its baseline starting at (x, y), in pixels
+	// from the top left of the window.
+	public Field	add(int x, int y)
+	{
+		Field	field = new Field(x, y, 0L, null);
+
+		fields.add(field);
+
+		return field;
+	}
+
+	// Add a field that asks the source for its text at most once per
+	// interval, and only while it's visible.
+	public Field	add(int x, int y, long intervalMillis, Supplier<String> source)
+	{
+		Field	field = new Field(x, y, intervalMillis * 1000000L, source);
+
+		fields.add(field);
+
+		return field;
+	}
+
+	// Draw the overlay over the whole window. Changes the modelview and
+	// projection matrices, then restores them.
+	public void	draw(GL2 gl, int width, int height)
+	{
+		if ((width <= 0) || (height <= 0))
+			return;
+
+		poll(System.nanoTime());
+
+		if ((texture == 0) || (width != this.width) ||
+			(height != this.height))
+			allocate(gl, width, height);
+
+		if (dirty)
+			upload(gl);
+
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL.GL_COLOR_BUFFER_BIT |
+						GL2.GL_CURRENT_BIT);
+		gl.glDisable(GLLightingFunc.GL_LIGHTING);
+		gl.glDisable(GL.GL_DEPTH_TEST);
+		gl.glDisable(GL.GL_CULL_FACE);
+		gl.glEnable(GL.GL_BLEND);
+		gl.glBlendFunc(GL.GL_ONE, GL.GL_ONE_MINUS_SRC_ALPHA);
+		gl.glEnable(GL.GL_TEXTURE_2D);
+		gl.glTexEnvi(GL2.GL_TEXTURE_ENV, GL2.GL_TEXTURE_ENV_MODE,
+					 GL2.GL_REPLACE);
+
+		gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+		gl.glPushMatrix();
+		gl.glLoadIdentity();
+		gl.glOrtho(0.0, width, 0.0, height, -1.0, 1.0);
+		gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+		gl.glPushMatrix();
+		gl.glLoadIdentity();
+
+		// Image rows run top down, so t = 0 is the top of the window
+		gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		gl.glBegin(GL2.GL_QUADS);
+		gl.glTexCoord2f(0.0f, 1.0f);
+		gl.glVertex2f(0.0f, 0.0f);
+		gl.glTexCoord2f(1.0f, 1.0f);
+		gl.glVertex2f(width, 0.0f);
+		gl.glTexCoord2f(1.0f, 0.0f);
+		gl.glVertex2f(width, height);
+		gl.glTexCoord2f(0.0f, 0.0f);
+		gl.glVertex2f(0.0f, height);
+		gl.glEnd();
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+
+		gl.glPopMatrix();
+		gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+		gl.glPopMatrix();
+		gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+
+		gl.glPopAttrib();
+	}
+
+	// Delete the texture. It will be created again if needed.
+	public void	dispose(GL2 gl)
+	{
+		if (texture != 0)
+			gl.glDeleteTextures(1, new int[] { texture }, 0);
+
+		release();
+	}
+
+	// Forget the texture without deleting it, for when the GL context it
+	// lived in is already gone.
+	public void	release()
+	{
+		texture = 0;
+		dirty = true;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Ask every visible field with a source whose interval is up for its text.
+	private void	poll(long now)
+	{
+		for (Field field : fields)
+		{
+			if ((field.source == null) || !field.visible)
+				continue;
+
+			if ((field.polled != 0L) && (now - field.polled < field.interval))
+				continue;
+
+			field.polled = now;
+			field.set(field.source.get());
+		}
+	}
+
+	private void	allocate(GL2 gl, int width, int height)
+	{
+		if (texture == 0)
+		{
+			int[]	ids = new int[1];
+
+			gl.glGenTextures(1, ids, 0);
+			texture = ids[0];
+		}
+
+		this.width = width;
+		this.height = height;
+
+		image = new BufferedImage(width, height,
+								  BufferedImage.TYPE_INT_ARGB_PRE);
+
+		gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER,
+						   GL.GL_NEAREST);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER,
+						   GL.GL_NEAREST);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S,
+						   GL.GL_CLAMP_TO_EDGE);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T,
+						   GL.GL_CLAMP_TO_EDGE);
+		gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA8, width, height, 0,
+						GL.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, null);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+
+		dirty = true;
+	}
+
+	// Draw the visible fields into the image and copy it into the texture.
+	private void	upload(GL2 gl)
+	{
+		int[]		pixels = ((DataBufferInt)image.getRaster()
+							  .getDataBuffer()).getData();
+
+		Arrays.fill(pixels, 0);
+
+		Graphics2D	g = image.createGraphics();
+
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+						   RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setFont(font);
+		g.setColor(color);
+
+		for (Field field : fields)
+			if (field.visible && (field.text != null))
+				g.drawString(field.text, field.x, field.y);
+
+		g.dispose();
+
+		// Each int is 0xAARRGGBB, which is what BGRA with the reversed packed
+		// type means regardless of byte order
+		gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 4);
+		gl.glTexSubImage2D(GL.GL_TEXTURE_2D, 0, 0, 0, width, height,
+						   GL.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV,
+						   IntBuffer.wrap(pixels));
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+
+		dirty = false;
+		redraws++;
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// One string at a fixed place in the overlay.
+	public final class Field
+	{
+		private final int				x;
+		private final int				y;
+		private final long				interval;	// Nanoseconds between polls
+		private final Supplier<String>	source;		// Or null if set directly
+
+		private String					text;
+		private boolean				visible;
+		private long					polled;		// When, or 0 if never
+
+		private Field(int x, int y, long interval, Supplier<String> source)
+		{
+			this.x = x;
+			this.y = y;
+			this.interval = interval;
+			this.source = source;
+
+			this.visible = true;
+		}
+
+		public String	getText()
+		{
+			return text;
+		}
+
+		// Change the text. The overlay is only redrawn if it's different.
+		public void	set(String text)
+		{
+			if ((text == null) ? (this.text == null) : text.equals(this.text))
+				return;
+
+			this.text = text;
+
+			if (visible)
+				dirty = true;
+		}
+
+		public boolean	isVisible()
+		{
+			return visible;
+		}
+
+		// Show or hide the field. A field with a source is asked for its
+		// text right away when it's shown.
+		public void	setVisible(boolean visible)
+		{
+			if (this.visible == visible)
+				return;
+
+			this.visible = visible;
+			this.polled = 0L;
+
+			if (text != null)
+				dirty = true;
+		}
+	}
+}
+
+//******************************************************************************
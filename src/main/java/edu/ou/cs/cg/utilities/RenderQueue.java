@@ -0,0 +1,739 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>RenderQueue</CODE> class collects draw items while the scene
+ * graph is traversed and draws them afterward in an order that minimizes GL
+ * state changes.<P>
+ *
+ * Between begin() and flush(), the queue is active. Queues can be nested,
+ * e.g. to draw part of the scene into a texture while collecting the rest;
+ * flush() makes the queue that was active before begin() active again.
+ * Cube and Cylinder submit
+ * their meshes to the active queue instead of drawing them, along with the
+ * current color (see color()) and the world matrix of the node being
+ * rendered. Drawing that can't be expressed as a mesh, such as text or
+ * lines, can be submitted as a Command. Textured sprites go into a
+ * SpriteBatch instead, so that all sprites with the same texture are drawn
+ * at once, and text goes into a TextBatch for the same reason.<P>
+ *
+ * On flush(), opaque items are sorted by texture, mesh, and color, and drawn
+ * with blending off. Sprites are drawn next, one draw per texture, then
+ * text, one draw per glyph atlas. Items
+ * with a texture that has been marked transparent are then drawn back to
+ * front with blending on.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class RenderQueue
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	// The queue that is currently between begin() and flush(), if any
+	private static RenderQueue					active;
+
+	// Textures that need blending, e.g. sprites with transparent backgrounds
+	private static final Map<Texture, Boolean>	TRANSPARENT =
+		new IdentityHashMap<Texture, Boolean>();
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final ArrayList<Item>	pool;			// Reused items
+	private final ArrayList<Item>	opaque;		// Items for first pass
+	private final ArrayList<Item>	transparent;	// Items for second pass
+	private int					count;			// Items used from pool
+	private boolean				capturing;		// For StaticBatch?
+	private RenderQueue			previous;		// Active before begin()
+	private final SpriteBatch		sprites;		// Sprites, by texture
+	private final TextBatch		text;			// Strings, by atlas
+
+	private final float[]			view;			// Camera matrix
+	private final float[]			tmp;			// Scratch matrix
+
+	// Current color, captured by each submitted item
+	private float					r;
+	private float					g;
+	private float					b;
+
+	// State tracking while flushing
+	private Texture				curTexture;
+	private Mesh					curMesh;
+	private float					curR;
+	private float					curG;
+	private float					curB;
+	private boolean				curColorKnown;
+
+	// Statistics for the last flush, as drawn (sorted) and as submitted
+	private int					binds;
+	private int					bindsUnsorted;
+	private int					stateChanges;
+	private int					stateChangesUnsorted;
+	private int					drawCalls;
+	private int					drawCallsUnsorted;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public RenderQueue()
+	{
+		pool = new ArrayList<Item>();
+		opaque = new ArrayList<Item>();
+		transparent = new ArrayList<Item>();
+		sprites = new SpriteBatch();
+		text = new TextBatch();
+
+		view = FloatUtil.makeIdentity(new float[16]);
+		tmp = new float[16];
+	}
+
+	//**********************************************************************
+	// Public Class Methods
+	//**********************************************************************
+
+	// The queue currently collecting items, or null to draw immediately.
+	public static RenderQueue	getActive()
+	{
+		return active;
+	}
+
+	// Mark a texture as needing blending, so that items using it are drawn
+	// in the back to front transparent pass.
+	public static void	setTransparent(Texture texture, boolean transparent)
+	{
+		if (texture == null)
+			return;
+
+		if (transparent)
+			TRANSPARENT.put(texture, Boolean.TRUE);
+		else
+			TRANSPARENT.remove(texture);
+	}
+
+	public static boolean	isTransparent(Texture texture)
+	{
+		return ((texture != null) && TRANSPARENT.containsKey(texture));
+	}
+
+	// Set the current color. Use this instead of glColor3f() in depict() so
+	// that the color travels with the items submitted after it.
+	public static void	color(GL2 gl, float r, float g, float b)
+	{
+		if (active != null)
+		{
+			active.r = r;
+			active.g = g;
+			active.b = b;
+		}
+		else
+		{
+			gl.glColor3f(r, g, b);
+		}
+	}
+
+	// Submit a command to the active queue, or draw it now if there is none.
+	public static void	draw(GL2 gl, Command command, boolean transparent)
+	{
+		if (active != null)
+			active.submit(command, transparent);
+		else
+			command.draw(gl);
+	}
+
+	//**********************************************************************
+	// Public Methods (Collecting)
+	//**********************************************************************
+
+	// Start collecting items. The view matrix is the modelview matrix in
+	// effect at the root of the scene graph, used to sort items by depth.
+	public void	begin(float[] viewMatrix)
+	{
+		System.arraycopy(viewMatrix, 0, view, 0, 16);
+
+		count = 0;
+		opaque.clear();
+		transparent.clear();
+
+		r = 1.0f;
+		g = 1.0f;
+		b = 1.0f;
+
+		previous = active;
+		active = this;
+	}
+
+	// Queue a group of a mesh, drawn with a texture (or none if null) in the
+	// world matrix of the node being rendered.
+	public void	submit(Mesh mesh, int group, Texture texture)
+	{
+		Item	item = nextItem(isTransparent(texture));
+
+		item.mesh = mesh;
+		item.group = group;
+		item.texture = texture;
+	}
+
+	// Queue some other kind of drawing, done in the world matrix of the node
+	// being rendered. Transparent commands are drawn with blending.
+	public void	submit(Command command, boolean transparent)
+	{
+		Item	item = nextItem(transparent);
+
+		item.command = command;
+	}
+
+	// Queue a sprite (the front and back faces of a unit cube) drawn with a
+	// texture in the world matrix of the node being rendered.
+	public void	submitSprite(Texture texture)
+	{
+		// Captured sprites are baked like any other faces
+		if (capturing)
+		{
+			submit(Cube.getMesh(), 0, texture);
+			submit(Cube.getMesh(), 1, texture);
+			return;
+		}
+
+		sprites.add(texture, Node.getCurrentWorldMatrix(), r, g, b);
+	}
+
+	// Queue a sprite drawn with part of an atlas, in the world matrix of the
+	// node being rendered.
+	public void	submitSprite(SpriteAtlas.Region region)
+	{
+		// Faces with unit texture coordinates can't be baked with only part
+		// of the texture, so captured parts are drawn on their own
+		if (capturing)
+		{
+			if (region.isWhole())
+			{
+				submitSprite(region.getTexture());
+			}
+			else
+			{
+				submit((GL2 gl) -> {
+					Cube.fillFace(gl, 0, region);
+					Cube.fillFace(gl, 1, region);
+				}, isTransparent(region.getTexture()));
+			}
+
+			return;
+		}
+
+		sprites.add(region, Node.getCurrentWorldMatrix(), r, g, b);
+	}
+
+	// Queue a laid out string at (x, y), scaled, in the world matrix of the
+	// node being rendered. Text has its own color rather than the current
+	// one, since it's usually drawn over something else.
+	public void	submitText(GlyphAtlas.Layout layout, float x, float y,
+						   float scale, float r, float g, float b)
+	{
+		// Captured text is drawn on its own every frame, not baked
+		if (capturing)
+		{
+			submit((GL2 gl) -> {
+				gl.glColor3f(r, g, b);
+				layout.getAtlas().draw(gl, layout, x, y, scale);
+			}, false);
+			return;
+		}
+
+		text.add(layout, Node.getCurrentWorldMatrix(), x, y, scale, r, g, b);
+	}
+
+	//**********************************************************************
+	// Package Methods (Baking)
+	//**********************************************************************
+
+	// Start collecting items for StaticBatch to bake, even in the middle of
+	// another queue's begin() and flush(). Items get the current color of
+	// the queue they're captured from.
+	void	beginCapture()
+	{
+		begin(view);
+
+		if (previous != null)
+		{
+			r = previous.r;
+			g = previous.g;
+			b = previous.b;
+		}
+
+		capturing = true;
+	}
+
+	// Stop collecting, going back to the queue that was active before. The
+	// captured items stay available until the next begin.
+	void	endCapture()
+	{
+		active = previous;
+		previous = null;
+		capturing = false;
+	}
+
+	int	getItemCount()
+	{
+		return count;
+	}
+
+	// Captured items, in submission order.
+	Item	getItem(int i)
+	{
+		return pool.get(i);
+	}
+
+	// Queue a copy of a captured item, in its own world matrix and color.
+	void	resubmit(Item captured)
+	{
+		Item	item = nextItem(captured.transparent);
+
+		item.mesh = captured.mesh;
+		item.group = captured.group;
+		item.texture = captured.texture;
+		item.command = captured.command;
+		item.r = captured.r;
+		item.g = captured.g;
+		item.b = captured.b;
+
+		System.arraycopy(captured.world, 0, item.world, 0, 16);
+	}
+
+	// Queue a group of a mesh that's already in world coordinates.
+	void	submitWorld(Mesh mesh, int group, Texture texture,
+						float r, float g, float b)
+	{
+		Item	item = nextItem(isTransparent(texture));
+
+		item.mesh = mesh;
+		item.group = group;
+		item.texture = texture;
+		item.r = r;
+		item.g = g;
+		item.b = b;
+
+		FloatUtil.makeIdentity(item.world);
+	}
+
+	//**********************************************************************
+	// Public Methods (Drawing)
+	//**********************************************************************
+
+	// Stop collecting and draw everything collected, in sorted order. Call
+	// with the view matrix as the current modelview matrix.
+	public void	flush(GL2 gl)
+	{
+		active = previous;
+		previous = null;
+
+		countUnsorted();
+
+		binds = 0;
+		stateChanges = 0;
+		drawCalls = 0;
+		curColorKnown = false;
+
+		Collections.sort(opaque, OPAQUE_ORDER);
+
+		for (Item item : transparent)
+			item.depth = viewDepth(item);
+
+		Collections.sort(transparent, BACK_TO_FRONT);
+
+		gl.glDisable(GL.GL_BLEND);
+
+		for (Item item : opaque)
+			draw(gl, item);
+
+		// Sprites use their own arrays, colors, and blending
+		endMesh(gl);
+		bindTexture(gl, null);
+		sprites.flush(gl);
+		curColorKnown = false;
+
+		binds += sprites.getBinds();
+		bindsUnsorted += sprites.getBindsUnsorted();
+		drawCalls += sprites.getDrawCalls();
+		drawCallsUnsorted += sprites.getDrawCallsUnsorted();
+
+		if (sprites.getSprites() > 0)
+			stateChanges += 2;
+
+		// Text used to be a pass per string
+		text.flush(gl);
+
+		drawCalls += text.getDrawCalls();
+		drawCallsUnsorted += text.getStrings();
+
+		if (!transparent.isEmpty())
+		{
+			gl.glEnable(GL.GL_BLEND);
+			stateChanges += 2;
+
+			for (Item item : transparent)
+				draw(gl, item);
+
+			gl.glDisable(GL.GL_BLEND);
+		}
+
+		finish(gl);
+	}
+
+	// Delete any buffer objects the queue made for itself.
+	public void	dispose(GL2 gl)
+	{
+		sprites.dispose(gl);
+		text.dispose(gl);
+	}
+
+	// Forget them without deleting them, for when their context is gone.
+	public void	release()
+	{
+		sprites.release();
+		text.release();
+	}
+
+	//**********************************************************************
+	// Public Methods (Statistics)
+	//**********************************************************************
+
+	// Texture binds in the last flush, as drawn and as submitted.
+	public int	getBinds()
+	{
+		return binds;
+	}
+
+	public int	getBindsUnsorted()
+	{
+		return bindsUnsorted;
+	}
+
+	// Color and blending changes in the last flush, as drawn and submitted.
+	public int	getStateChanges()
+	{
+		return stateChanges;
+	}
+
+	public int	getStateChangesUnsorted()
+	{
+		return stateChangesUnsorted;
+	}
+
+	// Draw calls in the last flush, as drawn and as submitted.
+	public int	getDrawCalls()
+	{
+		return drawCalls;
+	}
+
+	public int	getDrawCallsUnsorted()
+	{
+		return drawCallsUnsorted;
+	}
+
+	// Sprites drawn in the last flush.
+	public int	getSprites()
+	{
+		return sprites.getSprites();
+	}
+
+	// Strings and glyphs drawn in the last flush.
+	public int	getStrings()
+	{
+		return text.getStrings();
+	}
+
+	public int	getGlyphs()
+	{
+		return text.getGlyphs();
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	private Item	nextItem(boolean transparent)
+	{
+		if (count == pool.size())
+			pool.add(new Item());
+
+		Item	item = pool.get(count);
+
+		item.order = count++;
+		item.mesh = null;
+		item.group = 0;
+		item.texture = null;
+		item.command = null;
+		item.transparent = transparent;
+		item.r = r;
+		item.g = g;
+		item.b = b;
+
+		System.arraycopy(Node.getCurrentWorldMatrix(), 0, item.world, 0, 16);
+
+		if (transparent)
+			this.transparent.add(item);
+		else
+			this.opaque.add(item);
+
+		return item;
+	}
+
+	// Count what drawing the items in submission order would have cost.
+	private void	countUnsorted()
+	{
+		Texture	texture = null;
+		boolean	blend = false;
+		boolean	known = false;
+		float		cr = 0.0f;
+		float		cg = 0.0f;
+		float		cb = 0.0f;
+
+		bindsUnsorted = 0;
+		stateChangesUnsorted = 0;
+		drawCallsUnsorted = 0;
+
+		for (int i=0; i<count; i++)
+		{
+			Item	item = pool.get(i);
+
+			if (item.transparent != blend)
+			{
+				blend = item.transparent;
+				stateChangesUnsorted++;
+			}
+
+			if (item.command != null)
+			{
+				texture = null;
+				known = false;
+				drawCallsUnsorted++;
+				continue;
+			}
+
+			if ((item.texture != texture) && (item.texture != null))
+				bindsUnsorted++;
+
+			texture = item.texture;
+
+			if (!known || (cr != item.r) || (cg != item.g) || (cb != item.b))
+			{
+				cr = item.r;
+				cg = item.g;
+				cb = item.b;
+				known = true;
+				stateChangesUnsorted++;
+			}
+
+			drawCallsUnsorted++;
+		}
+	}
+
+	// Depth of the item's center along the view direction (more negative is
+	// farther away).
+	private float	viewDepth(Item item)
+	{
+		float[]	c = ((item.mesh != null) ? item.mesh.getCenter(item.group)
+										 : ORIGIN);
+
+		FloatUtil.multMatrix(view, item.world, tmp);
+
+		return tmp[2] * c[0] + tmp[6] * c[1] + tmp[10] * c[2] + tmp[14];
+	}
+
+	private void	draw(GL2 gl, Item item)
+	{
+		if (item.command != null)
+		{
+			endMesh(gl);
+			bindTexture(gl, null);
+
+			gl.glPushMatrix();
+			gl.glMultMatrixf(item.world, 0);
+			item.command.draw(gl);
+			gl.glPopMatrix();
+
+			curColorKnown = false;
+			drawCalls++;
+			return;
+		}
+
+		bindTexture(gl, item.texture);
+
+		if (!curColorKnown || (curR != item.r) || (curG != item.g) ||
+			(curB != item.b))
+		{
+			gl.glColor3f(item.r, item.g, item.b);
+
+			curR = item.r;
+			curG = item.g;
+			curB = item.b;
+			curColorKnown = true;
+			stateChanges++;
+		}
+
+		if (item.mesh != curMesh)
+		{
+			endMesh(gl);
+			item.mesh.begin(gl);
+			curMesh = item.mesh;
+		}
+
+		gl.glPushMatrix();
+		gl.glMultMatrixf(item.world, 0);
+		item.mesh.draw(gl, item.group);
+		gl.glPopMatrix();
+
+		drawCalls++;
+	}
+
+	private void	bindTexture(GL2 gl, Texture texture)
+	{
+		if (texture == curTexture)
+			return;
+
+		if (curTexture != null)
+			Mesh.unbindTexture(gl, curTexture);
+
+		if (texture != null)
+		{
+			Mesh.bindTexture(gl, texture);
+			binds++;
+		}
+
+		curTexture = texture;
+	}
+
+	private void	endMesh(GL2 gl)
+	{
+		if (curMesh != null)
+			curMesh.end(gl);
+
+		curMesh = null;
+	}
+
+	private void	finish(GL2 gl)
+	{
+		endMesh(gl);
+		bindTexture(gl, null);
+
+		// Don't hold on to meshes, textures, or commands until next frame
+		for (int i=0; i<count; i++)
+		{
+			Item	item = pool.get(i);
+
+			item.mesh = null;
+			item.texture = null;
+			item.command = null;
+		}
+
+		opaque.clear();
+		transparent.clear();
+	}
+
+	//**********************************************************************
+	// Private Class Members (Sorting)
+	//**********************************************************************
+
+	private static final float[]	ORIGIN = new float[] { 0.0f, 0.0f, 0.0f };
+
+	// Commands last, then by texture, mesh, and color, else as submitted.
+	private static final Comparator<Item>	OPAQUE_ORDER =
+		new Comparator<Item>()
+		{
+			public int	compare(Item a, Item b)
+			{
+				int	c = Boolean.compare(a.command != null, b.command != null);
+
+				if (c == 0)
+					c = Integer.compare(textureKey(a.texture),
+										textureKey(b.texture));
+
+				if (c == 0)
+					c = Integer.compare(System.identityHashCode(a.mesh),
+										System.identityHashCode(b.mesh));
+
+				if (c == 0)
+					c = Float.compare(a.r, b.r);
+
+				if (c == 0)
+					c = Float.compare(a.g, b.g);
+
+				if (c == 0)
+					c = Float.compare(a.b, b.b);
+
+				if (c == 0)
+					c = Integer.compare(a.order, b.order);
+
+				return c;
+			}
+		};
+
+	// Farthest first, else as submitted.
+	private static final Comparator<Item>	BACK_TO_FRONT =
+		new Comparator<Item>()
+		{
+			public int	compare(Item a, Item b)
+			{
+				int	c = Float.compare(a.depth, b.depth);
+
+				if (c == 0)
+					c = Integer.compare(a.order, b.order);
+
+				return c;
+			}
+		};
+
+	private static int	textureKey(Texture texture)
+	{
+		return ((texture == null) ? 0 : texture.getTextureObject());
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// Drawing that isn't a mesh group. It's called with the modelview matrix
+	// set to the world matrix of the node that submitted it.
+	public interface Command
+	{
+		public void	draw(GL2 gl);
+	}
+
+	// Package access so that StaticBatch can read captured items.
+	static final class Item
+	{
+		Mesh		mesh;
+		int		group;
+		Texture	texture;
+		Command	command;
+		boolean	transparent;
+		float		r;
+		float		g;
+		float		b;
+		float		depth;
+		int		order;
+		final float[]	world = new float[16];
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,421 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+//******************************************************************************
+
+/**
+ * The <CODE>SpriteAtlas</CODE> class packs many small images into one, so
+ * that everything drawn with them can share a single texture, and looks up
+ * the part of the atlas each image went into by name.<P>
+ *
+ * Packing happens at build time, in main(), which writes the atlas image and
+ * a table of where each sprite is in it. Sprites are shrunk to at most
+ * MAX_SIZE pixels on a side, then placed on shelves in cells that start on
+ * multiples of ALIGN pixels, with PADDING pixels around each sprite filled by
+ * repeating its edge texels. So down to mipmap level log2(ALIGN), every texel
+ * of a level only covers one sprite, and filtering at the edge of a sprite
+ * picks up more of the same sprite rather than its neighbor.<P>
+ *
+ * At run time, read() loads the table, and the atlas image is loaded like
+ * any other texture, then handed to setTexture().<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class SpriteAtlas
+{
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	public static final int	MAX_SIZE = 512;		// Largest sprite side, pixels
+	public static final int	PADDING = 8;		// Edge repeated around sprites
+	public static final int	ALIGN = 8;			// Cell origins and sizes
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final String				image;		// Atlas image file name
+	private final Map<String, Region>	regions;	// By sprite name
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	private SpriteAtlas(String image, Map<String, Region> regions)
+	{
+		this.image = image;
+		this.regions = regions;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// File name of the atlas image, next to the table.
+	public String	getImageName()
+	{
+		return image;
+	}
+
+	// Use the texture for every region.
+	public void	setTexture(Texture texture)
+	{
+		for (Region region : regions.values())
+			region.texture = texture;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// The region of the named sprite (its file name without the suffix), or
+	// null if it isn't in the atlas.
+	public Region	get(String name)
+	{
+		return regions.get(name);
+	}
+
+	//**********************************************************************
+	// Public Class Methods
+	//**********************************************************************
+
+	// Read an atlas table, or return null if there isn't one or it can't be
+	// read.
+	public static SpriteAtlas	read(File table)
+	{
+		if (!table.isFile())
+			return null;
+
+		try (BufferedReader in = new BufferedReader(new FileReader(table)))
+		{
+			String[]			header = in.readLine().trim().split("\\s+");
+			String				image = header[0];
+			float				w = Float.parseFloat(header[1]);
+			float				h = Float.parseFloat(header[2]);
+			Map<String, Region>	regions = new HashMap<String, Region>();
+			String				line;
+
+			while ((line = in.readLine()) != null)
+			{
+				String[]	f = line.trim().split("\\s+");
+
+				if (f.length != 5)
+					continue;
+
+				int	x = Integer.parseInt(f[1]);
+				int	y = Integer.parseInt(f[2]);
+				int	sw = Integer.parseInt(f[3]);
+				int	sh = Integer.parseInt(f[4]);
+
+				// Pixel rows run top down, texture coordinates bottom up
+				regions.put(f[0], new Region(null, x / w, 1.0f - (y + sh) / h,
+											 (x + sw) / w, 1.0f - y / h));
+			}
+
+			return new SpriteAtlas(image, regions);
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			System.err.println("Couldn't read sprite atlas " + table + ": " +
+							   ex);
+			return null;
+		}
+	}
+
+	//**********************************************************************
+	// Main
+	//**********************************************************************
+
+	// Pack images into an atlas named <name>.png, with the table in
+	// <name>.atlas, both in the output directory.
+	// Usage: SpriteAtlas <output directory> <name> <image>...
+	public static void	main(String[] args) throws IOException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: SpriteAtlas <output directory> <name> " +
+							   "<image>...");
+			System.exit(1);
+		}
+
+		File				dir = new File(args[0]);
+		String				name = args[1];
+		ArrayList<Cell>	cells = new ArrayList<Cell>();
+
+		for (int i=2; i<args.length; i++)
+		{
+			File			f = new File(args[i]);
+			BufferedImage	image = ImageIO.read(f);
+
+			if (image == null)
+				throw new IOException("Couldn't decode " + f);
+
+			String	sprite = f.getName();
+
+			if (sprite.lastIndexOf('.') > 0)
+				sprite = sprite.substring(0, sprite.lastIndexOf('.'));
+
+			cells.add(new Cell(sprite, shrink(image)));
+		}
+
+		// Tallest first packs shelves with the least wasted space
+		Collections.sort(cells, (a, b) -> b.h - a.h);
+
+		int	width = pack(cells);
+		int	height = nextPowerOfTwo(shelve(cells, width));
+		BufferedImage	atlas = new BufferedImage(width, height,
+												  BufferedImage.TYPE_INT_ARGB);
+
+		for (Cell c : cells)
+			blit(c, atlas);
+
+		Files.createDirectories(dir.toPath());
+		ImageIO.write(atlas, "png", new File(dir, name + ".png"));
+
+		try (PrintWriter out = new PrintWriter(new File(dir, name + ".atlas")))
+		{
+			out.println(name + ".png " + width + " " + height);
+
+			for (Cell c : cells)
+				out.println(c.name + " " + (c.x + PADDING) + " " +
+							(c.y + PADDING) + " " + c.image.getWidth() + " " +
+							c.image.getHeight());
+		}
+
+		System.out.println("Packed " + cells.size() + " sprites into " +
+						   width + "x" + height + " " + name + ".png");
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	// Halve the image until it fits in MAX_SIZE, then scale it the rest of the
+	// way. Drawing into a premultiplied image keeps clear texels from
+	// darkening the edges.
+	private static BufferedImage	shrink(BufferedImage image)
+	{
+		int	w = image.getWidth();
+		int	h = image.getHeight();
+
+		if ((w <= MAX_SIZE) && (h <= MAX_SIZE))
+			return image;
+
+		float	scale = (float)MAX_SIZE / Math.max(w, h);
+		int		tw = Math.max(Math.round(w * scale), 1);
+		int		th = Math.max(Math.round(h * scale), 1);
+
+		while ((w != tw) || (h != th))
+		{
+			w = Math.max(w / 2, tw);
+			h = Math.max(h / 2, th);
+
+			BufferedImage	next = new BufferedImage(w, h,
+									BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D		g = next.createGraphics();
+
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+							   RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, w, h, null);
+			g.dispose();
+
+			image = next;
+		}
+
+		return image;
+	}
+
+	// Find the power of two width that packs the cells into the smallest
+	// power of two area, the squarest if there's a tie.
+	private static int	pack(ArrayList<Cell> cells)
+	{
+		int	widest = 0;
+
+		for (Cell c : cells)
+			widest = Math.max(widest, c.w);
+
+		int	best = 0;
+		long	bestArea = Long.MAX_VALUE;
+		int	bestSide = Integer.MAX_VALUE;
+
+		for (int w=nextPowerOfTwo(widest); w<=8192; w*=2)
+		{
+			int		h = nextPowerOfTwo(shelve(cells, w));
+			long	area = (long)w * h;
+
+			if ((area < bestArea) ||
+				((area == bestArea) && (Math.max(w, h) < bestSide)))
+			{
+				best = w;
+				bestArea = area;
+				bestSide = Math.max(w, h);
+			}
+		}
+
+		return best;
+	}
+
+	// Place the cells left to right on shelves as tall as their first cell,
+	// returning the total height.
+	private static int	shelve(ArrayList<Cell> cells, int width)
+	{
+		int	x = 0;
+		int	y = 0;
+		int	shelf = 0;
+
+		for (Cell c : cells)
+		{
+			if (x + c.w > width)
+			{
+				x = 0;
+				y += shelf;
+				shelf = 0;
+			}
+
+			c.x = x;
+			c.y = y;
+			x += c.w;
+			shelf = Math.max(shelf, c.h);
+		}
+
+		return y + shelf;
+	}
+
+	// Copy the cell's sprite into the atlas, repeating its edges out to the
+	// edges of the cell.
+	private static void	blit(Cell c, BufferedImage atlas)
+	{
+		int	w = c.image.getWidth();
+		int	h = c.image.getHeight();
+		int[]	argb = c.image.getRGB(0, 0, w, h, null, 0, w);
+
+		for (int y=0; y<c.h; y++)
+		{
+			int	sy = Math.min(Math.max(y - PADDING, 0), h - 1);
+
+			for (int x=0; x<c.w; x++)
+			{
+				int	sx = Math.min(Math.max(x - PADDING, 0), w - 1);
+
+				atlas.setRGB(c.x + x, c.y + y, argb[sy * w + sx]);
+			}
+		}
+	}
+
+	private static int	nextPowerOfTwo(int n)
+	{
+		int	p = 1;
+
+		while (p < n)
+			p *= 2;
+
+		return p;
+	}
+
+	private static int	align(int n)
+	{
+		return ((n + ALIGN - 1) / ALIGN) * ALIGN;
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// Where a sprite is in its texture, in texture coordinates with t
+	// increasing upward.
+	public static final class Region
+	{
+		private Texture		texture;
+		private final float	s0;
+		private final float	t0;
+		private final float	s1;
+		private final float	t1;
+
+		public Region(Texture texture, float s0, float t0, float s1, float t1)
+		{
+			this.texture = texture;
+			this.s0 = s0;
+			this.t0 = t0;
+			this.s1 = s1;
+			this.t1 = t1;
+		}
+
+		// All of a texture.
+		public Region(Texture texture)
+		{
+			this(texture, 0.0f, 0.0f, 1.0f, 1.0f);
+		}
+
+		public Texture	getTexture()
+		{
+			return texture;
+		}
+
+		public float	getS0()
+		{
+			return s0;
+		}
+
+		public float	getT0()
+		{
+			return t0;
+		}
+
+		public float	getS1()
+		{
+			return s1;
+		}
+
+		public float	getT1()
+		{
+			return t1;
+		}
+
+		// Covers all of its texture?
+		public boolean	isWhole()
+		{
+			return ((s0 == 0.0f) && (t0 == 0.0f) && (s1 == 1.0f) &&
+					(t1 == 1.0f));
+		}
+	}
+
+	// A sprite being packed, with its padded, aligned size.
+	private static final class Cell
+	{
+		private final String		name;
+		private final BufferedImage	image;
+		private final int			w;
+		private final int			h;
+		private int				x;
+		private int				y;
+
+		public Cell(String name, BufferedImage image)
+		{
+			this.name = name;
+			this.image = image;
+			this.w = align(image.getWidth() + 2 * PADDING);
+			this.h = align(image.getHeight() + 2 * PADDING);
+		}
+	}
+}
+
+//******************************************************************************
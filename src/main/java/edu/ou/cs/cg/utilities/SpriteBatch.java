@@ -0,0 +1,398 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.fixedfunc.GLPointerFunc;
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>SpriteBatch</CODE> class collects textured sprites, each the
+ * front and back faces of a unit cube in some world matrix, and draws all the
+ * sprites that share a texture with a single glDrawArrays() call.<P>
+ *
+ * Each sprite's vertices are transformed into world coordinates as it's
+ * added, so sprites with different matrices can go in the same draw. All
+ * batches are streamed into one vertex buffer per flush, laid out as
+ * GL_T2F_C4F_N3F_V3F so that each sprite keeps its own color.<P>
+ *
+ * Sprites are drawn with blending on and an alpha test that throws away
+ * (nearly) clear texels, so that the clear parts of one sprite don't hide
+ * whatever is drawn behind it later.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class SpriteBatch
+{
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	public static final int	STRIDE = 12;	// Floats per vertex
+
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int[]		FACES = new int[] { 0, 1 };	// Of Cube
+	private static final int		VERTICES = 6 * FACES.length;	// Per sprite
+	private static final float		ALPHA_CUTOFF = 0.1f;
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final Map<Texture, Batch>	batches;	// By texture
+	private final ArrayList<Batch>		used;		// In first use order
+
+	private float[]				corners;	// Unit cube texcoords, points
+	private final float[]			p;			// Scratch transformed points
+
+	private FloatBuffer			buffer;		// Direct copy of all batches
+	private int					vbo;		// Stream buffer, or 0 if none yet
+
+	// Statistics for the sprites added so far
+	private int					added;
+	private int					addedBinds;		// If drawn as added
+	private Texture				lastTexture;
+
+	// Statistics for the last flush, as drawn and as added one by one
+	private int					sprites;
+	private int					binds;
+	private int					bindsUnsorted;
+	private int					drawCalls;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public SpriteBatch()
+	{
+		batches = new IdentityHashMap<Texture, Batch>();
+		used = new ArrayList<Batch>();
+
+		p = new float[VERTICES * 3];
+
+		buffer = Buffers.newDirectFloatBuffer(1024 * STRIDE);
+		vbo = 0;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// Sprites drawn in the last flush.
+	public int	getSprites()
+	{
+		return sprites;
+	}
+
+	// Texture binds in the last flush, as drawn and as added.
+	public int	getBinds()
+	{
+		return binds;
+	}
+
+	public int	getBindsUnsorted()
+	{
+		return bindsUnsorted;
+	}
+
+	// Draw calls in the last flush. Two per sprite if not batched.
+	public int	getDrawCalls()
+	{
+		return drawCalls;
+	}
+
+	public int	getDrawCallsUnsorted()
+	{
+		return sprites * FACES.length;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Add a sprite with the texture and color, in the (column-major) world
+	// matrix.
+	public void	add(Texture texture, float[] m, float r, float g, float b)
+	{
+		add(texture, 0.0f, 0.0f, 1.0f, 1.0f, m, r, g, b);
+	}
+
+	// Add a sprite showing part of an atlas, from (s0, t0) to (s1, t1), so
+	// that it's drawn along with every other sprite in the same atlas.
+	public void	add(SpriteAtlas.Region region, float[] m, float r, float g,
+					float b)
+	{
+		add(region.getTexture(), region.getS0(), region.getT0(),
+			region.getS1(), region.getT1(), m, r, g, b);
+	}
+
+	// Add a sprite with part of the texture.
+	public void	add(Texture texture, float s0, float t0, float s1, float t1,
+					float[] m, float r, float g, float b)
+	{
+		if (corners == null)
+			corners = buildCorners();
+
+		Batch	batch = batches.get(texture);
+
+		if (batch == null)
+		{
+			batch = new Batch(texture);
+			batches.put(texture, batch);
+		}
+
+		if (batch.count == 0)
+			used.add(batch);
+
+		if (texture != lastTexture)
+		{
+			addedBinds++;
+			lastTexture = texture;
+		}
+
+		added++;
+
+		// Transform the points of both faces
+		for (int i=0; i<VERTICES; i++)
+		{
+			float	x = corners[i * 5 + 2];
+			float	y = corners[i * 5 + 3];
+			float	z = corners[i * 5 + 4];
+
+			p[i * 3 + 0] = m[0] * x + m[4] * y + m[8] * z + m[12];
+			p[i * 3 + 1] = m[1] * x + m[5] * y + m[9] * z + m[13];
+			p[i * 3 + 2] = m[2] * x + m[6] * y + m[10] * z + m[14];
+		}
+
+		float[]	data = batch.reserve(VERTICES);
+		int		k = batch.count * STRIDE;
+
+		for (int i=0; i<VERTICES; i++)
+		{
+			// Face normal from the transformed triangle, which is the normal
+			// transformed by the inverse transpose; GL_NORMALIZE scales it.
+			int	t = (i / 3) * 3;
+			float	ux = p[(t + 1) * 3 + 0] - p[t * 3 + 0];
+			float	uy = p[(t + 1) * 3 + 1] - p[t * 3 + 1];
+			float	uz = p[(t + 1) * 3 + 2] - p[t * 3 + 2];
+			float	vx = p[(t + 2) * 3 + 0] - p[t * 3 + 0];
+			float	vy = p[(t + 2) * 3 + 1] - p[t * 3 + 1];
+			float	vz = p[(t + 2) * 3 + 2] - p[t * 3 + 2];
+
+			data[k++] = s0 + corners[i * 5 + 0] * (s1 - s0);
+			data[k++] = t0 + corners[i * 5 + 1] * (t1 - t0);
+			data[k++] = r;
+			data[k++] = g;
+			data[k++] = b;
+			data[k++] = 1.0f;
+			data[k++] = uy * vz - uz * vy;
+			data[k++] = uz * vx - ux * vz;
+			data[k++] = ux * vy - uy * vx;
+			data[k++] = p[i * 3 + 0];
+			data[k++] = p[i * 3 + 1];
+			data[k++] = p[i * 3 + 2];
+		}
+
+		batch.count += VERTICES;
+	}
+
+	// Draw and forget every sprite added since the last flush. Call with the
+	// view matrix as the current modelview matrix.
+	public void	flush(GL2 gl)
+	{
+		sprites = added;
+		binds = 0;
+		bindsUnsorted = addedBinds;
+		drawCalls = 0;
+
+		added = 0;
+		addedBinds = 0;
+		lastTexture = null;
+
+		if (used.isEmpty())
+			return;
+
+		upload(gl);
+
+		gl.glEnable(GL.GL_BLEND);
+		gl.glEnable(GL2.GL_ALPHA_TEST);
+		gl.glAlphaFunc(GL.GL_GREATER, ALPHA_CUTOFF);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo);
+		gl.glInterleavedArrays(GL2.GL_T2F_C4F_N3F_V3F, 0, 0L);
+
+		int	first = 0;
+
+		for (Batch batch : used)
+		{
+			if (batch.texture != null)
+			{
+				Mesh.bindTexture(gl, batch.texture);
+				binds++;
+			}
+
+			gl.glDrawArrays(GL.GL_TRIANGLES, first, batch.count);
+			drawCalls++;
+
+			if (batch.texture != null)
+				Mesh.unbindTexture(gl, batch.texture);
+
+			first += batch.count;
+		}
+
+		gl.glDisableClientState(GLPointerFunc.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_COLOR_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		gl.glDisable(GL2.GL_ALPHA_TEST);
+		gl.glDisable(GL.GL_BLEND);
+
+		// Start over next frame, keeping the arrays
+		for (Batch batch : used)
+			batch.count = 0;
+
+		used.clear();
+	}
+
+	// Delete the stream buffer. It will be created again if needed.
+	public void	dispose(GL2 gl)
+	{
+		if (vbo != 0)
+			gl.glDeleteBuffers(1, new int[] { vbo }, 0);
+
+		release();
+	}
+
+	// Forget the stream buffer without deleting it, for when the GL context
+	// it lived in is already gone.
+	public void	release()
+	{
+		vbo = 0;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Copy every used batch into the stream buffer, in the order drawn.
+	private void	upload(GL2 gl)
+	{
+		int	floats = 0;
+
+		for (Batch batch : used)
+			floats += batch.count * STRIDE;
+
+		if (buffer.capacity() < floats)
+			buffer = Buffers.newDirectFloatBuffer(Math.max(floats,
+												  buffer.capacity() * 2));
+
+		buffer.clear();
+
+		for (Batch batch : used)
+			buffer.put(batch.data, 0, batch.count * STRIDE);
+
+		buffer.flip();
+
+		if (vbo == 0)
+		{
+			int[]	ids = new int[1];
+
+			gl.glGenBuffers(1, ids, 0);
+			vbo = ids[0];
+		}
+
+		// Orphan last frame's storage rather than waiting for it
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER,
+						(long)floats * Buffers.SIZEOF_FLOAT,
+						null, GL2.GL_STREAM_DRAW);
+		gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0L,
+						   (long)floats * Buffers.SIZEOF_FLOAT, buffer);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	// Unit texcoords and points of the sprite's triangles, from the cube.
+	private static float[]	buildCorners()
+	{
+		Mesh		mesh = Cube.getMesh();
+		float[]	data = mesh.getData();
+		int[]		indices = mesh.getIndices();
+		float[]	c = new float[VERTICES * 5];
+		int		k = 0;
+
+		for (int face : FACES)
+		{
+			int	first = mesh.getFirst(face);
+
+			for (int i=first; i<first+mesh.getCount(face); i++)
+			{
+				int	v = indices[i] * Mesh.STRIDE;
+
+				c[k++] = data[v + 0];
+				c[k++] = data[v + 1];
+				c[k++] = data[v + 5];
+				c[k++] = data[v + 6];
+				c[k++] = data[v + 7];
+			}
+		}
+
+		return c;
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// The growing vertex data of all sprites with one texture.
+	private static final class Batch
+	{
+		private final Texture	texture;
+		private float[]		data;
+		private int			count;		// Vertices used this frame
+
+		public Batch(Texture texture)
+		{
+			this.texture = texture;
+			this.data = new float[64 * VERTICES * STRIDE];
+			this.count = 0;
+		}
+
+		// Make room for more vertices, returning the (maybe new) array.
+		public float[]	reserve(int vertices)
+		{
+			int	need = (count + vertices) * STRIDE;
+
+			if (data.length < need)
+			{
+				float[]	bigger = new float[Math.max(need, data.length * 2)];
+
+				System.arraycopy(data, 0, bigger, 0, count * STRIDE);
+				data = bigger;
+			}
+
+			return data;
+		}
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,272 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.util.ArrayList;
+
+//******************************************************************************
+
+/**
+ * The <CODE>StaticBatch</CODE> class holds a baked copy of everything a
+ * static subtree of the scene graph drew, so that the subtree can be drawn
+ * with one draw per texture and color instead of one per face.<P>
+ *
+ * Baking takes the items that the subtree submitted to a capturing
+ * RenderQueue, transforms the points of every triangle group into world
+ * coordinates and the normals by the inverse transpose, and appends them to
+ * one Mesh with a group for each texture and color. Anything else that was
+ * captured (lines, commands) is kept as is and resubmitted every frame.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class StaticBatch
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private Mesh							mesh;		// World space triangles
+	private final ArrayList<Texture>		textures;	// Of each mesh group
+	private final ArrayList<float[]>		colors;		// Of each mesh group
+	private final ArrayList<RenderQueue.Item>	others;	// Couldn't be baked
+
+	private int							version;	// Of the world baked in
+
+	private final float[]					inv;		// Scratch matrices
+	private final float[]					nm;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public StaticBatch()
+	{
+		mesh = null;
+		textures = new ArrayList<Texture>();
+		colors = new ArrayList<float[]>();
+		others = new ArrayList<RenderQueue.Item>();
+
+		version = -1;
+
+		inv = new float[16];
+		nm = new float[16];
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// The world matrix version of the node that was baked.
+	public int	getVersion()
+	{
+		return version;
+	}
+
+	// Draw groups in the baked mesh, not counting anything left unbaked.
+	public int	getGroupCount()
+	{
+		return textures.size();
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Queue everything that was baked.
+	public void	submit(RenderQueue queue)
+	{
+		for (int i=0; i<textures.size(); i++)
+		{
+			float[]	c = colors.get(i);
+
+			queue.submitWorld(mesh, i, textures.get(i), c[0], c[1], c[2]);
+		}
+
+		for (RenderQueue.Item item : others)
+			queue.resubmit(item);
+	}
+
+	// Delete the baked mesh's buffer objects.
+	public void	dispose(GL2 gl)
+	{
+		if (mesh != null)
+			mesh.dispose(gl);
+	}
+
+	//**********************************************************************
+	// Package Methods
+	//**********************************************************************
+
+	// Replace the baked mesh with what the capture queue collected. The old
+	// mesh's buffer objects are deleted.
+	void	bake(GL2 gl, RenderQueue captured, int version)
+	{
+		dispose(gl);
+
+		mesh = null;
+		textures.clear();
+		colors.clear();
+		others.clear();
+
+		this.version = version;
+
+		// Find the groups, and how many vertices go in each
+		ArrayList<Integer>	sizes = new ArrayList<Integer>();
+		int[]				slots = new int[captured.getItemCount()];
+
+		for (int i=0; i<captured.getItemCount(); i++)
+		{
+			RenderQueue.Item	item = captured.getItem(i);
+
+			if ((item.command != null) ||
+				(item.mesh.getMode(item.group) != GL2.GL_TRIANGLES))
+			{
+				others.add(copy(item));
+				slots[i] = -1;
+				continue;
+			}
+
+			int	slot = findGroup(item);
+
+			if (slot == sizes.size())
+			{
+				textures.add(item.texture);
+				colors.add(new float[] { item.r, item.g, item.b });
+				sizes.add(0);
+			}
+
+			sizes.set(slot, sizes.get(slot) + item.mesh.getCount(item.group));
+			slots[i] = slot;
+		}
+
+		if (textures.isEmpty())
+			return;
+
+		// Lay the groups out one after the other
+		int	n = textures.size();
+		int[]	modes = new int[n];
+		int[]	firsts = new int[n];
+		int[]	counts = new int[n];
+		int[]	next = new int[n];
+		int	total = 0;
+
+		for (int i=0; i<n; i++)
+		{
+			modes[i] = GL2.GL_TRIANGLES;
+			firsts[i] = total;
+			counts[i] = sizes.get(i);
+			next[i] = total;
+			total += counts[i];
+		}
+
+		float[]	data = new float[total * Mesh.STRIDE];
+		int[]		indices = new int[total];
+
+		for (int i=0; i<total; i++)
+			indices[i] = i;
+
+		for (int i=0; i<captured.getItemCount(); i++)
+		{
+			if (slots[i] < 0)
+				continue;
+
+			RenderQueue.Item	item = captured.getItem(i);
+
+			next[slots[i]] = append(item, data, next[slots[i]]);
+		}
+
+		mesh = new Mesh(data, indices, modes, firsts, counts);
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	private int	findGroup(RenderQueue.Item item)
+	{
+		for (int i=0; i<textures.size(); i++)
+		{
+			float[]	c = colors.get(i);
+
+			if ((textures.get(i) == item.texture) && (c[0] == item.r) &&
+				(c[1] == item.g) && (c[2] == item.b))
+				return i;
+		}
+
+		return textures.size();
+	}
+
+	// Transform the item's vertices into the data, starting at vertex v.
+	// Returns the vertex after the last one written.
+	private int	append(RenderQueue.Item item, float[] data, int v)
+	{
+		float[]	m = item.world;
+		float[]	src = item.mesh.getData();
+		int[]		idx = item.mesh.getIndices();
+		int		first = item.mesh.getFirst(item.group);
+		int		count = item.mesh.getCount(item.group);
+
+		// Normals go through the inverse transpose (GL_NORMALIZE fixes
+		// their length), or through the matrix itself if it can't be inverted
+		if (FloatUtil.invertMatrix(m, inv) != null)
+			FloatUtil.transposeMatrix(inv, nm);
+		else
+			System.arraycopy(m, 0, nm, 0, 16);
+
+		for (int i=first; i<first+count; i++)
+		{
+			int	s = idx[i] * Mesh.STRIDE;
+			int	d = v * Mesh.STRIDE;
+
+			float	nx = src[s + 2];
+			float	ny = src[s + 3];
+			float	nz = src[s + 4];
+			float	x = src[s + 5];
+			float	y = src[s + 6];
+			float	z = src[s + 7];
+
+			data[d + 0] = src[s + 0];
+			data[d + 1] = src[s + 1];
+			data[d + 2] = nm[0] * nx + nm[4] * ny + nm[8] * nz;
+			data[d + 3] = nm[1] * nx + nm[5] * ny + nm[9] * nz;
+			data[d + 4] = nm[2] * nx + nm[6] * ny + nm[10] * nz;
+			data[d + 5] = m[0] * x + m[4] * y + m[8] * z + m[12];
+			data[d + 6] = m[1] * x + m[5] * y + m[9] * z + m[13];
+			data[d + 7] = m[2] * x + m[6] * y + m[10] * z + m[14];
+
+			v++;
+		}
+
+		return v;
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	private static RenderQueue.Item	copy(RenderQueue.Item item)
+	{
+		RenderQueue.Item	c = new RenderQueue.Item();
+
+		c.mesh = item.mesh;
+		c.group = item.group;
+		c.texture = item.texture;
+		c.command = item.command;
+		c.transparent = item.transparent;
+		c.r = item.r;
+		c.g = item.g;
+		c.b = item.b;
+
+		System.arraycopy(item.world, 0, c.world, 0, 16);
+
+		return c;
+	}
+}
+
+//******************************************************************************
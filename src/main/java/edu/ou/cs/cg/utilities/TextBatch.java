@@ -0,0 +1,305 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.fixedfunc.GLLightingFunc;
+import com.jogamp.opengl.fixedfunc.GLPointerFunc;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>TextBatch</CODE> class collects laid out strings, each in some
+ * world matrix, and draws all the strings that use the same GlyphAtlas with
+ * a single glDrawArrays() call.<P>
+ *
+ * Like SpriteBatch, glyph quads are transformed into world coordinates as
+ * they're added and streamed into one vertex buffer per flush, here laid out
+ * as GL_T2F_C3F_V3F. Each glyph is drawn as one GL_QUADS quad, four vertices
+ * rather than two triangles' six, since a scene full of cards has hundreds of
+ * thousands of them. Text is drawn unlit, with the atlas's alpha test instead
+ * of blending, so it needs no sorting.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class TextBatch
+{
+	//**********************************************************************
+	// Public Class Members
+	//**********************************************************************
+
+	public static final int	STRIDE = 8;		// Floats per vertex
+
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int[]	QUAD = new int[] { 0, 1, 3, 2 };	// Corners
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final Map<GlyphAtlas, Run>	runs;	// By atlas
+	private final ArrayList<Run>		used;	// In first use order
+
+	private int					vbo;		// Stream buffer, or 0 if none yet
+
+	// Statistics for the strings added so far
+	private int					added;
+	private int					addedGlyphs;
+
+	// Statistics for the last flush
+	private int					strings;
+	private int					glyphs;
+	private int					drawCalls;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public TextBatch()
+	{
+		runs = new IdentityHashMap<GlyphAtlas, Run>();
+		used = new ArrayList<Run>();
+
+		vbo = 0;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// Strings drawn in the last flush.
+	public int	getStrings()
+	{
+		return strings;
+	}
+
+	// Glyphs drawn in the last flush.
+	public int	getGlyphs()
+	{
+		return glyphs;
+	}
+
+	// Draw calls in the last flush, one per atlas.
+	public int	getDrawCalls()
+	{
+		return drawCalls;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Add a layout at (x, y), scaled, in the (column-major) world matrix m.
+	public void	add(GlyphAtlas.Layout layout, float[] m, float x, float y,
+					float scale, float r, float g, float b)
+	{
+		Run	run = runs.get(layout.getAtlas());
+
+		if (run == null)
+		{
+			run = new Run(layout.getAtlas());
+			runs.put(layout.getAtlas(), run);
+		}
+
+		if (run.count == 0)
+			used.add(run);
+
+		added++;
+		addedGlyphs += layout.getGlyphCount();
+
+		float[]	q = layout.getQuads();
+		int		n = layout.getGlyphCount() * 4;
+		float[]	data = run.reserve(n);
+		int		k = run.count * STRIDE;
+
+		for (int i=0; i<layout.getGlyphCount(); i++)
+		{
+			for (int j=0; j<4; j++)
+			{
+				int	c = QUAD[j];
+				float	px = x + scale * q[i * 8 + (c & 1) * 2];
+				float	py = y + scale * q[i * 8 + 1 + (c >> 1) * 2];
+
+				data[k++] = q[i * 8 + 4 + (c & 1) * 2];
+				data[k++] = q[i * 8 + 5 + (c >> 1) * 2];
+				data[k++] = r;
+				data[k++] = g;
+				data[k++] = b;
+				data[k++] = m[0] * px + m[4] * py + m[12];
+				data[k++] = m[1] * px + m[5] * py + m[13];
+				data[k++] = m[2] * px + m[6] * py + m[14];
+			}
+		}
+
+		run.count += n;
+	}
+
+	// Draw and forget every string added since the last flush. Call with the
+	// view matrix as the current modelview matrix.
+	public void	flush(GL2 gl)
+	{
+		strings = added;
+		glyphs = addedGlyphs;
+		drawCalls = 0;
+
+		added = 0;
+		addedGlyphs = 0;
+
+		if (used.isEmpty())
+			return;
+
+		upload(gl);
+
+		boolean	lit = gl.glIsEnabled(GLLightingFunc.GL_LIGHTING);
+
+		if (lit)
+			gl.glDisable(GLLightingFunc.GL_LIGHTING);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo);
+		gl.glInterleavedArrays(GL2.GL_T2F_C3F_V3F, 0, 0L);
+
+		int	first = 0;
+
+		for (Run run : used)
+		{
+			run.atlas.begin(gl);
+			gl.glDrawArrays(GL2.GL_QUADS, first, run.count);
+			run.atlas.end(gl);
+
+			drawCalls++;
+			first += run.count;
+		}
+
+		gl.glDisableClientState(GLPointerFunc.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_COLOR_ARRAY);
+		gl.glDisableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		if (lit)
+			gl.glEnable(GLLightingFunc.GL_LIGHTING);
+
+		// Start over next frame, keeping the arrays
+		clear();
+	}
+
+	// Forget every string added since the last flush without drawing them,
+	// keeping the arrays.
+	public void	clear()
+	{
+		for (Run run : used)
+			run.count = 0;
+
+		used.clear();
+
+		added = 0;
+		addedGlyphs = 0;
+	}
+
+	// Delete the stream buffer. It will be created again if needed.
+	public void	dispose(GL2 gl)
+	{
+		if (vbo != 0)
+			gl.glDeleteBuffers(1, new int[] { vbo }, 0);
+
+		release();
+	}
+
+	// Forget the stream buffer without deleting it, for when the GL context
+	// it lived in is already gone.
+	public void	release()
+	{
+		vbo = 0;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Copy every used run into the stream buffer, in the order drawn. Each
+	// run goes straight from its array, without a copy into a direct buffer
+	// first.
+	private void	upload(GL2 gl)
+	{
+		int	floats = 0;
+
+		for (Run run : used)
+			floats += run.count * STRIDE;
+
+		if (vbo == 0)
+		{
+			int[]	ids = new int[1];
+
+			gl.glGenBuffers(1, ids, 0);
+			vbo = ids[0];
+		}
+
+		// Orphan last frame's storage rather than waiting for it
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER,
+						(long)floats * Buffers.SIZEOF_FLOAT,
+						null, GL2.GL_STREAM_DRAW);
+
+		long	offset = 0L;
+
+		for (Run run : used)
+		{
+			long	size = (long)run.count * STRIDE * Buffers.SIZEOF_FLOAT;
+
+			gl.glBufferSubData(GL.GL_ARRAY_BUFFER, offset, size,
+							   FloatBuffer.wrap(run.data, 0,
+												run.count * STRIDE));
+			offset += size;
+		}
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// The growing vertex data of all strings with one atlas.
+	private static final class Run
+	{
+		private final GlyphAtlas	atlas;
+		private float[]			data;
+		private int				count;		// Vertices used this frame
+
+		public Run(GlyphAtlas atlas)
+		{
+			this.atlas = atlas;
+			this.data = new float[1024 * STRIDE];
+			this.count = 0;
+		}
+
+		// Make room for more vertices, returning the (maybe new) array.
+		public float[]	reserve(int vertices)
+		{
+			int	need = (count + vertices) * STRIDE;
+
+			if (data.length < need)
+			{
+				float[]	bigger = new float[Math.max(need, data.length * 2)];
+
+				System.arraycopy(data, 0, bigger, 0, count * STRIDE);
+				data = bigger;
+			}
+
+			return data;
+		}
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,321 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLProfile;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//******************************************************************************
+
+/**
+ * The <CODE>TextureLoader</CODE> class decodes image files on a pool of
+ * worker threads and uploads them on the GL thread a few at a time, so that
+ * the first frames can be drawn before every image has been read.<P>
+ *
+ * load() returns at once with a 1x1 placeholder texture, either opaque gray
+ * or fully clear. When the image has been decoded, update() replaces the
+ * placeholder's contents with glTexImage2D() on the same texture object, so
+ * anything already holding the Texture (nodes, the render queue's
+ * transparency set) starts drawing the real image without being told.
+ * update() uploads decoded images until it has copied a budget of bytes, and
+ * always at least one, so a frame is never held up by every upload at once.<P>
+ *
+ * Decoded RGBA images are premultiplied by alpha on the worker, to go with
+ * glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA) the same as MipCache's.
+ * Textures are filtered with GL_LINEAR and clamped to their edges.<P>
+ *
+ * Only call load() and update() from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class TextureLoader
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final byte[]	OPAQUE = { (byte)128, (byte)128, (byte)128,
+										   (byte)255 };
+	private static final byte[]	CLEAR = { 0, 0, 0, 0 };
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final ExecutorService					workers;
+	private final ConcurrentLinkedQueue<Pending>	decoded;	// Ready to upload
+
+	private final long		budget;		// Bytes uploaded per update()
+	private int			generation;	// Of the current GL context
+	private int			pending;	// Loads not yet uploaded
+
+	// Timing, in nanoseconds, of the loads since the last time there were
+	// none pending
+	private long			started;
+	private long			finished;	// Or 0 if still loading
+
+	// Statistics for the last update()
+	private int			uploads;
+	private long			uploaded;	// Bytes
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	// Decode on the given number of threads, uploading at most about budget
+	// bytes per frame.
+	public TextureLoader(int threads, long budget)
+	{
+		this.workers = Executors.newFixedThreadPool(Math.max(threads, 1),
+													new DaemonFactory());
+		this.decoded = new ConcurrentLinkedQueue<Pending>();
+
+		this.budget = budget;
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	// Loads that haven't been uploaded yet.
+	public int	getPending()
+	{
+		return pending;
+	}
+
+	public boolean	isDone()
+	{
+		return (pending == 0);
+	}
+
+	// Nanoseconds from the first load() to the last upload, or -1 if some
+	// loads are still pending.
+	public long	getLoadTime()
+	{
+		return ((pending == 0) ? (finished - started) : -1L);
+	}
+
+	// Textures uploaded in the last update().
+	public int	getUploads()
+	{
+		return uploads;
+	}
+
+	// Bytes uploaded in the last update().
+	public long	getUploaded()
+	{
+		return uploaded;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Start decoding the image at the URL, returning a placeholder texture
+	// that will be given the image in a later update(). Transparent images get
+	// a clear placeholder, so that nothing shows until they've loaded.
+	public Texture	load(GL2 gl, URL url, String suffix, boolean transparent)
+	{
+		Texture	texture = new Texture(gl, placeholder(gl.getGLProfile(),
+													  transparent));
+
+		setParameters(gl, texture);
+		load(gl, texture, url, suffix, null);
+
+		return texture;
+	}
+
+	// Start decoding the image at the URL into an existing texture, which is
+	// given the image in a later update(). The listener, if any, is told when
+	// that happens, or if the image couldn't be decoded.
+	public void	load(GL2 gl, Texture texture, URL url, String suffix,
+					 Listener listener)
+	{
+		final GLProfile	profile = gl.getGLProfile();
+		final Pending		p = new Pending();
+
+		p.texture = texture;
+		p.listener = listener;
+		p.generation = generation;
+
+		if (pending == 0)
+			started = System.nanoTime();
+
+		pending++;
+
+		workers.execute(() -> {
+			try
+			{
+				p.data = TextureIO.newTextureData(profile, url, false, suffix);
+				premultiply(p.data);
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+			}
+
+			decoded.add(p);
+		});
+	}
+
+	// Upload decoded images until the byte budget is used up. Returns true if
+	// any texture changed.
+	public boolean	update(GL2 gl)
+	{
+		uploads = 0;
+		uploaded = 0L;
+
+		Pending	p;
+
+		while ((uploaded < budget || uploads == 0) &&
+			   ((p = decoded.poll()) != null))
+		{
+			if (p.generation != generation)
+				continue;
+
+			pending--;
+
+			long	bytes = -1L;
+
+			if (p.data != null)
+			{
+				p.texture.updateImage(gl, p.data);
+				setParameters(gl, p.texture);
+
+				bytes = p.data.getWidth() * p.data.getHeight() * 4L;
+				uploaded += bytes;
+				uploads++;
+
+				p.data.flush();
+				p.data = null;
+			}
+
+			if (p.listener != null)
+				p.listener.loaded(p.texture, bytes);
+
+			if (pending == 0)
+				finished = System.nanoTime();
+		}
+
+		return (uploads > 0);
+	}
+
+	// Forget every pending load, for when the textures it was to fill are
+	// gone along with their GL context. Decodes already running still finish,
+	// but their images are dropped.
+	public void	release()
+	{
+		generation++;
+		pending = 0;
+		decoded.clear();
+	}
+
+	// Stop the worker threads. The loader can't be used after this.
+	public void	shutdown()
+	{
+		release();
+		workers.shutdownNow();
+	}
+
+	//**********************************************************************
+	// Package Class Methods
+	//**********************************************************************
+
+	// A 1x1 texel, opaque gray or clear, for textures without their image.
+	static TextureData	placeholder(GLProfile profile, boolean transparent)
+	{
+		ByteBuffer	texel = ByteBuffer.allocateDirect(4);
+
+		texel.put(transparent ? CLEAR : OPAQUE);
+		texel.flip();
+
+		return new TextureData(profile, GL.GL_RGBA, 1, 1, 0, GL.GL_RGBA,
+							   GL.GL_UNSIGNED_BYTE, false, false, false,
+							   texel, null);
+	}
+
+	// Filter linearly without mipmaps, clamped to the edges.
+	static void	setParameters(GL2 gl, Texture texture)
+	{
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_WRAP_S,
+								 GL.GL_CLAMP_TO_EDGE);
+		texture.setTexParameteri(gl, GL.GL_TEXTURE_WRAP_T,
+								 GL.GL_CLAMP_TO_EDGE);
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	// Scale the colors of 8 bit RGBA data by alpha, in place.
+	private static void	premultiply(TextureData data)
+	{
+		if ((data.getPixelFormat() != GL.GL_RGBA) ||
+			(data.getPixelType() != GL.GL_UNSIGNED_BYTE) ||
+			!(data.getBuffer() instanceof ByteBuffer))
+			return;
+
+		ByteBuffer	b = (ByteBuffer)data.getBuffer();
+
+		for (int i=b.position(); i+3<b.limit(); i+=4)
+		{
+			int	a = b.get(i + 3) & 0xFF;
+
+			for (int j=0; j<3; j++)
+				b.put(i + j, (byte)(((b.get(i + j) & 0xFF) * a + 127) / 255));
+		}
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// Told when a texture has been given its image.
+	public interface Listener
+	{
+		// Bytes is the estimated size of the image, or -1 if it couldn't
+		// be decoded and the texture was left as it was.
+		public void	loaded(Texture texture, long bytes);
+	}
+
+	// A texture waiting for its image. The data is written by a worker and
+	// read on the GL thread after it comes through the queue.
+	private static final class Pending
+	{
+		private Texture		texture;
+		private Listener		listener;	// Or null
+		private int			generation;
+		private TextureData	data;		// Or null if it couldn't be decoded
+	}
+
+	private static final class DaemonFactory implements ThreadFactory
+	{
+		private final AtomicInteger	count = new AtomicInteger();
+
+		public Thread	newThread(Runnable r)
+		{
+			Thread	t = new Thread(r, "texture-decoder-" +
+									 count.incrementAndGet());
+
+			t.setDaemon(true);
+
+			return t;
+		}
+	}
+}
+
+//******************************************************************************
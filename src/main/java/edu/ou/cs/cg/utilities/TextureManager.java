@@ -0,0 +1,348 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>TextureManager</CODE> class keeps textures resident only while
+ * they're being drawn, within a memory budget.<P>
+ *
+ * add() returns a texture that starts out as a 1x1 placeholder. The first
+ * time it's asked for by Node.getTexture() or bound by Mesh.bindTexture()
+ * while the manager is current, its image is loaded: uploaded at the next
+ * update() from a MipCache if the cache has it, otherwise decoded in the
+ * background by a TextureLoader. Whenever the estimated bytes of every
+ * resident image add up to more than the budget, update() evicts the least
+ * recently used textures that haven't been drawn for a number of frames,
+ * turning them back into placeholders until they're drawn again.<P>
+ *
+ * The Texture objects themselves are never replaced, only their images, so
+ * nodes, render queues, and baked batches can hold onto them.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class TextureManager implements TextureLoader.Listener
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	// Manager that textures being drawn are reported to, if any
+	private static TextureManager	current;
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final TextureLoader				loader;
+	private MipCache						cache;		// Or null if none
+	private final Map<Texture, Entry>		entries;	// By texture
+	private final ArrayList<Entry>			requested;	// To load at update()
+
+	private final long		budget;		// Most resident bytes wanted
+	private final int		idle;		// Frames unused before evictable
+	private int			frame;		// Counted by update()
+
+	// Statistics, since creation
+	private long			resident;	// Bytes
+	private int			hits;		// Uses of resident textures
+	private int			misses;		// Uses that started a load
+	private int			evictions;
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	// Keep at most about budget bytes resident, evicting textures that
+	// haven't been drawn for idle frames.
+	public TextureManager(TextureLoader loader, long budget, int idle)
+	{
+		this.loader = loader;
+		this.cache = null;
+		this.entries = new IdentityHashMap<Texture, Entry>();
+		this.requested = new ArrayList<Entry>();
+
+		this.budget = budget;
+		this.idle = Math.max(idle, 1);
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public static TextureManager	getCurrent()
+	{
+		return current;
+	}
+
+	// Make this the manager that textures being drawn are reported to.
+	public static void	setCurrent(TextureManager manager)
+	{
+		current = manager;
+	}
+
+	// Load images from the cache when it has them.
+	public void	setCache(MipCache cache)
+	{
+		this.cache = cache;
+	}
+
+	public long	getBudget()
+	{
+		return budget;
+	}
+
+	// Estimated bytes of every resident image.
+	public long	getResidentBytes()
+	{
+		return resident;
+	}
+
+	public int	getHits()
+	{
+		return hits;
+	}
+
+	public int	getMisses()
+	{
+		return misses;
+	}
+
+	public int	getEvictions()
+	{
+		return evictions;
+	}
+
+	// Textures drawn but still waiting for their images.
+	public int	getPending()
+	{
+		int	n = requested.size();
+
+		for (Entry e : entries.values())
+			if (e.loading)
+				n++;
+
+		return n;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Manage the image with the file name, from the cache or the URL (which
+	// can be null if the cache has it). Nothing is loaded until it's drawn.
+	public Texture	add(GL2 gl, String name, URL url, boolean transparent)
+	{
+		Texture	texture = new Texture(gl, TextureLoader.placeholder(
+										  gl.getGLProfile(), transparent));
+
+		TextureLoader.setParameters(gl, texture);
+
+		Entry	e = new Entry();
+
+		e.texture = texture;
+		e.name = name;
+		e.url = url;
+		e.transparent = transparent;
+		e.used = -1;
+
+		entries.put(texture, e);
+
+		return texture;
+	}
+
+	// Start the loads of the textures drawn since the last update(), upload
+	// whatever has been decoded, and evict what's over budget. Call once per
+	// frame. Returns true if any texture was given its image.
+	public boolean	update(GL2 gl)
+	{
+		boolean	changed = false;
+
+		for (Entry e : requested)
+		{
+			long	bytes = ((cache != null) ? cache.update(gl, e.name,
+														   e.texture) : -1L);
+
+			if (bytes >= 0L)
+			{
+				e.requested = false;
+				setResident(e, bytes);
+				changed = true;
+			}
+			else if (e.url != null)
+			{
+				e.requested = false;
+				e.loading = true;
+				loader.load(gl, e.texture, e.url, getSuffix(e.name), this);
+			}
+			else
+			{
+				e.requested = false;
+				e.failed = true;
+				System.err.println("No image for texture " + e.name);
+			}
+		}
+
+		requested.clear();
+
+		changed |= loader.update(gl);
+
+		evict(gl);
+		frame++;
+
+		return changed;
+	}
+
+	// Delete every texture. They can't be drawn after this.
+	public void	dispose(GL2 gl)
+	{
+		for (Entry e : entries.values())
+			e.texture.destroy(gl);
+
+		release();
+	}
+
+	// Forget every texture without deleting it, for when the GL context they
+	// lived in is already gone.
+	public void	release()
+	{
+		loader.release();
+		entries.clear();
+		requested.clear();
+		resident = 0L;
+	}
+
+	//**********************************************************************
+	// Override Methods (TextureLoader.Listener)
+	//**********************************************************************
+
+	public void	loaded(Texture texture, long bytes)
+	{
+		Entry	e = entries.get(texture);
+
+		if (e == null)
+			return;
+
+		e.loading = false;
+
+		if (bytes >= 0L)
+			setResident(e, bytes);
+		else
+			e.failed = true;
+	}
+
+	//**********************************************************************
+	// Package Class Methods
+	//**********************************************************************
+
+	// Note that the texture is being drawn this frame, starting its load if
+	// it isn't resident.
+	static void	touch(Texture texture)
+	{
+		if (current != null)
+			current.use(texture);
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	private void	use(Texture texture)
+	{
+		Entry	e = entries.get(texture);
+
+		if ((e == null) || (e.used == frame))
+			return;
+
+		e.used = frame;
+
+		if (e.resident)
+		{
+			hits++;
+		}
+		else if (!e.loading && !e.requested && !e.failed)
+		{
+			e.requested = true;
+			requested.add(e);
+			misses++;
+		}
+	}
+
+	private void	setResident(Entry e, long bytes)
+	{
+		e.resident = true;
+		e.bytes = bytes;
+		resident += bytes;
+	}
+
+	// Turn least recently used textures back into placeholders until the
+	// resident images fit in the budget, or no more are idle long enough.
+	private void	evict(GL2 gl)
+	{
+		while (resident > budget)
+		{
+			Entry	lru = null;
+
+			for (Entry e : entries.values())
+				if (e.resident && (frame - e.used >= idle) &&
+					((lru == null) || (e.used < lru.used)))
+					lru = e;
+
+			if (lru == null)
+				return;
+
+			lru.texture.updateImage(gl, TextureLoader.placeholder(
+										gl.getGLProfile(), lru.transparent));
+			TextureLoader.setParameters(gl, lru.texture);
+
+			lru.resident = false;
+			resident -= lru.bytes;
+			lru.bytes = 0L;
+			evictions++;
+		}
+	}
+
+	//**********************************************************************
+	// Private Class Methods
+	//**********************************************************************
+
+	private static String	getSuffix(String name)
+	{
+		int	dot = name.lastIndexOf('.');
+
+		return ((dot < 0) ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	private static final class Entry
+	{
+		private Texture		texture;
+		private String		name;		// Image file name, cache key
+		private URL			url;		// To decode from, or null
+		private boolean		transparent;
+
+		private boolean		resident;	// Has its image?
+		private boolean		requested;	// Waiting for update()?
+		private boolean		loading;	// Being decoded?
+		private boolean		failed;		// Couldn't be loaded, don't retry
+		private long		bytes;		// Estimated, if resident
+		private int			used;		// Frame last drawn, or -1
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,301 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//******************************************************************************
+
+/**
+ * The <CODE>ThumbnailCache</CODE> class keeps a bounded pool of textures
+ * that things can be drawn into once and then drawn from as a single quad,
+ * such as an impostor for an object that rarely changes.<P>
+ *
+ * Each thumbnail is a color texture attached to a framebuffer object, with a
+ * depth renderbuffer, all at the same configurable resolution. Thumbnails
+ * are looked up by key along with a version number; if the version is the
+ * same as the last time the thumbnail was drawn, the texture is reused as
+ * is, otherwise it's drawn again. When the pool is full, the least recently
+ * used thumbnail's buffers are taken over for the new key.<P>
+ *
+ * Only use from the GL thread.<P>
+ *
+ * @author  Parker Brandt
+ */
+public final class ThumbnailCache
+{
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private final LinkedHashMap<Object, Entry>	entries;	// Oldest first
+
+	private int				capacity;	// Most thumbnails kept at once
+	private int				width;		// Resolution of every thumbnail
+	private int				height;
+
+	private final int[]		viewport;	// Saved while drawing a thumbnail
+	private final int[]		ids;		// Scratch for gen and delete calls
+
+	// Statistics, since last reset
+	private int				draws;		// Thumbnails (re)drawn
+	private int				hits;		// Thumbnails reused
+
+	//**********************************************************************
+	// Constructors and Finalizer
+	//**********************************************************************
+
+	public ThumbnailCache(int capacity, int width, int height)
+	{
+		this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+		this.capacity = Math.max(capacity, 1);
+		this.width = width;
+		this.height = height;
+
+		this.viewport = new int[4];
+		this.ids = new int[1];
+	}
+
+	//**********************************************************************
+	// Getters and Setters
+	//**********************************************************************
+
+	public int	getCapacity()
+	{
+		return capacity;
+	}
+
+	public int	getWidth()
+	{
+		return width;
+	}
+
+	public int	getHeight()
+	{
+		return height;
+	}
+
+	public int	getSize()
+	{
+		return entries.size();
+	}
+
+	// Change the resolution and pool size. Every thumbnail is deleted, so
+	// they'll all be drawn again at the new resolution when next asked for.
+	public void	configure(GL2 gl, int capacity, int width, int height)
+	{
+		dispose(gl);
+
+		this.capacity = Math.max(capacity, 1);
+		this.width = width;
+		this.height = height;
+	}
+
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Get the thumbnail for the key, first drawing it with the painter if
+	// it's new or its version has changed. The painter is called with the
+	// thumbnail's framebuffer bound, the viewport covering it, and the color
+	// and depth buffers cleared. It must set up and restore its own matrices.
+	public Texture	get(GL2 gl, Object key, int version, Painter painter)
+	{
+		Entry	entry = entries.get(key);
+
+		if ((entry != null) && (entry.version == version))
+		{
+			hits++;
+			return entry.texture;
+		}
+
+		if (entry == null)
+			entry = reuseOrCreate(gl, key);
+
+		paint(gl, entry, painter);
+		entry.version = version;
+		draws++;
+
+		return entry.texture;
+	}
+
+	// Forget a key's thumbnail, freeing its place in the pool.
+	public void	remove(GL2 gl, Object key)
+	{
+		Entry	entry = entries.remove(key);
+
+		if (entry != null)
+			delete(gl, entry);
+	}
+
+	// Delete every thumbnail.
+	public void	dispose(GL2 gl)
+	{
+		for (Entry entry : entries.values())
+			delete(gl, entry);
+
+		entries.clear();
+	}
+
+	// Forget every thumbnail without deleting them, for when the GL context
+	// they lived in is already gone.
+	public void	release()
+	{
+		entries.clear();
+	}
+
+	//**********************************************************************
+	// Public Methods (Statistics)
+	//**********************************************************************
+
+	public void	resetStats()
+	{
+		draws = 0;
+		hits = 0;
+	}
+
+	public int	getDraws()
+	{
+		return draws;
+	}
+
+	public int	getHits()
+	{
+		return hits;
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Take over the least recently used entry if the pool is full.
+	private Entry	reuseOrCreate(GL2 gl, Object key)
+	{
+		Entry	entry;
+
+		if (entries.size() < capacity)
+		{
+			entry = create(gl);
+		}
+		else
+		{
+			Iterator<Map.Entry<Object, Entry>>	it =
+				entries.entrySet().iterator();
+
+			entry = it.next().getValue();
+			it.remove();
+		}
+
+		entries.put(key, entry);
+
+		return entry;
+	}
+
+	private Entry	create(GL2 gl)
+	{
+		Entry	entry = new Entry();
+
+		gl.glGenTextures(1, ids, 0);
+		entry.color = ids[0];
+
+		gl.glBindTexture(GL.GL_TEXTURE_2D, entry.color);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER,
+						   GL.GL_LINEAR);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER,
+						   GL.GL_LINEAR);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S,
+						   GL.GL_CLAMP_TO_EDGE);
+		gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T,
+						   GL.GL_CLAMP_TO_EDGE);
+		gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA8, width, height, 0,
+						GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, null);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+
+		gl.glGenRenderbuffers(1, ids, 0);
+		entry.depth = ids[0];
+
+		gl.glBindRenderbuffer(GL.GL_RENDERBUFFER, entry.depth);
+		gl.glRenderbufferStorage(GL.GL_RENDERBUFFER, GL.GL_DEPTH_COMPONENT24,
+								 width, height);
+		gl.glBindRenderbuffer(GL.GL_RENDERBUFFER, 0);
+
+		int	previous = gl.getBoundFramebuffer(GL.GL_FRAMEBUFFER);
+
+		gl.glGenFramebuffers(1, ids, 0);
+		entry.fbo = ids[0];
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, entry.fbo);
+		gl.glFramebufferTexture2D(GL.GL_FRAMEBUFFER, GL.GL_COLOR_ATTACHMENT0,
+								  GL.GL_TEXTURE_2D, entry.color, 0);
+		gl.glFramebufferRenderbuffer(GL.GL_FRAMEBUFFER,
+									 GL.GL_DEPTH_ATTACHMENT,
+									 GL.GL_RENDERBUFFER, entry.depth);
+
+		int	status = gl.glCheckFramebufferStatus(GL.GL_FRAMEBUFFER);
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, previous);
+
+		if (status != GL.GL_FRAMEBUFFER_COMPLETE)
+			System.err.println("Thumbnail framebuffer incomplete: 0x" +
+							   Integer.toHexString(status));
+
+		entry.texture = new Texture(entry.color, GL.GL_TEXTURE_2D,
+									width, height, width, height, false);
+
+		return entry;
+	}
+
+	private void	paint(GL2 gl, Entry entry, Painter painter)
+	{
+		int	previous = gl.getBoundFramebuffer(GL.GL_FRAMEBUFFER);
+
+		gl.glGetIntegerv(GL.GL_VIEWPORT, viewport, 0);
+		gl.glPushAttrib(GL.GL_COLOR_BUFFER_BIT);
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, entry.fbo);
+		gl.glViewport(0, 0, width, height);
+		gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+		gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+
+		painter.paint(gl);
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, previous);
+		gl.glPopAttrib();
+		gl.glViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+	}
+
+	private void	delete(GL2 gl, Entry entry)
+	{
+		gl.glDeleteFramebuffers(1, new int[] { entry.fbo }, 0);
+		gl.glDeleteRenderbuffers(1, new int[] { entry.depth }, 0);
+		gl.glDeleteTextures(1, new int[] { entry.color }, 0);
+	}
+
+	//**********************************************************************
+	// Inner Classes
+	//**********************************************************************
+
+	// Draws the contents of a thumbnail.
+	public interface Painter
+	{
+		public void	paint(GL2 gl);
+	}
+
+	private static final class Entry
+	{
+		private int		fbo;
+		private int		color;
+		private int		depth;
+		private Texture	texture;
+		private int		version;
+	}
+}
+
+//******************************************************************************
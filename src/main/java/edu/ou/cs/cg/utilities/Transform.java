@@ -20,6 +20,7 @@ package edu.ou.cs.cg.utilities;
 
 //import java.lang.*;
 import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.math.FloatUtil;
 
 //******************************************************************************
 
@@ -32,6 +33,22 @@ import com.jogamp.opengl.GL2;
  */
 public abstract class Transform
 {
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	// Scratch space for multForward(). Only touch from the GL thread.
+	private static final float[]	TMP = new float[16];
+	private static final float[]	TMP_VEC = new float[3];
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	// Node this transform is an animatable slot of, or null. Slots are
+	// updated in place and never folded into their neighbors.
+	Node							owner;
+
 	//**********************************************************************
 	// Constructors and Finalizer
 	//**********************************************************************
@@ -40,6 +57,27 @@ public abstract class Transform
 	{
 	}
 
+	//**********************************************************************
+	// Public Methods
+	//**********************************************************************
+
+	// Is this transform an animatable slot of some node?
+	public final boolean	isSlot()
+	{
+		return (owner != null);
+	}
+
+	//**********************************************************************
+	// Protected Methods
+	//**********************************************************************
+
+	// Call after changing parameters in place so the owner recomposes.
+	protected final void	changed()
+	{
+		if (owner != null)
+			owner.invalidate();
+	}
+
 	//**********************************************************************
 	// Public Methods (Abstract)
 	//**********************************************************************
@@ -50,6 +88,17 @@ public abstract class Transform
 	// Applies the inverse transform.
 	public abstract void	applyInverse(GL2 gl);
 
+	// Multiplies the forward transform onto the right of the (column-major)
+	// matrix m, just like applyForward() does to the current GL matrix.
+	public abstract void	multForward(float[] m);
+
+	// Returns one transform equivalent to applying this transform and then
+	// the next one, or null if the two can't be combined.
+	public Transform	fold(Transform next)
+	{
+		return null;
+	}
+
 	//**********************************************************************
 	// Inner Classes
 	//**********************************************************************
@@ -60,9 +109,9 @@ public abstract class Transform
 		// Private Members
 		//**************************************************************
 
-		private final float		dx;
-		private final float		dy;
-		private final float		dz;
+		private float			dx;
+		private float			dy;
+		private float			dz;
 
 		//**************************************************************
 		// Constructors and Finalizer
@@ -75,6 +124,23 @@ public abstract class Transform
 			this.dz = dz;
 		}
 
+		//**************************************************************
+		// Public Methods
+		//**************************************************************
+
+		// Update the offsets in place, e.g. once per frame of an animation.
+		public void		set(float dx, float dy, float dz)
+		{
+			if ((this.dx == dx) && (this.dy == dy) && (this.dz == dz))
+				return;
+
+			this.dx = dx;
+			this.dy = dy;
+			this.dz = dz;
+
+			changed();
+		}
+
 		//**************************************************************
 		// Override Methods (Transform)
 		//**************************************************************
@@ -88,6 +154,22 @@ public abstract class Transform
 		{
 			gl.glTranslatef(-dx, -dy, -dz);
 		}
+
+		public void		multForward(float[] m)
+		{
+			FloatUtil.multMatrix(m, FloatUtil.makeTranslation(TMP, true,
+															 dx, dy, dz));
+		}
+
+		public Transform	fold(Transform next)
+		{
+			if (!(next instanceof Translate))
+				return null;
+
+			Translate	t = (Translate)next;
+
+			return new Translate(dx + t.dx, dy + t.dy, dz + t.dz);
+		}
 	}
 
 	public static final class Scale extends Transform
@@ -124,10 +206,33 @@ public abstract class Transform
 		{
 			gl.glScalef(1.0f / sx, 1.0f / sy, 1.0f / sz);
 		}
+
+		public void		multForward(float[] m)
+		{
+			FloatUtil.multMatrix(m, FloatUtil.makeScale(TMP, true,
+													   sx, sy, sz));
+		}
+
+		public Transform	fold(Transform next)
+		{
+			if (!(next instanceof Scale))
+				return null;
+
+			Scale	t = (Scale)next;
+
+			return new Scale(sx * t.sx, sy * t.sy, sz * t.sz);
+		}
 	}
 
 	public static final class Rotate extends Transform
 	{
+		//**************************************************************
+		// Private Class Members
+		//**************************************************************
+
+		// Most angle between axes, in radians, for folding rotations
+		private static final float	AXIS_TOLERANCE = 1.0e-6f;
+
 		//**************************************************************
 		// Private Members
 		//**************************************************************
@@ -135,7 +240,7 @@ public abstract class Transform
 		private final float		ux;
 		private final float		uy;
 		private final float		uz;
-		private final float		beta;
+		private float			beta;
 
 		//**************************************************************
 		// Constructors and Finalizer
@@ -149,6 +254,21 @@ public abstract class Transform
 			this.beta = beta;
 		}
 
+		//**************************************************************
+		// Public Methods
+		//**************************************************************
+
+		// Update the angle in place, e.g. once per frame of an animation.
+		public void		setAngle(float beta)
+		{
+			if (this.beta == beta)
+				return;
+
+			this.beta = beta;
+
+			changed();
+		}
+
 		//**************************************************************
 		// Override Methods (Transform)
 		//**************************************************************
@@ -162,6 +282,47 @@ public abstract class Transform
 		{
 			gl.glRotatef(-beta, ux, uy, uz);
 		}
+
+		public void		multForward(float[] m)
+		{
+			float	angrad = (float)Math.toRadians(beta);
+
+			FloatUtil.multMatrix(m, FloatUtil.makeRotationAxis(TMP, 0, angrad,
+															  ux, uy, uz,
+															  TMP_VEC));
+		}
+
+		// Rotations about the same axis simply add up, however long the axes
+		// are, and rotating about the opposite axis takes away. Axes count as
+		// the same if they're less than a millionth of a radian apart, so
+		// the folded rotation is off by at most that much times its angle.
+		public Transform	fold(Transform next)
+		{
+			if (!(next instanceof Rotate))
+				return null;
+
+			Rotate	t = (Rotate)next;
+			float	lengths = (float)Math.sqrt((ux * ux + uy * uy + uz * uz) *
+											   (t.ux * t.ux + t.uy * t.uy +
+												t.uz * t.uz));
+
+			if (lengths == 0.0f)
+				return null;
+
+			// Sine of the angle between the axes, from their cross product
+			float	cx = uy * t.uz - uz * t.uy;
+			float	cy = uz * t.ux - ux * t.uz;
+			float	cz = ux * t.uy - uy * t.ux;
+			float	sin = (float)Math.sqrt(cx * cx + cy * cy + cz * cz) / lengths;
+
+			if (sin > AXIS_TOLERANCE)
+				return null;
+
+			float	dot = ux * t.ux + uy * t.uy + uz * t.uz;
+
+			return new Rotate(ux, uy, uz, (dot > 0.0f) ? (beta + t.beta)
+													   : (beta - t.beta));
+		}
 	}
 
 	public static final class Shear extends Transform
@@ -226,6 +387,11 @@ public abstract class Transform
 		{
 			//gl.glMultMatrixf(kinverse, 0);
 		}
+
+		public void		multForward(float[] m)
+		{
+			FloatUtil.multMatrix(m, kforward);
+		}
 	}
 }
 
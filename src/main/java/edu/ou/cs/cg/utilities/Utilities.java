@@ -98,6 +98,28 @@ public final class Utilities
 		return p;
 	}
 
+	// Like the two methods above, but from a camera's own matrices instead of
+	// reading them back from GL, so they don't stall the pipeline and work
+	// on any thread. Camera.project() and unproject() map many points at
+	// once without allocating.
+	public static double[]	mapViewToScene(Camera camera, double x, double y, double z)
+	{
+		float[]	p = new float[] { (float)x, (float)y, (float)z };
+
+		camera.unproject(p, 0, p, 0, 1);
+
+		return new double[] { p[0], p[1], p[2] };
+	}
+
+	public static double[]	mapSceneToView(Camera camera, double x, double y, double z)
+	{
+		float[]	p = new float[] { (float)x, (float)y, (float)z };
+
+		camera.project(p, 0, p, 0, 1);
+
+		return new double[] { p[0], p[1], p[2] };
+	}
+
 	//**********************************************************************
 	// Public Class Methods (Event Handling)
 	//**********************************************************************
@@ -0,0 +1,97 @@
+package edu.ou.cs.cg.project;
+
+import com.jogamp.opengl.GLAutoDrawable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * The HeadlessScene Class
+ * The View, Model and whole scene graph, initialized on a NullGL instead of a window
+ * Saved cards and the edit journal go to a temp directory, and each scene starts without any edits
+ *
+ * @author Parker Brandt
+ */
+public class HeadlessScene {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final File DIRECTORY = directory();
+    private static final File JOURNAL = new File(DIRECTORY, "journal.bin");
+
+    // Model reads these once, when it's loaded
+    static {
+        System.setProperty("cardgraphics.data", new File(DIRECTORY, "cards").getPath());
+        System.setProperty("cardgraphics.journal", JOURNAL.getPath());
+    }
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final NullGL gl;
+    private final GLAutoDrawable drawable;
+    private final View view;
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    public HeadlessScene() {
+        JOURNAL.delete();
+
+        gl = NullGL.create(1280, 720);
+        drawable = gl.drawable();
+        view = new View(null);
+        view.init(drawable);
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Draws a frame, as the animator would
+     */
+    public void display() {
+        view.display(drawable);
+    }
+
+
+    //****************************************
+    // Getters
+    //****************************************
+
+    public NullGL getGL() {
+        return gl;
+    }
+
+    public View getView() {
+        return view;
+    }
+
+    public Model getModel() {
+        return view.getModel();
+    }
+
+    public KeyHandler getKeyHandler() {
+        return view.getKeyHandler();
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private static File directory() {
+        try {
+            return Files.createTempDirectory("cardgraphics").toFile();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
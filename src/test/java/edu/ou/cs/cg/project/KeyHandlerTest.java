@@ -0,0 +1,198 @@
+package edu.ou.cs.cg.project;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the KeyHandler Class
+ * Sends key events from one thread, as AWT does, while another handles them as the GL thread does
+ *
+ * @author Parker Brandt
+ */
+public class KeyHandlerTest {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final int ROUNDS = 1001;             // Odd, so the card ends up open
+    private static final int QUEUED = 256;              // Most keys to let wait, well under the queue's capacity
+    private static final long FRAME = 16_000_000L;      // In nanoseconds
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final Component source = new Canvas();
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    // Each round turns on edit mode, changes the color, moves a tree, types an x on the side facing the user,
+    // then turns edit mode off and opens or closes the card. Any key handled out of order or lost would show.
+    @Test
+    public void handlesKeysFromAnotherThreadInOrder() throws InterruptedException {
+        HeadlessScene scene = new HeadlessScene();
+        KeyHandler keys = scene.getKeyHandler();
+        Model model = scene.getModel();
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread events = new Thread(() -> {
+            try {
+                for(int i = 0; i < ROUNDS; i++) {
+                    tap(keys, KeyEvent.VK_E);
+                    tap(keys, KeyEvent.VK_C);
+
+                    press(keys, KeyEvent.VK_W);
+                    release(keys, KeyEvent.VK_W);
+
+                    press(keys, KeyEvent.VK_T);
+                    type(keys, 't');                // Starts typing, so isn't typed
+                    type(keys, 'x');
+                    tap(keys, KeyEvent.VK_ESCAPE);
+                    release(keys, KeyEvent.VK_T);
+
+                    tap(keys, KeyEvent.VK_E);
+                    tap(keys, KeyEvent.VK_SPACE);
+                }
+            } catch(Throwable t) {
+                failure.set(t);
+            }
+
+            done.set(true);
+        }, "events");
+
+        events.start();
+        while(!done.get()) {
+            keys.processCommands();
+            keys.update(System.nanoTime());
+        }
+        events.join();
+
+        keys.processCommands();
+        keys.update(System.nanoTime());
+
+        assertNull(failure.get());
+        assertEquals(0, keys.getDropped());
+        assertEquals(0, keys.getQueued());
+
+        assertFalse(model.isEditMode());
+        assertFalse(model.isTextEditing());
+        assertTrue(model.isCardOpen());
+
+        Color color = model.getCardColor();
+        model.setCurrentColor(ROUNDS % 8);
+        assertEquals(model.getCardColor(), color);
+
+        // The front faces the user on even rounds, the inside on odd ones
+        String[] front = model.getFrontText();
+        String[] inside = model.getInsideText();
+        assertEquals("Good Morning" + "x".repeat((ROUNDS + 1) / 2), front[front.length - 1]);
+        assertEquals("good day!" + "x".repeat(ROUNDS / 2), inside[inside.length - 1]);
+
+        // Nothing is left held, so the tree stays where it stopped
+        float y = treeY(scene);
+        assertTrue(y >= 0.2f && y <= 0.45f);
+
+        model.setEditMode(true);
+        long now = System.nanoTime();
+        keys.update(now + FRAME);
+        keys.update(now + 2 * FRAME);
+        assertEquals(y, treeY(scene));
+    }
+
+    // When the GL thread falls behind and a release doesn't fit in the queue, the key mustn't stay held
+    @Test
+    public void releasesHeldKeysWhenQueueOverflows() {
+        HeadlessScene scene = new HeadlessScene();
+        KeyHandler keys = scene.getKeyHandler();
+        long now = System.nanoTime();
+
+        press(keys, KeyEvent.VK_E);
+        press(keys, KeyEvent.VK_W);
+        keys.processCommands();
+        keys.update(now);
+        keys.update(now + FRAME);
+
+        float y = treeY(scene);
+        assertTrue(y > 0.2f);
+
+        // Keys the handler ignores fill the queue, so the release of W is lost
+        while(keys.getDropped() == 0) {
+            keys.keyPressed(event(KeyEvent.KEY_PRESSED, KeyEvent.VK_F1, KeyEvent.CHAR_UNDEFINED));
+        }
+        keys.keyReleased(event(KeyEvent.KEY_RELEASED, KeyEvent.VK_W, KeyEvent.CHAR_UNDEFINED));
+
+        keys.processCommands();
+        keys.update(now + 2 * FRAME);
+        keys.update(now + 3 * FRAME);
+        assertEquals(y, treeY(scene));
+
+        // Keys pressed again are held again
+        press(keys, KeyEvent.VK_W);
+        keys.processCommands();
+        keys.update(now + 4 * FRAME);
+        assertTrue(treeY(scene) > y);
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private void tap(KeyHandler keys, int keyCode) {
+        press(keys, keyCode);
+        release(keys, keyCode);
+    }
+
+    private void press(KeyHandler keys, int keyCode) {
+        send(keys, event(KeyEvent.KEY_PRESSED, keyCode, KeyEvent.CHAR_UNDEFINED));
+    }
+
+    private void release(KeyHandler keys, int keyCode) {
+        send(keys, event(KeyEvent.KEY_RELEASED, keyCode, KeyEvent.CHAR_UNDEFINED));
+    }
+
+    private void type(KeyHandler keys, char c) {
+        send(keys, event(KeyEvent.KEY_TYPED, KeyEvent.VK_UNDEFINED, c));
+    }
+
+    // Waits for the GL thread to catch up rather than let the queue fill
+    private void send(KeyHandler keys, KeyEvent e) {
+        while(keys.getQueued() >= QUEUED) {
+            Thread.yield();
+        }
+
+        switch(e.getID()) {
+            case KeyEvent.KEY_PRESSED:
+                keys.keyPressed(e);
+                break;
+
+            case KeyEvent.KEY_RELEASED:
+                keys.keyReleased(e);
+                break;
+
+            default:
+                keys.keyTyped(e);
+                break;
+        }
+    }
+
+    private KeyEvent event(int id, int keyCode, char keyChar) {
+        return new KeyEvent(source, id, System.currentTimeMillis(), 0, keyCode, keyChar);
+    }
+
+    // Where the first tree on the front of the held card is, which W moves
+    private static float treeY(HeadlessScene scene) {
+        return scene.getView().getMainCard().getFront().getTreeLoc().get(0).y;
+    }
+}
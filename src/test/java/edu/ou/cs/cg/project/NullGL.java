@@ -0,0 +1,286 @@
+package edu.ou.cs.cg.project;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2ES1;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GL2GL3;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLContext;
+import com.jogamp.opengl.GLProfile;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.FixedValue;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * The NullGL Class
+ * A GL2 that draws nothing and only counts its calls, for running the scene without a display
+ * The few calls whose answers the scene uses hand out ids and a complete framebuffer; every other
+ * call returns zero, false or null
+ *
+ * @author Parker Brandt
+ */
+public abstract class NullGL implements GL2 {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final GLProfile PROFILE = profile();   // Without a device, for decoding textures
+
+    private static final Class<? extends NullGL> TYPE = type();
+
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private final int width, height;    // Of the viewport
+    private long calls;                 // Calls so far
+    private int nextId;                 // Next texture, buffer or list id to hand out
+
+
+    //****************************************
+    // Constructors
+    //****************************************
+    protected NullGL(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.nextId = 1;
+    }
+
+    /**
+     * Makes a GL with a viewport of the given size
+     * @param width
+     * @param height
+     */
+    public static NullGL create(int width, int height) {
+        try {
+            return TYPE.getDeclaredConstructor(int.class, int.class).newInstance(width, height);
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    //****************************************
+    // Public Methods
+    //****************************************
+
+    /**
+     * Makes a drawable for handing this GL to GLEventListener methods
+     */
+    public GLAutoDrawable drawable() {
+        return (GLAutoDrawable)Proxy.newProxyInstance(GLAutoDrawable.class.getClassLoader(),
+                new Class<?>[] {GLAutoDrawable.class}, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getGL":
+                    return this;
+
+                case "getSurfaceWidth":
+                    return width;
+
+                case "getSurfaceHeight":
+                    return height;
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Makes this the current GL of the calling thread, for code that asks GLContext for it, like TextRenderer
+     * The context around it is a stand-in that answers getGL() and nothing else
+     */
+    public void makeCurrent() {
+        try {
+            // Loaded next to this GL's class, which the context's getGL() has to see
+            GLContext context = new ByteBuddy()
+                    .subclass(GLContext.class)
+                    .method(ElementMatchers.named("getGL").or(ElementMatchers.named("getRootGL")))
+                    .intercept(FixedValue.value(this))
+                    .method(ElementMatchers.isAbstract()
+                            .and(ElementMatchers.not(ElementMatchers.named("getGL").or(ElementMatchers.named("getRootGL")))))
+                    .intercept(StubMethod.INSTANCE)
+                    .make()
+                    .load(getClass().getClassLoader())
+                    .getLoaded()
+                    .getDeclaredConstructor()
+                    .newInstance();
+
+            Method setCurrent = GLContext.class.getDeclaredMethod("setCurrent", GLContext.class);
+            setCurrent.setAccessible(true);
+            setCurrent.invoke(null, context);
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+
+    //****************************************
+    // GL Override Methods
+    //****************************************
+    @Override
+    public GL getGL() {
+        return this;
+    }
+
+    @Override
+    public GL2 getGL2() {
+        return this;
+    }
+
+    @Override
+    public GL2ES1 getGL2ES1() {
+        return this;
+    }
+
+    @Override
+    public GL2ES2 getGL2ES2() {
+        return this;
+    }
+
+    @Override
+    public GL2GL3 getGL2GL3() {
+        return this;
+    }
+
+    @Override
+    public boolean isGL2() {
+        return true;
+    }
+
+    @Override
+    public boolean isGL2ES1() {
+        return true;
+    }
+
+    @Override
+    public boolean isGL2ES2() {
+        return true;
+    }
+
+    @Override
+    public boolean isGL2GL3() {
+        return true;
+    }
+
+    @Override
+    public GLProfile getGLProfile() {
+        return PROFILE;
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        called();
+        generate(n, textures, offset);
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        called();
+        generate(n, buffers, offset);
+    }
+
+    @Override
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        called();
+        generate(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        called();
+        generate(n, renderbuffers, offset);
+    }
+
+    @Override
+    public int glGenLists(int range) {
+        called();
+        nextId += range;
+        return nextId - range;
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        called();
+        return GL.GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    // Only the viewport is ever read back, anything else gets a size big enough for any texture
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        called();
+
+        if(pname == GL.GL_VIEWPORT) {
+            params[offset] = 0;
+            params[offset + 1] = 0;
+            params[offset + 2] = width;
+            params[offset + 3] = height;
+        } else {
+            params[offset] = 8192;
+        }
+    }
+
+
+    //****************************************
+    // Protected Methods
+    //****************************************
+
+    // Every call counts, including the generated ones
+    protected void called() {
+        calls++;
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private void generate(int n, int[] ids, int offset) {
+        for(int i = 0; i < n; i++) {
+            ids[offset + i] = nextId++;
+        }
+    }
+
+    /**
+     * Generates the rest of GL2, which has too many methods for java.lang.reflect.Proxy
+     */
+    private static Class<? extends NullGL> type() {
+        try {
+            return new ByteBuddy()
+                    .subclass(NullGL.class, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+                    .method(ElementMatchers.isAbstract())
+                    .intercept(MethodCall.invoke(NullGL.class.getDeclaredMethod("called")).andThen(StubMethod.INSTANCE))
+                    .make()
+                    .load(NullGL.class.getClassLoader())
+                    .getLoaded();
+        } catch(NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A GL2 profile made without asking a device for one, which needs a display
+     */
+    private static GLProfile profile() {
+        try {
+            Constructor<GLProfile> c = GLProfile.class.getDeclaredConstructor(String.class, GLProfile.class,
+                                                                             boolean.class, boolean.class);
+            c.setAccessible(true);
+            return c.newInstance(GLProfile.GL2, null, false, false);
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
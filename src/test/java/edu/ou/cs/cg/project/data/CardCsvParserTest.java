@@ -0,0 +1,202 @@
+package edu.ou.cs.cg.project.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the CardCsvParser Class
+ * Parses cards from strings and checks what comes out, and which lines are reported as malformed
+ *
+ * @author Parker Brandt
+ */
+public class CardCsvParserTest {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    private CardCsvParser parser;
+    private CardData data;
+    private ArrayList<String> errors;       // Malformed lines reported, as "line: message"
+
+
+    //****************************************
+    // Setup
+    //****************************************
+    @BeforeEach
+    public void setUp() {
+        parser = new CardCsvParser();
+        data = new CardData();
+        errors = new ArrayList<>();
+    }
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    @Test
+    public void parsesCardWithTrees() throws IOException {
+        start("7,2,Hello there,Inside,front,0.1,0.2,back,0.3,-0.4\n");
+
+        assertTrue(parser.next(data));
+        assertEquals(7, data.getId());
+        assertEquals(2, data.getColor());
+        assertEquals("Hello there", data.getFrontText());
+        assertEquals("Inside", data.getInsideText());
+        assertEquals(2, data.getTreeCount());
+        assertTrue(data.isTreeFront(0));
+        assertFalse(data.isTreeFront(1));
+        assertEquals(0.1f, data.getTreeX(0));
+        assertEquals(0.2f, data.getTreeY(0));
+        assertEquals(0.3f, data.getTreeX(1));
+        assertEquals(-0.4f, data.getTreeY(1));
+
+        assertFalse(parser.next(data));
+        assertEquals(1, parser.getLine());
+    }
+
+    @Test
+    public void reportsMalformedLinesWithLineNumbers() throws IOException {
+        parser.setErrorListener((name, line, message) -> errors.add(line + ": " + message));
+        start("1,0,a,b\n" +
+              "2,0,a\n" +
+              "\n" +
+              "x,0,a,b\n" +
+              "4,0,a,b,front,0.5\n" +
+              "5,0,a,b,front,oops,0.5\n" +
+              "6,0,a,b,front,0.5,1e\n" +
+              "7,0,a,b\n");
+
+        assertEquals(Arrays.asList(1, 7), ids());
+        assertEquals(Arrays.asList(
+            "2: expected 4 fields and 3 per tree, found 3",
+            "4: id isn't a whole number",
+            "5: expected 4 fields and 3 per tree, found 6",
+            "6: tree x isn't a number",
+            "7: tree y has a bad exponent"), errors);
+        assertEquals(5, parser.getErrors());
+        assertEquals(8, parser.getLine());
+    }
+
+    @Test
+    public void throwsOnMalformedLineWithoutListener() throws IOException {
+        start("1,0,a,b\n2,zero,a,b\n3,0,a,b\n");
+
+        assertTrue(parser.next(data));
+
+        IOException e = assertThrows(IOException.class, () -> parser.next(data));
+        assertEquals("test.csv:2: color isn't a whole number", e.getMessage());
+    }
+
+    @Test
+    public void handlesCrlf() throws IOException {
+        start("1,3,Front,Inside\r\n2,4,Other,Text,front,0.25,0.75\r\n\r\n");
+
+        assertTrue(parser.next(data));
+        assertEquals("Inside", data.getInsideText());
+
+        assertTrue(parser.next(data));
+        assertEquals(2, data.getId());
+        assertEquals(0.75f, data.getTreeY(0));
+
+        assertFalse(parser.next(data));
+        assertEquals(0, parser.getErrors());
+    }
+
+    @Test
+    public void readsLastLineWithoutLineBreak() throws IOException {
+        start("1,0,a,b\n2,1,c,d,front,0.5,0.5");
+
+        assertEquals(Arrays.asList(1, 2), ids());
+        assertEquals(1, data.getTreeCount());
+        assertEquals(2, parser.getLine());
+    }
+
+    @Test
+    public void parsesExponents() throws IOException {
+        start("1,0,a,b,front,1.5e-1,2E2,front,-3e+0,.5,front,25e-2 , 1e-30\n");
+
+        assertTrue(parser.next(data));
+        assertEquals(0.15f, data.getTreeX(0));
+        assertEquals(200.0f, data.getTreeY(0));
+        assertEquals(-3.0f, data.getTreeX(1));
+        assertEquals(0.5f, data.getTreeY(1));
+        assertEquals(0.25f, data.getTreeX(2));
+        assertEquals(1e-30f, data.getTreeY(2));
+    }
+
+    @Test
+    public void rejectsOutOfRangeInts() throws IOException {
+        parser.setErrorListener((name, line, message) -> errors.add(line + ": " + message));
+        start("2147483647,0,a,b\n" +
+              "2147483648,0,a,b\n" +
+              "-2147483648,0,a,b\n" +
+              "1,-2147483649,a,b\n" +
+              "99999999999999999999999,0,a,b\n");
+
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, Integer.MIN_VALUE), ids());
+        assertEquals(Arrays.asList(
+            "2: id is too large",
+            "4: color is too large",
+            "5: id is too large"), errors);
+
+        parser.setErrorListener(null);
+        start("1,0,a,b\n2147483648,0,a,b\n");
+
+        assertTrue(parser.next(data));
+        IOException e = assertThrows(IOException.class, () -> parser.next(data));
+        assertEquals("test.csv:2: id is too large", e.getMessage());
+    }
+
+    // Only \n and \\ are escapes; any other backslash is kept
+    @Test
+    public void unescapesLineBreaks() throws IOException {
+        start("1,0,one\\ntwo\\\\n,a\\b\\\n");
+
+        assertTrue(parser.next(data));
+        assertEquals("one\ntwo\\n", data.getFrontText());
+        assertEquals("a\\b\\", data.getInsideText());
+    }
+
+    @Test
+    public void readsLinesLongerThanBuffer() throws IOException {
+        char[] text = new char[200000];
+        Arrays.fill(text, 'x');
+        start("1,0," + new String(text) + ",b\n2,0,a,b\n");
+
+        assertEquals(Arrays.asList(1, 2), ids());
+        assertEquals(0, parser.getErrors());
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private void start(String csv) {
+        parser.reset(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "test.csv");
+    }
+
+    /**
+     * Reads the rest of the cards, leaving the last in data
+     * @return their ids
+     */
+    private ArrayList<Integer> ids() throws IOException {
+        ArrayList<Integer> ids = new ArrayList<>();
+        CardData card = new CardData();
+
+        while(parser.next(card)) {
+            ids.add(card.getId());
+            data.set(card);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,155 @@
+package edu.ou.cs.cg.project.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the CardLibrary Class
+ * Writes libraries of cards with far apart ids and long text, and reads them back by id and in scans
+ *
+ * @author Parker Brandt
+ */
+public class CardLibraryTest {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    @TempDir
+    File temp;
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    // Ids at both ends of the int range used to need an index slot for every id between them
+    @Test
+    public void handlesSparseIds() throws IOException {
+        CardLibrary library = write(card(Integer.MAX_VALUE, 1, "last"), card(0, 2, "zero"),
+                                    card(Integer.MIN_VALUE, 3, "first"), card(1000000, 4, "million"));
+
+        assertEquals(4, library.size());
+        assertEquals(Integer.MIN_VALUE, library.getFirstId());
+        assertEquals(Integer.MAX_VALUE, library.getLastId());
+        assertTrue(new File(temp, "cards.lib").length() < 1024);
+
+        CardData data = new CardData();
+        assertTrue(library.read(Integer.MAX_VALUE, data));
+        assertEquals("last", data.getFrontText());
+        assertTrue(library.read(1000000, data));
+        assertEquals(4, data.getColor());
+        assertEquals(1, data.getTreeCount());
+
+        assertFalse(library.contains(1));
+        assertFalse(library.read(-1, data));
+        assertEquals(-1, library.getColor(999999));
+        assertEquals(3, library.getColor(Integer.MIN_VALUE));
+        assertEquals(1234L, library.getModified(0));
+    }
+
+    @Test
+    public void keepsLastCardWithSameId() throws IOException {
+        CardLibrary library = write(card(5, 0, "old"), card(2, 0, "two"), card(5, 0, "new"));
+
+        CardData data = new CardData();
+        assertEquals(2, library.size());
+        assertTrue(library.read(5, data));
+        assertEquals("new", data.getFrontText());
+    }
+
+    @Test
+    public void emptyLibraryHasNoCards() throws IOException {
+        CardLibrary library = write();
+
+        assertEquals(0, library.size());
+        assertEquals(0, library.getFirstId());
+        assertEquals(-1, library.getLastId());
+        assertFalse(library.contains(0));
+    }
+
+    @Test
+    public void scansOnlyCardIds() throws IOException {
+        CardRepository cards = new LibraryRepository(write(card(Integer.MIN_VALUE, 0, "a"), card(-5, 1, "b"),
+                card(10, 0, "c"), card(1 << 30, 1, "d"), card(Integer.MAX_VALUE, 0, "e")));
+
+        assertEquals(Arrays.asList(Integer.MIN_VALUE, -5, 10, 1 << 30, Integer.MAX_VALUE),
+                     ids(cards, new CardQuery(), Integer.MIN_VALUE, true, 10));
+        assertEquals(Arrays.asList(10, 1 << 30), ids(cards, new CardQuery(), 0, true, 2));
+        assertEquals(Arrays.asList(10, -5, Integer.MIN_VALUE), ids(cards, new CardQuery(), 11, false, 10));
+        assertEquals(Arrays.asList(-5, 1 << 30),
+                     ids(cards, new CardQuery().setColor(1), Integer.MIN_VALUE, true, 10));
+        assertEquals(Arrays.asList(-5, 10),
+                     ids(cards, new CardQuery().setIdRange(-10, 100), Integer.MIN_VALUE, true, 10));
+    }
+
+    // Text too long for the record is cut between characters, never inside one
+    @Test
+    public void cutsLongTextBetweenCharacters() throws IOException {
+        String text = String.join("", Collections.nCopies(30000, "a\u00E9\u20AC"));    // 1, 2 and 3 bytes
+        CardData card = card(1, 0, text);
+        card.setInsideText(String.join("", Collections.nCopies(20000, "\uD83C\uDF32")));     // 4 bytes each
+
+        CardLibrary library = write(card);
+        CardData data = new CardData();
+        assertTrue(library.read(1, data));
+
+        String front = data.getFrontText();
+        assertTrue(text.startsWith(front));
+        assertTrue(front.getBytes(StandardCharsets.UTF_8).length <= 0xFFFF);
+        assertTrue(front.getBytes(StandardCharsets.UTF_8).length > 0xFFFF - 3);
+
+        String inside = data.getInsideText();
+        assertEquals(0xFFFF / 4 * 2, inside.length());
+        assertFalse(inside.contains("\uFFFD"));
+    }
+
+    @Test
+    public void fitsTextAtCharacterBoundary() {
+        byte[] b = "a\u00E9\u20AC".getBytes(StandardCharsets.UTF_8);    // 1 + 2 + 3 bytes
+
+        assertEquals(6, CardLibrary.fitText(b, 10));
+        assertEquals(6, CardLibrary.fitText(b, 6));
+        assertEquals(3, CardLibrary.fitText(b, 5));
+        assertEquals(3, CardLibrary.fitText(b, 4));
+        assertEquals(3, CardLibrary.fitText(b, 3));
+        assertEquals(1, CardLibrary.fitText(b, 2));
+        assertEquals(0, CardLibrary.fitText(b, 0));
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private CardLibrary write(CardData... cards) throws IOException {
+        File file = new File(temp, "cards.lib");
+        CardLibrary.write(file, new ArrayList<>(Arrays.asList(cards)));
+        return CardLibrary.open(file);
+    }
+
+    private static ArrayList<Integer> ids(CardRepository cards, CardQuery query, int from, boolean forward, int limit) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        cards.scan(query, from, forward, limit, data -> ids.add(data.getId()));
+        return ids;
+    }
+
+    private static CardData card(int id, int color, String front) {
+        CardData data = new CardData();
+        data.setId(id);
+        data.setColor(color);
+        data.setFrontText(front);
+        data.setInsideText("inside");
+        data.setModified(1234L);
+        data.addTree(false, 0.5f, 0.25f);
+        return data;
+    }
+}
@@ -0,0 +1,139 @@
+package edu.ou.cs.cg.project.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the CardWriter Class
+ * Saves cards into a temp directory, including while it can't be written to
+ *
+ * @author Parker Brandt
+ */
+public class CardWriterTest {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    @TempDir
+    File temp;
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    @Test
+    public void writesCardsThatParseBack() throws IOException, InterruptedException {
+        CardWriter writer = new CardWriter(new File(temp, "cards"), false);
+
+        writer.save(card(7, "Hello, there"));
+        writer.flush();
+
+        CardData data = new CardData();
+        assertTrue(new CardCsvParser().read(new File(temp, "cards/card7.csv"), data));
+        assertEquals("Hello  there", data.getFrontText());
+        assertEquals(1, data.getTreeCount());
+        assertEquals(1, writer.getSaved());
+
+        writer.shutdown();
+    }
+
+    // The directory can't be made while a file is in its place, so the first tries fail
+    @Test
+    public void retriesCardsThatFailed() throws IOException, InterruptedException {
+        File dir = new File(temp, "cards");
+        assertTrue(dir.createNewFile());
+
+        CardWriter writer = new CardWriter(dir, false);
+        writer.save(card(3, "First"));
+
+        waitForFailures(writer, 1);
+        Files.delete(dir.toPath());
+        writer.flush();
+
+        CardData data = new CardData();
+        assertTrue(new CardCsvParser().read(new File(dir, "card3.csv"), data));
+        assertEquals("First", data.getFrontText());
+        assertEquals(1, writer.getSaved());
+        assertEquals(0, writer.getDropped());
+
+        writer.shutdown();
+    }
+
+    // A failed copy isn't queued again over a newer save of the same card
+    @Test
+    public void newerSaveReplacesFailedCopy() throws IOException, InterruptedException {
+        File dir = new File(temp, "cards");
+        assertTrue(dir.createNewFile());
+
+        CardWriter writer = new CardWriter(dir, false);
+        writer.save(card(3, "First"));
+
+        waitForFailures(writer, 1);
+        writer.save(card(3, "Second"));
+        Files.delete(dir.toPath());
+        writer.flush();
+
+        CardData data = new CardData();
+        assertTrue(new CardCsvParser().read(new File(dir, "card3.csv"), data));
+        assertEquals("Second", data.getFrontText());
+        assertEquals(1, writer.getSaved());
+
+        writer.shutdown();
+    }
+
+
+    // Text typed on several lines is saved on one line of CSV and parsed back into the same lines
+    @Test
+    public void formatsTextThatParsesBack() throws IOException {
+        CardData card = card(9, "Dear Pat,\nHappy birthday\n");
+        card.setInsideText("C:\\cards\\n\r\nline two\\");
+
+        StringBuilder text = new StringBuilder();
+        CardWriter.format(card, text);
+        assertEquals(1, text.toString().split("\n", -1).length - 1);
+
+        CardCsvParser parser = new CardCsvParser();
+        parser.reset(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), "test.csv");
+
+        CardData data = new CardData();
+        assertTrue(parser.next(data));
+        assertEquals("Dear Pat \nHappy birthday\n", data.getFrontText());
+        assertEquals("C:\\cards\\n\nline two\\", data.getInsideText());
+        assertArrayEquals(new String[] {"Dear Pat ", "Happy birthday", ""}, CardData.lines(data.getFrontText()));
+        assertEquals(1, data.getTreeCount());
+        assertFalse(parser.next(data));
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private static CardData card(int id, String front) {
+        CardData data = new CardData();
+        data.setId(id);
+        data.setColor(1);
+        data.setFrontText(front);
+        data.setInsideText("Inside");
+        data.addTree(true, 0.25f, 0.5f);
+        return data;
+    }
+
+    private static void waitForFailures(CardWriter writer, int failures) throws InterruptedException {
+        long give = System.currentTimeMillis() + 10000;
+
+        while(writer.getFailures() < failures) {
+            assertTrue(System.currentTimeMillis() < give, "Never failed");
+            Thread.sleep(10);
+        }
+    }
+}
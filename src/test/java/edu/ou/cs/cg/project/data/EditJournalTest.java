@@ -0,0 +1,253 @@
+package edu.ou.cs.cg.project.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the EditJournal Class
+ * Edits a card through a journal in a temp directory, and opens the file again as a restart would
+ *
+ * @author Parker Brandt
+ */
+public class EditJournalTest {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    @TempDir
+    File temp;
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    @Test
+    public void startsFromDefaults() {
+        EditJournal journal = open();
+
+        assertFalse(journal.isRecovered());
+        assertFalse(journal.canUndo());
+        assertFalse(journal.canRedo());
+        assertEquals("front", get(journal).getFrontText());
+
+        journal.close();
+    }
+
+    @Test
+    public void undoesAndRedoesEdits() {
+        EditJournal journal = open();
+
+        journal.setColor(1);
+        journal.moveTree(false, 0, 0.25f, -0.125f);
+        journal.setColor(2);
+
+        assertTrue(journal.undo());
+        assertEquals(1, get(journal).getColor());
+        assertTrue(journal.undo());
+        assertEquals(0.5f, get(journal).getTreeX(1));
+        assertTrue(journal.canRedo());
+
+        assertTrue(journal.redo());
+        CardData data = get(journal);
+        assertEquals(0.75f, data.getTreeX(1));
+        assertEquals(0.375f, data.getTreeY(1));
+        assertEquals(0.5f, data.getTreeX(0));       // The front tree stays put
+
+        assertTrue(journal.redo());
+        assertEquals(2, get(journal).getColor());
+        assertFalse(journal.redo());
+
+        assertTrue(journal.undo());
+        assertTrue(journal.undo());
+        assertTrue(journal.undo());
+        assertFalse(journal.undo());
+        assertEquals(0, get(journal).getColor());
+
+        journal.close();
+    }
+
+    // An edit after an undo throws away the edits that could have been redone
+    @Test
+    public void newEditDropsRedoTail() {
+        EditJournal journal = open();
+
+        journal.setColor(1);
+        journal.setColor(2);
+        journal.setColor(3);
+        journal.undo();
+        journal.undo();
+        journal.setColor(7);
+
+        assertFalse(journal.canRedo());
+        assertFalse(journal.redo());
+        assertEquals(2, journal.getEdits());
+        assertEquals(7, get(journal).getColor());
+
+        journal.undo();
+        assertEquals(1, get(journal).getColor());
+        journal.close();
+
+        // The file says the same after a restart
+        journal = open();
+        assertTrue(journal.isRecovered());
+        assertEquals(1, get(journal).getColor());
+        assertTrue(journal.redo());
+        assertEquals(7, get(journal).getColor());
+        assertFalse(journal.redo());
+
+        journal.close();
+    }
+
+    @Test
+    public void resetKeepsId() {
+        CardData start = defaults();
+        start.setId(42);
+        start.setColor(3);
+
+        EditJournal journal = open();
+        journal.begin(start);
+        journal.setText(true, "changed");
+        journal.reset();
+
+        CardData data = get(journal);
+        assertEquals(42, data.getId());
+        assertEquals(0, data.getColor());
+        assertEquals("front", data.getFrontText());
+
+        journal.undo();
+        assertEquals("changed", get(journal).getFrontText());
+        journal.close();
+    }
+
+    // A crash in the middle of appending leaves part of a record at the end of the file
+    @Test
+    public void recoversFromTornLastRecord() throws IOException {
+        EditJournal journal = open();
+        journal.setColor(4);
+        journal.moveTree(true, 1, 0.125f, 0.0f);
+        journal.close();
+
+        File file = new File(temp, "journal.bin");
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        long torn = file.length();
+
+        journal = open();
+        assertTrue(journal.isRecovered());
+        assertEquals(1, journal.getEdits());
+        assertEquals(4, get(journal).getColor());
+        assertEquals(0.1f, get(journal).getTreeX(2));
+        assertTrue(file.length() < torn);
+
+        // New edits go after the last whole record, not after the torn bytes
+        journal.setColor(5);
+        journal.close();
+
+        journal = open();
+        assertEquals(2, journal.getEdits());
+        assertEquals(5, get(journal).getColor());
+        journal.undo();
+        assertEquals(4, get(journal).getColor());
+        journal.close();
+    }
+
+    @Test
+    public void ignoresFileThatIsNotJournal() throws IOException {
+        File file = new File(temp, "journal.bin");
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0x12345678);
+        }
+
+        EditJournal journal = open();
+        assertFalse(journal.isRecovered());
+        assertEquals("front", get(journal).getFrontText());
+        journal.close();
+    }
+
+    // At twice HISTORY edits the oldest are folded into the snapshot, and the rest can still be undone
+    @Test
+    public void compactsKeepingLastHistoryEdits() {
+        EditJournal journal = open();
+
+        for(int i = 1; i < 2 * EditJournal.HISTORY; i++) {
+            journal.setColor(i);
+        }
+        assertEquals(0, journal.getCompactions());
+        assertEquals(2 * EditJournal.HISTORY - 1, journal.getEdits());
+
+        journal.setColor(2 * EditJournal.HISTORY);
+        assertEquals(1, journal.getCompactions());
+        assertEquals(EditJournal.HISTORY, journal.getEdits());
+        assertEquals(2 * EditJournal.HISTORY, get(journal).getColor());
+        journal.close();
+
+        // The compacted file holds the same card and edits
+        File file = new File(temp, "journal.bin");
+        long compacted = file.length();
+        assertTrue(compacted < 100 + 7 * EditJournal.HISTORY);
+
+        journal = open();
+        assertEquals(EditJournal.HISTORY, journal.getEdits());
+        for(int i = 0; i < EditJournal.HISTORY; i++) {
+            assertTrue(journal.undo());
+        }
+        assertFalse(journal.undo());
+        assertEquals(EditJournal.HISTORY, get(journal).getColor());
+
+        journal.close();
+    }
+
+    // Text typed on the card is journaled as one string and split back into the same lines
+    @Test
+    public void keepsLinesOfText() {
+        String[][] cases = {
+            {"Hello", "there"},
+            {"ends with a break", ""},
+            {"", "", ""},
+            {""},
+        };
+
+        for(String[] lines : cases) {
+            EditJournal journal = open();
+            journal.setText(false, String.join("\n", lines));
+            journal.close();
+
+            journal = open();
+            assertArrayEquals(lines, CardData.lines(get(journal).getInsideText()));
+            journal.close();
+        }
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private EditJournal open() {
+        return new EditJournal(new File(temp, "journal.bin"), defaults());
+    }
+
+    private static CardData defaults() {
+        CardData data = new CardData();
+        data.setFrontText("front");
+        data.setInsideText("inside");
+        data.addTree(true, 0.5f, 0.2f);
+        data.addTree(false, 0.5f, 0.5f);
+        data.addTree(true, 0.1f, 0.35f);
+        return data;
+    }
+
+    private static CardData get(EditJournal journal) {
+        CardData data = new CardData();
+        journal.get(data);
+        return data;
+    }
+}
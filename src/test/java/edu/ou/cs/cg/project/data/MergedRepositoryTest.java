@@ -0,0 +1,120 @@
+package edu.ou.cs.cg.project.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the MergedRepository Class
+ * Lists library cards with saved cards in two directories, and checks the saved ones take the library's place
+ *
+ * @author Parker Brandt
+ */
+public class MergedRepositoryTest {
+
+    //****************************************
+    // Private Variables
+    //****************************************
+    @TempDir
+    File temp;
+
+    private CardRepository cards;
+
+
+    //****************************************
+    // Setup
+    //****************************************
+    @BeforeEach
+    public void setUp() throws IOException {
+        File library = new File(temp, "library");
+        File saved = new File(temp, "saved");
+
+        write(library, 1, 0, "one");
+        write(library, 3, 0, "three");
+        write(library, 5, 0, "five");
+        write(library, 7, 0, "seven");
+        write(saved, 3, 2, "three saved");
+        write(saved, 4, 0, "four saved");
+
+        cards = CardRepository.merge(CardRepository.open(library), CardRepository.open(saved));
+    }
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    @Test
+    public void listsSavedCardsInPlaceOfLibraryCards() {
+        ArrayList<String> seen = new ArrayList<>();
+
+        assertEquals(5, cards.scan(new CardQuery(), Integer.MIN_VALUE, true, 10,
+                data -> seen.add(data.getId() + " " + data.getFrontText())));
+        assertEquals(Arrays.asList("1 one", "3 three saved", "4 four saved", "5 five", "7 seven"), seen);
+    }
+
+    @Test
+    public void scansBackwardFromAnId() {
+        assertEquals(Arrays.asList(4, 3, 1), ids(new CardQuery(), 4, false, 10));
+        assertEquals(Arrays.asList(7, 5), ids(new CardQuery(), Integer.MAX_VALUE, false, 2));
+    }
+
+    @Test
+    public void stopsAtTheLimit() {
+        assertEquals(Arrays.asList(3, 4), ids(new CardQuery(), 2, true, 2));
+    }
+
+    // A saved card that doesn't match hides the library's copy, even if that would match
+    @Test
+    public void savedCardsHideLibraryCardsThatMatch() {
+        assertEquals(Arrays.asList(1, 4, 5, 7), ids(new CardQuery().setColor(0), Integer.MIN_VALUE, true, 10));
+        assertEquals(Arrays.asList(3), ids(new CardQuery().setColor(2), Integer.MIN_VALUE, true, 10));
+    }
+
+    @Test
+    public void readsSavedCardFirst() {
+        CardData data = new CardData();
+
+        assertTrue(cards.read(3, data));
+        assertEquals("three saved", data.getFrontText());
+        assertTrue(cards.read(5, data));
+        assertEquals("five", data.getFrontText());
+        assertFalse(cards.read(6, data));
+
+        assertTrue(cards.contains(4));
+        assertFalse(cards.contains(2));
+    }
+
+    @Test
+    public void countsEachIdOnce() {
+        assertEquals(5, cards.size());
+        assertEquals(1, cards.getFirstId());
+        assertEquals(7, cards.getLastId());
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    private ArrayList<Integer> ids(CardQuery query, int from, boolean forward, int limit) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        cards.scan(query, from, forward, limit, data -> ids.add(data.getId()));
+        return ids;
+    }
+
+    private static void write(File dir, int id, int color, String text) throws IOException {
+        Files.createDirectories(dir.toPath());
+        Files.write(new File(dir, "card" + id + ".csv").toPath(),
+                (id + "," + color + "," + text + ",inside\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,118 @@
+package edu.ou.cs.cg.project.scene;
+
+import com.jogamp.opengl.GL2;
+import edu.ou.cs.cg.project.HeadlessScene;
+import edu.ou.cs.cg.project.Model;
+import edu.ou.cs.cg.utilities.Node;
+import edu.ou.cs.cg.utilities.RenderQueue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the Card Class
+ * Swings the held card open and shut over and over, drawing it each frame as the View does
+ *
+ * @author Parker Brandt
+ */
+public class CardTest {
+
+    //****************************************
+    // Constants
+    //****************************************
+    private static final float EPSILON = 1.0e-5f;
+    private static final int CYCLES = 3000;         // Times to open and close the card
+    private static final int WINDOW = 1000;         // Cycles at the start and end to compare
+    private static final int SWING = 92;            // Frames for the card to swing all the way open, 2 degrees a frame
+
+
+    //****************************************
+    // Tests
+    //****************************************
+
+    // The hinge, the trees and the drifting clouds are all moved with slots, so nothing is ever added to a
+    // transform list. How many matrices a frame recomputes stands in for the frame's cost, and the last
+    // cycles must cost no more than the first.
+    @Test
+    public void openingAndClosingKeepsTransformsConstant() {
+        HeadlessScene scene = new HeadlessScene();
+        Model model = scene.getModel();
+        Card card = scene.getView().getMainCard();
+        GL2 gl = scene.getGL();
+        RenderQueue queue = new RenderQueue();
+        float[] view = scene.getView().getCamera().getViewMatrix();
+
+        // Let the hinge come to rest closed
+        for(int i = 0; i < 2; i++) {
+            frame(gl, card, queue, view);
+        }
+
+        float[] closed = card.getFront().getLocalMatrix().clone();
+        int transforms = transforms(card);
+        int clouds = clouds(card);
+        long[] recomputed = new long[CYCLES];
+
+        for(int i = 0; i < CYCLES; i++) {
+            for(int f = 0; f < 2 * SWING; f++) {
+                model.setCardOpen(f < SWING);
+                recomputed[i] += frame(gl, card, queue, view);
+            }
+
+            assertEquals(transforms, transforms(card));
+            assertEquals(clouds, clouds(card));
+            assertArrayEquals(closed, card.getFront().getLocalMatrix(), EPSILON);
+        }
+
+        long first = 0, last = 0;
+        for(int i = 0; i < WINDOW; i++) {
+            first += recomputed[i];
+            last += recomputed[CYCLES - WINDOW + i];
+        }
+
+        // Clouds wrapping from one side to the other move a few matrices between the sides' counts
+        assertTrue(first > 0);
+        assertTrue(last <= first + first / 100, "first " + first + ", last " + last);
+    }
+
+
+    //****************************************
+    // Private Methods
+    //****************************************
+
+    /**
+     * Updates and draws the card the way View.display() does
+     * @return the matrices recomputed for it
+     */
+    private static int frame(GL2 gl, Card card, RenderQueue queue, float[] view) {
+        Node.resetStats();
+        card.update(gl);
+
+        queue.begin(view);
+        card.render(gl);
+        queue.flush(gl);
+
+        return Node.getMatricesRecomputed();
+    }
+
+    private static int transforms(Card card) {
+        int count = card.getTransformCount();
+
+        for(Card.CardSide side : new Card.CardSide[] {card.getFront(), card.getBack()}) {
+            count += side.getTransformCount();
+
+            for(Card.CardImage image : side.getTrees()) {
+                count += image.getTransformCount();
+            }
+
+            for(Card.CardImage image : side.getClouds()) {
+                count += image.getTransformCount();
+            }
+        }
+
+        return count;
+    }
+
+    private static int clouds(Card card) {
+        return card.getFront().getClouds().size() + card.getBack().getClouds().size();
+    }
+}
@@ -0,0 +1,220 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//******************************************************************************
+
+/**
+ * Tests of <CODE>BoundsTree</CODE>, checking its picks against testing every
+ * box along the ray, before and after the boxes move.<P>
+ *
+ * @author  Parker Brandt
+ */
+public class BoundsTreeTest
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final int	NODES = 5000;
+	private static final int	RAYS = 2000;
+
+	//**********************************************************************
+	// Private Members
+	//**********************************************************************
+
+	private Random		random;
+	private Node[]		nodes;
+	private BoundsTree	tree;
+
+	//**********************************************************************
+	// Setup
+	//**********************************************************************
+
+	@BeforeEach
+	public void	setUp()
+	{
+		random = new Random(1);
+		nodes = new Node[NODES];
+		tree = new BoundsTree();
+
+		for (int i=0; i<NODES; i++)
+		{
+			nodes[i] = new Node();
+			place(nodes[i]);
+			tree.add(nodes[i]);
+		}
+	}
+
+	//**********************************************************************
+	// Tests
+	//**********************************************************************
+
+	@Test
+	public void	picksMatchBruteForce()
+	{
+		tree.refit();
+
+		assertEquals(1, tree.getRebuilds());
+		checkPicks();
+	}
+
+	@Test
+	public void	emptyTreePicksNothing()
+	{
+		BoundsTree	empty = new BoundsTree();
+
+		empty.refit();
+
+		assertNull(empty.pick(0.0f, 0.0f, -20.0f, 0.0f, 0.0f, 1.0f));
+		assertEquals(Float.POSITIVE_INFINITY, empty.getDistance());
+	}
+
+	@Test
+	public void	addingNodesRebuilds()
+	{
+		tree.refit();
+
+		Node	node = new Node();
+
+		node.setBounds(new Bounds(-0.5f, -0.5f, -15.0f, 0.5f, 0.5f, -14.0f));
+		tree.add(node);
+
+		assertSame(node, tree.pick(0.0f, 0.0f, -20.0f, 0.0f, 0.0f, 1.0f));
+		assertEquals(2, tree.getRebuilds());
+		assertEquals(5.0f, tree.getDistance(), 1.0e-4f);
+	}
+
+	// Nudging nodes only regrows the boxes above them, and picks still see
+	// where they are now.
+	@Test
+	public void	refitFollowsSmallMoves()
+	{
+		tree.refit();
+
+		for (int round=0; round<5; round++)
+		{
+			int	refitted = tree.getRefitted();
+
+			for (int i=0; i<NODES / 10; i++)
+				nudge(nodes[random.nextInt(NODES)], 0.05f);
+
+			tree.refit();
+
+			assertTrue(tree.getRefitted() > refitted);
+			checkPicks();
+		}
+
+		assertEquals(1, tree.getRebuilds());
+	}
+
+	// Refitting without moves does nothing.
+	@Test
+	public void	refitWithoutMovesIsFree()
+	{
+		tree.refit();
+
+		int	refitted = tree.getRefitted();
+
+		tree.refit();
+
+		assertEquals(refitted, tree.getRefitted());
+		assertEquals(1, tree.getRebuilds());
+	}
+
+	// Each node moved to a new place stretches the boxes over it across the
+	// scene, so after enough of them the total area passes the threshold and
+	// the tree is built over again, but not after just one.
+	@Test
+	public void	rebuildsOnceBoxesGrowTooMuch()
+	{
+		tree.refit();
+
+		int	moves = 0;
+
+		while (tree.getRebuilds() == 1)
+		{
+			assertTrue(++moves < NODES / 10, "Never rebuilt");
+
+			place(nodes[random.nextInt(NODES)]);
+			tree.refit();
+
+			if (moves % 10 == 0)
+				checkPicks();
+		}
+
+		assertTrue(moves > 1, "Rebuilt after moving one node");
+		assertEquals(2, tree.getRebuilds());
+		checkPicks();
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Cast rays into the scene and check that each hits the same box first
+	// as testing every box would.
+	private void	checkPicks()
+	{
+		for (int q=0; q<RAYS; q++)
+		{
+			float	ox = random.nextFloat() * 20.0f - 10.0f;
+			float	oy = random.nextFloat() * 20.0f - 10.0f;
+			float	oz = -20.0f;
+			float	dx = random.nextFloat() - 0.5f;
+			float	dy = random.nextFloat() - 0.5f;
+			float	dz = 1.0f;
+
+			Node	hit = tree.pick(ox, oy, oz, dx, dy, dz);
+			float	best = Float.POSITIVE_INFINITY;
+
+			for (Node node : nodes)
+				best = Math.min(best, node.getWorldBounds().intersectRay(
+									ox, oy, oz, 1.0f / dx, 1.0f / dy,
+									1.0f / dz, best));
+
+			assertEquals(best, tree.getDistance(), "Ray " + q);
+
+			// Ties may go either way, but the hit must be at that distance
+			if (hit == null)
+				assertEquals(Float.POSITIVE_INFINITY, best);
+			else
+				assertEquals(best, hit.getWorldBounds().intersectRay(
+								 ox, oy, oz, 1.0f / dx, 1.0f / dy, 1.0f / dz,
+								 Float.POSITIVE_INFINITY));
+		}
+	}
+
+	// Put a node somewhere in a 20 unit cube at the origin.
+	private void	place(Node node)
+	{
+		float	x = random.nextFloat() * 20.0f - 10.0f;
+		float	y = random.nextFloat() * 20.0f - 10.0f;
+		float	z = random.nextFloat() * 20.0f - 10.0f;
+		float	s = random.nextFloat() * 0.3f + 0.05f;
+
+		node.setBounds(new Bounds(x, y, z, x + s, y + s, z + s));
+	}
+
+	// Move a node up to d along each axis.
+	private void	nudge(Node node, float d)
+	{
+		Bounds	b = node.getBounds();
+		float	x = (random.nextFloat() * 2.0f - 1.0f) * d;
+		float	y = (random.nextFloat() * 2.0f - 1.0f) * d;
+		float	z = (random.nextFloat() * 2.0f - 1.0f) * d;
+
+		node.setBounds(new Bounds(b.getMin(0) + x, b.getMin(1) + y,
+								  b.getMin(2) + z, b.getMax(0) + x,
+								  b.getMax(1) + y, b.getMax(2) + z));
+	}
+}
+
+//******************************************************************************
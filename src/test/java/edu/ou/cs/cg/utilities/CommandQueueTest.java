@@ -0,0 +1,113 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//******************************************************************************
+
+/**
+ * Tests of <CODE>CommandQueue</CODE>, including a stress test handing items
+ * from one thread to another.<P>
+ *
+ * @author  Parker Brandt
+ */
+public class CommandQueueTest
+{
+	//**********************************************************************
+	// Tests
+	//**********************************************************************
+
+	@Test
+	public void	roundsCapacityUpToPowerOfTwo()
+	{
+		assertEquals(1, new CommandQueue<Integer>(1).getCapacity());
+		assertEquals(8, new CommandQueue<Integer>(5).getCapacity());
+		assertEquals(1024, new CommandQueue<Integer>(1024).getCapacity());
+	}
+
+	@Test
+	public void	dropsOffersWhenFull()
+	{
+		CommandQueue<Integer>	q = new CommandQueue<Integer>(4);
+
+		for (int i=0; i<4; i++)
+			assertTrue(q.offer(i));
+
+		assertFalse(q.offer(4));
+		assertEquals(1, q.getDropped());
+		assertEquals(4, q.size());
+
+		assertEquals(Integer.valueOf(0), q.poll());
+		assertTrue(q.offer(5));
+		assertEquals(4, q.size());
+	}
+
+	@Test
+	public void	drainsOldestFirstAndOnlyWhatWasThere()
+	{
+		CommandQueue<Integer>	q = new CommandQueue<Integer>(8);
+		ArrayList<Integer>		seen = new ArrayList<Integer>();
+
+		for (int i=0; i<3; i++)
+			q.offer(i);
+
+		// Items offered while draining wait for the next drain
+		int	n = q.drain(v -> { seen.add(v); q.offer(10 + v); });
+
+		assertEquals(3, n);
+		assertEquals(java.util.Arrays.asList(0, 1, 2), seen);
+		assertEquals(3, q.size());
+		assertEquals(Integer.valueOf(10), q.poll());
+		assertNull(new CommandQueue<Integer>(2).poll());
+	}
+
+	// One producer and one consumer, with the ring much smaller than the
+	// number of items, so both keep catching up to each other. Every item
+	// must arrive exactly once and in order.
+	@Test
+	public void	handsItemsAcrossThreadsInOrder() throws InterruptedException
+	{
+		final int					count = 2_000_000;
+		final CommandQueue<Integer>	q = new CommandQueue<Integer>(64);
+		AtomicReference<Throwable>	failure = new AtomicReference<Throwable>();
+
+		Thread	producer = new Thread(() -> {
+			for (int i=0; i<count; i++)
+				while (!q.offer(i))
+					Thread.yield();		// Full, let the consumer run
+		}, "producer");
+
+		producer.setUncaughtExceptionHandler((t, e) -> failure.set(e));
+		producer.start();
+
+		int[]	next = new int[1];
+
+		while (next[0] < count)
+		{
+			int	n = q.drain(v -> {
+				if (v != next[0])
+					fail("Expected " + next[0] + " but got " + v);
+
+				next[0]++;
+			});
+
+			if (n == 0)
+				Thread.yield();			// Empty, let the producer run
+		}
+
+		producer.join();
+
+		assertNull(failure.get());
+		assertEquals(count, next[0]);
+		assertEquals(0, q.size());
+		assertNull(q.poll());
+	}
+}
+
+//******************************************************************************
@@ -0,0 +1,143 @@
+package edu.ou.cs.cg.utilities;
+
+//import java.lang.*;
+
+import com.jogamp.opengl.math.FloatUtil;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//******************************************************************************
+
+/**
+ * Tests of folding <CODE>Transform</CODE>s and of animating them in slots.
+ * The soak test swinging a real card open and shut is in CardTest.<P>
+ *
+ * @author  Parker Brandt
+ */
+public class TransformTest
+{
+	//**********************************************************************
+	// Private Class Members
+	//**********************************************************************
+
+	private static final float	EPSILON = 1.0e-5f;
+	private static final int	CYCLES = 100_000;
+
+	//**********************************************************************
+	// Tests
+	//**********************************************************************
+
+	@Test
+	public void	foldsTranslationsAndScales()
+	{
+		Node	node = new Node();
+
+		node.pushTransform(new Transform.Translate(1.0f, 2.0f, 3.0f));
+		node.pushTransform(new Transform.Translate(-1.0f, 1.0f, 0.5f));
+
+		assertEquals(1, node.getTransformCount());
+		assertMatrix(node, new Transform.Translate(1.0f, 2.0f, 3.0f),
+					 new Transform.Translate(-1.0f, 1.0f, 0.5f));
+
+		node.pushTransform(new Transform.Scale(2.0f, 3.0f, 4.0f));
+		node.pushTransform(new Transform.Scale(0.5f, 2.0f, 1.0f));
+
+		assertEquals(2, node.getTransformCount());
+	}
+
+	// Axes of any length, pointing the same way, are the same axis.
+	@Test
+	public void	foldsRotationsAboutLongerAxes()
+	{
+		Node	node = new Node();
+
+		node.pushTransform(new Transform.Rotate(1.0f, 1.0f, 0.0f, 30.0f));
+		node.pushTransform(new Transform.Rotate(2.0f, 2.0f, 0.0f, 45.0f));
+
+		assertEquals(1, node.getTransformCount());
+		assertMatrix(node, new Transform.Rotate(1.0f, 1.0f, 0.0f, 30.0f),
+					 new Transform.Rotate(2.0f, 2.0f, 0.0f, 45.0f));
+	}
+
+	@Test
+	public void	foldsRotationsAboutOppositeAxes()
+	{
+		Node	node = new Node();
+
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 90.0f));
+		node.pushTransform(new Transform.Rotate(0.0f, -3.0f, 0.0f, 30.0f));
+
+		assertEquals(1, node.getTransformCount());
+		assertMatrix(node, new Transform.Rotate(0.0f, 1.0f, 0.0f, 60.0f));
+	}
+
+	@Test
+	public void	keepsRotationsAboutOtherAxes()
+	{
+		Node	node = new Node();
+
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 90.0f));
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.001f, 30.0f));
+		node.pushTransform(new Transform.Rotate(0.0f, 0.0f, 0.0f, 30.0f));
+
+		assertEquals(3, node.getTransformCount());
+	}
+
+	@Test
+	public void	neverFoldsSlots()
+	{
+		Node				node = new Node();
+		Transform.Rotate	hinge = new Transform.Rotate(0.0f, 1.0f, 0.0f, 0.0f);
+
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 180.0f));
+		node.pushSlot(hinge);
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 10.0f));
+
+		assertEquals(3, node.getTransformCount());
+		assertTrue(hinge.isSlot());
+
+		node.popTransform();
+		assertSame(hinge, node.popTransform());
+		assertFalse(hinge.isSlot());
+	}
+
+	// Pushing a small rotation every frame instead of using a slot still
+	// doesn't grow the list, since each folds into the one before.
+	@Test
+	public void	pushingIncrementsKeepsTransformsConstant()
+	{
+		Node	node = new Node();
+
+		node.pushTransform(new Transform.Scale(0.5f, 0.8f, 0.01f));
+		node.pushTransform(new Transform.Rotate(0.0f, 1.0f, 0.0f, 0.0f));
+
+		int		count = node.getTransformCount();
+
+		for (int i=0; i<CYCLES; i++)
+		{
+			float	step = ((i / 90) % 2 == 0) ? -2.0f : 2.0f;
+
+			node.pushTransform(new Transform.Rotate(0.0f, 2.0f, 0.0f, step));
+			assertEquals(count, node.getTransformCount());
+		}
+	}
+
+	//**********************************************************************
+	// Private Methods
+	//**********************************************************************
+
+	// Check that a node's matrix is the product of the given transforms.
+	private static void	assertMatrix(Node node, Transform... xforms)
+	{
+		float[]	m = FloatUtil.makeIdentity(new float[16]);
+
+		for (Transform t : xforms)
+			t.multForward(m);
+
+		assertArrayEquals(m, node.getLocalMatrix(), EPSILON);
+	}
+}
+
+//******************************************************************************